@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.api.jms;
+
+import jakarta.jms.Message;
+import jakarta.jms.MessageListener;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Message listener of a message-driven bean receiving its messages by batch.
+ *
+ * In a pooled MDB container (Pool = true) the messages of an endpoint are buffered and delivered
+ * to a single bean instance in a single transaction, up to MaxBatchSize messages or once the first one
+ * waited MaxBatchWait. If the batch fails its transaction is rolled back so all its messages are redelivered.
+ *
+ * In other containers each message is delivered as a batch of one message.
+ */
+public interface BatchMessageListener extends MessageListener {
+    void onMessages(List<Message> messages);
+
+    @Override
+    default void onMessage(final Message message) {
+        onMessages(Collections.singletonList(message));
+    }
+}
@@ -796,6 +796,9 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                 throw new DuplicateDeploymentIdException(message.toString());
             }
 
+            final ParallelAssembly assembly = ParallelAssembly.of(appInfo);
+            assembly.phase("containers");
+
             final ClassLoader oldCl = Thread.currentThread().getContextClassLoader();
             try {
                 Thread.currentThread().setContextClassLoader(classLoader);
@@ -807,6 +810,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
             }
 
             //Construct the global and app jndi contexts for this app
+            assembly.phase("jndi");
             final InjectionBuilder injectionBuilder = new InjectionBuilder(classLoader);
 
             final Set<Injection> injections = new HashSet<>();
@@ -825,6 +829,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
 
             try {
                 // Generate the cmp2/cmp1 concrete subclasses
+                assembly.phase("cmp");
                 final CmpJarBuilder cmpJarBuilder = new CmpJarBuilder(appInfo, classLoader);
                 final File generatedJar = cmpJarBuilder.getJarFile();
                 if (generatedJar != null) {
@@ -852,6 +857,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
 
                 // try to not create N times the same validator for a single app
                 final Map<ComparableValidationConfig, ValidatorFactory> validatorFactoriesByConfig = new HashMap<>();
+                assembly.phase("validation");
                 if (!isGeronimo) {
                     // Bean Validation
                     // ValidatorFactory needs to be put in the map sent to the entity manager factory
@@ -919,12 +925,31 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
 
                 // JPA - Persistence Units MUST be processed first since they will add ClassFileTransformers
                 // to the class loader which must be added before any classes are loaded
+                assembly.phase("persistence");
                 final Map<String, String> units = new HashMap<>();
                 final PersistenceBuilder persistenceBuilder = new PersistenceBuilder(persistenceClassLoaderHandler);
-                for (final PersistenceUnitInfo info : appInfo.persistenceUnits) {
+                final ClassLoader unitsClassLoader = classLoader;
+                final List<ReloadableEntityManagerFactory> factories = !assembly.isParallel() ? null : assembly.map(appInfo.persistenceUnits, unitsClassLoader,
+                    new ParallelAssembly.Task<PersistenceUnitInfo, ReloadableEntityManagerFactory>() {
+                        @Override
+                        public ReloadableEntityManagerFactory run(final PersistenceUnitInfo info) throws Exception {
+                            try {
+                                return persistenceBuilder.createEntityManagerFactory(info, unitsClassLoader, validatorFactoriesByConfig, cdiActive);
+                            } catch (final Exception e) {
+                                throw new OpenEJBException(e);
+                            }
+                        }
+
+                        @Override
+                        public void discard(final ReloadableEntityManagerFactory factory) {
+                            factory.close();
+                        }
+                    });
+                for (int i = 0; i < appInfo.persistenceUnits.size(); i++) {
+                    final PersistenceUnitInfo info = appInfo.persistenceUnits.get(i);
                     final ReloadableEntityManagerFactory factory;
                     try {
-                        factory = persistenceBuilder.createEntityManagerFactory(info, classLoader, validatorFactoriesByConfig, cdiActive);
+                        factory = factories != null ? factories.get(i) : persistenceBuilder.createEntityManagerFactory(info, classLoader, validatorFactoriesByConfig, cdiActive);
                         containerSystem.getJNDIContext().bind(PERSISTENCE_UNIT_NAMING_CONTEXT + info.id, factory);
                         units.put(info.name, PERSISTENCE_UNIT_NAMING_CONTEXT + info.id);
                     } catch (final NameAlreadyBoundException e) {
@@ -939,6 +964,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                 logger.debug("Loaded persistence units: " + units);
 
                 // Connectors
+                assembly.phase("connectors");
                 for (final ConnectorInfo connector : appInfo.connectors) {
                     final ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
                     Thread.currentThread().setContextClassLoader(classLoader);
@@ -962,7 +988,8 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                     }
                 }
 
-                final List<BeanContext> allDeployments = initEjbs(classLoader, appInfo, appContext, injections, new ArrayList<>(), null);
+                assembly.phase("ejbs");
+                final List<BeanContext> allDeployments = initEjbs(classLoader, appInfo, appContext, injections, new ArrayList<>(), null, assembly);
 
                 if ("true".equalsIgnoreCase(SystemInstance.get()
                         .getProperty(PROPAGATE_APPLICATION_EXCEPTIONS,
@@ -970,6 +997,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                     propagateApplicationExceptions(appInfo, classLoader, allDeployments);
                 }
 
+                assembly.phase("cdi");
                 if (cdiActive) {
                     new CdiBuilder().build(appInfo, appContext, allDeployments);
                     ensureWebBeansContext(appContext);
@@ -1005,9 +1033,11 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                     }
                 }
 
+                assembly.phase("start");
                 startEjbs(start, allDeployments);
 
                 // App Client
+                assembly.phase("clients");
                 for (final ClientInfo clientInfo : appInfo.clients) {
                     // determine the injections
                     final List<Injection> clientInjections = injectionBuilder.buildInjections(clientInfo.jndiEnc);
@@ -1052,6 +1082,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                 // WebApp
                 final SystemInstance systemInstance = SystemInstance.get();
 
+                assembly.phase("webapps");
                 final WebAppBuilder webAppBuilder = systemInstance.getComponent(WebAppBuilder.class);
                 if (webAppBuilder != null) {
                     webAppBuilder.deployWebApps(appInfo, classLoader);
@@ -1063,6 +1094,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                 }
 
                 // bind all global values on global context
+                assembly.phase("globals");
                 bindGlobals(appContext.getBindings());
 
                 validateCdiResourceProducers(appContext, appInfo);
@@ -1087,7 +1119,9 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                 deployedApplications.put(appInfo.path, appInfo);
                 resumePersistentSchedulers(appContext);
 
+                assembly.phase("events");
                 systemInstance.fireEvent(new AssemblerAfterApplicationCreated(appInfo, appContext, allDeployments));
+                assembly.report();
                 logger.info("createApplication.success", appInfo.path);
 
                 //required by spec EE.5.3.4
@@ -1105,6 +1139,8 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                     logger.debug("createApplication.undeployFailed", e1, appInfo.path);
                 }
                 throw new OpenEJBException(messages.format("createApplication.failed", appInfo.path), t);
+            } finally {
+                assembly.close();
             }
         } finally {
             // cleanup there as well by safety cause we have multiple deployment mode (embedded, tomcat...)
@@ -1492,16 +1528,36 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
 
     public List<BeanContext> initEjbs(final ClassLoader classLoader, final AppInfo appInfo, final AppContext appContext,
                                       final Set<Injection> injections, final List<BeanContext> allDeployments, final String webappId) throws OpenEJBException {
+        try (final ParallelAssembly assembly = ParallelAssembly.of(appInfo)) {
+            return initEjbs(classLoader, appInfo, appContext, injections, allDeployments, webappId, assembly);
+        }
+    }
+
+    private List<BeanContext> initEjbs(final ClassLoader classLoader, final AppInfo appInfo, final AppContext appContext,
+                                       final Set<Injection> injections, final List<BeanContext> allDeployments, final String webappId,
+                                       final ParallelAssembly assembly) throws OpenEJBException {
         final String globalTimersOn = SystemInstance.get().getProperty(OPENEJB_TIMERS_ON, "true");
 
-        final EjbJarBuilder ejbJarBuilder = new EjbJarBuilder(props, appContext);
+        final List<EjbJarInfo> ejbJars = new ArrayList<>(appInfo.ejbJars.size());
         for (final EjbJarInfo ejbJar : appInfo.ejbJars) {
-
-            if (isSkip(appInfo, webappId, ejbJar)) {
-                continue;
+            if (!isSkip(appInfo, webappId, ejbJar)) {
+                ejbJars.add(ejbJar);
             }
+        }
 
-            final HashMap<String, BeanContext> deployments = ejbJarBuilder.build(ejbJar, injections, classLoader);
+        // the modules are independent until they are registered so they can be built concurrently,
+        // the registration and JNDI bindings stay sequential to keep a deterministic deployment order
+        final EjbJarBuilder ejbJarBuilder = new EjbJarBuilder(props, appContext);
+        final List<HashMap<String, BeanContext>> built = !assembly.isParallel() ? null : assembly.map(ejbJars, classLoader,
+            new ParallelAssembly.Task<EjbJarInfo, HashMap<String, BeanContext>>() {
+                @Override
+                public HashMap<String, BeanContext> run(final EjbJarInfo ejbJar) throws Exception {
+                    return ejbJarBuilder.build(ejbJar, injections, classLoader);
+                }
+            });
+        for (int i = 0; i < ejbJars.size(); i++) {
+            final EjbJarInfo ejbJar = ejbJars.get(i);
+            final HashMap<String, BeanContext> deployments = built != null ? built.get(i) : ejbJarBuilder.build(ejbJar, injections, classLoader);
 
             final JaccPermissionsBuilder jaccPermissionsBuilder = new JaccPermissionsBuilder();
             final PolicyContext policyContext = jaccPermissionsBuilder.build(ejbJar, deployments);
@@ -2177,6 +2233,13 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
             }
         } else if (object instanceof ConnectorReference) {
             final ConnectorReference cr = (ConnectorReference) object;
+            try { // before the connection manager: cached connection handles go back to its pool
+                if (DestroyableResource.class.isInstance(cr.getManagedConnectionFactory())) {
+                    DestroyableResource.class.cast(cr.getManagedConnectionFactory()).destroyResource();
+                }
+            } catch (final RuntimeException e) {
+                logger.error(e.getMessage(), e);
+            }
             try {
                 final ConnectionManager cm = cr.getConnectionManager();
                 if (cm != null && cm instanceof AbstractConnectionManager) {
@@ -3801,7 +3864,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
         private final Map<String, List<ClassFileTransformer>> transformers = new TreeMap<>();
 
         @Override
-        public void addTransformer(final String unitId, final ClassLoader classLoader, final ClassFileTransformer classFileTransformer) {
+        public synchronized void addTransformer(final String unitId, final ClassLoader classLoader, final ClassFileTransformer classFileTransformer) {
             final Instrumentation instrumentation = Agent.getInstrumentation();
             if (instrumentation != null) {
                 instrumentation.addTransformer(classFileTransformer);
@@ -3821,7 +3884,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
         }
 
         @Override
-        public void destroy(final String unitId) {
+        public synchronized void destroy(final String unitId) {
             final List<ClassFileTransformer> transformers = this.transformers.remove(unitId);
             if (transformers != null) {
                 final Instrumentation instrumentation = Agent.getInstrumentation();
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.assembler.classic;
+
+import org.apache.openejb.OpenEJBException;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.DaemonThreadFactory;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the independent steps of an application assembly (building the persistence units, the ejb jars)
+ * concurrently when {@link #ACTIVE} is set and records the duration of each phase of the deployment.
+ *
+ * The results are always returned in the order of the inputs so the registration of what was built
+ * (JNDI bindings, deployments) stays sequential and deterministic.
+ */
+public class ParallelAssembly implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_STARTUP, ParallelAssembly.class);
+
+    public static final String ACTIVE = "openejb.assembler.parallel";
+    public static final String THREADS = "openejb.assembler.parallel.threads";
+
+    private final String name;
+    private final int threads;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final long start = System.nanoTime();
+    private ExecutorService executor;
+    private String phase;
+    private long phaseStart;
+
+    public ParallelAssembly(final String name, final int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+    public static ParallelAssembly of(final AppInfo appInfo) {
+        final SystemInstance system = SystemInstance.get();
+        final boolean active = "true".equalsIgnoreCase(system.getProperty(ACTIVE, appInfo.properties.getProperty(ACTIVE, "false")));
+        final int threads = !active ? 1 : Integer.parseInt(system.getProperty(THREADS,
+            appInfo.properties.getProperty(THREADS, Integer.toString(Runtime.getRuntime().availableProcessors()))));
+        return new ParallelAssembly(appInfo.path, threads);
+    }
+
+    public boolean isParallel() {
+        return threads > 1;
+    }
+
+    /**
+     * Ends the current phase and starts the timing of the next one.
+     */
+    public synchronized void phase(final String next) {
+        final long now = System.nanoTime();
+        if (phase != null) {
+            final Long previous = phases.get(phase);
+            phases.put(phase, (previous == null ? 0 : previous) + now - phaseStart);
+        }
+        phase = next;
+        phaseStart = now;
+    }
+
+    public synchronized Map<String, Long> getPhases() {
+        final Map<String, Long> millis = new LinkedHashMap<>();
+        for (final Map.Entry<String, Long> entry : phases.entrySet()) {
+            millis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+        }
+        return millis;
+    }
+
+    /**
+     * Logs the duration of the phases, at info level when the parallel mode is active since it is then
+     * explicitly tuned, at debug level otherwise.
+     */
+    public void report() {
+        phase(null);
+        if (!isParallel() && !LOGGER.isDebugEnabled()) {
+            return;
+        }
+
+        final StringBuilder message = new StringBuilder("Assembled ").append(name)
+            .append(" in ").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).append(" ms");
+        if (isParallel()) {
+            message.append(" using ").append(threads).append(" threads");
+        }
+        String separator = " (";
+        for (final Map.Entry<String, Long> entry : getPhases().entrySet()) {
+            message.append(separator).append(entry.getKey()).append('=').append(entry.getValue()).append(" ms");
+            separator = ", ";
+        }
+        if (!phases.isEmpty()) {
+            message.append(')');
+        }
+
+        if (isParallel()) {
+            LOGGER.info(message.toString());
+        } else {
+            LOGGER.debug(message.toString());
+        }
+    }
+
+    /**
+     * Applies the task to each input, concurrently when the parallel mode is active, with the given classloader
+     * as context classloader.
+     *
+     * If a task fails the other ones are awaited, their results are {@link Task#discard(Object) discarded}
+     * and the first failure is rethrown.
+     *
+     * @return the results in the order of the inputs.
+     */
+    public <I, O> List<O> map(final Collection<I> inputs, final ClassLoader loader, final Task<I, O> task) throws OpenEJBException {
+        final List<O> results = new ArrayList<>(inputs.size());
+        if (!isParallel() || inputs.size() < 2) {
+            for (final I input : inputs) {
+                results.add(call(task, input));
+            }
+            return results;
+        }
+
+        final ExecutorService es = executor();
+        final List<Future<O>> futures = new ArrayList<>(inputs.size());
+        for (final I input : inputs) {
+            futures.add(es.submit(new Callable<O>() {
+                @Override
+                public O call() throws Exception {
+                    final Thread thread = Thread.currentThread();
+                    final ClassLoader old = thread.getContextClassLoader();
+                    thread.setContextClassLoader(loader);
+                    try {
+                        return ParallelAssembly.call(task, input);
+                    } finally {
+                        thread.setContextClassLoader(old);
+                    }
+                }
+            }));
+        }
+
+        Throwable error = null;
+        for (final Future<O> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (error == null) {
+                    error = e;
+                }
+            } catch (final ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause();
+                }
+            }
+        }
+        if (error == null) {
+            return results;
+        }
+
+        for (final O result : results) {
+            try {
+                task.discard(result);
+            } catch (final RuntimeException re) {
+                LOGGER.debug("Can't discard " + result + ": " + re.getMessage(), re);
+            }
+        }
+        if (error instanceof OpenEJBException) {
+            throw OpenEJBException.class.cast(error);
+        }
+        if (error instanceof RuntimeException) {
+            throw RuntimeException.class.cast(error);
+        }
+        if (error instanceof Error) {
+            throw Error.class.cast(error);
+        }
+        throw new OpenEJBException(error);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("openejb-assembler-", name));
+        }
+        return executor;
+    }
+
+    private static <I, O> O call(final Task<I, O> task, final I input) throws OpenEJBException {
+        try {
+            return task.run(input);
+        } catch (final OpenEJBException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new OpenEJBException(e);
+        }
+    }
+
+    public abstract static class Task<I, O> {
+        public abstract O run(I input) throws Exception;
+
+        /**
+         * Releases a result built while another task failed.
+         */
+        public void discard(final O result) {
+            // no-op
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.openejb.monitoring.LocalMBeanServer;
 import org.apache.openejb.monitoring.ObjectNameBuilder;
 import org.apache.openejb.persistence.PersistenceUnitInfoImpl;
 import org.apache.openejb.persistence.QueryLogEntityManager;
+import org.apache.openejb.persistence.QueryPlanCache;
 import org.apache.openejb.spi.ContainerSystem;
 import org.apache.openejb.util.LogCategory;
 import org.apache.openejb.util.Logger;
@@ -92,6 +93,7 @@ public class ReloadableEntityManagerFactory implements EntityManagerFactory, Ser
 
     private final boolean logCriteriaJpql;
     private final String logCriteriaJpqlLevel;
+    private final QueryPlanCache queryPlanCache;
 
     public ReloadableEntityManagerFactory(final ClassLoader cl, final EntityManagerFactoryCallable callable, final PersistenceUnitInfoImpl unitInfo) {
         classLoader = cl;
@@ -100,6 +102,7 @@ public class ReloadableEntityManagerFactory implements EntityManagerFactory, Ser
         final Properties properties = unitInfo.getProperties();
         logCriteriaJpql = logCriteriaQueryJpql(properties);
         logCriteriaJpqlLevel = logCriteriaQueryJpqlLevel(properties);
+        queryPlanCache = queryPlanCache(properties);
 
         if (!callable.getUnitInfo().isLazilyInitialized()) {
             createDelegate();
@@ -132,6 +135,9 @@ public class ReloadableEntityManagerFactory implements EntityManagerFactory, Ser
         final long start = System.nanoTime();
         try {
             delegate = entityManagerFactoryCallable.call();
+            if (queryPlanCache != null) { // the named queries were registered in the previous delegate
+                queryPlanCache.clear();
+            }
         } catch (final Exception e) {
             throw new OpenEJBRuntimeException(e);
         } finally {
@@ -147,6 +153,21 @@ public class ReloadableEntityManagerFactory implements EntityManagerFactory, Ser
         }
     }
 
+    private QueryPlanCache queryPlanCache(final Properties props) {
+        if (!SystemInstance.get().getOptions().get(QueryPlanCache.ACTIVE, Boolean.parseBoolean(props.getProperty(QueryPlanCache.ACTIVE, "false")))) {
+            return null;
+        }
+        return new QueryPlanCache(unitInfoImpl.getPersistenceUnitName(),
+            SystemInstance.get().getOptions().get(QueryPlanCache.MAX_SIZE, Integer.parseInt(props.getProperty(QueryPlanCache.MAX_SIZE, "512"))));
+    }
+
+    /**
+     * @return the JPQL query cache of this persistence unit or null if not activated.
+     */
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
     private String logCriteriaQueryJpqlLevel(final Properties props) {
         return SystemInstance.get().getOptions().get(OPENEJB_JPA_CRITERIA_LOG_JPQL_LEVEL, props.getProperty(OPENEJB_JPA_CRITERIA_LOG_JPQL_LEVEL, "INFO"));
     }
@@ -653,6 +674,41 @@ public class ReloadableEntityManagerFactory implements EntityManagerFactory, Ser
             }
         }
 
+        @ManagedAttribute
+        @Description("number of JPQL queries found in the query cache")
+        public long getQueryCacheHits() {
+            final QueryPlanCache cache = reloadableEntityManagerFactory.queryPlanCache;
+            return cache == null ? 0 : cache.getHits();
+        }
+
+        @ManagedAttribute
+        @Description("number of JPQL queries not found in the query cache")
+        public long getQueryCacheMisses() {
+            final QueryPlanCache cache = reloadableEntityManagerFactory.queryPlanCache;
+            return cache == null ? 0 : cache.getMisses();
+        }
+
+        @ManagedAttribute
+        @Description("percentage of JPQL queries found in the query cache")
+        public double getQueryCacheHitRate() {
+            final QueryPlanCache cache = reloadableEntityManagerFactory.queryPlanCache;
+            return cache == null ? 0 : cache.getHitRate();
+        }
+
+        @ManagedAttribute
+        @Description("number of JPQL queries evicted from the query cache")
+        public long getQueryCacheEvictions() {
+            final QueryPlanCache cache = reloadableEntityManagerFactory.queryPlanCache;
+            return cache == null ? 0 : cache.getEvictions();
+        }
+
+        @ManagedAttribute
+        @Description("number of JPQL queries in the query cache")
+        public int getQueryCacheSize() {
+            final QueryPlanCache cache = reloadableEntityManagerFactory.queryPlanCache;
+            return cache == null ? 0 : cache.getSize();
+        }
+
         @ManagedAttribute
         @Description("get exclude unlisted classes")
         public boolean getExcludeUnlistedClasses() {
@@ -25,6 +25,9 @@ import org.apache.openejb.loader.Options;
 import org.apache.openejb.util.DaemonThreadFactory;
 import org.apache.openejb.util.Duration;
 import org.apache.openejb.util.ExecutorBuilder;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+import org.apache.openejb.util.VirtualThreadFactory;
 
 import java.rmi.NoSuchObjectException;
 import java.util.concurrent.BlockingQueue;
@@ -34,6 +37,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -61,13 +65,24 @@ public class AsynchronousPool {
         final ExecutorBuilder builder = new ExecutorBuilder()
             .prefix("AsynchronousPool")
             .size(options.get("AsynchronousPool.Size", 5))
-            .threadFactory(new DaemonThreadFactory("@Asynchronous", appContext.getId()));
+            .threadFactory(threadFactory(options, appContext.getId()));
 
         return new AsynchronousPool(
             builder.build(options),
             options.get("AsynchronousPool.ShutdownWaitDuration", new Duration(1, TimeUnit.MINUTES)));
     }
 
+    private static ThreadFactory threadFactory(final Options options, final String appId) {
+        if (options.get("AsynchronousPool.VirtualThreads", false)) {
+            if (VirtualThreadFactory.isSupported()) {
+                return new VirtualThreadFactory("@Asynchronous", appId);
+            }
+            Logger.getInstance(LogCategory.OPENEJB, AsynchronousPool.class)
+                .warning("AsynchronousPool.VirtualThreads needs Java 21 or later, using platform threads for " + appId);
+        }
+        return new DaemonThreadFactory("@Asynchronous", appId);
+    }
+
     public Object invoke(final Callable<Object> callable, final boolean isVoid) throws Throwable {
         final AtomicBoolean asynchronousCancelled = new AtomicBoolean(false);
 
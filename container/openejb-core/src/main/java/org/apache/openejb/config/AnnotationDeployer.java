@@ -27,6 +27,7 @@ import org.apache.openejb.OpenEJBException;
 import org.apache.openejb.api.LocalClient;
 import org.apache.openejb.api.Proxy;
 import org.apache.openejb.api.RemoteClient;
+import org.apache.openejb.api.jms.BatchMessageListener;
 import org.apache.openejb.cdi.CdiBeanInfo;
 import org.apache.openejb.config.event.DataSourceDefinitionUrlBuild;
 import org.apache.openejb.config.rules.CheckClasses;
@@ -2935,7 +2936,8 @@ public class AnnotationDeployer implements DynamicDeployer {
                                 !name.equals("java.io.Externalizable") &&
                                 !name.startsWith("jakarta.ejb.") &&
                                 !intf.isSynthetic()) {
-                                interfaces.add(intf);
+                                // a batch listener is still delivered through the jms listener contract
+                                interfaces.add(BatchMessageListener.class == intf ? jakarta.jms.MessageListener.class : intf);
                             }
                         }
 
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.assembler.classic.AppInfo;
+import org.apache.openejb.assembler.classic.ServiceInfo;
+import org.apache.openejb.core.ObjectInputStreamFiltered;
+import org.apache.openejb.loader.Embedder;
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.Options;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+import org.apache.openejb.util.OpenEjbVersion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot of the {@link AppInfo} built for an archive, it lets a restart skip the loading, the scanning and
+ * the configuration of an unchanged application and go straight to the assembler.
+ *
+ * Activated with openejb.deployments.snapshot=true. Each archive gets a snapshot in
+ * openejb.deployments.snapshot.directory (work/app-snapshots by default) keyed by a digest of the archive
+ * (content of a file, path/size/date of the files of a folder), of the system properties, of the environment variables
+ * (placeholders of the configuration and of the descriptors resolve against them), of the configuration file
+ * and of the server libraries (lib/ of the home and of the base, additional lib folder, path/size/date of their files).
+ * The containers and resources auto-created while configuring the application are part of the snapshot
+ * and installed again when it is used.
+ *
+ * Anything which doesn't match (other key, missing path, version, failing deserialization) means the
+ * application is configured as usual and its snapshot rewritten.
+ *
+ * Only the archives configured through {@link ConfigurationFactory#configureApplication(File)} are snapshotted.
+ * The web applications Tomcat deploys itself are out of scope: TomEE builds their module from the Tomcat context
+ * (its loader, its resources) and hands the scanning of the module to Tomcat, none of which can be restored from a file.
+ */
+public final class AppInfoSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String ACTIVE = "openejb.deployments.snapshot";
+    public static final String DIRECTORY = "openejb.deployments.snapshot.directory";
+
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_STARTUP_CONFIG, AppInfoSnapshot.class);
+
+    private static final int MAGIC = 0x4f454153;
+    private static final int VERSION = 1;
+
+    private static final ThreadLocal<AppInfoSnapshot> RECORDING = new ThreadLocal<>();
+
+    private final AppInfo appInfo;
+    private final List<ServiceInfo> installed;
+
+    private AppInfoSnapshot(final AppInfo appInfo, final List<ServiceInfo> installed) {
+        this.appInfo = appInfo;
+        this.installed = installed;
+    }
+
+    public AppInfo getAppInfo() {
+        return appInfo;
+    }
+
+    /**
+     * @return the containers and resources to install before deploying the application.
+     */
+    public List<ServiceInfo> getInstalled() {
+        return installed;
+    }
+
+    public static boolean isActive() {
+        return SystemInstance.get().getOptions().get(ACTIVE, false);
+    }
+
+    /**
+     * @return the key of the archive in its current state and with the current configuration or null if it can't be computed.
+     */
+    public static String key(final File archive) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, OpenEjbVersion.get().getVersion());
+            update(digest, archive.getAbsolutePath());
+            digestArchive(digest, archive, archive);
+
+            // effective configuration: what is not in the archive but changes the way it is configured
+            final Properties properties = SystemInstance.get().getProperties();
+            final Map<String, String> sorted = new TreeMap<>();
+            for (final String name : properties.stringPropertyNames()) {
+                sorted.put(name, properties.getProperty(name));
+            }
+            for (final Map.Entry<String, String> entry : sorted.entrySet()) {
+                update(digest, entry.getKey());
+                update(digest, entry.getValue());
+            }
+            for (final Map.Entry<String, String> entry : new TreeMap<>(System.getenv()).entrySet()) {
+                update(digest, entry.getKey());
+                update(digest, entry.getValue());
+            }
+            final String configuration = properties.getProperty(ConfigurationFactory.CONFIGURATION_PROPERTY);
+            if (configuration != null && new File(configuration).isFile()) {
+                digestContent(digest, new File(configuration));
+            }
+
+            // server and shared libraries: an upgraded jar can change the scanning or the defaults
+            for (final File libraries : libraries()) {
+                update(digest, libraries.getAbsolutePath());
+                digestArchive(digest, libraries, libraries);
+            }
+
+            final StringBuilder key = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (final NoSuchAlgorithmException | IOException e) {
+            LOGGER.debug("Can't compute the snapshot key of " + archive + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the snapshot of the archive if it is still valid for this key, null otherwise.
+     */
+    public static AppInfoSnapshot load(final File archive, final String key) {
+        final File file = file(archive);
+        if (key == null || !file.isFile()) {
+            return null;
+        }
+
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION || !key.equals(in.readUTF())) {
+                LOGGER.debug("Snapshot " + file + " is outdated");
+                return null;
+            }
+
+            final ObjectInputStream objects = new ObjectInputStreamFiltered(new GZIPInputStream(in));
+            final AppInfoSnapshot snapshot = AppInfoSnapshot.class.cast(objects.readObject());
+            for (final String path : snapshot.appInfo.paths) {
+                if (!new File(path).exists()) { // unpacked folder removed for instance
+                    LOGGER.debug("Snapshot " + file + " references the missing path " + path);
+                    return null;
+                }
+            }
+            return snapshot;
+        } catch (final IOException | ClassNotFoundException | RuntimeException e) {
+            LOGGER.warning("Can't read the snapshot " + file + ", the application will be configured: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Starts recording the containers and resources installed by the configuration of an application.
+     */
+    public static void startRecording() {
+        RECORDING.set(new AppInfoSnapshot(null, new ArrayList<ServiceInfo>()));
+    }
+
+    /**
+     * Called when a container or resource is installed, ignored if no recording is in progress.
+     */
+    static void installed(final ServiceInfo info) {
+        final AppInfoSnapshot recording = RECORDING.get();
+        if (recording != null) {
+            recording.installed.add(info);
+        }
+    }
+
+    /**
+     * Stops the recording and writes the snapshot of the application, the entries of {@link AppInfo#properties}
+     * which can't be serialized (modules kept for the web scanning for instance) are not part of it.
+     */
+    public static void store(final File archive, final String key, final AppInfo appInfo) {
+        final AppInfoSnapshot recording = RECORDING.get();
+        RECORDING.remove();
+        if (key == null || recording == null) {
+            return;
+        }
+
+        final Map<Object, Object> transients = new HashMap<>();
+        for (final Map.Entry<Object, Object> entry : appInfo.properties.entrySet()) {
+            if (!(entry.getKey() instanceof Serializable) || !(entry.getValue() instanceof Serializable)) {
+                transients.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (final Object transientKey : transients.keySet()) {
+            appInfo.properties.remove(transientKey);
+        }
+
+        final File file = file(archive);
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.mkdirs(file.getParentFile());
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeUTF(key);
+
+                final GZIPOutputStream gzip = new GZIPOutputStream(out);
+                final ObjectOutputStream objects = new ObjectOutputStream(gzip);
+                objects.writeObject(new AppInfoSnapshot(appInfo, recording.installed));
+                objects.flush();
+                gzip.finish();
+            }
+            java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.debug("Wrote snapshot " + file + " for " + archive);
+        } catch (final IOException | RuntimeException e) { // NotSerializableException for a custom resource property for instance
+            LOGGER.warning("Can't write the snapshot of " + archive + ", it will be configured at each start: " + e.getMessage());
+            if (tmp.exists() && !tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+        } finally {
+            appInfo.properties.putAll(transients);
+        }
+    }
+
+    /**
+     * Stops a recording without writing anything, when the configuration failed for instance.
+     */
+    public static void cancel() {
+        RECORDING.remove();
+    }
+
+    private static File file(final File archive) {
+        final Options options = SystemInstance.get().getOptions();
+        final String directory = options.get(DIRECTORY, (String) null);
+        final File snapshots = directory != null ? new File(directory) : new File(SystemInstance.get().getBase().getDirectory(), "work/app-snapshots");
+        final String path = archive.getAbsolutePath();
+        return new File(snapshots, archive.getName() + "-" + Integer.toHexString(path.hashCode()) + ".snapshot");
+    }
+
+    private static Collection<File> libraries() {
+        final Set<File> libraries = new LinkedHashSet<>();
+        final String libs = SystemInstance.get().getProperty("openejb.libs");
+        if (libs != null) {
+            libraries.add(new File(libs));
+        }
+        libraries.add(new File(SystemInstance.get().getHome().getDirectory(), "lib"));
+        libraries.add(new File(SystemInstance.get().getBase().getDirectory(), "lib"));
+        libraries.add(new File(SystemInstance.get().getBase().getDirectory(), Embedder.ADDITIONAL_LIB_FOLDER));
+
+        final Iterator<File> it = libraries.iterator();
+        while (it.hasNext()) {
+            if (!it.next().isDirectory()) {
+                it.remove();
+            }
+        }
+        return libraries;
+    }
+
+    private static void digestArchive(final MessageDigest digest, final File root, final File file) throws IOException {
+        if (file.isFile()) {
+            update(digest, root.toURI().relativize(file.toURI()).getPath());
+            update(digest, Long.toString(file.length()));
+            if (file == root) { // a packed archive is read once so its content can be checked
+                digestContent(digest, file);
+            } else { // reading all the classes of an unpacked archive would cost more than the scanning
+                update(digest, Long.toString(file.lastModified()));
+            }
+            return;
+        }
+
+        final File[] children = file.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (final File child : children) {
+            digestArchive(digest, root, child);
+        }
+    }
+
+    private static void digestContent(final MessageDigest digest, final File file) throws IOException {
+        final byte[] buffer = new byte[8192];
+        try (final InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+}
@@ -444,6 +444,7 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
     }
 
     protected void install(final ContainerInfo serviceInfo) throws OpenEJBException {
+        AppInfoSnapshot.installed(serviceInfo);
         if (sys != null) {
             sys.containerSystem.containers.add(serviceInfo);
         } else if (!offline) {
@@ -457,6 +458,7 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
     }
 
     protected void install(final ResourceInfo serviceInfo) throws OpenEJBException {
+        AppInfoSnapshot.installed(serviceInfo);
         if (sys != null) {
             sys.facilities.resources.add(serviceInfo);
         } else if (!offline) {
@@ -851,6 +853,16 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
     public AppInfo configureApplication(final File jarFile) throws OpenEJBException {
         logger.debug("Beginning load: " + jarFile.getAbsolutePath());
 
+        final String snapshotKey = AppInfoSnapshot.isActive() ? AppInfoSnapshot.key(jarFile) : null;
+        if (snapshotKey != null) {
+            final AppInfoSnapshot snapshot = AppInfoSnapshot.load(jarFile, snapshotKey);
+            if (snapshot != null && install(snapshot)) {
+                logger.info("Using the deployment snapshot of " + jarFile.getAbsolutePath());
+                return snapshot.getAppInfo();
+            }
+            AppInfoSnapshot.startRecording();
+        }
+
         try {
             final AppModule appModule = deploymentLoader.load(jarFile, null);
             final AppInfo appInfo = configureApplication(appModule);
@@ -870,6 +882,10 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
             // TODO This is temporary -- we need to do this in AppInfoBuilder
             appInfo.paths.add(appInfo.path);
             appInfo.paths.add(jarFile.getAbsolutePath());
+
+            if (snapshotKey != null) {
+                AppInfoSnapshot.store(jarFile, snapshotKey, appInfo);
+            }
             return appInfo;
         } catch (final ValidationFailedException e) {
             logger.warning("configureApplication.loadFailed", jarFile.getAbsolutePath(), e.getMessage()); // DO not include the stacktrace in the message
@@ -879,7 +895,34 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
             // removing this message causes NO messages to be printed when embedded
             logger.warning("configureApplication.loadFailed", e, jarFile.getAbsolutePath(), e.getMessage());
             throw e;
+        } finally {
+            AppInfoSnapshot.cancel();
+        }
+    }
+
+    /**
+     * Installs the containers and resources auto-created when the snapshot was taken.
+     *
+     * @return false if one of them already exists, the snapshot can't be used then.
+     */
+    private boolean install(final AppInfoSnapshot snapshot) throws OpenEJBException {
+        final List<String> containerIds = getContainerIds();
+        final List<String> resourceIds = getResourceIds();
+        for (final ServiceInfo info : snapshot.getInstalled()) {
+            if (containerIds.contains(info.id) || resourceIds.contains(info.id)) {
+                logger.info("Ignoring the deployment snapshot of " + snapshot.getAppInfo().path + ", " + info.id + " already exists");
+                return false;
+            }
+        }
+
+        for (final ServiceInfo info : snapshot.getInstalled()) {
+            if (info instanceof ContainerInfo) {
+                install((ContainerInfo) info);
+            } else if (info instanceof ResourceInfo) {
+                install((ResourceInfo) info);
+            }
         }
+        return true;
     }
 
     /**
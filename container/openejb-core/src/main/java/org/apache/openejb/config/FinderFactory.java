@@ -565,6 +565,23 @@ public class FinderFactory {
         public boolean foundSomething() {
             return !classInfos.isEmpty();
         }
+
+        @Override
+        protected void readClassDef(final String className, final InputStream in) throws IOException {
+            if (!ScanIndex.ClassBytecode.class.isInstance(in)) {
+                super.readClassDef(className, in);
+                return;
+            }
+
+            // indexed jar, the index replays or records the class
+            try {
+                ScanIndex.ClassBytecode.class.cast(in).accept(new InfoBuildingVisitor());
+            } catch (final Exception e) {
+                throw new RuntimeException("Unable to read class definition for " + className, e);
+            } finally {
+                in.close();
+            }
+        }
     }
 
     public static class DoLoadClassesArchive extends ClassesArchive {
@@ -49,7 +49,6 @@ import org.apache.openejb.jee.jpa.unit.PersistenceUnit;
 import org.apache.openejb.jee.oejb2.GeronimoEjbJarType;
 import org.apache.openejb.jee.oejb2.JaxbOpenejbJar2;
 import org.apache.openejb.jee.oejb2.OpenejbJarType;
-import org.apache.openejb.jee.oejb3.JaxbOpenejbJar3;
 import org.apache.openejb.jee.oejb3.OpenejbJar;
 import org.apache.openejb.loader.IO;
 import org.apache.openejb.loader.SystemInstance;
@@ -57,7 +56,9 @@ import org.apache.openejb.sxc.ApplicationClientXml;
 import org.apache.openejb.sxc.EjbJarXml;
 import org.apache.openejb.sxc.FacesConfigXml;
 import org.apache.openejb.sxc.HandlerChainsXml;
+import org.apache.openejb.sxc.OpenejbJarXml;
 import org.apache.openejb.sxc.TldTaglibXml;
+import org.apache.openejb.sxc.WebFragmentXml;
 import org.apache.openejb.sxc.WebXml;
 import org.apache.openejb.sxc.WebservicesXml;
 import org.apache.openejb.util.LengthInputStream;
@@ -327,7 +328,10 @@ public class ReadDescriptors implements DynamicDeployer {
         if (source != null) {
             try {
                 // Attempt to parse it first as a v3 descriptor
-                final OpenejbJar openejbJar = JaxbOpenejbJar3.unmarshal(OpenejbJar.class, source.get()).postRead();
+                final OpenejbJar openejbJar;
+                try (final InputStream is = source.get()) {
+                    openejbJar = OpenejbJarXml.unmarshal(is).postRead();
+                }
                 ejbModule.setOpenejbJar(openejbJar);
             } catch (final Exception v3ParsingException) {
                 // Attempt to parse it second as a v2 descriptor
@@ -616,7 +620,10 @@ public class ReadDescriptors implements DynamicDeployer {
                 if (rawUrl != null) {
                     final Source url = getSource(rawUrl);
                     try {
-                        final WebFragment webFragment = WebFragment.class.cast(JaxbJavaee.unmarshal(WebFragment.class, url.get(), false));
+                        final WebFragment webFragment;
+                        try (final InputStream is = url.get()) {
+                            webFragment = WebFragmentXml.unmarshal(is);
+                        }
 
                         // in tomcat if the env entry is already don't override it
                         mergeOnlyMissingEntries(webModule.getWebApp().getPersistenceContextRefMap(), webFragment.getPersistenceContextRef());
@@ -0,0 +1,799 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.config;
+
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.Options;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+import org.apache.openejb.util.URLs;
+import org.apache.xbean.asm9.AnnotationVisitor;
+import org.apache.xbean.asm9.ClassReader;
+import org.apache.xbean.asm9.ClassVisitor;
+import org.apache.xbean.asm9.FieldVisitor;
+import org.apache.xbean.asm9.MethodVisitor;
+import org.apache.xbean.asm9.Opcodes;
+import org.apache.xbean.finder.archive.Archive;
+import org.apache.xbean.finder.archive.ClasspathArchive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Binary index of what the annotation finder reads from the classes of a jar:
+ * class names, hierarchy, annotations of the classes, fields, methods and method parameters.
+ *
+ * Activated with openejb.scan.index=true. Each scanned jar gets an index file in
+ * openejb.scan.index.directory (work/scan-index by default) keyed by the jar path, size and last
+ * modification date. Once the index is fresh the finder replays it instead of reading and parsing
+ * the bytecode, a jar which changed is scanned again and its index rewritten.
+ * A jar can also ship a build time index as {@value #EMBEDDED}, see {@link #index(Archive, long, File)}, it is only used
+ * while the class entries of the jar (names and CRC) are the ones it was built from.
+ *
+ * The replay goes through the visitor of the finder itself so the result is the same as a scanning.
+ */
+public final class ScanIndex {
+    public static final String ACTIVE = "openejb.scan.index";
+    public static final String DIRECTORY = "openejb.scan.index.directory";
+    public static final String EMBEDDED = "META-INF/openejb/scan.idx";
+
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_STARTUP_CONFIG, ScanIndex.class);
+
+    private static final int MAGIC = 0x4f454a49;
+    private static final int VERSION = 2;
+    private static final int ASM_FLAGS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+    private ScanIndex() {
+        // no-op
+    }
+
+    /**
+     * @return the archive of the location, backed by an index if activated and the location is a jar
+     */
+    public static Archive archive(final ClassLoader loader, final URL location) {
+        final Options options = SystemInstance.get().getOptions();
+        if (!options.get(ACTIVE, false)) {
+            return ClasspathArchive.archive(loader, location);
+        }
+
+        final File jar = jar(location);
+        if (jar == null) { // folders change without their date changing
+            return ClasspathArchive.archive(loader, location);
+        }
+
+        final String directory = options.get(DIRECTORY, (String) null);
+        final File indexes = directory != null ? new File(directory) : new File(SystemInstance.get().getBase().getDirectory(), "work/scan-index");
+        final String path = jar.getAbsolutePath();
+        return new IndexedArchive(loader, location, jar, new File(indexes, jar.getName() + "-" + Integer.toHexString(path.hashCode()) + ".idx"));
+    }
+
+    /**
+     * Writes the index of all the classes of the archive, used to generate {@value #EMBEDDED} at build time.
+     *
+     * @param content the {@link #content(File) content key} of the classes, a jar whose classes have another key
+     *                is scanned instead of using the index
+     */
+    public static void index(final Archive archive, final long content, final File target) throws IOException {
+        final List<String> names = new ArrayList<>();
+        final Map<String, ClassRecord> records = new HashMap<>();
+        for (final Archive.Entry entry : archive) {
+            names.add(entry.getName());
+            try (final InputStream in = entry.getBytecode()) {
+                final ClassRecord record = new ClassRecord();
+                new ClassReader(in).accept(new RecordingVisitor(record, null), ASM_FLAGS);
+                records.put(entry.getName(), record);
+            }
+        }
+        write(target, new Key("", -1, -1, content), names, records);
+    }
+
+    /**
+     * @return a digest of the names and CRC of the .class files of the folder,
+     * the same as the one of a jar packaging these files
+     */
+    public static long content(final File classes) throws IOException {
+        final Map<String, Long> crcs = new TreeMap<>();
+        crcs(classes, "", crcs);
+        return content(crcs);
+    }
+
+    private static void crcs(final File folder, final String prefix, final Map<String, Long> crcs) throws IOException {
+        final File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            final String name = prefix + file.getName();
+            if (file.isDirectory()) {
+                crcs(file, name + "/", crcs);
+            } else if (name.endsWith(".class")) {
+                final CRC32 crc = new CRC32();
+                final byte[] buffer = new byte[8192];
+                try (final InputStream in = new FileInputStream(file)) {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        crc.update(buffer, 0, read);
+                    }
+                }
+                crcs.put(name, crc.getValue());
+            }
+        }
+    }
+
+    // the CRC of the entries are in the central directory, nothing is inflated
+    private static long content(final JarFile jar) {
+        final Map<String, Long> crcs = new TreeMap<>();
+        final Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                crcs.put(entry.getName(), entry.getCrc());
+            }
+        }
+        return content(crcs);
+    }
+
+    private static long content(final Map<String, Long> crcs) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (final Map.Entry<String, Long> crc : crcs.entrySet()) {
+            digest.update(crc.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            long value = crc.getValue();
+            for (int i = 0; i < 8; i++) {
+                digest.update((byte) value);
+                value >>>= 8;
+            }
+        }
+
+        final byte[] hash = digest.digest();
+        long content = 0;
+        for (int i = 0; i < 8; i++) {
+            content = content << 8 | (hash[i] & 0xFF);
+        }
+        return content;
+    }
+
+    private static File jar(final URL location) {
+        try {
+            final File file = URLs.toFile(URLs.toFileUrl(location));
+            return file.isFile() ? file : null;
+        } catch (final RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void write(final File target, final Key key, final Collection<String> names, final Map<String, ClassRecord> records) throws IOException {
+        final StringTable strings = new StringTable();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(body);
+        writeVarInt(out, names.size());
+        for (final String name : names) {
+            writeVarInt(out, strings.ref(name));
+            final ClassRecord record = records.get(name);
+            out.writeBoolean(record != null);
+            if (record != null) {
+                record.write(out, strings);
+            }
+        }
+        out.flush();
+
+        Files.mkdirs(target.getParentFile());
+        final File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (final DataOutputStream file = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            file.writeInt(MAGIC);
+            file.writeByte(VERSION);
+            file.writeUTF(key.path);
+            file.writeLong(key.size);
+            file.writeLong(key.lastModified);
+            file.writeLong(key.content);
+            strings.write(file);
+            body.writeTo(file);
+        }
+        java.nio.file.Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean read(final InputStream stream, final Key expected, final List<String> names, final Map<String, ClassRecord> records) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            return false;
+        }
+
+        final Key key = new Key(in.readUTF(), in.readLong(), in.readLong(), in.readLong());
+        if (!key.matches(expected)) {
+            return false;
+        }
+
+        final String[] strings = new String[readVarInt(in) + 1];
+        for (int i = 1; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        final int count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            final String name = strings[readVarInt(in)];
+            names.add(name);
+            if (in.readBoolean()) {
+                records.put(name, ClassRecord.read(in, strings));
+            }
+        }
+        return true;
+    }
+
+    private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed scan index");
+    }
+
+    private static void visitEnd(final AnnotationVisitor visitor) {
+        if (visitor != null) {
+            visitor.visitEnd();
+        }
+    }
+
+    /**
+     * Bytecode of a class the finder can visit without parsing it, reading it gives the actual bytecode.
+     */
+    public abstract static class ClassBytecode extends InputStream {
+        public abstract void accept(ClassVisitor visitor) throws IOException;
+    }
+
+    private static final class IndexedBytecode extends ClassBytecode {
+        private final Archive archive;
+        private final String name;
+        private final ClassRecord record;
+        private InputStream bytecode;
+
+        private IndexedBytecode(final Archive archive, final String name, final ClassRecord record) {
+            this.archive = archive;
+            this.name = name;
+            this.record = record;
+        }
+
+        @Override
+        public void accept(final ClassVisitor visitor) {
+            record.replay(visitor);
+        }
+
+        private InputStream bytecode() throws IOException {
+            if (bytecode == null) {
+                try {
+                    bytecode = archive.getBytecode(name);
+                } catch (final ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+            return bytecode;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return bytecode().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return bytecode().read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (bytecode != null) {
+                bytecode.close();
+            }
+        }
+    }
+
+    private static final class RecordingBytecode extends ClassBytecode {
+        private final InputStream bytecode;
+        private final Consumer<ClassRecord> sink;
+
+        private RecordingBytecode(final InputStream bytecode, final Consumer<ClassRecord> sink) {
+            this.bytecode = bytecode;
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(final ClassVisitor visitor) throws IOException {
+            final ClassRecord record = new ClassRecord();
+            new ClassReader(bytecode).accept(new RecordingVisitor(record, visitor), ASM_FLAGS);
+            sink.accept(record);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return bytecode.read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return bytecode.read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            bytecode.close();
+        }
+    }
+
+    private static final class IndexedArchive implements Archive {
+        private final ClassLoader loader;
+        private final URL location;
+        private final File jar;
+        private final File index;
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, ClassRecord> records = new HashMap<>();
+        private Archive delegate;
+        private boolean fresh;
+        private boolean dirty;
+
+        private IndexedArchive(final ClassLoader loader, final URL location, final File jar, final File index) {
+            this.loader = loader;
+            this.location = location;
+            this.jar = jar;
+            this.index = index;
+            this.fresh = load();
+        }
+
+        // the jar is only opened if some bytecode is read
+        private Archive delegate() {
+            if (delegate == null) {
+                delegate = ClasspathArchive.archive(loader, location);
+            }
+            return delegate;
+        }
+
+        private boolean load() {
+            if (index.isFile()) {
+                try (final InputStream in = new FileInputStream(index)) {
+                    if (read(in, key(), names, records)) {
+                        return true;
+                    }
+                } catch (final IOException e) {
+                    LOGGER.debug("Can't read scan index " + index + ": " + e.getMessage());
+                }
+                names.clear();
+                records.clear();
+            }
+
+            try (final JarFile file = new JarFile(jar)) {
+                final ZipEntry entry = file.getEntry(EMBEDDED);
+                if (entry != null) {
+                    try (final InputStream in = file.getInputStream(entry)) {
+                        if (read(in, new Key("", -1, -1, content(file)), names, records)) {
+                            dirty = true; // saved with the key of the jar to not open it next time
+                            return true;
+                        }
+                        LOGGER.debug("Scan index of " + jar + " was not built from its classes, scanning it");
+                    }
+                }
+            } catch (final IOException e) {
+                LOGGER.debug("Can't read scan index of " + jar + ": " + e.getMessage());
+            }
+            names.clear();
+            records.clear();
+            return false;
+        }
+
+        private Key key() {
+            return new Key(jar.getAbsolutePath(), jar.length(), jar.lastModified(), 0);
+        }
+
+        @Override
+        public InputStream getBytecode(final String className) throws IOException, ClassNotFoundException {
+            return delegate().getBytecode(className);
+        }
+
+        @Override
+        public Class<?> loadClass(final String className) throws ClassNotFoundException {
+            return loader.loadClass(className);
+        }
+
+        @Override
+        public Iterator<Entry> iterator() {
+            if (fresh) {
+                final Iterator<String> iterator = new ArrayList<>(names).iterator();
+                return new FlushingIterator<String>(iterator) {
+                    @Override
+                    public Entry next() {
+                        final String name = iterator.next();
+                        return new IndexEntry(name) {
+                            @Override
+                            public InputStream getBytecode() throws IOException {
+                                final ClassRecord record = records.get(name);
+                                if (record != null) {
+                                    return new IndexedBytecode(IndexedArchive.this, name, record);
+                                }
+
+                                // not read during the previous scannings
+                                dirty = true;
+                                try {
+                                    return new RecordingBytecode(delegate().getBytecode(name), r -> records.put(name, r));
+                                } catch (final ClassNotFoundException e) {
+                                    throw new IOException(e);
+                                }
+                            }
+                        };
+                    }
+                };
+            }
+
+            names.clear();
+            records.clear();
+            dirty = true;
+            final Iterator<Entry> iterator = delegate().iterator();
+            return new FlushingIterator<Entry>(iterator) {
+                @Override
+                public Entry next() {
+                    final Entry entry = iterator.next();
+                    final String name = entry.getName();
+                    names.add(name);
+                    return new IndexEntry(name) {
+                        @Override
+                        public InputStream getBytecode() throws IOException {
+                            return new RecordingBytecode(entry.getBytecode(), r -> records.put(name, r));
+                        }
+                    };
+                }
+            };
+        }
+
+        private void flush() {
+            if (!dirty) {
+                return;
+            }
+
+            dirty = false;
+            fresh = true;
+            try {
+                write(index, key(), names, records);
+            } catch (final IOException e) {
+                LOGGER.warning("Can't write scan index " + index + ": " + e.getMessage());
+            }
+        }
+
+        private abstract class FlushingIterator<T> implements Iterator<Entry> {
+            private final Iterator<T> delegate;
+
+            private FlushingIterator(final Iterator<T> delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public boolean hasNext() {
+                final boolean hasNext = delegate.hasNext();
+                if (!hasNext) {
+                    flush();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+
+    private abstract static class IndexEntry implements Archive.Entry {
+        private final String name;
+
+        private IndexEntry(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class Key {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final long content; // classes of an embedded index, 0 for the index of a jar file
+
+        private Key(final String path, final long size, final long lastModified, final long content) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+
+        private boolean matches(final Key expected) {
+            return path.equals(expected.path) && size == expected.size && lastModified == expected.lastModified && content == expected.content;
+        }
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> refs = new LinkedHashMap<>();
+
+        private int ref(final String value) {
+            if (value == null) {
+                return 0;
+            }
+            return refs.computeIfAbsent(value, k -> refs.size() + 1);
+        }
+
+        private void write(final DataOutputStream out) throws IOException {
+            writeVarInt(out, refs.size());
+            for (final String value : refs.keySet()) {
+                out.writeUTF(value);
+            }
+        }
+    }
+
+    private static final class AnnotationRecord {
+        private final String desc;
+        private final boolean visible;
+        private final int parameter;
+
+        private AnnotationRecord(final String desc, final boolean visible, final int parameter) {
+            this.desc = desc;
+            this.visible = visible;
+            this.parameter = parameter;
+        }
+
+        private static void write(final DataOutputStream out, final StringTable strings, final List<AnnotationRecord> annotations) throws IOException {
+            writeVarInt(out, annotations.size());
+            for (final AnnotationRecord annotation : annotations) {
+                writeVarInt(out, strings.ref(annotation.desc));
+                out.writeBoolean(annotation.visible);
+                writeVarInt(out, annotation.parameter + 1);
+            }
+        }
+
+        private static void read(final DataInputStream in, final String[] strings, final List<AnnotationRecord> annotations) throws IOException {
+            final int count = readVarInt(in);
+            for (int i = 0; i < count; i++) {
+                annotations.add(new AnnotationRecord(strings[readVarInt(in)], in.readBoolean(), readVarInt(in) - 1));
+            }
+        }
+    }
+
+    private static final class MemberRecord {
+        private final int access;
+        private final String name;
+        private final String desc;
+        private final String signature;
+        // parameter annotations have a parameter index, -1 for the member ones
+        private final List<AnnotationRecord> annotations = new ArrayList<>(0);
+
+        private MemberRecord(final int access, final String name, final String desc, final String signature) {
+            this.access = access;
+            this.name = name;
+            this.desc = desc;
+            this.signature = signature;
+        }
+
+        private void write(final DataOutputStream out, final StringTable strings) throws IOException {
+            writeVarInt(out, access);
+            writeVarInt(out, strings.ref(name));
+            writeVarInt(out, strings.ref(desc));
+            writeVarInt(out, strings.ref(signature));
+            AnnotationRecord.write(out, strings, annotations);
+        }
+
+        private static MemberRecord read(final DataInputStream in, final String[] strings) throws IOException {
+            final MemberRecord member = new MemberRecord(readVarInt(in), strings[readVarInt(in)], strings[readVarInt(in)], strings[readVarInt(in)]);
+            AnnotationRecord.read(in, strings, member.annotations);
+            return member;
+        }
+    }
+
+    private static final class ClassRecord {
+        private int version;
+        private int access;
+        private String name;
+        private String signature;
+        private String superName;
+        private String[] interfaces;
+        private final List<AnnotationRecord> annotations = new ArrayList<>(0);
+        private final List<MemberRecord> fields = new ArrayList<>();
+        private final List<MemberRecord> methods = new ArrayList<>();
+
+        private void replay(final ClassVisitor visitor) {
+            visitor.visit(version, access, name, signature, superName, interfaces);
+            for (final AnnotationRecord annotation : annotations) {
+                visitEnd(visitor.visitAnnotation(annotation.desc, annotation.visible));
+            }
+            for (final MemberRecord field : fields) {
+                final FieldVisitor fieldVisitor = visitor.visitField(field.access, field.name, field.desc, field.signature, null);
+                if (fieldVisitor == null) {
+                    continue;
+                }
+                for (final AnnotationRecord annotation : field.annotations) {
+                    visitEnd(fieldVisitor.visitAnnotation(annotation.desc, annotation.visible));
+                }
+                fieldVisitor.visitEnd();
+            }
+            for (final MemberRecord method : methods) {
+                final MethodVisitor methodVisitor = visitor.visitMethod(method.access, method.name, method.desc, method.signature, null);
+                if (methodVisitor == null) {
+                    continue;
+                }
+                for (final AnnotationRecord annotation : method.annotations) {
+                    if (annotation.parameter < 0) {
+                        visitEnd(methodVisitor.visitAnnotation(annotation.desc, annotation.visible));
+                    } else {
+                        visitEnd(methodVisitor.visitParameterAnnotation(annotation.parameter, annotation.desc, annotation.visible));
+                    }
+                }
+                methodVisitor.visitEnd();
+            }
+            visitor.visitEnd();
+        }
+
+        private void write(final DataOutputStream out, final StringTable strings) throws IOException {
+            writeVarInt(out, version);
+            writeVarInt(out, access);
+            writeVarInt(out, strings.ref(name));
+            writeVarInt(out, strings.ref(signature));
+            writeVarInt(out, strings.ref(superName));
+            writeVarInt(out, interfaces == null ? 0 : interfaces.length);
+            if (interfaces != null) {
+                for (final String itf : interfaces) {
+                    writeVarInt(out, strings.ref(itf));
+                }
+            }
+            AnnotationRecord.write(out, strings, annotations);
+            writeVarInt(out, fields.size());
+            for (final MemberRecord field : fields) {
+                field.write(out, strings);
+            }
+            writeVarInt(out, methods.size());
+            for (final MemberRecord method : methods) {
+                method.write(out, strings);
+            }
+        }
+
+        private static ClassRecord read(final DataInputStream in, final String[] strings) throws IOException {
+            final ClassRecord record = new ClassRecord();
+            record.version = readVarInt(in);
+            record.access = readVarInt(in);
+            record.name = strings[readVarInt(in)];
+            record.signature = strings[readVarInt(in)];
+            record.superName = strings[readVarInt(in)];
+            record.interfaces = new String[readVarInt(in)];
+            for (int i = 0; i < record.interfaces.length; i++) {
+                record.interfaces[i] = strings[readVarInt(in)];
+            }
+            AnnotationRecord.read(in, strings, record.annotations);
+            final int fields = readVarInt(in);
+            for (int i = 0; i < fields; i++) {
+                record.fields.add(MemberRecord.read(in, strings));
+            }
+            final int methods = readVarInt(in);
+            for (int i = 0; i < methods; i++) {
+                record.methods.add(MemberRecord.read(in, strings));
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Forwards the class events to the finder visitor and keeps the ones it uses.
+     */
+    private static final class RecordingVisitor extends ClassVisitor {
+        private final ClassRecord record;
+
+        private RecordingVisitor(final ClassRecord record, final ClassVisitor visitor) {
+            super(Opcodes.ASM9, visitor);
+            this.record = record;
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature,
+                          final String superName, final String[] interfaces) {
+            record.version = version;
+            record.access = access;
+            record.name = name;
+            record.signature = signature;
+            record.superName = superName;
+            record.interfaces = interfaces;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(final String desc, final boolean visible) {
+            record.annotations.add(new AnnotationRecord(desc, visible, -1));
+            return super.visitAnnotation(desc, visible);
+        }
+
+        @Override
+        public FieldVisitor visitField(final int access, final String name, final String desc, final String signature, final Object value) {
+            final MemberRecord field = new MemberRecord(access, name, desc, signature);
+            record.fields.add(field);
+            return new FieldVisitor(Opcodes.ASM9, super.visitField(access, name, desc, signature, value)) {
+                @Override
+                public AnnotationVisitor visitAnnotation(final String desc, final boolean visible) {
+                    field.annotations.add(new AnnotationRecord(desc, visible, -1));
+                    return super.visitAnnotation(desc, visible);
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
+            final MemberRecord method = new MemberRecord(access, name, desc, signature);
+            record.methods.add(method);
+            return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, desc, signature, exceptions)) {
+                @Override
+                public AnnotationVisitor visitAnnotation(final String desc, final boolean visible) {
+                    method.annotations.add(new AnnotationRecord(desc, visible, -1));
+                    return super.visitAnnotation(desc, visible);
+                }
+
+                @Override
+                public AnnotationVisitor visitParameterAnnotation(final int parameter, final String desc, final boolean visible) {
+                    method.annotations.add(new AnnotationRecord(desc, visible, parameter));
+                    return super.visitParameterAnnotation(parameter, desc, visible);
+                }
+            };
+        }
+    }
+}
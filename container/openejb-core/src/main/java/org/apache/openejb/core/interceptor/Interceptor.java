@@ -25,16 +25,22 @@ import java.lang.reflect.Method;
 public class Interceptor {
     private final Object instance;
     private final Method method;
+    private final InterceptorInvoker invoker;
 
     public Interceptor(final Object instance, final Method method) {
+        this(instance, method == null ? null : new InterceptorInvoker(method));
+    }
+
+    public Interceptor(final Object instance, final InterceptorInvoker invoker) {
         if (instance == null) {
             throw new NullPointerException("instance is null");
         }
-        if (method == null) {
+        if (invoker == null) {
             throw new NullPointerException("method is null");
         }
         this.instance = instance;
-        this.method = method;
+        this.method = invoker.getMethod();
+        this.invoker = invoker;
     }
 
     public Object getInstance() {
@@ -44,4 +50,8 @@ public class Interceptor {
     public Method getMethod() {
         return method;
     }
+
+    public InterceptorInvoker getInvoker() {
+        return invoker;
+    }
 }
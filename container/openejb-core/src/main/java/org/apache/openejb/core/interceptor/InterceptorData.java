@@ -72,6 +72,8 @@ public class InterceptorData {
 
     private final Map<Class<?>, Object> data = new HashMap<>();
 
+    private final Map<Method, InterceptorInvoker> invokers = new ConcurrentHashMap<>();
+
     public InterceptorData(final Class clazz) {
         this.clazz = clazz;
         this.cdiInterceptorBean = null;
@@ -246,6 +248,14 @@ public class InterceptorData {
         }
     }
 
+    /**
+     * @param method one of the interceptor methods of this class
+     * @return the invoker of this method, created on first use and reused by all invocations
+     */
+    public InterceptorInvoker getInvoker(final Method method) {
+        return invokers.computeIfAbsent(method, InterceptorInvoker::new);
+    }
+
     public <T> void set(final Class<T> clazz, final T value) {
         data.put(clazz, value);
     }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.interceptor;
+
+import jakarta.interceptor.InvocationContext;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Precompiled call site of an interceptor method.
+ *
+ * Built once per interceptor method at deploy time (see {@link InterceptorData#getInvoker(Method)})
+ * so the per invocation path neither inspects the method signature again nor allocates
+ * the argument array required by {@link Method#invoke(Object, Object...)}.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class InterceptorInvoker {
+    private static final MethodType AROUND_TYPE = MethodType.methodType(Object.class, Object.class, InvocationContext.class);
+
+    private final Method method;
+    private final boolean around;
+    private final MethodHandle handle;
+
+    public InterceptorInvoker(final Method method) {
+        if (method == null) {
+            throw new NullPointerException("method is null");
+        }
+        this.method = method;
+        this.around = method.getParameterCount() == 1 && method.getParameterTypes()[0] == InvocationContext.class;
+        this.handle = around && !Modifier.isStatic(method.getModifiers()) ? unreflect(method) : null;
+    }
+
+    private static MethodHandle unreflect(final Method method) {
+        try {
+            return MethodHandles.lookup().unreflect(method).asType(AROUND_TYPE);
+        } catch (final IllegalAccessException | RuntimeException e) {
+            // not accessible from here, stay on plain reflection
+            return null;
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return true if the method takes the {@link InvocationContext} as only parameter
+     */
+    public boolean isAround() {
+        return around;
+    }
+
+    public Object invoke(final Object instance, final InvocationContext context) throws Exception {
+        if (handle == null) {
+            return method.invoke(instance, context);
+        }
+
+        try {
+            return handle.invokeExact(instance, context);
+        } catch (final Exception | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    public Object invoke(final Object instance, final Object[] args) throws Exception {
+        return method.invoke(instance, args);
+    }
+}
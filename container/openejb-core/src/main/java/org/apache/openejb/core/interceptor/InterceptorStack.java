@@ -71,10 +71,11 @@ public class InterceptorStack {
             for (final Method method : methods) {
                 final Interceptor interceptor;
                 final Object handler = DynamicProxyImplFactory.realHandler(interceptorInstance);
+                final InterceptorInvoker invoker = data.getInvoker(method);
                 if (handler != null && method.getDeclaringClass().equals(handler.getClass())) { // dynamic impl
-                    interceptor = new Interceptor(handler, method);
+                    interceptor = new Interceptor(handler, invoker);
                 } else {
-                    interceptor = new Interceptor(interceptorInstance, method);
+                    interceptor = new Interceptor(interceptorInstance, invoker);
                 }
                 interceptors.add(interceptor);
             }
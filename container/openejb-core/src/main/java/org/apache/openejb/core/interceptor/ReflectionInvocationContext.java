@@ -24,7 +24,6 @@ import jakarta.interceptor.InvocationContext;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -33,13 +32,15 @@ import java.util.TreeMap;
  * @version $Rev$ $Date$
  */
 public class ReflectionInvocationContext implements InvocationContext {
-    private final Iterator<Interceptor> interceptors;
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private final List<Interceptor> interceptors;
+    private int position;
     private final Object target;
     private final Method method;
     private final Constructor constructor;
     private final Object[] parameters;
     private final Map<String, Object> contextData = new TreeMap<>();
-    private final Class<?>[] parameterTypes;
     private final Operation operation;
 
     public ReflectionInvocationContext(final Operation operation, final List<Interceptor> interceptors,
@@ -56,17 +57,11 @@ public class ReflectionInvocationContext implements InvocationContext {
         }
 
         this.operation = operation;
-        this.interceptors = interceptors.iterator();
+        this.interceptors = interceptors;
         this.target = target;
         this.method = method;
         this.constructor = constructor;
         this.parameters = parameters;
-
-        if (method == null) {
-            parameterTypes = new Class[0];
-        } else {
-            parameterTypes = method.getParameterTypes();
-        }
     }
 
     @Override
@@ -125,6 +120,7 @@ public class ReflectionInvocationContext implements InvocationContext {
         if (parameters.length != this.parameters.length) {
             throw new IllegalArgumentException("Expected " + this.parameters.length + " parameters, but only got " + parameters.length + " parameters");
         }
+        final Class<?>[] parameterTypes = method == null ? new Class<?>[0] : method.getParameterTypes();
         for (int i = 0; i < parameters.length; i++) {
             final Object parameter = parameters[i];
             final Class<?> parameterType = parameterTypes[i];
@@ -154,12 +150,12 @@ public class ReflectionInvocationContext implements InvocationContext {
     }
 
     protected Invocation next() {
-        if (interceptors.hasNext()) {
-            final Interceptor interceptor = interceptors.next();
+        if (position < interceptors.size()) {
+            final Interceptor interceptor = interceptors.get(position++);
             final Object nextInstance = interceptor.getInstance();
             final Method nextMethod = interceptor.getMethod();
 
-            if (nextMethod.getParameterTypes().length == 1 && nextMethod.getParameterTypes()[0] == InvocationContext.class) {
+            if (interceptor.getInvoker().isAround()) {
                 return new InterceptorInvocation(nextInstance, nextMethod, this);
             } else {
                 return new LifecycleInvocation(nextInstance, nextMethod, this, parameters);
@@ -167,28 +163,43 @@ public class ReflectionInvocationContext implements InvocationContext {
         } else if (constructor != null) {
             return new ConstructorInvocation(constructor, parameters);
         } else if (method != null) {
-            //EJB 3.1, it is allowed that timeout method does not have parameter Timer.class,
-            //However, while invoking the timeout method, the timer value is passed, as it is also required by InnvocationContext.getTimer() method
-            final Object[] methodParameters;
-            if (operation.equals(Operation.TIMEOUT) && method.getParameterTypes().length == 0) {
-                methodParameters = new Object[0];
-            } else {
-                methodParameters = parameters;
-            }
-            return new BeanInvocation(target, method, methodParameters);
+            return new BeanInvocation(target, method, beanParameters());
         } else {
             return new NoOpInvocation();
         }
     }
 
+    private Object[] beanParameters() {
+        //EJB 3.1, it is allowed that timeout method does not have parameter Timer.class,
+        //However, while invoking the timeout method, the timer value is passed, as it is also required by InnvocationContext.getTimer() method
+        if (operation == Operation.TIMEOUT && method.getParameterCount() == 0) {
+            return NO_PARAMETERS;
+        }
+        return parameters;
+    }
+
     @Override
     public Object proceed() throws Exception {
-        // The bulk of the logic of this method has intentionally been moved
-        // out so stepping through a large stack in a debugger can be done quickly.
-        // Simply put one break point on 'next.invoke()' or one inside that method.
+        // Same steps as next().invoke() but dispatched straight to the precompiled
+        // interceptor invokers so a hop allocates nothing.
+        // Put a break point on the invoke() calls below to step through a large stack.
         try {
-            final Invocation next = next();
-            return next.invoke();
+            if (position < interceptors.size()) {
+                final Interceptor interceptor = interceptors.get(position++);
+                final InterceptorInvoker invoker = interceptor.getInvoker();
+                if (invoker.isAround()) {
+                    return invoker.invoke(interceptor.getInstance(), this);
+                }
+
+                // invoke the callback then proceed so callbacks in subclasses get invoked
+                invoker.invoke(interceptor.getInstance(), parameters);
+                return proceed();
+            } else if (constructor != null) {
+                return constructor.newInstance(parameters);
+            } else if (method != null) {
+                return method.invoke(target, beanParameters());
+            }
+            return null;
         } catch (final InvocationTargetException e) {
             throw unwrapInvocationTargetException(e);
         }
@@ -48,10 +48,7 @@ import jakarta.transaction.TransactionManager;
 import jakarta.transaction.TransactionRequiredException;
 import jakarta.transaction.TransactionRolledbackException;
 import jakarta.transaction.TransactionSynchronizationRegistry;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
@@ -60,7 +57,6 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.math.BigDecimal;
 import java.rmi.AccessException;
 import java.rmi.NoSuchObjectException;
 import java.rmi.Remote;
@@ -82,8 +78,10 @@ import static org.apache.openejb.core.ivm.IntraVmCopyMonitor.State.NONE;
 @SuppressWarnings("unchecked")
 public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializable {
 
-    private static final String OPENEJB_LOCALCOPY = "openejb.localcopy";
+    static final String OPENEJB_LOCALCOPY = "openejb.localcopy";
+    private static final String OPENEJB_LOCALCOPY_COPIER = "openejb.localcopy.copier";
     private static final boolean REMOTE_COPY_ENABLED = parseRemoteCopySetting();
+    private static final IntraVmCopier COPIER = createCopier();
     static {
         ThreadContext.addThreadContextListener(new ThreadContextListener() {
             @Override
@@ -159,6 +157,21 @@ public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializ
         return SystemInstance.get().getOptions().get(OPENEJB_LOCALCOPY, true);
     }
 
+    private static IntraVmCopier createCopier() {
+        final String copier = SystemInstance.get().getOptions().get(OPENEJB_LOCALCOPY_COPIER, "plan");
+        if ("plan".equalsIgnoreCase(copier)) {
+            return new PlanIntraVmCopier();
+        }
+        if ("serialization".equalsIgnoreCase(copier)) {
+            return new SerializationIntraVmCopier();
+        }
+        try {
+            return IntraVmCopier.class.cast(BaseEjbProxyHandler.class.getClassLoader().loadClass(copier.trim()).getConstructor().newInstance());
+        } catch (final Exception e) {
+            throw new IllegalArgumentException("Can't create " + OPENEJB_LOCALCOPY_COPIER + "=" + copier, e);
+        }
+    }
+
     protected void setDoIntraVmCopy(final boolean doIntraVmCopy) {
         this.doIntraVmCopy = doIntraVmCopy;
         setStrategy();
@@ -566,47 +579,7 @@ public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializ
 
     /* change dereference to copy */
     protected <T> T copyObj(final T object) throws IOException, ClassNotFoundException {
-        // Check for primitive and other known class types that are immutable.  If detected
-        // we can safely return them.
-        if (object == null) {
-            return null;
-        }
-        final Class ooc = object.getClass();
-        if (ooc == int.class ||
-            ooc == String.class ||
-            ooc == long.class ||
-            ooc == boolean.class ||
-            ooc == byte.class ||
-            ooc == float.class ||
-            ooc == double.class ||
-            ooc == short.class ||
-            ooc == Long.class ||
-            ooc == Boolean.class ||
-            ooc == Byte.class ||
-            ooc == Character.class ||
-            ooc == Float.class ||
-            ooc == Double.class ||
-            ooc == Short.class ||
-            ooc == BigDecimal.class) {
-            return object;
-        }
-
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
-        try {
-            final ObjectOutputStream out = new ObjectOutputStream(baos);
-            out.writeObject(object);
-            out.close();
-        } catch (final NotSerializableException e) {
-            throw (IOException) new NotSerializableException(e.getMessage() +
-                " : The EJB specification restricts remote interfaces to only serializable data types.  This can be disabled for in-vm use with the " +
-                OPENEJB_LOCALCOPY +
-                "=false system property.").initCause(e);
-        }
-
-        final ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-        final ObjectInputStream in = new EjbObjectInputStream(bais);
-        final Object obj = in.readObject();
-        return (T) obj;
+        return COPIER.copy(object);
     }
 
     public void invalidateReference() {
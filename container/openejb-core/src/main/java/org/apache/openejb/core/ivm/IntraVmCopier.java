@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.ivm;
+
+import java.io.IOException;
+
+/**
+ * Produces the pass-by-value copies of the arguments, return values and exceptions
+ * of remote interface calls made inside the VM.
+ *
+ * The active implementation is selected with the {@code openejb.localcopy.copier} property:
+ * {@code plan} (default, see {@link PlanIntraVmCopier}), {@code serialization}
+ * (see {@link SerializationIntraVmCopier}) or the fully qualified name of an implementation
+ * with a public no-arg constructor.
+ *
+ * Implementations are called while {@link IntraVmCopyMonitor} holds the copy state
+ * and must be thread safe.
+ */
+public interface IntraVmCopier {
+
+    <T> T copy(T object) throws IOException, ClassNotFoundException;
+}
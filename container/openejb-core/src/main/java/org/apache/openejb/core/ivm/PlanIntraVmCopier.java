@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.ivm;
+
+import org.apache.openejb.core.rmi.BlacklistClassResolver;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Deep copies object graphs without going through a byte stream.
+ *
+ * A copy plan is computed once per class:
+ * <ul>
+ *     <li>immutable types (String, boxed primitives, BigDecimal, BigInteger, UUID, java.time, enums) are shared</li>
+ *     <li>arrays and the common java.util collections are rebuilt element by element</li>
+ *     <li>records are rebuilt through their canonical constructor</li>
+ *     <li>other serializable classes without any custom serialization hook are instantiated the way
+ *     serialization does it and get their non transient fields copied</li>
+ * </ul>
+ *
+ * As soon as an object of the graph has no plan (custom writeObject/readResolve, proxies, JDK internals,
+ * class not visible from the thread context classloader, blacklisted class...) the whole object is copied
+ * by the fallback copier so the result is always the same as with java serialization.
+ */
+public class PlanIntraVmCopier implements IntraVmCopier {
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+
+    private static final Set<Class<?>> IMMUTABLES = Set.of(
+        String.class, Boolean.class, Byte.class, Short.class, Character.class, Integer.class,
+        Long.class, Float.class, Double.class, BigDecimal.class, BigInteger.class, UUID.class);
+
+    private static final Map<Class<?>, IntFunction<Collection<Object>>> COLLECTIONS = Map.of(
+        ArrayList.class, ArrayList::new,
+        LinkedList.class, size -> new LinkedList<>(),
+        HashSet.class, HashSet::new,
+        LinkedHashSet.class, LinkedHashSet::new,
+        TreeSet.class, size -> new TreeSet<>());
+
+    private static final Map<Class<?>, IntFunction<Map<Object, Object>>> MAPS = Map.of(
+        HashMap.class, HashMap::new,
+        TreeMap.class, size -> new TreeMap<>());
+
+    // sun.reflect.ReflectionFactory, the way serialization instantiates objects
+    private static final Object REFLECTION_FACTORY;
+    private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+
+    static {
+        Object factory = null;
+        Method method = null;
+        try {
+            final Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            method = factoryClass.getMethod("newConstructorForSerialization", Class.class);
+        } catch (final Exception | LinkageError e) {
+            // beans will be copied by the fallback
+        }
+        REFLECTION_FACTORY = factory;
+        NEW_CONSTRUCTOR_FOR_SERIALIZATION = method;
+    }
+
+    private static final Plan NO_PLAN = new Plan(Object.class, false) {
+        @Override
+        Object copy(final Object source, final Copy copy) {
+            throw UNSUPPORTED;
+        }
+    };
+
+    private final IntraVmCopier fallback;
+
+    private final ClassValue<Plan> plans = new ClassValue<Plan>() {
+        @Override
+        protected Plan computeValue(final Class<?> type) {
+            return createPlan(type);
+        }
+    };
+
+    public PlanIntraVmCopier() {
+        this(new SerializationIntraVmCopier());
+    }
+
+    public PlanIntraVmCopier(final IntraVmCopier fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T copy(final T object) throws IOException, ClassNotFoundException {
+        if (object == null) {
+            return null;
+        }
+
+        // class conversion is the job of serialization
+        if (!IntraVmCopyMonitor.isCrossClassLoaderOperation()) {
+            try {
+                return (T) new Copy(Thread.currentThread().getContextClassLoader()).value(object);
+            } catch (final Unsupported e) {
+                // some part of the graph has no plan
+            }
+        }
+        return fallback.copy(object);
+    }
+
+    private Plan createPlan(final Class<?> type) {
+        if (type != String.class && !type.isPrimitive()) {
+            try {
+                BlacklistClassResolver.DEFAULT.check(type.getName());
+            } catch (final SecurityException se) {
+                return NO_PLAN; // let serialization report it
+            }
+        }
+
+        if (IMMUTABLES.contains(type) || Enum.class.isAssignableFrom(type)
+            || ("java.time".equals(type.getPackageName()) && Serializable.class.isAssignableFrom(type))) {
+            return new Plan(type);
+        }
+
+        if (type.isArray()) {
+            final Class<?> component = type.getComponentType();
+            if (component.isPrimitive()) {
+                return new PrimitiveArrayPlan(type);
+            }
+            return new ObjectArrayPlan(type);
+        }
+
+        final IntFunction<Collection<Object>> collection = COLLECTIONS.get(type);
+        if (collection != null) {
+            return new CollectionPlan(type, collection);
+        }
+        final IntFunction<Map<Object, Object>> map = MAPS.get(type);
+        if (map != null) {
+            return new MapPlan(type, map);
+        }
+
+        if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+            || type.getClassLoader() == null || Proxy.isProxyClass(type) || type.isHidden()
+            || hasReplaceHook(type)) {
+            return NO_PLAN;
+        }
+
+        try {
+            if (type.isRecord()) {
+                return new RecordPlan(type);
+            }
+            return BeanPlan.create(type);
+        } catch (final RuntimeException | NoSuchMethodException e) { // InaccessibleObjectException...
+            return NO_PLAN;
+        }
+    }
+
+    private static boolean hasReplaceHook(final Class<?> type) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (final Method method : c.getDeclaredMethods()) {
+                if (method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers())
+                    && ("writeReplace".equals(method.getName()) || "readResolve".equals(method.getName()))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSerializationHook(final Class<?> type) {
+        for (final Method method : type.getDeclaredMethods()) {
+            final String name = method.getName();
+            if ("writeObject".equals(name) && method.getParameterCount() == 1 && method.getParameterTypes()[0] == ObjectOutputStream.class
+                || "readObject".equals(name) && method.getParameterCount() == 1 && method.getParameterTypes()[0] == ObjectInputStream.class
+                || "readObjectNoData".equals(name) && method.getParameterCount() == 0) {
+                return true;
+            }
+        }
+        try {
+            type.getDeclaredField("serialPersistentFields");
+            return true;
+        } catch (final NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    /**
+     * State of one top level copy: keeps shared references and cycles of the graph.
+     */
+    private final class Copy {
+        private final ClassLoader loader;
+        private Map<Object, Object> copies;
+        private Set<Object> records; // records being copied, their copy only exists once their components are copied
+
+        private Copy(final ClassLoader loader) {
+            this.loader = loader;
+        }
+
+        private Object value(final Object source) {
+            if (source == null) {
+                return null;
+            }
+
+            final Plan plan = plans.get(source.getClass());
+            plan.checkVisible(loader);
+            if (plan.immutable) {
+                return source;
+            }
+
+            if (copies != null) {
+                final Object existing = copies.get(source);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            return plan.copy(source, this);
+        }
+
+        private void register(final Object source, final Object copy) {
+            if (copies == null) {
+                copies = new IdentityHashMap<>();
+            }
+            copies.put(source, copy);
+        }
+
+        /**
+         * A record reachable from its own components can't be rebuilt with its canonical constructor
+         * (its copy only exists once the components are copied), such graphs go to the fallback copier.
+         */
+        private void enterRecord(final Object record) {
+            if (records == null) {
+                records = Collections.newSetFromMap(new IdentityHashMap<>());
+            }
+            if (!records.add(record)) {
+                throw UNSUPPORTED;
+            }
+        }
+
+        private void exitRecord(final Object record) {
+            records.remove(record);
+        }
+    }
+
+    /**
+     * Base plan, as such it shares immutable values.
+     */
+    private static class Plan {
+        protected final Class<?> type;
+        private final boolean immutable;
+        private volatile WeakReference<ClassLoader> visibleFrom = new WeakReference<>(null);
+
+        private Plan(final Class<?> type) {
+            this(type, true);
+        }
+
+        protected Plan(final Class<?> type, final boolean immutable) {
+            this.type = type;
+            this.immutable = immutable;
+        }
+
+        /**
+         * Serialization resolves the classes from the context classloader,
+         * copies are only shared or rebuilt when that resolves the same class.
+         */
+        void checkVisible(final ClassLoader loader) {
+            final ClassLoader typeLoader = type.getClassLoader();
+            if (typeLoader == null || loader == typeLoader || loader == visibleFrom.get()) {
+                return;
+            }
+            if (loader != null) {
+                try {
+                    if (Class.forName(type.getName(), false, loader) == type) {
+                        visibleFrom = new WeakReference<>(loader);
+                        return;
+                    }
+                } catch (final ClassNotFoundException | LinkageError e) {
+                    // not visible
+                }
+            }
+            throw UNSUPPORTED;
+        }
+
+        Object copy(final Object source, final Copy copy) {
+            return source;
+        }
+    }
+
+    private static final class PrimitiveArrayPlan extends Plan {
+        private PrimitiveArrayPlan(final Class<?> type) {
+            super(type, false);
+        }
+
+        @Override
+        Object copy(final Object source, final Copy copy) {
+            final int length = Array.getLength(source);
+            final Object target = Array.newInstance(type.getComponentType(), length);
+            System.arraycopy(source, 0, target, 0, length);
+            copy.register(source, target);
+            return target;
+        }
+    }
+
+    private static final class ObjectArrayPlan extends Plan {
+        private ObjectArrayPlan(final Class<?> type) {
+            super(type, false);
+        }
+
+        @Override
+        Object copy(final Object source, final Copy copy) {
+            final Object[] array = (Object[]) source;
+            final Object[] target = (Object[]) Array.newInstance(type.getComponentType(), array.length);
+            copy.register(source, target);
+            for (int i = 0; i < array.length; i++) {
+                target[i] = copy.value(array[i]);
+            }
+            return target;
+        }
+    }
+
+    private static final class CollectionPlan extends Plan {
+        private final IntFunction<Collection<Object>> factory;
+
+        private CollectionPlan(final Class<?> type, final IntFunction<Collection<Object>> factory) {
+            super(type, false);
+            this.factory = factory;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(final Object source, final Copy copy) {
+            final Collection<Object> collection = (Collection<Object>) source;
+            if (collection instanceof SortedSet && ((SortedSet<?>) collection).comparator() != null) {
+                throw UNSUPPORTED;
+            }
+            final Collection<Object> target = factory.apply(collection.size());
+            copy.register(source, target);
+            for (final Object item : collection) {
+                target.add(copy.value(item));
+            }
+            return target;
+        }
+    }
+
+    private static final class MapPlan extends Plan {
+        private final IntFunction<Map<Object, Object>> factory;
+
+        private MapPlan(final Class<?> type, final IntFunction<Map<Object, Object>> factory) {
+            super(type, false);
+            this.factory = factory;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(final Object source, final Copy copy) {
+            final Map<Object, Object> map = (Map<Object, Object>) source;
+            if (map instanceof SortedMap && ((SortedMap<?, ?>) map).comparator() != null) {
+                throw UNSUPPORTED;
+            }
+            final Map<Object, Object> target = factory.apply(map.size());
+            copy.register(source, target);
+            for (final Map.Entry<Object, Object> entry : map.entrySet()) {
+                target.put(copy.value(entry.getKey()), copy.value(entry.getValue()));
+            }
+            return target;
+        }
+    }
+
+    private static final class RecordPlan extends Plan {
+        private final Method[] accessors;
+        private final Constructor<?> constructor;
+
+        private RecordPlan(final Class<?> type) throws NoSuchMethodException {
+            super(type, false);
+            final RecordComponent[] components = type.getRecordComponents();
+            final Class<?>[] types = new Class<?>[components.length];
+            this.accessors = new Method[components.length];
+            for (int i = 0; i < components.length; i++) {
+                types[i] = components[i].getType();
+                accessors[i] = components[i].getAccessor();
+                accessors[i].setAccessible(true);
+            }
+            this.constructor = type.getDeclaredConstructor(types);
+            this.constructor.setAccessible(true);
+        }
+
+        @Override
+        Object copy(final Object source, final Copy copy) {
+            copy.enterRecord(source);
+            try {
+                final Object[] values = new Object[accessors.length];
+                for (int i = 0; i < accessors.length; i++) {
+                    values[i] = copy.value(accessors[i].invoke(source));
+                }
+                final Object target = constructor.newInstance(values);
+                copy.register(source, target);
+                return target;
+            } catch (final IllegalAccessException | InstantiationException | InvocationTargetException e) {
+                throw UNSUPPORTED;
+            } finally {
+                copy.exitRecord(source);
+            }
+        }
+    }
+
+    private static final class BeanPlan extends Plan {
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+
+        private BeanPlan(final Class<?> type, final Constructor<?> constructor, final Field[] fields) {
+            super(type, false);
+            this.constructor = constructor;
+            this.fields = fields;
+        }
+
+        private static Plan create(final Class<?> type) {
+            if (NEW_CONSTRUCTOR_FOR_SERIALIZATION == null) {
+                return NO_PLAN;
+            }
+
+            final List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                if (hasSerializationHook(c)) {
+                    return NO_PLAN;
+                }
+                for (final Field field : c.getDeclaredFields()) {
+                    final int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+
+            // same instantiation as serialization: the no-arg constructor of the first non serializable parent
+            final Constructor<?> constructor;
+            try {
+                constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(REFLECTION_FACTORY, type);
+            } catch (final IllegalAccessException | InvocationTargetException e) {
+                return NO_PLAN;
+            }
+            if (constructor == null) {
+                return NO_PLAN;
+            }
+            return new BeanPlan(type, constructor, fields.toArray(new Field[0]));
+        }
+
+        @Override
+        Object copy(final Object source, final Copy copy) {
+            try {
+                final Object target = constructor.newInstance();
+                copy.register(source, target);
+                for (final Field field : fields) {
+                    final Object value = field.get(source);
+                    field.set(target, field.getType().isPrimitive() ? value : copy.value(value));
+                }
+                return target;
+            } catch (final IllegalAccessException | InstantiationException | InvocationTargetException e) {
+                throw UNSUPPORTED;
+            }
+        }
+    }
+
+    private static final class Unsupported extends RuntimeException {
+        private Unsupported() {
+            super("no copy plan", null, false, false);
+        }
+    }
+}
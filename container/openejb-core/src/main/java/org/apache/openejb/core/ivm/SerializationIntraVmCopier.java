@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.ivm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+
+/**
+ * Copies through java serialization, the historical and most compatible behavior.
+ *
+ * The byte buffer is reused per thread so a copy only allocates the object streams.
+ */
+public class SerializationIntraVmCopier implements IntraVmCopier {
+    private static final int INITIAL_BUFFER_SIZE = 128;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T copy(final T object) throws IOException, ClassNotFoundException {
+        // Check for primitive and other known class types that are immutable.  If detected
+        // we can safely return them.
+        if (object == null) {
+            return null;
+        }
+        final Class ooc = object.getClass();
+        if (ooc == int.class ||
+            ooc == String.class ||
+            ooc == long.class ||
+            ooc == boolean.class ||
+            ooc == byte.class ||
+            ooc == float.class ||
+            ooc == double.class ||
+            ooc == short.class ||
+            ooc == Long.class ||
+            ooc == Boolean.class ||
+            ooc == Byte.class ||
+            ooc == Character.class ||
+            ooc == Float.class ||
+            ooc == Double.class ||
+            ooc == Short.class ||
+            ooc == BigDecimal.class) {
+            return object;
+        }
+
+        Buffer buffer = BUFFERS.get();
+        if (buffer.inUse) { // copy triggered while copying, don't share the buffer
+            buffer = new Buffer();
+        }
+        buffer.inUse = true;
+        try {
+            try {
+                final ObjectOutputStream out = new ObjectOutputStream(buffer);
+                out.writeObject(object);
+                out.close();
+            } catch (final NotSerializableException e) {
+                throw (IOException) new NotSerializableException(e.getMessage() +
+                    " : The EJB specification restricts remote interfaces to only serializable data types.  This can be disabled for in-vm use with the " +
+                    BaseEjbProxyHandler.OPENEJB_LOCALCOPY +
+                    "=false system property.").initCause(e);
+            }
+
+            final ObjectInputStream in = new EjbObjectInputStream(buffer.toInputStream());
+            return (T) in.readObject();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        private boolean inUse;
+
+        private Buffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        private ByteArrayInputStream toInputStream() {
+            // no copy of the written bytes, unlike toByteArray()
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+        private void release() {
+            reset();
+            if (buf.length > MAX_RETAINED_BUFFER_SIZE) {
+                buf = new byte[INITIAL_BUFFER_SIZE];
+            }
+            inUse = false;
+        }
+    }
+}
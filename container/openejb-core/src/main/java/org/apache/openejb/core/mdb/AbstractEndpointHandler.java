@@ -169,7 +169,7 @@ abstract class AbstractEndpointHandler implements InvocationHandler, MessageEndp
     }
 
     // workaround for AMQ 5/JMS 2 support
-    private Object[] wrapMessageForAmq5(final Object[] args) {
+    protected Object[] wrapMessageForAmq5(final Object[] args) {
         if (args == null || args.length != 1 || DelegateMessage.class.isInstance(args[0])) {
             return args;
         }
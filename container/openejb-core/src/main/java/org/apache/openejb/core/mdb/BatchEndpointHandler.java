@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.mdb;
+
+import org.apache.openejb.ApplicationException;
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.OpenEJBException;
+import org.apache.openejb.SystemException;
+import org.apache.openejb.api.jms.BatchMessageListener;
+import org.apache.openejb.core.ThreadContext;
+import org.apache.openejb.core.transaction.TransactionType;
+import org.apache.openejb.loader.Options;
+import org.apache.openejb.util.Duration;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import jakarta.ejb.EJBException;
+import jakarta.jms.Message;
+import jakarta.resource.spi.ApplicationServerInternalException;
+import jakarta.resource.spi.UnavailableException;
+import javax.transaction.xa.XAResource;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Endpoint of a {@link BatchMessageListener} bean in a pooled MDB container: the messages delivered to the endpoint
+ * are buffered and passed to onMessages by batch, with a single pooled instance and in a single transaction.
+ *
+ * The instance and the transaction are taken with the first message of a batch, the transaction is then suspended
+ * between two deliveries of the resource adapter and the batch is delivered when it reaches its max size,
+ * when its first message waited the max wait or when the endpoint is released. Since the resource adapter
+ * acknowledges each message in the transaction of its delivery, a failing batch is redelivered as a whole.
+ * That is why only the beans whose onMessages runs in a container managed Required transaction, activated by
+ * a resource adapter giving an XAResource, receive their messages by batch, the other ones get them one by one.
+ */
+public class BatchEndpointHandler extends AbstractEndpointHandler {
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB, "org.apache.openejb.util.resources");
+
+    private final MdbPoolContainer poolContainer;
+    private final BeanContext deployment;
+    private final MdbInstanceManager instanceManager;
+    private final XAResource xaResource;
+    private final Settings settings;
+
+    private final List<Message> messages = new ArrayList<>();
+    private ThreadContext batchContext;
+    private long deadline;
+    private ScheduledFuture<?> timeout;
+
+    public BatchEndpointHandler(final MdbPoolContainer container, final BeanContext deployment, final MdbInstanceManager instanceManager,
+                                final XAResource xaResource, final Settings settings) {
+        super(container);
+        this.poolContainer = container;
+        this.deployment = deployment;
+        this.instanceManager = instanceManager;
+        this.xaResource = xaResource;
+        this.settings = settings;
+    }
+
+    @Override
+    public synchronized void beforeDelivery(final Method method) throws ApplicationServerInternalException {
+        // verify current state
+        switch (state) {
+            case RELEASED:
+                throw new IllegalStateException("Message endpoint factory has been released");
+            case BEFORE_CALLED:
+                throw new IllegalStateException("beforeDelivery can not be called again until message is delivered and afterDelivery is called");
+            case METHOD_CALLED:
+            case SYSTEM_EXCEPTION:
+                throw new IllegalStateException("The last message delivery must be completed with an afterDeliver before beforeDeliver can be called again");
+        }
+
+        try {
+            if (batchContext == null) { // first message of a batch
+                instance = instanceManager.getInstance(new ThreadContext(deployment, null));
+                try {
+                    poolContainer.beforeDelivery(deployment, instance, settings.method, xaResource);
+                } catch (final SystemException se) {
+                    instanceManager.poolInstance(new ThreadContext(deployment, null), instance);
+                    instance = null;
+                    throw se;
+                }
+                batchContext = ThreadContext.getThreadContext();
+                deadline = System.nanoTime() + settings.maxWait;
+            } else {
+                resume();
+            }
+        } catch (final SystemException se) {
+            final Throwable throwable = se.getRootCause() != null ? se.getRootCause() : se;
+            throw new ApplicationServerInternalException(throwable);
+        } catch (final OpenEJBException oe) {
+            throw new ApplicationServerInternalException(oe);
+        }
+
+        // before completed successfully we are now ready to buffer the message
+        state = State.BEFORE_CALLED;
+    }
+
+    @Override
+    public synchronized Object deliverMessage(final Method method, final Object[] args) throws Throwable {
+        boolean callBeforeAfter = false;
+
+        // verify current state
+        switch (state) {
+            case NONE:
+                try {
+                    beforeDelivery(method);
+                } catch (final ApplicationServerInternalException e) {
+                    throw (EJBException) new EJBException().initCause(e.getCause());
+                }
+                callBeforeAfter = true;
+                break;
+            case BEFORE_CALLED:
+                break;
+            case RELEASED:
+                throw new IllegalStateException("Message endpoint factory has been released");
+            case METHOD_CALLED:
+            case SYSTEM_EXCEPTION:
+                throw new IllegalStateException("The last message delivery must be completed with an afterDeliver before another message can be delivered");
+        }
+
+        state = State.METHOD_CALLED;
+        messages.add(Message.class.cast(wrapMessageForAmq5(args)[0]));
+
+        // if the adapter is not using before/after, we must call afterDelivery to close or suspend the batch
+        if (callBeforeAfter) {
+            try {
+                afterDelivery();
+            } catch (final ApplicationServerInternalException e) {
+                throw (EJBException) new EJBException().initCause(e.getCause());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void afterDelivery() throws ApplicationServerInternalException, UnavailableException {
+        switch (state) {
+            case RELEASED:
+                throw new IllegalStateException("Message endpoint factory has been released");
+            case NONE:
+                throw new IllegalStateException("afterDelivery may only be called if message delivery began with a beforeDelivery call");
+        }
+
+        // we are now in the default NONE state whatever happens to the batch
+        state = State.NONE;
+        try {
+            final long remaining = deadline - System.nanoTime();
+            if (messages.size() >= settings.maxSize || remaining <= 0) {
+                flush();
+            } else {
+                poolContainer.suspendDelivery();
+                if (timeout == null || timeout.isDone()) {
+                    schedule(remaining);
+                }
+            }
+        } catch (final SystemException se) {
+            final Throwable throwable = se.getRootCause() != null ? se.getRootCause() : se;
+            throw new ApplicationServerInternalException(throwable);
+        }
+    }
+
+    @Override
+    protected void recreateInstance(final boolean exceptionAlreadyThrown) throws UnavailableException {
+        // instances are discarded by the container after a system exception
+    }
+
+    @Override
+    public synchronized void release() {
+        if (state == State.RELEASED) {
+            return;
+        }
+        final State previous = state;
+        state = State.RELEASED;
+
+        if (batchContext == null) {
+            return;
+        }
+        try {
+            if (previous == State.NONE) {
+                resume();
+            }
+            flush();
+        } catch (final SystemException se) {
+            LOGGER.error("Unable to deliver the last batch of messages of " + deployment.getDeploymentID(), se);
+        }
+    }
+
+    private synchronized void expire() {
+        if (batchContext == null || state != State.NONE) { // already delivered or a delivery is running and will flush it
+            return;
+        }
+
+        final long remaining = deadline - System.nanoTime();
+        if (remaining > 0) { // new batch
+            schedule(remaining);
+            return;
+        }
+        try {
+            resume();
+            flush();
+        } catch (final SystemException se) {
+            LOGGER.error("Unable to deliver a batch of messages of " + deployment.getDeploymentID(), se);
+        }
+    }
+
+    /**
+     * Associates the open batch with the current thread, if its transaction can't be resumed the batch is dropped,
+     * its messages being redelivered by the resource adapter.
+     */
+    private void resume() throws SystemException {
+        try {
+            poolContainer.resumeDelivery(batchContext);
+        } catch (final SystemException se) {
+            if (timeout != null) {
+                timeout.cancel(false);
+                timeout = null;
+            }
+            messages.clear();
+            batchContext = null;
+            try {
+                instanceManager.discardInstance(new ThreadContext(deployment, null), instance);
+            } finally {
+                instance = null;
+            }
+            throw se;
+        }
+    }
+
+    private void schedule(final long delay) {
+        timeout = settings.scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Delivers the batch associated to the current thread, commits or rolls back its transaction and gives
+     * its instance back to the pool.
+     */
+    private void flush() throws SystemException {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+
+        final List<Message> batch = new ArrayList<>(messages);
+        final Object batchInstance = instance;
+        messages.clear();
+        batchContext = null;
+        instance = null;
+
+        SystemException failure = null;
+        try {
+            if (!batch.isEmpty()) {
+                poolContainer.invoke(batchInstance, settings.method, null, batch);
+            }
+        } catch (final SystemException se) { // transaction marked for rollback and instance discarded
+            failure = se;
+        } catch (final ApplicationException ae) { // transaction rolled back if the exception requires it
+            final Throwable throwable = ae.getRootCause() != null ? ae.getRootCause() : ae;
+            LOGGER.warning("Batch of " + batch.size() + " messages of " + deployment.getDeploymentID() + " failed: " + throwable);
+        } finally {
+            try {
+                poolContainer.afterDelivery(batchInstance);
+            } catch (final SystemException se) {
+                if (failure == null) {
+                    failure = se;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Batch settings of a deployment.
+     */
+    public static final class Settings {
+        public static final String MAX_SIZE = "MaxBatchSize";
+        public static final String MAX_WAIT = "MaxBatchWait";
+
+        private final Method method;
+        private final int maxSize;
+        private final long maxWait;
+        private final ScheduledExecutorService scheduler;
+
+        private Settings(final Method method, final int maxSize, final long maxWait, final ScheduledExecutorService scheduler) {
+            this.method = method;
+            this.maxSize = maxSize;
+            this.maxWait = maxWait;
+            this.scheduler = scheduler;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * @return the settings of the bean, the container defaults can be overridden by the bean properties,
+         * null if the bean doesn't receive its messages by batch.
+         */
+        public static Settings of(final BeanContext beanContext, final int maxSize, final Duration maxWait,
+                                  final ScheduledExecutorService scheduler) {
+            if (!BatchMessageListener.class.isAssignableFrom(beanContext.getBeanClass())) {
+                return null;
+            }
+
+            final Options options = new Options(beanContext.getProperties());
+            final int size = options.get(MAX_SIZE, maxSize);
+            if (size <= 1) {
+                return null;
+            }
+            final Duration wait = options.get(MAX_WAIT, maxWait);
+            final TimeUnit unit = wait.getUnit() == null ? TimeUnit.MILLISECONDS : wait.getUnit();
+
+            final Method method;
+            try {
+                method = beanContext.getBeanClass().getMethod("onMessages", List.class);
+            } catch (final NoSuchMethodException e) { // BatchMessageListener is implemented
+                throw new IllegalStateException(e);
+            }
+
+            // the acknowledgement of the messages is only deferred to the end of the batch in a container transaction
+            if (beanContext.isBeanManagedTransaction() || beanContext.getTransactionType(method) != TransactionType.Required) {
+                LOGGER.warning(beanContext.getDeploymentID() + " is a BatchMessageListener but onMessages doesn't run in a"
+                    + " container managed Required transaction, its messages are delivered one by one");
+                return null;
+            }
+            return new Settings(method, size, Math.max(0, unit.toNanos(wait.getTime())), scheduler);
+        }
+    }
+}
@@ -20,6 +20,8 @@ package org.apache.openejb.core.mdb;
 import org.apache.openejb.BeanContext;
 import org.apache.openejb.core.transaction.TransactionType;
 import org.apache.openejb.resource.XAResourceWrapper;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
 import org.apache.openejb.util.proxy.LocalBeanProxyFactory;
 
 import javax.management.ObjectName;
@@ -34,6 +36,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class EndpointFactory implements MessageEndpointFactory {
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB, "org.apache.openejb.util.resources");
 
     private final ActivationSpec activationSpec;
     private final BaseMdbContainer container;
@@ -46,8 +49,15 @@ public class EndpointFactory implements MessageEndpointFactory {
     protected final List<ObjectName> jmxNames = new ArrayList<>();
     private final Class<?> proxy;
     private final boolean usePool;
+    private final BatchEndpointHandler.Settings batch;
+    private volatile boolean batchRefused;
 
     public EndpointFactory(final ActivationSpec activationSpec, final BaseMdbContainer container, final BeanContext beanContext, final MdbInstanceFactory instanceFactory, final MdbInstanceManager instanceManager, final XAResourceWrapper xaResourceWrapper, boolean usePool) {
+        this(activationSpec, container, beanContext, instanceFactory, instanceManager, xaResourceWrapper, usePool, null);
+    }
+
+    public EndpointFactory(final ActivationSpec activationSpec, final BaseMdbContainer container, final BeanContext beanContext, final MdbInstanceFactory instanceFactory, final MdbInstanceManager instanceManager, final XAResourceWrapper xaResourceWrapper, boolean usePool,
+                           final BatchEndpointHandler.Settings batch) {
         this.activationSpec = activationSpec;
         this.container = container;
         this.beanContext = beanContext;
@@ -57,6 +67,7 @@ public class EndpointFactory implements MessageEndpointFactory {
         interfaces = new Class[]{container.getMessageListenerInterface(), MessageEndpoint.class};
         this.xaResourceWrapper = xaResourceWrapper;
         this.usePool = usePool;
+        this.batch = batch;
         final BeanContext.ProxyClass proxyClass = beanContext.get(BeanContext.ProxyClass.class);
         if (proxyClass == null) {
             proxy = LocalBeanProxyFactory.createProxy(beanContext.getBeanClass(), beanContext.getClassLoader(), interfaces);
@@ -81,7 +92,15 @@ public class EndpointFactory implements MessageEndpointFactory {
         }
 
         InvocationHandler endpointHandler = null;
-        if (usePool) {
+        if (usePool && batch != null && xaResource != null) {
+            endpointHandler = new BatchEndpointHandler((MdbPoolContainer) container, beanContext, instanceManager, xaResource, batch);
+        } else if (usePool) {
+            if (batch != null && !batchRefused) {
+                // without a transaction of the adapter the messages would be acknowledged before onMessages runs
+                batchRefused = true;
+                LOGGER.warning("The resource adapter of " + beanContext.getDeploymentID()
+                    + " delivers its messages without XAResource, they are not delivered by batch");
+            }
             endpointHandler = new PoolEndpointHandler(container, beanContext, instanceManager, xaResource);
         } else {
             endpointHandler = new EndpointHandler(container, beanContext, instanceFactory, xaResource);
@@ -131,7 +150,8 @@ public class EndpointFactory implements MessageEndpointFactory {
 
     @Override
     public boolean isDeliveryTransacted(final Method method) throws NoSuchMethodException {
-        final TransactionType transactionType = beanContext.getTransactionType(method);
+        // the deliveries of a batch share the transaction of onMessages
+        final TransactionType transactionType = beanContext.getTransactionType(batch != null ? batch.getMethod() : method);
         return TransactionType.Required == transactionType;
     }
 
@@ -22,6 +22,7 @@ import org.apache.openejb.util.Pool;
 
 import jakarta.resource.spi.ResourceAdapter;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class MdbContainerFactory {
 
@@ -40,6 +41,8 @@ public class MdbContainerFactory {
     private boolean useOneSchedulerThreadByBean = false;
     private int evictionThreads = 1;
     private boolean pool;
+    private int maxBatchSize = 100;
+    private Duration maxBatchWait = new Duration(1, TimeUnit.SECONDS);
     private Properties properties = new Properties();
 
 
@@ -193,6 +196,10 @@ public class MdbContainerFactory {
         poolBuilder.setMaxAgeOffset(maxAgeOffset);
     }
 
+    public void setStripes(final int stripes) {
+        poolBuilder.setStripes(stripes);
+    }
+
     public boolean isPool() {
         return pool;
     }
@@ -201,6 +208,22 @@ public class MdbContainerFactory {
         this.pool = pool;
     }
 
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(final int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getMaxBatchWait() {
+        return maxBatchWait;
+    }
+
+    public void setMaxBatchWait(final Duration maxBatchWait) {
+        this.maxBatchWait = maxBatchWait;
+    }
+
     public Properties getProperties() {
         return properties;
     }
@@ -211,7 +234,7 @@ public class MdbContainerFactory {
             final MdbPoolContainer mdbPoolContainer = new MdbPoolContainer(id, securityService, resourceAdapter,
                     messageListenerInterface, activationSpecClass,
                     failOnUnknownActivationSpec, accessTimeout, closeTimeout, poolBuilder,
-                    callbackThreads, useOneSchedulerThreadByBean, evictionThreads);
+                    callbackThreads, useOneSchedulerThreadByBean, evictionThreads, maxBatchSize, maxBatchWait);
 
             mdbPoolContainer.getProperties().putAll(this.getProperties());
             return mdbPoolContainer;
@@ -46,6 +46,8 @@ import javax.naming.NamingException;
 import jakarta.resource.ResourceException;
 import jakarta.resource.spi.ActivationSpec;
 import jakarta.resource.spi.ResourceAdapter;
+import jakarta.transaction.Transaction;
+import jakarta.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
@@ -60,6 +62,8 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.apache.openejb.core.transaction.EjbTransactionUtil.afterInvoke;
@@ -81,6 +85,10 @@ public class MdbPoolContainer implements RpcContainer, BaseMdbContainer {
     private final ConcurrentMap<Object, BeanContext> deployments = new ConcurrentHashMap<>();
     private final XAResourceWrapper xaResourceWrapper;
     private final InboundRecovery inboundRecovery;
+    private final TransactionManager transactionManager;
+    private final int maxBatchSize;
+    private final Duration maxBatchWait;
+    private final ScheduledThreadPoolExecutor batchScheduler;
 
     private final Properties properties = new Properties();
 
@@ -95,7 +103,9 @@ public class MdbPoolContainer implements RpcContainer, BaseMdbContainer {
                             final Pool.Builder poolBuilder,
                             final int callbackThreads,
                             final boolean useOneSchedulerThreadByBean,
-                            final int evictionThreads
+                            final int evictionThreads,
+                            final int maxBatchSize,
+                            final Duration maxBatchWait
     ) {
         this.containerID = containerID;
         this.resourceAdapter = resourceAdapter;
@@ -104,6 +114,16 @@ public class MdbPoolContainer implements RpcContainer, BaseMdbContainer {
         this.failOnUnknownActivationSpec = failOnUnknownActivationSpec;
         xaResourceWrapper = SystemInstance.get().getComponent(XAResourceWrapper.class);
         inboundRecovery = SystemInstance.get().getComponent(InboundRecovery.class);
+        transactionManager = SystemInstance.get().getComponent(TransactionManager.class);
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchWait = maxBatchWait == null ? new Duration(1, TimeUnit.SECONDS) : maxBatchWait;
+
+        // flushes the batches left incomplete by an idle destination, its thread times out when unused
+        batchScheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("openejb-mdb-batch-", containerID));
+        batchScheduler.setKeepAliveTime(1, TimeUnit.MINUTES);
+        batchScheduler.allowCoreThreadTimeOut(true);
+        batchScheduler.setRemoveOnCancelPolicy(true);
+
         this.instanceManager = new MdbInstanceManager(
                 securityService,
                 resourceAdapter,
@@ -158,7 +178,11 @@ public class MdbPoolContainer implements RpcContainer, BaseMdbContainer {
         // create the activation spec
         final ActivationSpec activationSpec = createActivationSpec(beanContext);
 
-        final EndpointFactory endpointFactory = new EndpointFactory(activationSpec, this, beanContext, null, instanceManager, xaResourceWrapper, true);
+        final BatchEndpointHandler.Settings batch = BatchEndpointHandler.Settings.of(beanContext, maxBatchSize, maxBatchWait, batchScheduler);
+        if (batch != null) {
+            logger.info("Delivering messages to " + deploymentId + " by batches of up to " + batch.getMaxSize() + " messages");
+        }
+        final EndpointFactory endpointFactory = new EndpointFactory(activationSpec, this, beanContext, null, instanceManager, xaResourceWrapper, true, batch);
 
         // update the data structures
         // this must be done before activating the endpoint since the ra may immedately begin delivering messages
@@ -440,6 +464,50 @@ public class MdbPoolContainer implements RpcContainer, BaseMdbContainer {
         }
     }
 
+    /**
+     * Detaches the delivery started by beforeDelivery from the current thread, its transaction stays open
+     * so the next messages of a batch are delivered in it after {@link #resumeDelivery(ThreadContext)},
+     * possibly on another thread.
+     *
+     * @return the call context of the delivery.
+     */
+    ThreadContext suspendDelivery() throws SystemException {
+        final ThreadContext callContext = ThreadContext.getThreadContext();
+        final MdbCallContext mdbCallContext = callContext.get(MdbCallContext.class);
+        try {
+            mdbCallContext.suspendedTx = transactionManager.suspend();
+        } catch (final jakarta.transaction.SystemException e) {
+            throw new SystemException("Unable to suspend the transaction of the delivery", e);
+        } finally {
+            ThreadContext.exit(mdbCallContext.oldCallContext);
+        }
+        return callContext;
+    }
+
+    /**
+     * Associates a delivery suspended by {@link #suspendDelivery()} with the current thread.
+     */
+    void resumeDelivery(final ThreadContext callContext) throws SystemException {
+        final MdbCallContext mdbCallContext = callContext.get(MdbCallContext.class);
+        mdbCallContext.oldCallContext = ThreadContext.enter(callContext);
+
+        final Transaction tx = mdbCallContext.suspendedTx;
+        mdbCallContext.suspendedTx = null;
+        if (tx != null) {
+            try {
+                transactionManager.resume(tx);
+            } catch (final Exception e) {
+                ThreadContext.exit(mdbCallContext.oldCallContext);
+                try { // the messages already delivered in it are redelivered
+                    tx.rollback();
+                } catch (final Exception re) {
+                    logger.debug("Unable to rollback the transaction " + tx + ": " + re.getMessage());
+                }
+                throw new SystemException("Unable to resume the transaction of the delivery", e);
+            }
+        }
+    }
+
     public void release(final BeanContext deployInfo, final Object instance) {
         // get the mdb call context
         ThreadContext callContext = ThreadContext.getThreadContext();
@@ -479,6 +547,7 @@ public class MdbPoolContainer implements RpcContainer, BaseMdbContainer {
         private Method deliveryMethod;
         private TransactionPolicy txPolicy;
         private ThreadContext oldCallContext;
+        private Transaction suspendedTx;
     }
 
     static class MdbActivationContext {
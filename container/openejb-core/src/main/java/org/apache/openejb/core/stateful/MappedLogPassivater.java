@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.stateful;
+
+import org.apache.openejb.SystemException;
+import org.apache.openejb.core.EnvProps;
+import org.apache.openejb.core.ivm.EjbObjectInputStream;
+import org.apache.openejb.loader.Options;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.JavaSecurityManagers;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Passivates the beans in append only, memory mapped log segments.
+ *
+ * The location of each passivated bean is kept in memory so activation is a lookup
+ * followed by a read of the mapped segment, readers don't wait on each other nor on writers.
+ * Beans are serialized before the append lock is taken, only the copy into the log is serialized.
+ *
+ * An activated bean leaves a dead record in its segment. Once the dead bytes of a full
+ * segment reach the compaction ratio, a background thread copies the remaining live records
+ * to the current segment and deletes the old one. A segment file which can't be deleted yet (still mapped
+ * on Windows for instance) is deleted by a later compaction or by {@link #close()}, which also deletes all
+ * the segments when the cache is destroyed.
+ *
+ * Configured with the properties given to {@link #init(Properties)} or the system properties:
+ * <ul>
+ *     <li>openejb.stateful.passivation.directory: where to write the segments, defaults to the temporary directory</li>
+ *     <li>openejb.stateful.passivation.segment-size: size of a segment in bytes, 16MB by default</li>
+ *     <li>openejb.stateful.passivation.compress: deflate the serialized beans, false by default</li>
+ *     <li>openejb.stateful.passivation.compaction-ratio: ratio of dead bytes triggering the compaction of a segment, 0.5 by default</li>
+ * </ul>
+ */
+public class MappedLogPassivater implements PassivationStrategy, AutoCloseable {
+    public static final String DIRECTORY = "openejb.stateful.passivation.directory";
+    public static final String SEGMENT_SIZE = "openejb.stateful.passivation.segment-size";
+    public static final String COMPRESS = "openejb.stateful.passivation.compress";
+    public static final String COMPACTION_RATIO = "openejb.stateful.passivation.compaction-ratio";
+
+    private static final Logger logger = Logger.getInstance(LogCategory.OPENEJB, "org.apache.openejb.util.resources");
+
+    // record length and flags
+    private static final int HEADER = 5;
+    private static final byte COMPRESSED = 1;
+
+    private final Map<Object, Record> index = new ConcurrentHashMap<>();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final List<File> undeleted = new CopyOnWriteArrayList<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    private volatile File directory;
+    private volatile int segmentSize;
+    private volatile boolean compress;
+    private volatile double compactionRatio;
+
+    // guarded by writeLock
+    private Segment active;
+
+    private ExecutorService compactor;
+
+    public MappedLogPassivater() throws SystemException {
+        init(null);
+    }
+
+    @Override
+    public void init(Properties props) throws SystemException {
+        if (props == null) {
+            props = new Properties();
+        }
+
+        final Options options = new Options(props, SystemInstance.get().getOptions());
+        final String dir = props.getProperty(EnvProps.IM_PASSIVATOR_PATH_PREFIX);
+
+        segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1024, options.get(SEGMENT_SIZE, 16L * 1024 * 1024)));
+        compress = options.get(COMPRESS, false);
+        compactionRatio = Double.parseDouble(options.get(COMPACTION_RATIO, "0.5"));
+
+        try {
+            final File sessionDirectory;
+            if (dir != null) {
+                sessionDirectory = SystemInstance.get().getBase().getDirectory(dir);
+            } else {
+                sessionDirectory = new File(options.get(DIRECTORY, JavaSecurityManagers.getSystemProperty("java.io.tmpdir", File.separator + "tmp")));
+            }
+
+            if (!sessionDirectory.exists() && !sessionDirectory.mkdirs()) {
+                throw new IOException("Failed to create session directory: " + sessionDirectory.getAbsolutePath());
+            }
+
+            if (sessionDirectory.exists() && !sessionDirectory.isDirectory()) {
+                throw new IOException("Session directory exists as a file: " + sessionDirectory.getAbsolutePath());
+            }
+
+            directory = sessionDirectory;
+        } catch (final IOException e) {
+            throw new SystemException(getClass().getName() + ".init(): can't use directory prefix " + dir + ":" + e, e);
+        }
+    }
+
+    @Override
+    public void passivate(final Map stateTable) throws SystemException {
+        // serialize outside of the lock, only the append is exclusive
+        final Map<Object, byte[]> serialized = new LinkedHashMap<>();
+        for (final Object o : stateTable.entrySet()) {
+            final Map.Entry entry = (Map.Entry) o;
+            serialized.put(entry.getKey(), serialize(entry.getValue()));
+        }
+
+        final byte flags = compress ? COMPRESSED : 0;
+        writeLock.lock();
+        try {
+            for (final Map.Entry<Object, byte[]> entry : serialized.entrySet()) {
+                final Record record = append(entry.getValue(), flags);
+                final Record old = index.put(entry.getKey(), record);
+                if (old != null) {
+                    release(old);
+                }
+            }
+        } catch (final IOException e) {
+            logger.error("Passivation failed ", e);
+            throw new SystemException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Object activate(final Object primaryKey) throws SystemException {
+        final Record record = index.remove(primaryKey);
+        if (record == null) {
+            return null;
+        }
+
+        // a compacted segment stays mapped until its last reader is done with it
+        final byte[] bytes = record.read();
+        release(record);
+
+        try (final InputStream source = (record.flags & COMPRESSED) != 0 ?
+                new InflaterInputStream(new ByteArrayInputStream(bytes)) : new ByteArrayInputStream(bytes);
+             final ObjectInputStream ois = new EjbObjectInputStream(source)) {
+            return ois.readObject();
+        } catch (final Exception t) {
+            logger.info("Activation failed ", t);
+            throw new SystemException(t);
+        }
+    }
+
+    private byte[] serialize(final Object state) throws SystemException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final OutputStream os = compress ? new DeflaterOutputStream(baos) : baos;
+             final ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            oos.writeObject(state);// passivate just the bean instance
+        } catch (final NotSerializableException nse) {
+            logger.error("Passivation failed ", nse);
+            throw (SystemException) new SystemException("The type " + nse.getMessage() + " is not serializable as mandated by the EJB specification.").initCause(nse);
+        } catch (final Exception t) {
+            logger.error("Passivation failed ", t);
+            throw new SystemException(t);
+        }
+        return baos.toByteArray();
+    }
+
+    private Record append(final byte[] bytes, final byte flags) throws IOException {
+        final int size = HEADER + bytes.length;
+        if (active == null || active.capacity - active.position < size) {
+            final Segment sealed = active;
+            active = new Segment(directory, Math.max(segmentSize, size));
+            segments.add(active);
+            if (sealed != null) {
+                sealed.sealed = true;
+                scheduleCompactionIfNeeded(sealed);
+            }
+        }
+
+        final Segment segment = active;
+        final int offset = segment.position;
+        segment.buffer.putInt(offset, bytes.length);
+        segment.buffer.put(offset + 4, flags);
+        segment.buffer.put(offset + HEADER, bytes);
+        segment.position += size;
+        return new Record(segment, offset, bytes.length, flags);
+    }
+
+    private void release(final Record record) {
+        record.segment.dead.addAndGet(HEADER + record.length);
+        scheduleCompactionIfNeeded(record.segment);
+    }
+
+    private void scheduleCompactionIfNeeded(final Segment segment) {
+        if (!segment.needsCompaction(compactionRatio) || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        synchronized (this) {
+            if (compactor == null) {
+                compactor = Executors.newSingleThreadExecutor(runnable -> {
+                    final Thread t = new Thread(runnable, "Stateful passivation compaction");
+                    t.setDaemon(true);
+                    t.setContextClassLoader(MappedLogPassivater.class.getClassLoader());
+                    return t;
+                });
+            }
+        }
+        compactor.execute(() -> {
+            compactionScheduled.set(false);
+            compact();
+        });
+    }
+
+    /**
+     * Moves the live records of the sealed segments having too many dead records
+     * to the active segment and deletes them.
+     */
+    void compact() {
+        retryDeletes();
+        for (final Segment segment : segments) {
+            if (!segment.needsCompaction(compactionRatio)) {
+                continue;
+            }
+
+            writeLock.lock();
+            try {
+                final List<Map.Entry<Object, Record>> live = new ArrayList<>();
+                for (final Map.Entry<Object, Record> entry : index.entrySet()) {
+                    if (entry.getValue().segment == segment) {
+                        live.add(entry);
+                    }
+                }
+
+                for (final Map.Entry<Object, Record> entry : live) {
+                    final Record old = entry.getValue();
+                    final Record copy = append(old.read(), old.flags);
+                    if (!index.replace(entry.getKey(), old, copy)) {
+                        // activated in the meantime
+                        copy.segment.dead.addAndGet(HEADER + copy.length);
+                    }
+                }
+            } catch (final IOException e) {
+                logger.error("Compaction of passivation segment " + segment.file + " failed", e);
+                continue;
+            } finally {
+                writeLock.unlock();
+            }
+
+            segments.remove(segment);
+            delete(segment.file);
+        }
+    }
+
+    /**
+     * Stops the compaction and deletes the segments, the passivated beans are lost.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdownNow();
+                compactor = null;
+            }
+        }
+
+        writeLock.lock();
+        try {
+            index.clear();
+            for (final Segment segment : segments) {
+                delete(segment.file);
+            }
+            segments.clear();
+            active = null;
+        } finally {
+            writeLock.unlock();
+        }
+
+        retryDeletes();
+        for (final File file : undeleted) {
+            logger.warning("Can't delete passivation segment " + file.getAbsolutePath());
+        }
+        undeleted.clear();
+    }
+
+    private void delete(final File file) {
+        if (!file.delete() && file.exists()) {
+            undeleted.add(file);
+        }
+    }
+
+    private void retryDeletes() {
+        for (final File file : undeleted) {
+            if (file.delete() || !file.exists()) {
+                undeleted.remove(file);
+            }
+        }
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    private static final class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final AtomicLong dead = new AtomicLong();
+
+        // written under the write lock only
+        private int position;
+        private volatile boolean sealed;
+
+        private Segment(final File directory, final int capacity) throws IOException {
+            this.file = File.createTempFile("passivation", ".log", directory);
+            this.capacity = capacity;
+
+            // the mapping stays valid once the channel is closed
+            try (final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                 final FileChannel channel = raf.getChannel()) {
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            }
+        }
+
+        private boolean needsCompaction(final double ratio) {
+            return sealed && dead.get() >= ratio * position;
+        }
+    }
+
+    private static final class Record {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final byte flags;
+
+        private Record(final Segment segment, final int offset, final int length, final byte flags) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.flags = flags;
+        }
+
+        private byte[] read() {
+            final byte[] bytes = new byte[length];
+            segment.buffer.get(offset + HEADER, bytes);
+            return bytes;
+        }
+    }
+}
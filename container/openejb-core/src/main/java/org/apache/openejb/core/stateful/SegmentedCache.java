@@ -0,0 +1,899 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.stateful;
+
+import org.apache.openejb.OpenEJBRuntimeException;
+import org.apache.openejb.util.Duration;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stateful cache with the capacity and time out semantic of {@link SimpleCache}
+ * but without its global LRU queue.
+ *
+ * Available (checked-in) entries are spread over segments, each one guarded by its own lock
+ * and keeping its entries in two intrusive access ordered lists: a small window for the
+ * recently created instances and the main list. Linking and unlinking an entry is O(1).
+ *
+ * When the cache is over capacity the passivation victims are taken from the heads of these
+ * lists, the window head only replaces the main head if it was used more often, frequencies being
+ * estimated by a per segment TinyLFU sketch. Beans created and abandoned right away are then
+ * passivated first instead of pushing out the long lived conversations.
+ * Victims of all segments are passivated in a single {@link PassivationStrategy#passivate(Map)} call.
+ *
+ * The time out check stops scanning a list as soon as the remaining entries can't be timed out yet.
+ */
+public class SegmentedCache<K, V> implements Cache<K, V> {
+    public static final Logger logger = Logger.getInstance(LogCategory.OPENEJB, "org.apache.openejb.util.resources");
+
+    /**
+     * Map of all known values by key
+     */
+    private final ConcurrentHashMap<K, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Number of values not in use
+     */
+    private final AtomicInteger available = new AtomicInteger();
+
+    /**
+     * Next segment to take a passivation victim from
+     */
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private volatile Segment[] segments;
+
+    private int segmentCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private volatile CacheListener<V> listener;
+
+    private volatile PassivationStrategy passivator;
+
+    /**
+     * Maximum number of values not in use before some of them get passivated
+     */
+    private volatile int capacity;
+
+    /**
+     * When the capacity is exceeded, this is the is the number of beans stored.
+     */
+    private volatile int bulkPassivate;
+
+    /**
+     * A bean may be destroyed if it isn't used in this length of time (in
+     * milliseconds).
+     * A time out of value -1 means a bean will never be destroyed due to time out.
+     * A time out of value 0 means a bean can be immediately destroyed.
+     */
+    private volatile long timeOut = -1;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Specifies how often the cache is checked for timed out beans.
+     */
+    private long frequency = 60 * 1000;
+
+    private ScheduledFuture<?> future;
+
+    public SegmentedCache() {
+    }
+
+    public SegmentedCache(final CacheListener<V> listener, final PassivationStrategy passivator, final int capacity, final int bulkPassivate, final Duration timeOut) {
+        this.listener = listener;
+        this.passivator = passivator;
+        this.capacity = capacity;
+        this.bulkPassivate = bulkPassivate;
+        this.timeOut = timeOut.getTime(TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void init() {
+        segments();
+
+        if (frequency > 0 && future == null) {
+            initScheduledExecutorService();
+
+            // start any thread in container loader to avoid leaks
+            final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(SegmentedCache.class.getClassLoader());
+            try {
+                future = executor.scheduleWithFixedDelay(this::processLRU, frequency, frequency, TimeUnit.MILLISECONDS);
+            } finally {
+                Thread.currentThread().setContextClassLoader(loader);
+            }
+        }
+    }
+
+    public synchronized void destroy() {
+        if (future != null) {
+            future.cancel(false);
+        }
+
+        final PassivationStrategy passivator = getPassivator();
+        if (passivator instanceof AutoCloseable) { // passivated entries are lost anyway
+            try {
+                ((AutoCloseable) passivator).close();
+            } catch (final Exception e) {
+                logger.warning("Can't close the passivation strategy " + passivator, e);
+            }
+        }
+    }
+
+    private synchronized void initScheduledExecutorService() {
+        if (executor == null) {
+            executor = Executors.newScheduledThreadPool(1, runnable -> {
+                final Thread t = new Thread(runnable, "Stateful cache");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Segment[] segments() {
+        Segment[] s = segments;
+        if (s == null) {
+            synchronized (this) {
+                s = segments;
+                if (s == null) {
+                    int size = 1;
+                    while (size < segmentCount) {
+                        size <<= 1;
+                    }
+                    final int perSegment = Math.max(1, capacity / size);
+                    s = (Segment[]) new SegmentedCache.Segment[size];
+                    for (int i = 0; i < size; i++) {
+                        s[i] = new Segment(perSegment);
+                    }
+                    segments = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    private Segment segmentFor(final int hash) {
+        final Segment[] s = segments();
+        return s[hash & (s.length - 1)];
+    }
+
+    private static int spread(final Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    public CacheListener<V> getListener() {
+        return listener;
+    }
+
+    public void setListener(final CacheListener<V> listener) {
+        this.listener = listener;
+    }
+
+    public PassivationStrategy getPassivator() {
+        return passivator;
+    }
+
+    public void setPassivator(final PassivationStrategy passivator) {
+        this.passivator = passivator;
+    }
+
+    public void setPassivator(final Class<? extends PassivationStrategy> passivatorClass) throws Exception {
+        this.passivator = passivatorClass.newInstance();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    // Old configurations use "PoolSize" to configure max cache size
+    public void setPoolSize(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getBulkPassivate() {
+        return bulkPassivate;
+    }
+
+    public void setBulkPassivate(final int bulkPassivate) {
+        this.bulkPassivate = bulkPassivate;
+    }
+
+    public long getTimeOut() {
+        return timeOut;
+    }
+
+    private static long ms(final String durationValue, final TimeUnit defaultTU) {
+        final Duration duration = new Duration(durationValue.trim());
+        // same default units as SimpleCache
+        if (duration.getUnit() == null) {
+            duration.setUnit(defaultTU);
+        }
+        return duration.getUnit().toMillis(duration.getTime());
+    }
+
+    public void setTimeOut(final String timeOut) {
+        this.timeOut = ms(timeOut, TimeUnit.MINUTES);
+    }
+
+    public void setScheduledExecutorService(final ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public ScheduledExecutorService getScheduledExecutorService() {
+        return executor;
+    }
+
+    public void setFrequency(final String frequency) {
+        this.frequency = ms(frequency, TimeUnit.SECONDS);
+    }
+
+    public long getFrequency() {
+        return frequency;
+    }
+
+    public int getSegments() {
+        return segmentCount;
+    }
+
+    /**
+     * Number of lock segments, rounded up to a power of two, read when the cache is initialized.
+     */
+    public void setSegments(final int segments) {
+        this.segmentCount = Math.max(1, segments);
+    }
+
+    public void add(final K key, final V value) {
+        // find the existing entry
+        Entry entry = cache.get(key);
+        if (entry != null) {
+            entry.lock.lock();
+            try {
+                if (entry.state != EntryState.REMOVED) {
+                    throw new IllegalStateException("An entry for the key " + key + " already exists");
+                }
+                // Entry has been removed between get and lock, simply remove the garbage entry
+                cache.remove(key);
+                entry.segment.unlink(entry);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+
+        entry = new Entry(key, value, EntryState.CHECKED_OUT);
+        entry.segment.touch(entry);
+        cache.put(key, entry);
+    }
+
+    public V checkOut(final K key, final boolean loadEntryIfNotFound) throws Exception {
+        // attempt (up to 10 times) to obtain the entry from the cache
+        for (int i = 0; i < 10; i++) {
+            // find the entry
+            Entry entry = cache.get(key);
+            if (!loadEntryIfNotFound && entry == null) {
+                return null;
+            }
+            if (entry == null) {
+                entry = loadEntry(key);
+                if (entry == null) {
+                    return null;
+                }
+            }
+
+            entry.lock.lock();
+            try {
+                // verfiy state
+                switch (entry.state) {
+                    case AVAILABLE:
+                        break;
+                    case CHECKED_OUT:
+                        return entry.value;
+                    case PASSIVATED:
+                        // Entry was passivated between get and lock, we need to load the Entry again
+                        cache.remove(key, entry);
+                        continue;
+                    case REMOVED:
+                        // Entry has been removed between get and lock (most likely by undeploying the EJB), simply drop the instance
+                        return null;
+                }
+
+                // mark entry as in-use, it leaves the access lists while in use
+                entry.state = EntryState.CHECKED_OUT;
+                entry.segment.checkOut(entry);
+
+                return entry.value;
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+
+        // something is really messed up with this entry, try to cleanup before throwing an exception
+        final Entry entry = cache.remove(key);
+        if (entry != null) {
+            entry.lock.lock();
+            try {
+                entry.segment.unlink(entry);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        throw new OpenEJBRuntimeException("Cache is corrupted: the entry " + key + " in the Map 'cache' is in state PASSIVATED");
+    }
+
+    public void checkIn(final K key) {
+        // find the entry
+        final Entry entry = cache.get(key);
+        if (entry == null) {
+            return;
+        }
+
+        entry.lock.lock();
+        try {
+            // verfiy state
+            switch (entry.state) {
+                case AVAILABLE:
+                    if (entry.region != Region.NONE) {
+                        entry.lastAccess = System.currentTimeMillis();
+                        entry.segment.checkIn(entry);
+                        return;
+                    } else {
+                        throw new IllegalStateException("The entry " + key + " is not checked-out");
+                    }
+                case PASSIVATED:
+                    // An entry in-use should not be passivated so we can only assume
+                    // that the caller never checked out the bean in the first place
+                    throw new IllegalStateException("The entry " + key + " is not checked-out");
+                case REMOVED:
+                    // Entry has been removed between get and lock (most likely by undeploying the EJB), simply drop the instance
+                    return;
+            }
+
+            // mark entry as available
+            entry.state = EntryState.AVAILABLE;
+            entry.lastAccess = System.currentTimeMillis();
+            entry.segment.checkIn(entry);
+        } finally {
+            entry.lock.unlock();
+        }
+
+        if (frequency == 0) {
+            processLRU();
+        }
+    }
+
+    public V remove(final K key) {
+        // find the entry
+        final Entry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        entry.lock.lock();
+        try {
+            // remove the entry from the cache and the access lists
+            cache.remove(key);
+            entry.segment.unlink(entry);
+
+            // mark the entry as removed
+            entry.state = EntryState.REMOVED;
+
+            return entry.value;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    public void removeAll(final CacheFilter<V> filter) {
+        for (final Iterator<Entry> iterator = cache.values().iterator(); iterator.hasNext(); ) {
+            final Entry entry = iterator.next();
+
+            entry.lock.lock();
+            try {
+                if (filter.matches(entry.value)) {
+                    // remove the entry from the cache and the access lists
+                    iterator.remove();
+                    entry.segment.unlink(entry);
+
+                    // mark the entry as removed
+                    entry.state = EntryState.REMOVED;
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    public void processLRU() {
+        final Segment[] segments = segments();
+        final long now = System.currentTimeMillis();
+
+        // check for timed out entries, each segment returns them locked
+        final List<Entry> timedOut = new ArrayList<>();
+        for (final Segment segment : segments) {
+            segment.collectTimedOut(now, timedOut);
+        }
+        for (final Entry entry : timedOut) {
+            try {
+                destroy(entry);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+
+        // if there are to many beans available, shrink by bulkPassivate
+        if (available.get() >= getCapacity()) {
+            final Map<K, V> valuesToStore = new LinkedHashMap<>();
+            final List<Entry> entries = new ArrayList<>();
+
+            int bulkPassivate = getBulkPassivate();
+            if (bulkPassivate < 1) {
+                bulkPassivate = 1;
+            }
+
+            // one victim per segment and per round, a round without any victim means we are done
+            int misses = 0;
+            int count = 0;
+            while (count < bulkPassivate && misses < segments.length) {
+                final Segment segment = segments[cursor.getAndIncrement() & (segments.length - 1)];
+                final Entry entry = segment.evict();
+                if (entry == null) {
+                    misses++;
+                    continue;
+                }
+                misses = 0;
+                count++;
+
+                // the victim is returned locked
+                if (entry.isTimedOut(now)) {
+                    try {
+                        destroy(entry);
+                    } finally {
+                        entry.lock.unlock();
+                    }
+                } else {
+                    // keep the lock until the passivation is complete
+                    cache.remove(entry.key);
+                    entry.state = EntryState.PASSIVATED;
+                    entries.add(entry);
+                    valuesToStore.put(entry.key, entry.value);
+                }
+            }
+
+            if (!entries.isEmpty()) {
+                try {
+                    storeEntries(valuesToStore);
+                } finally {
+                    for (final Entry entry : entries) {
+                        entry.lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    private void destroy(final Entry entry) {
+        cache.remove(entry.key, entry);
+        entry.state = EntryState.REMOVED;
+
+        // notify listener that the entry has been removed
+        final CacheListener<V> listener = this.getListener();
+        if (listener != null) {
+            try {
+                listener.timedOut(entry.value);
+            } catch (final Exception e) {
+                logger.error("An unexpected exception occured from timedOut callback", e);
+            }
+        }
+    }
+
+    private Entry loadEntry(final K key) throws Exception {
+        final PassivationStrategy passivator = getPassivator();
+        if (passivator == null) {
+            return null;
+        }
+
+        V value = null;
+        try {
+            value = (V) passivator.activate(key);
+        } catch (final Exception e) {
+            logger.error("An unexpected exception occured while reading entries from disk", e);
+        }
+
+        if (value == null) {
+            return null;
+        }
+
+        final CacheListener<V> listener = this.getListener();
+        if (listener != null) {
+            listener.afterLoad(value);
+        }
+        final Entry entry = new Entry(key, value, EntryState.AVAILABLE);
+        cache.put(key, entry);
+        return entry;
+    }
+
+    private void storeEntries(final Map<K, V> entriesToStore) {
+        final CacheListener<V> listener = this.getListener();
+        for (final Iterator<Map.Entry<K, V>> iterator = entriesToStore.entrySet().iterator(); iterator.hasNext(); ) {
+            final Map.Entry<K, V> entry = iterator.next();
+
+            if (listener != null) {
+                try {
+                    listener.beforeStore(entry.getValue());
+                } catch (final Exception e) {
+                    iterator.remove();
+                    logger.error("An unexpected exception occured from beforeStore callback", e);
+                }
+            }
+        }
+
+        final PassivationStrategy passivator = getPassivator();
+        if (passivator == null) {
+            return;
+        }
+
+        try {
+            passivator.passivate(entriesToStore);
+        } catch (final Exception e) {
+            logger.error("An unexpected exception occured while writting the entries to disk", e);
+        }
+    }
+
+    private enum EntryState {
+        AVAILABLE, CHECKED_OUT, PASSIVATED, REMOVED
+    }
+
+    private enum Region {
+        NONE, WINDOW, MAIN
+    }
+
+    /**
+     * Access ordered lists of the available entries of a hash range.
+     * Lock order is entry then segment, code holding the segment lock only tries entry locks.
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final EntryList window = new EntryList();
+        private final EntryList main = new EntryList();
+        private final FrequencySketch sketch;
+        private final int windowCapacity;
+
+        /**
+         * Number of linked entries per time out, the smallest one bounds the age of the entries which can be timed out
+         */
+        private final TreeMap<Long, Integer> timeOuts = new TreeMap<>();
+
+        private Segment(final int capacity) {
+            this.sketch = new FrequencySketch(capacity);
+            this.windowCapacity = Math.max(1, capacity / 100);
+        }
+
+        private void touch(final Entry entry) {
+            lock.lock();
+            try {
+                sketch.increment(entry.hash);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void checkOut(final Entry entry) {
+            lock.lock();
+            try {
+                sketch.increment(entry.hash);
+                unlinkLocked(entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void checkIn(final Entry entry) {
+            lock.lock();
+            try {
+                if (entry.region != Region.NONE) {
+                    unlinkLocked(entry);
+                }
+                if (entry.timeOut >= 0) {
+                    final Integer count = timeOuts.get(entry.timeOut);
+                    timeOuts.put(entry.timeOut, count == null ? 1 : count + 1);
+                }
+
+                if (entry.admitted) {
+                    main.addLast(entry, Region.MAIN);
+                } else {
+                    window.addLast(entry, Region.WINDOW);
+                    if (window.size > windowCapacity) {
+                        // the oldest new comer moves to the main list, it competes there with the main head on eviction,
+                        // the promotion counts as an access so the main list stays in access order
+                        final Entry first = window.first;
+                        window.remove(first);
+                        first.admitted = true;
+                        first.lastAccess = System.currentTimeMillis();
+                        main.addLast(first, Region.MAIN);
+                    }
+                }
+                available.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void unlink(final Entry entry) {
+            lock.lock();
+            try {
+                unlinkLocked(entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void unlinkLocked(final Entry entry) {
+            switch (entry.region) {
+                case WINDOW:
+                    window.remove(entry);
+                    available.decrementAndGet();
+                    forgetTimeOut(entry);
+                    break;
+                case MAIN:
+                    main.remove(entry);
+                    available.decrementAndGet();
+                    forgetTimeOut(entry);
+                    break;
+                default:
+            }
+        }
+
+        private void forgetTimeOut(final Entry entry) {
+            if (entry.timeOut >= 0) {
+                final Integer count = timeOuts.remove(entry.timeOut);
+                if (count != null && count > 1) {
+                    timeOuts.put(entry.timeOut, count - 1);
+                }
+            }
+        }
+
+        /**
+         * @return the victim, locked and unlinked, or null if none can be taken right now
+         */
+        private Entry evict() {
+            lock.lock();
+            try {
+                final Entry candidate = window.first;
+                final Entry victim = main.first;
+
+                final Entry first;
+                final Entry second;
+                if (candidate == null || victim == null) {
+                    first = candidate != null ? candidate : victim;
+                    second = null;
+                } else if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                    // the new comer is used more than the oldest main entry
+                    first = victim;
+                    second = candidate;
+                } else {
+                    first = candidate;
+                    second = victim;
+                }
+
+                if (first != null && first.lock.tryLock()) {
+                    unlinkLocked(first);
+                    return first;
+                }
+                if (second != null && second.lock.tryLock()) {
+                    unlinkLocked(second);
+                    return second;
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Adds the timed out entries to the list, unlinked and locked.
+         */
+        private void collectTimedOut(final long now, final List<Entry> timedOut) {
+            lock.lock();
+            try {
+                collectTimedOut(window, now, timedOut);
+                collectTimedOut(main, now, timedOut);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void collectTimedOut(final EntryList list, final long now, final List<Entry> timedOut) {
+            Entry entry = list.first;
+            while (entry != null) {
+                // entries are in access order so the following ones can't be timed out either,
+                // the smallest time out is the one of the entries still linked
+                final long minTimeOut = timeOuts.isEmpty() ? Long.MAX_VALUE : timeOuts.firstKey();
+                if (minTimeOut > 0 && now - entry.lastAccess <= minTimeOut) {
+                    return;
+                }
+
+                final Entry next = entry.next;
+                if (entry.isTimedOut(now) && entry.lock.tryLock()) {
+                    unlinkLocked(entry);
+                    timedOut.add(entry);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    private final class EntryList {
+        private Entry first;
+        private Entry last;
+        private int size;
+
+        private void addLast(final Entry entry, final Region region) {
+            entry.region = region;
+            entry.prev = last;
+            entry.next = null;
+            if (last == null) {
+                first = entry;
+            } else {
+                last.next = entry;
+            }
+            last = entry;
+            size++;
+        }
+
+        private void remove(final Entry entry) {
+            final Entry prev = entry.prev;
+            final Entry next = entry.next;
+            if (prev == null) {
+                first = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                last = prev;
+            } else {
+                next.prev = prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.region = Region.NONE;
+            size--;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 bits counters halved every 10 x capacity increments
+     * so old popularity fades away. Guarded by the segment lock.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(final int capacity) {
+            int size = 16;
+            while (size < capacity && size < (1 << 24)) {
+                size <<= 1;
+            }
+            this.table = new long[size];
+            this.sampleSize = 10 * size;
+        }
+
+        private int frequency(final int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                final int h = indexOf(hash, i);
+                final int count = (int) ((table[h >>> 4] >>> ((h & 15) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        private void increment(final int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                final int h = indexOf(hash, i);
+                final int index = h >>> 4;
+                final int offset = (h & 15) << 2;
+                if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions >>>= 1;
+            }
+        }
+
+        /**
+         * @return the table index in the high bits and the counter within the long in the 4 low bits
+         */
+        private int indexOf(final int hash, final int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & ((table.length << 4) - 1);
+        }
+    }
+
+    private final class Entry {
+        private final K key;
+        private final int hash;
+        private final V value;
+        private final Segment segment;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long timeOut;
+        private EntryState state;
+        private long lastAccess;
+
+        // written under the segment lock, region is also read under the entry lock
+        private volatile Region region = Region.NONE;
+        private boolean admitted;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(final K key, final V value, final EntryState state) {
+            this.key = key;
+            this.hash = spread(key);
+            this.value = value;
+            this.state = state;
+            this.segment = segmentFor(hash);
+
+            if (value instanceof Cache.TimeOut) {
+                final Duration duration = ((Cache.TimeOut) value).getTimeOut();
+                this.timeOut = duration != null ? duration.getTime(TimeUnit.MILLISECONDS) : getTimeOut();
+            } else {
+                this.timeOut = getTimeOut();
+            }
+
+            lastAccess = System.currentTimeMillis();
+        }
+
+        private boolean isTimedOut(final long now) {
+            if (timeOut < 0) {
+                return false;
+            } else if (timeOut == 0) {
+                return true;
+            } else {
+                return now - lastAccess > timeOut;
+            }
+        }
+    }
+}
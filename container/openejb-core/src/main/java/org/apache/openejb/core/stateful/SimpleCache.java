@@ -118,6 +118,15 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         if (future != null) {
             future.cancel(false);
         }
+
+        final PassivationStrategy passivator = getPassivator();
+        if (passivator instanceof AutoCloseable) { // passivated entries are lost anyway
+            try {
+                ((AutoCloseable) passivator).close();
+            } catch (final Exception e) {
+                logger.warning("Can't close the passivation strategy " + passivator, e);
+            }
+        }
     }
 
     private synchronized void initScheduledExecutorService() {
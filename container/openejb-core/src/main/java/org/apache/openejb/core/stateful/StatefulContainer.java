@@ -27,6 +27,7 @@ import org.apache.openejb.OpenEJBRuntimeException;
 import org.apache.openejb.ProxyInfo;
 import org.apache.openejb.RpcContainer;
 import org.apache.openejb.SystemException;
+import org.apache.openejb.api.resource.DestroyableResource;
 import org.apache.openejb.cdi.CdiEjbBean;
 import org.apache.openejb.cdi.CurrentCreationalContext;
 import org.apache.openejb.core.ExceptionType;
@@ -91,7 +92,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unchecked")
-public class StatefulContainer implements RpcContainer {
+public class StatefulContainer implements RpcContainer, DestroyableResource {
 
     private static final Logger logger = Logger.getInstance(LogCategory.OPENEJB, "org.apache.openejb.util.resources");
 
@@ -279,6 +280,11 @@ public class StatefulContainer implements RpcContainer {
         // no-op
     }
 
+    @Override
+    public void destroyResource() {
+        cache.destroy();
+    }
+
     @Override
     public void stop(final BeanContext beanContext) throws OpenEJBException {
         beanContext.stop();
@@ -130,6 +130,10 @@ public class StatelessContainerFactory {
         pool.setMaxAgeOffset(maxAgeOffset);
     }
 
+    public void setStripes(final int stripes) {
+        pool.setStripes(stripes);
+    }
+
     public void setCloseTimeout(final Duration closeTimeout) {
         this.closeTimeout = closeTimeout;
     }
@@ -38,6 +38,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -66,6 +67,11 @@ public class EJBCronTrigger extends CronTriggerImpl {
 
     public static final String DELIMITER = ";";
 
+    // timers sharing a schedule (one per entity for instance) fire together and then all
+    // ask for the same next fire time, the last computation of each schedule is kept
+    private static final int FIRE_TIMES_MAX_SIZE = 1024;
+    private static final Map<String, FireTime> FIRE_TIMES = new ConcurrentHashMap<>();
+
     private static final String LAST_IDENTIFIER = "LAST";
 
     private static final Map<String, Integer> WEEKDAYS_MAP = new HashMap<String, Integer>();
@@ -409,6 +415,27 @@ public class EJBCronTrigger extends CronTriggerImpl {
 
     @Override
     public Date getFireTimeAfter(final Date afterTime) {
+        // the start time only matters when it is after afterTime, other results only depend on the schedule
+        if (afterTime == null || getStartTime() != null && getStartTime().after(afterTime)) {
+            return computeFireTimeAfter(afterTime);
+        }
+
+        final String key = rawValue + DELIMITER + timezone.getID() + DELIMITER + (getEndTime() == null ? "" : getEndTime().getTime());
+        final long after = afterTime.getTime();
+        final FireTime cached = FIRE_TIMES.get(key);
+        if (cached != null && cached.after == after) {
+            return cached.next == null ? null : new Date(cached.next.getTime());
+        }
+
+        final Date next = computeFireTimeAfter(afterTime);
+        if (FIRE_TIMES.size() >= FIRE_TIMES_MAX_SIZE) {
+            FIRE_TIMES.clear();
+        }
+        FIRE_TIMES.put(key, new FireTime(after, next == null ? null : new Date(next.getTime())));
+        return next;
+    }
+
+    private Date computeFireTimeAfter(final Date afterTime) {
         log.debug("start to getFireTimeAfter:" + afterTime);
         final Calendar calendar = new GregorianCalendar(timezone);
         // calendar.setLenient(false);
@@ -548,6 +575,16 @@ public class EJBCronTrigger extends CronTriggerImpl {
         return rawValue;
     }
 
+    private static final class FireTime {
+        private final long after;
+        private final Date next;
+
+        private FireTime(final long after, final Date next) {
+            this.after = after;
+            this.next = next;
+        }
+    }
+
     /**
      * reset those sub field values, we need to configure from the end to begin, as getActualMaximun consider other fields' values
      *
@@ -159,6 +159,16 @@ public class EjbTimerServiceImpl implements EjbTimerService, Serializable {
             quartzProps += putAll(properties, deployment.getModuleContext().getProperties());
             quartzProps += putAll(properties, deployment.getProperties());
 
+            if (TimingWheelScheduler.isEnabled(properties)) {
+                try {
+                    thisScheduler = TimingWheelScheduler.forApplication(deployment.getModuleContext().getAppContext(), properties);
+                } catch (final SchedulerException e) {
+                    throw new OpenEJBRuntimeException("Fail to initialize the timing wheel scheduler", e);
+                }
+                deployment.set(Scheduler.class, thisScheduler);
+                return thisScheduler;
+            }
+
             // custom config -> don't use default/global scheduler
             // if one day we want to keep a global config for a global scheduler (SystemInstance.get().getProperties()) we'll need to manage resume/pause etc correctly by app
             // since we have a scheduler by ejb today in such a case we don't need
@@ -347,6 +357,12 @@ public class EjbTimerServiceImpl implements EjbTimerService, Serializable {
             return;
         }
 
+        final TimingWheelScheduler wheel = TimingWheelScheduler.unwrap(scheduler);
+        if (wheel != null) { // shared by the application beans
+            wheel.release();
+            return;
+        }
+
         boolean defaultScheduler = false;
         final Scheduler ds = SystemInstance.get().getComponent(Scheduler.class);
         try { // == is the faster way to test, we rely on name (key in quartz registry) only for serialization
@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
@@ -60,8 +61,7 @@ public class MemoryTimerStore implements TimerStore {
     @Override
     public TimerData getTimer(final String deploymentId, final long timerId) {
         try {
-            final TimerDataView tasks = getTasks();
-            return tasks.getTasks().get(timerId);
+            return getTasks().getTimerData(timerId);
         } catch (final TimerStoreException e) {
             return null;
         }
@@ -159,8 +159,13 @@ public class MemoryTimerStore implements TimerStore {
     }
 
     private interface TimerDataView {
+        /**
+         * @return a read only view, not a copy
+         */
         Map<Long, TimerData> getTasks();
 
+        TimerData getTimerData(Long timerId);
+
         void addTimerData(TimerData timerData);
 
         void removeTimerData(Long timerId);
@@ -169,7 +174,12 @@ public class MemoryTimerStore implements TimerStore {
     private class LiveTimerDataView implements TimerDataView {
         @Override
         public Map<Long, TimerData> getTasks() {
-            return new TreeMap<>(taskStore);
+            return Collections.unmodifiableMap(taskStore);
+        }
+
+        @Override
+        public TimerData getTimerData(final Long timerId) {
+            return taskStore.get(timerId);
         }
 
         @Override
@@ -225,7 +235,11 @@ public class MemoryTimerStore implements TimerStore {
         @Override
         public Map<Long, TimerData> getTasks() {
             checkThread();
-            final TreeMap<Long, TimerData> allTasks = new TreeMap<>(taskStore);
+            if (add.isEmpty() && remove.isEmpty()) {
+                return Collections.unmodifiableMap(taskStore);
+            }
+
+            final Map<Long, TimerData> allTasks = new HashMap<>(taskStore);
             for (final Long key : remove) {
                 allTasks.remove(key);
             }
@@ -233,6 +247,16 @@ public class MemoryTimerStore implements TimerStore {
             return Collections.unmodifiableMap(allTasks);
         }
 
+        @Override
+        public TimerData getTimerData(final Long timerId) {
+            checkThread();
+            final TimerData added = add.get(timerId);
+            if (added != null) {
+                return added;
+            }
+            return remove.contains(timerId) ? null : taskStore.get(timerId);
+        }
+
         @Override
         public void addTimerData(final TimerData timerData) {
             checkThread();
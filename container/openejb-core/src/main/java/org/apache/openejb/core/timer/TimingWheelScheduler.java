@@ -0,0 +1,511 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.timer;
+
+import org.apache.openejb.AppContext;
+import org.apache.openejb.quartz.JobDataMap;
+import org.apache.openejb.quartz.JobKey;
+import org.apache.openejb.quartz.Scheduler;
+import org.apache.openejb.quartz.SchedulerException;
+import org.apache.openejb.quartz.Trigger;
+import org.apache.openejb.quartz.TriggerKey;
+import org.apache.openejb.quartz.spi.OperableTrigger;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In process timer engine used instead of Quartz when an application sets
+ * {@code openejb.timer.engine=wheel}. Timers are not persisted, as with the default RAMJobStore.
+ *
+ * Triggers are kept in a hierarchical timing wheel: 4 levels of 256 buckets, a bucket of the first level
+ * lasting one tick ({@code openejb.timer.wheel.tick}, 10ms by default). Scheduling and cancelling a timer
+ * link or unlink it from a bucket in constant time, whatever the number of timers. A single thread advances
+ * the wheel, moves the timers of the higher levels down when their time comes and hands all the timers of
+ * the elapsed buckets to the EJB timer thread pool at once.
+ *
+ * The engine is exposed as a {@link Scheduler} proxy implementing the subset of the Quartz API
+ * used by {@link EjbTimerServiceImpl} and {@link TimerData}, so the triggers computing the fire times
+ * ({@link EJBCronTrigger} for calendar timers) and the timer store stay the same for both engines.
+ */
+public class TimingWheelScheduler implements InvocationHandler {
+    public static final String OPENEJB_TIMER_ENGINE = "openejb.timer.engine";
+    public static final String WHEEL = "wheel";
+    public static final String OPENEJB_TIMER_WHEEL_TICK = "openejb.timer.wheel.tick";
+
+    private static final Logger log = Logger.getInstance(LogCategory.TIMER, "org.apache.openejb.util.resources");
+
+    private static final int BITS = 8;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    // same as the default quartz misfire threshold
+    private static final long MISFIRE_THRESHOLD = 60000;
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private final String name;
+    private final long tick;
+    private final Scheduler proxy;
+    private final Map<TriggerKey, Task> tasks = new ConcurrentHashMap<>();
+    private final Task[][] wheels = new Task[LEVELS][SIZE];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger references = new AtomicInteger();
+    private final DefaultTimerThreadPoolAdapter threadPool = new DefaultTimerThreadPoolAdapter();
+
+    // guarded by lock
+    private long currentTick;
+
+    private volatile Thread thread;
+    private volatile boolean started;
+    private volatile boolean shutdown;
+
+    public TimingWheelScheduler(final String name, final long tick) {
+        this.name = name;
+        this.tick = Math.max(1, tick);
+        this.currentTick = System.currentTimeMillis() / this.tick;
+        for (final Task[] wheel : wheels) {
+            for (int i = 0; i < SIZE; i++) {
+                wheel[i] = new Task(null, null); // sentinel
+            }
+        }
+        this.proxy = (Scheduler) Proxy.newProxyInstance(TimingWheelScheduler.class.getClassLoader(), new Class<?>[]{Scheduler.class}, this);
+    }
+
+    public static boolean isEnabled(final Properties properties) {
+        return WHEEL.equalsIgnoreCase(properties.getProperty(OPENEJB_TIMER_ENGINE, "quartz").trim());
+    }
+
+    /**
+     * @return the scheduler shared by all the beans of the application, started
+     */
+    public static Scheduler forApplication(final AppContext appContext, final Properties properties) throws SchedulerException {
+        synchronized (appContext) {
+            TimingWheelScheduler scheduler = appContext.get(TimingWheelScheduler.class);
+            if (scheduler == null || scheduler.shutdown) {
+                final long tick = Long.parseLong(properties.getProperty(OPENEJB_TIMER_WHEEL_TICK, "10").trim());
+                scheduler = new TimingWheelScheduler("OpenEJB-TimerWheel-" + appContext.getId() + "-" + IDS.incrementAndGet(), tick);
+                scheduler.start();
+                appContext.set(TimingWheelScheduler.class, scheduler);
+            }
+            scheduler.references.incrementAndGet();
+            return scheduler.proxy;
+        }
+    }
+
+    /**
+     * @return the wheel behind this scheduler or null if it is a Quartz one
+     */
+    public static TimingWheelScheduler unwrap(final Scheduler scheduler) {
+        if (scheduler != null && Proxy.isProxyClass(scheduler.getClass())) {
+            final InvocationHandler handler = Proxy.getInvocationHandler(scheduler);
+            if (handler instanceof TimingWheelScheduler) {
+                return (TimingWheelScheduler) handler;
+            }
+        }
+        return null;
+    }
+
+    public Scheduler getScheduler() {
+        return proxy;
+    }
+
+    /**
+     * Shuts down the scheduler once all the beans using it released it.
+     */
+    public void release() {
+        if (references.decrementAndGet() <= 0) {
+            shutdown(true);
+        }
+    }
+
+    public synchronized void start() throws SchedulerException {
+        if (shutdown) {
+            throw new SchedulerException("The scheduler " + name + " has been shutdown");
+        }
+        if (thread != null) {
+            return;
+        }
+
+        threadPool.setInstanceName(name);
+        threadPool.initialize();
+
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.setContextClassLoader(TimingWheelScheduler.class.getClassLoader());
+        thread.start();
+        started = true;
+    }
+
+    public synchronized void shutdown(final boolean waitForJobsToComplete) {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+
+        final Thread t = thread;
+        if (t != null) {
+            t.interrupt();
+            threadPool.shutdown(waitForJobsToComplete);
+        }
+
+        lock.lock();
+        try {
+            for (final Task task : tasks.values()) {
+                unlink(task);
+            }
+            tasks.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public Date scheduleJob(final Trigger trigger) throws SchedulerException {
+        if (shutdown) {
+            throw new SchedulerException("The scheduler " + name + " has been shutdown");
+        }
+
+        final OperableTrigger operable = (OperableTrigger) ((OperableTrigger) trigger).clone();
+        final Date first = operable.computeFirstFireTime(null);
+        if (first == null) {
+            throw new SchedulerException("Based on configured schedule, the given trigger '" + trigger.getKey() + "' will never fire.");
+        }
+
+        final Task task = new Task(operable.getKey(), operable);
+        lock.lock();
+        try {
+            final Task old = tasks.put(task.key, task);
+            if (old != null) {
+                unlink(old);
+            }
+            insert(task, currentTick + 1);
+        } finally {
+            lock.unlock();
+        }
+        return first;
+    }
+
+    public boolean unscheduleJob(final TriggerKey key) {
+        lock.lock();
+        try {
+            final Task task = tasks.remove(key);
+            if (task == null) {
+                return false;
+            }
+            unlink(task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void pauseTrigger(final TriggerKey key) {
+        lock.lock();
+        try {
+            final Task task = tasks.get(key);
+            if (task != null) {
+                task.paused = true;
+                unlink(task);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resumeTrigger(final TriggerKey key) {
+        lock.lock();
+        try {
+            final Task task = tasks.get(key);
+            if (task != null && task.paused) {
+                task.paused = false;
+                insert(task, currentTick + 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Trigger getTrigger(final TriggerKey key) {
+        lock.lock();
+        try {
+            final Task task = tasks.get(key);
+            return task == null ? null : (Trigger) task.trigger.clone();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Trigger.TriggerState getTriggerState(final TriggerKey key) {
+        final Task task = tasks.get(key);
+        if (task == null) {
+            return Trigger.TriggerState.NONE;
+        }
+        return task.paused ? Trigger.TriggerState.PAUSED : Trigger.TriggerState.NORMAL;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final String methodName = method.getName();
+        final int count = args == null ? 0 : args.length;
+        try {
+            switch (methodName) {
+                case "scheduleJob":
+                    if (count == 1) {
+                        return scheduleJob((Trigger) args[0]);
+                    }
+                    break;
+                case "unscheduleJob":
+                    return unscheduleJob((TriggerKey) args[0]);
+                case "checkExists":
+                    return !(args[0] instanceof JobKey) && tasks.containsKey(args[0]);
+                case "getTrigger":
+                    return getTrigger((TriggerKey) args[0]);
+                case "getTriggerState":
+                    return getTriggerState((TriggerKey) args[0]);
+                case "pauseTrigger":
+                    pauseTrigger((TriggerKey) args[0]);
+                    return null;
+                case "resumeTrigger":
+                    resumeTrigger((TriggerKey) args[0]);
+                    return null;
+                case "pauseAll":
+                    for (final TriggerKey key : tasks.keySet()) {
+                        pauseTrigger(key);
+                    }
+                    return null;
+                case "resumeAll":
+                    for (final TriggerKey key : tasks.keySet()) {
+                        resumeTrigger(key);
+                    }
+                    return null;
+                case "addJob":
+                    // the job is always EjbTimeoutJob, nothing to register
+                    return null;
+                case "start":
+                    start();
+                    return null;
+                case "shutdown":
+                    shutdown(count == 0 || (Boolean) args[0]);
+                    return null;
+                case "isShutdown":
+                    return shutdown;
+                case "isStarted":
+                    return started;
+                case "isInStandbyMode":
+                    return false;
+                case "getSchedulerName":
+                case "getSchedulerInstanceId":
+                    return name;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return name;
+                default:
+            }
+        } catch (final ClassCastException | ArrayIndexOutOfBoundsException e) {
+            throw new UnsupportedOperationException(methodName + " is not supported by the timing wheel timer engine", e);
+        }
+        throw new UnsupportedOperationException(methodName + " is not supported by the timing wheel timer engine");
+    }
+
+    private void run() {
+        while (!shutdown) {
+            final long now = System.currentTimeMillis();
+            final List<Task> batch = advance(now / tick);
+            for (final Task task : batch) {
+                fire(task, now);
+            }
+
+            try {
+                Thread.sleep(tick - System.currentTimeMillis() % tick);
+            } catch (final InterruptedException e) {
+                if (shutdown) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the timers of the elapsed buckets, unlinked from the wheel
+     */
+    private List<Task> advance(final long targetTick) {
+        final List<Task> batch = new ArrayList<>();
+        lock.lock();
+        try {
+            while (currentTick < targetTick) {
+                currentTick++;
+
+                // move the timers of the higher levels starting now down the wheel,
+                // highest level first so nothing lands in an already processed bucket
+                int top = 0;
+                while (top < LEVELS - 1 && (currentTick & ((1L << (BITS * (top + 1))) - 1)) == 0) {
+                    top++;
+                }
+                for (int level = top; level > 0; level--) {
+                    final Task head = wheels[level][(int) (currentTick >>> (BITS * level)) & MASK];
+                    for (Task task = head.next; task != null; ) {
+                        final Task next = task.next;
+                        unlink(task);
+                        insert(task, currentTick);
+                        task = next;
+                    }
+                }
+
+                final Task head = wheels[0][(int) currentTick & MASK];
+                for (Task task = head.next; task != null; ) {
+                    final Task next = task.next;
+                    unlink(task);
+                    batch.add(task);
+                    task = next;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return batch;
+    }
+
+    private void fire(final Task task, final long now) {
+        final JobDataMap data;
+        lock.lock();
+        try {
+            // cancelled or rescheduled since it was taken from the wheel
+            if (tasks.get(task.key) != task || task.paused) {
+                return;
+            }
+
+            final Date next = task.trigger.getNextFireTime();
+            if (next != null && next.getTime() < now - MISFIRE_THRESHOLD) {
+                task.trigger.updateAfterMisfire(null);
+                if (task.trigger.getNextFireTime() == null) {
+                    tasks.remove(task.key);
+                    return;
+                } else if (task.trigger.getNextFireTime().getTime() > now) {
+                    insert(task, currentTick + 1);
+                    return;
+                }
+            }
+
+            // as quartz the next fire time is computed before the timeout method is invoked
+            task.trigger.triggered(null);
+            if (task.trigger.getNextFireTime() == null) {
+                tasks.remove(task.key);
+            } else {
+                insert(task, currentTick + 1);
+            }
+            data = task.trigger.getJobDataMap();
+        } finally {
+            lock.unlock();
+        }
+
+        final EjbTimerServiceImpl timerService = (EjbTimerServiceImpl) data.get(EjbTimeoutJob.EJB_TIMERS_SERVICE);
+        final TimerData timerData = (TimerData) data.get(EjbTimeoutJob.TIMER_DATA);
+        if (timerService == null || timerData == null) {
+            log.warning("Trigger " + task.key + " has no timer attached, ignoring it");
+            return;
+        }
+
+        if (!threadPool.runInThread(() -> timerService.ejbTimeout(timerData))) {
+            log.warning("Timer " + task.key + " was not executed");
+        }
+    }
+
+    private void insert(final Task task, final long minTick) {
+        final Date next = task.trigger.getNextFireTime();
+        if (next == null) {
+            return;
+        }
+
+        // round up to the next tick, never fire early
+        long deadline = (next.getTime() + tick - 1) / tick;
+        if (deadline < minTick) {
+            deadline = minTick;
+        }
+
+        long delta = deadline - currentTick;
+        if (delta > MAX_DELTA) {
+            // parked in the last level, it will be placed again when its bucket comes
+            delta = MAX_DELTA;
+            deadline = currentTick + MAX_DELTA;
+        }
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+
+        final Task head = wheels[level][(int) (deadline >>> (BITS * level)) & MASK];
+        task.prev = head;
+        task.next = head.next;
+        if (head.next != null) {
+            head.next.prev = task;
+        }
+        head.next = task;
+    }
+
+    private static void unlink(final Task task) {
+        if (task.prev == null) {
+            return;
+        }
+        task.prev.next = task.next;
+        if (task.next != null) {
+            task.next.prev = task.prev;
+        }
+        task.prev = null;
+        task.next = null;
+    }
+
+    private static final class Task {
+        private final TriggerKey key;
+        private final OperableTrigger trigger;
+
+        // guarded by the scheduler lock
+        private Task prev;
+        private Task next;
+        private boolean paused;
+
+        private Task(final TriggerKey key, final OperableTrigger trigger) {
+            this.key = key;
+            this.trigger = trigger;
+        }
+    }
+}
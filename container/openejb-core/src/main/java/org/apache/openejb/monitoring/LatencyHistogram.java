@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.monitoring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free recorder of durations in nanoseconds.
+ *
+ * Values are counted in log-linear buckets: values under 32 are exact then each power of two
+ * is split in 16 buckets so the relative error stays under ~3%. Durations over ~275s are
+ * counted in the last bucket, the exact min and max are tracked aside.
+ * Recording is an increment of a bucket of the stripe of the calling thread, no lock, no allocation
+ * once the stripe exists.
+ *
+ * Values are recorded in the current interval. Intervals are aligned on a fixed clock started with the
+ * histogram (interval n covers [n * duration, (n + 1) * duration[), recording or taking a snapshot after the
+ * end of the current interval rotates it so a snapshot covers the current and the previous interval and never
+ * values older than that, however rarely it is read.
+ * A writer racing with two rotations can lose its value, this is accepted to keep writers wait free.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS >> 1;
+    private static final long MAX_VALUE = (1L << 39) - 1;
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final long intervalNanos;
+    private final long origin;
+
+    private volatile Interval current;
+    private volatile Interval previous;
+    private volatile Snapshot latest;
+
+    public LatencyHistogram(final long interval, final TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+        this.origin = System.nanoTime();
+        this.current = new Interval(origin, origin + intervalNanos);
+    }
+
+    public void record(final long nanos) {
+        Interval interval = current;
+        final long now = System.nanoTime();
+        if (now - interval.end >= 0) {
+            interval = rotate(now);
+        }
+        interval.record(Math.max(0, nanos));
+    }
+
+    public Snapshot snapshot() {
+        final long now = System.nanoTime();
+        Interval first;
+        Interval last;
+        synchronized (this) {
+            if (now - current.end >= 0) {
+                rotate(now);
+            }
+            first = previous;
+            last = current;
+        }
+
+        final long[] counts = new long[BUCKETS];
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (final Interval interval : new Interval[]{first, last}) {
+            if (interval == null) {
+                continue;
+            }
+            interval.addTo(counts);
+            sum += interval.sum.sum();
+            min = Math.min(min, interval.min.get());
+            max = Math.max(max, interval.max.get());
+        }
+
+        final long start = first != null ? first.start : last.start;
+        final Snapshot snapshot = new Snapshot(counts, sum, min, max, now, now - start);
+        latest = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @param maxAge how old the last snapshot can be to be returned instead of a new one
+     * @param unit   unit of maxAge
+     * @return the last snapshot if it was taken within maxAge, a new one otherwise, the attributes
+     * read together then come from the same snapshot and cost a single one
+     */
+    public Snapshot snapshot(final long maxAge, final TimeUnit unit) {
+        final Snapshot snapshot = latest;
+        if (snapshot != null && System.nanoTime() - snapshot.taken < unit.toNanos(maxAge)) {
+            return snapshot;
+        }
+        return snapshot();
+    }
+
+    private synchronized Interval rotate(final long now) {
+        final Interval interval = current;
+        if (now - interval.end < 0) { // rotated by another thread
+            return interval;
+        }
+
+        final long start = origin + (now - origin) / intervalNanos * intervalNanos;
+        previous = interval.end == start ? interval : null; // nothing recorded in the previous interval otherwise
+        current = new Interval(start, start + intervalNanos);
+        return current;
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final long v = Math.min(value, MAX_VALUE);
+        final int shift = 64 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (v >>> shift) - HALF;
+    }
+
+    static long lowerBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        final int k = index - SUB_BUCKETS;
+        return (long) (k % HALF + HALF) << (k / HALF + 1);
+    }
+
+    static long upperBound(final int index) {
+        return lowerBound(index + 1) - 1;
+    }
+
+    private static final class Interval {
+        private final long start;
+        private final long end;
+        private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        private Interval(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private void record(final long nanos) {
+            final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            AtomicLongArray buckets = stripes.get(stripe);
+            if (buckets == null) {
+                stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKETS));
+                buckets = stripes.get(stripe);
+            }
+
+            buckets.incrementAndGet(index(nanos));
+            sum.add(nanos);
+            // no write once the extremes are known
+            min.accumulate(nanos);
+            max.accumulate(nanos);
+        }
+
+        private void addTo(final long[] counts) {
+            for (int s = 0; s < STRIPES; s++) {
+                final AtomicLongArray buckets = stripes.get(s);
+                if (buckets == null) {
+                    continue;
+                }
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += buckets.get(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable view of the recorded values, in nanoseconds.
+     *
+     * Percentiles are the highest value of their bucket bounded by the exact min and max, the moments
+     * use the middle of the buckets except the mean which is exact.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+        private final long taken;
+        private final long elapsed;
+
+        private double sumOfSquares;
+        private double m2;
+        private double m3;
+        private double m4;
+        private double sumOfLogs;
+
+        private Snapshot(final long[] counts, final long sum, final long min, final long max, final long taken, final long elapsed) {
+            this.counts = counts;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.taken = taken;
+            this.elapsed = elapsed;
+
+            long n = 0;
+            for (final long c : counts) {
+                n += c;
+            }
+            this.count = n;
+
+            final double mean = getMean();
+            for (int i = 0; i < counts.length; i++) {
+                final long c = counts[i];
+                if (c == 0) {
+                    continue;
+                }
+
+                final double value = value(i);
+                final double dev = value - mean;
+                final double dev2 = dev * dev;
+                sumOfSquares += c * value * value;
+                sumOfLogs += c * Math.log(value);
+                m2 += c * dev2;
+                m3 += c * dev2 * dev;
+                m4 += c * dev2 * dev2;
+            }
+        }
+
+        private double value(final int index) {
+            final double middle = (lowerBound(index) + upperBound(index)) / 2.;
+            return Math.max(min, Math.min(max, middle));
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public double getSumOfSquares() {
+            return sumOfSquares;
+        }
+
+        public double getMin() {
+            return count == 0 ? Double.NaN : min;
+        }
+
+        public double getMax() {
+            return count == 0 ? Double.NaN : max;
+        }
+
+        public double getMean() {
+            return count == 0 ? Double.NaN : sum / (double) count;
+        }
+
+        public double getVariance() {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            return count == 1 ? 0 : m2 / (count - 1);
+        }
+
+        public double getGeometricMean() {
+            return count == 0 ? Double.NaN : Math.exp(sumOfLogs / count);
+        }
+
+        public double getSkewness() {
+            if (count < 3) {
+                return Double.NaN;
+            }
+
+            final double variance = getVariance();
+            if (variance < 10E-20) {
+                return 0;
+            }
+            final double n = count;
+            return n * m3 / ((n - 1) * (n - 2) * Math.sqrt(variance) * variance);
+        }
+
+        public double getKurtosis() {
+            if (count <= 3) {
+                return Double.NaN;
+            }
+
+            final double variance = getVariance();
+            if (variance < 10E-20) {
+                return 0;
+            }
+            final double n = count;
+            return (n * (n + 1) * m4 - 3 * m2 * m2 * (n - 1)) / ((n - 1) * (n - 2) * (n - 3) * variance * variance);
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         */
+        public double getPercentile(final double percentile) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+
+            final long rank = Math.max(1, (long) Math.ceil(percentile / 100. * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(max, upperBound(i)));
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @return the number of recorded values per second over the snapshot
+         */
+        public double getRate() {
+            if (elapsed <= 0) {
+                return 0;
+            }
+            return count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+
+        /**
+         * @param size maximum number of values
+         * @return the recorded values in ascending order, evenly picked across the distribution when there are more than size
+         */
+        public double[] getSortedValues(final int size) {
+            final int length = (int) Math.min(Math.max(0, size), count);
+            final double[] values = new double[length];
+
+            int bucket = -1;
+            long seen = 0;
+            for (int v = 0; v < length; v++) {
+                final long rank = length == count ? v + 1 : (long) ((v + .5) * count / length) + 1;
+                while (seen < rank) {
+                    seen += counts[++bucket];
+                }
+                values[v] = value(bucket);
+            }
+            return values;
+        }
+    }
+}
@@ -21,7 +21,6 @@ import jakarta.interceptor.AroundConstruct;
 import org.apache.openejb.api.Monitor;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.loader.SystemInstance;
-import org.apache.openejb.math.stat.descriptive.SynchronizedDescriptiveStatistics;
 import org.apache.xbean.finder.ClassFinder;
 
 import jakarta.annotation.PostConstruct;
@@ -50,6 +49,8 @@ public class StatsInterceptor {
     }
 
     private static final String DISABLE_STAT_INTERCEPTOR_PROPERTY = "openejb.stats.interceptor.disable";
+    private static final String STAT_INTERCEPTOR_INTERVAL_PROPERTY = "openejb.stats.interceptor.interval";
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
 
     public static final InterceptorData metadata = InterceptorData.scan(StatsInterceptor.class);
 
@@ -59,9 +60,12 @@ public class StatsInterceptor {
 
     private final Monitor monitor;
     private final boolean enabled;
+    private final long interval;
 
     public StatsInterceptor(final Class<?> componentClass) {
 
+        // in milliseconds, the statistics cover between one and two intervals
+        interval = SystemInstance.get().getOptions().get(STAT_INTERCEPTOR_INTERVAL_PROPERTY, 60000L);
         monitor = componentClass.getAnnotation(Monitor.class);
         final ClassFinder finder = new ClassFinder(componentClass);
         for (final Method method : finder.findAnnotatedMethods(Monitor.class)) {
@@ -190,12 +194,11 @@ public class StatsInterceptor {
         try {
             return invocationContext.proceed();
         } finally {
-            long time = System.nanoTime() - start;
-            time = millis(time); // do it in 2 steps since otherwise the measure is false (more false)
+            final long nanos = System.nanoTime() - start;
             if (stats != null) {
-                stats.record(time);
+                stats.recordNanos(nanos);
             }
-            invocationTime.addAndGet(time);
+            invocationTime.addAndGet(millis(nanos));
         }
     }
 
@@ -212,7 +215,8 @@ public class StatsInterceptor {
 
     public class Stats {
         private final AtomicLong count = new AtomicLong();
-        private final SynchronizedDescriptiveStatistics samples;
+        private final LatencyHistogram histogram;
+        private volatile int sampleSize;
 
         // Used as the prefix for the MBeanAttributeInfo
         private final String method;
@@ -220,9 +224,8 @@ public class StatsInterceptor {
         public Stats(final Method method, final Monitor classAnnotation) {
             final Monitor methodAnnotation = method.getAnnotation(Monitor.class);
 
-            final int window = methodAnnotation != null ? methodAnnotation.sample() : classAnnotation != null ? classAnnotation.sample() : 2000;
-
-            this.samples = new SynchronizedDescriptiveStatistics(window);
+            this.sampleSize = methodAnnotation != null ? methodAnnotation.sample() : classAnnotation != null ? classAnnotation.sample() : 2000;
+            this.histogram = new LatencyHistogram(interval, TimeUnit.MILLISECONDS);
             final String s = ",";
 
             final StringBuilder sb = new StringBuilder(method.getName());
@@ -240,14 +243,17 @@ public class StatsInterceptor {
             this.method = sb.toString();
         }
 
+        /**
+         * @param i the maximum number of values returned by {@link #values()} and {@link #sortedValues()}
+         */
         @Managed
         public void setSampleSize(final int i) {
-            samples.setWindowSize(i);
+            sampleSize = i;
         }
 
         @Managed
         public int getSampleSize() {
-            return samples.getWindowSize();
+            return sampleSize;
         }
 
         @Managed
@@ -255,106 +261,141 @@ public class StatsInterceptor {
             return count.get();
         }
 
+        @Managed
+        public double getPercentile999() {
+            return percentile(99.9);
+        }
+
         @Managed
         public double getPercentile99() {
-            return samples.getPercentile(99.0);
+            return percentile(99.0);
         }
 
         @Managed
         public double getPercentile90() {
-            return samples.getPercentile(90.0);
+            return percentile(90.0);
         }
 
         @Managed
         public double getPercentile75() {
-            return samples.getPercentile(75.0);
+            return percentile(75.0);
         }
 
         @Managed
         public double getPercentile50() {
-            return samples.getPercentile(50.0);
+            return percentile(50.0);
         }
 
         @Managed
         public double getPercentile25() {
-            return samples.getPercentile(25.0);
+            return percentile(25.0);
         }
 
         @Managed
         public double getPercentile10() {
-            return samples.getPercentile(10.0);
+            return percentile(10.0);
         }
 
         @Managed
         public double getPercentile01() {
-            return samples.getPercentile(1.0);
+            return percentile(1.0);
         }
 
         @Managed
         public double getStandardDeviation() {
-            return samples.getStandardDeviation();
+            return Math.sqrt(snapshot().getVariance()) / NANOS_PER_MILLI;
         }
 
         @Managed
         public double getMean() {
-            return samples.getMean();
+            return snapshot().getMean() / NANOS_PER_MILLI;
         }
 
         @Managed
         public double getVariance() {
-            return samples.getVariance();
+            return snapshot().getVariance() / (NANOS_PER_MILLI * NANOS_PER_MILLI);
         }
 
         @Managed
         public double getGeometricMean() {
-            return samples.getGeometricMean();
+            return snapshot().getGeometricMean() / NANOS_PER_MILLI;
         }
 
         @Managed
         public double getSkewness() {
-            return samples.getSkewness();
+            return snapshot().getSkewness();
         }
 
         @Managed
         public double getKurtosis() {
-            return samples.getKurtosis();
+            return snapshot().getKurtosis();
         }
 
         @Managed
         public double getMax() {
-            return samples.getMax();
+            return snapshot().getMax() / NANOS_PER_MILLI;
         }
 
         @Managed
         public double getMin() {
-            return samples.getMin();
+            return snapshot().getMin() / NANOS_PER_MILLI;
         }
 
         @Managed
         public double getSum() {
-            return samples.getSum();
+            return snapshot().getSum() / NANOS_PER_MILLI;
         }
 
         @Managed
         public double getSumsq() {
-            return samples.getSumsq();
+            return snapshot().getSumOfSquares() / (NANOS_PER_MILLI * NANOS_PER_MILLI);
+        }
+
+        /**
+         * @return invocations per second over the last interval
+         */
+        @Managed
+        public double getRate() {
+            return snapshot().getRate();
         }
 
         @Managed
         public double[] sortedValues() {
-            return samples.getSortedValues();
+            final double[] values = snapshot().getSortedValues(sampleSize);
+            for (int i = 0; i < values.length; i++) {
+                values[i] /= NANOS_PER_MILLI;
+            }
+            return values;
         }
 
+        /**
+         * The invocation order is not kept by the histogram so these are the {@link #sortedValues()}.
+         */
         @Managed
         public double[] values() {
-            return samples.getValues();
+            return sortedValues();
         }
 
+        /**
+         * @param time duration in milliseconds
+         */
         public void record(final long time) {
+            recordNanos(TimeUnit.MILLISECONDS.toNanos(time));
+        }
+
+        public void recordNanos(final long nanos) {
             count.incrementAndGet();
-            samples.addValue(time);
+            histogram.record(nanos);
         }
 
+        // all the attributes of a MBean read (or of a metrics scrape) use the same snapshot
+        private LatencyHistogram.Snapshot snapshot() {
+            return histogram.snapshot(1, TimeUnit.SECONDS);
+        }
+
+        private double percentile(final double p) {
+            return snapshot().getPercentile(p) / NANOS_PER_MILLI;
+        }
     }
 
     public static boolean isStatsActivated() {
@@ -87,6 +87,7 @@ public class JtaEntityManager implements EntityManager, Serializable {
     private final String unitName;
     private final Logger logger;
     private final boolean wrapNoTxQueries;
+    private final QueryPlanCache queryPlanCache;
     private final boolean timer;
 
     public JtaEntityManager(final JtaEntityManagerRegistry registry, final EntityManagerFactory entityManagerFactory,
@@ -116,6 +117,8 @@ public class JtaEntityManager implements EntityManager, Serializable {
         final String wrapConfig = ReloadableEntityManagerFactory.class.isInstance(entityManagerFactory) ?
                 ReloadableEntityManagerFactory.class.cast(entityManagerFactory).getUnitProperties().getProperty("openejb.jpa.query.wrap-no-tx", "true") : "true";
         this.wrapNoTxQueries = wrapConfig == null || "true".equalsIgnoreCase(wrapConfig);
+        this.queryPlanCache = ReloadableEntityManagerFactory.class.isInstance(entityManagerFactory) ?
+                ReloadableEntityManagerFactory.class.cast(entityManagerFactory).getQueryPlanCache() : null;
     }
 
     public static boolean isJPA21(final EntityManagerFactory entityManagerFactory) {
@@ -326,6 +329,10 @@ public class JtaEntityManager implements EntityManager, Serializable {
     public Query createQuery(final String qlString) {
         final Timer timer = Op.createQuery.start(this.timer, this);
         try {
+            final String named = queryPlanCache == null ? null : queryPlanCache.namedQuery(entityManagerFactory, qlString, null);
+            if (named != null) {
+                return proxyIfNoTx(CREATE_NAMED_QUERY_FROM_NAME, named);
+            }
             return proxyIfNoTx(CREATE_QUERY_FROM_NAME, qlString);
         } finally {
             timer.stop();
@@ -451,6 +458,10 @@ public class JtaEntityManager implements EntityManager, Serializable {
     public <T> TypedQuery<T> createQuery(final String qlString, final Class<T> resultClass) {
         final Timer timer = Op.createQuery.start(this.timer, this);
         try {
+            final String named = queryPlanCache == null ? null : queryPlanCache.namedQuery(entityManagerFactory, qlString, resultClass);
+            if (named != null) {
+                return typedProxyIfNoTx(CREATE_NAMED_QUERY_FROM_NAME_CLASS, named, resultClass);
+            }
             return typedProxyIfNoTx(CREATE_QUERY_FROM_NAME_CLASS, qlString, resultClass);
         } finally {
             timer.stop();
@@ -28,15 +28,31 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The JtaQuery is a wrapper around a query and and entity manager that automatically closes the entity managers
  * when the query is finished.  This implementation is only for non-transaction queryies
  */
 public class JtaQuery implements Query {
+    /**
+     * Number of rows the JDBC driver fetches at once, translated to the hint of the provider.
+     */
+    public static final String FETCH_SIZE = "openejb.jpa.query.fetch-size";
+
+    /**
+     * Without transaction, the entity manager of {@link #getResultStream()} is cleared every time
+     * this number of results was read, to not keep all the read entities in memory.
+     */
+    public static final String STREAM_CLEAR_EVERY = "openejb.jpa.query.stream.clear-every";
+
     private EntityManager entityManager;
     private final Object[] args;
     private final Method method;
@@ -46,6 +62,8 @@ public class JtaQuery implements Query {
     private boolean underTx;
     private boolean unwrap;
     private Query query;
+    private int fetchSize;
+    private int clearEvery;
 
     public JtaQuery(final EntityManager entityManager, final JtaEntityManager jtaEntityManager, final Method method, final Object... args) {
         this.entityManager = entityManager;
@@ -90,6 +108,76 @@ public class JtaQuery implements Query {
         }
     }
 
+    /**
+     * Without transaction the entity manager, and therefore its connection, stays open until the stream is closed,
+     * the stream must be closed - using try-with-resources for instance.
+     */
+    public Stream getResultStream() {
+        final EntityManager em = getEntityManager();
+        final Stream<?> stream;
+        try {
+            if (fetchSize > 0) {
+                final String hint = fetchSizeHint(query);
+                if (hint != null) {
+                    query.setHint(hint, fetchSize);
+                }
+            }
+            stream = query.getResultStream();
+        } catch (final RuntimeException re) {
+            jtaEntityManager.closeIfNoTx(em);
+            throw re;
+        }
+
+        final Stream<?> result;
+        if (clearEvery > 0 && !underTx) {
+            final Iterator<?> iterator = stream.iterator();
+            result = StreamSupport.stream(Spliterators.spliteratorUnknownSize(new Iterator<Object>() {
+                private long read;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    if (read > 0 && read % clearEvery == 0) { // the previous results were consumed
+                        em.clear();
+                    }
+                    read++;
+                    return iterator.next();
+                }
+            }, Spliterator.ORDERED), false).onClose(new Runnable() {
+                @Override
+                public void run() {
+                    stream.close();
+                }
+            });
+        } else {
+            result = stream;
+        }
+        return result.onClose(new Runnable() {
+            @Override
+            public void run() {
+                jtaEntityManager.closeIfNoTx(em);
+            }
+        });
+    }
+
+    private static String fetchSizeHint(final Query query) {
+        final String name = query.getClass().getName();
+        if (name.startsWith("org.apache.openjpa.")) {
+            return "openjpa.FetchPlan.FetchBatchSize";
+        }
+        if (name.startsWith("org.hibernate.")) {
+            return "org.hibernate.fetchSize";
+        }
+        if (name.startsWith("org.eclipse.persistence.")) {
+            return "eclipselink.jdbc.fetch-size";
+        }
+        return null;
+    }
+
     public Object getSingleResult() {
         final EntityManager em = getEntityManager();
         try {
@@ -148,6 +236,15 @@ public class JtaQuery implements Query {
     }
 
     public Query setHint(final String s, final Object o) {
+        if (FETCH_SIZE.equals(s)) {
+            fetchSize = Integer.parseInt(String.valueOf(o));
+            return this;
+        }
+        if (STREAM_CLEAR_EVERY.equals(s)) {
+            clearEvery = Integer.parseInt(String.valueOf(o));
+            return this;
+        }
+
         query.setHint(s, o);
         if (!underTx) {
             appliedOperations.add(new QueryOperation() {
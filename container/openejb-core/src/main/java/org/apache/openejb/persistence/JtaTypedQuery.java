@@ -28,6 +28,7 @@ import java.lang.reflect.Method;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * This class is the same as {@link JtaQuery} but wraps TypedQuery instead of Query
@@ -49,6 +50,12 @@ public class JtaTypedQuery<X> extends JtaQuery implements TypedQuery<X> {
         return (List<X>) super.getResultList();
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public Stream<X> getResultStream() {
+        return (Stream<X>) super.getResultStream();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public X getSingleResult() {
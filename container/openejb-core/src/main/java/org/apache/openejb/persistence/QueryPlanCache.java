@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.persistence;
+
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares the plan of the JPQL queries of a persistence unit between its entity managers: the second time a query
+ * is created it is registered as a named query of the entity manager factory, the next times the named query is
+ * used so the provider doesn't parse and compile it again. Queries seen once - built with literals for instance -
+ * are not registered.
+ *
+ * The registered queries are kept in a LRU of {@code maxSize} entries. A named query can't be removed from the
+ * factory so an evicted query coming back is registered under a new name, after {@code 4 * maxSize} registrations
+ * the cache stops registering queries to bound the memory of the provider.
+ *
+ * If the provider doesn't support {@link EntityManagerFactory#addNamedQuery(String, Query)} the cache disables itself.
+ */
+public class QueryPlanCache {
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB.createChild("persistence"), QueryPlanCache.class);
+
+    public static final String ACTIVE = "openejb.jpa.query.cache";
+    public static final String MAX_SIZE = "openejb.jpa.query.cache.max-size";
+
+    private static final String PREFIX = "openejb.query.";
+
+    private final String unitName;
+    private final int maxSize;
+    private final int maxRegistrations;
+    private final Map<Key, Entry> names;
+    private final Map<Key, Boolean> seen; // queries seen once, not registered yet
+    private final AtomicInteger ids = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int registrations;
+    private boolean full;
+    private volatile boolean active = true;
+
+    public QueryPlanCache(final String unitName, final int maxSize) {
+        this.unitName = unitName;
+        this.maxSize = maxSize;
+        this.maxRegistrations = maxSize * 4;
+        this.names = new LinkedHashMap<Key, Entry>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+                if (size() > QueryPlanCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.seen = new LinkedHashMap<Key, Boolean>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Boolean> eldest) {
+                return size() > QueryPlanCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the name of the named query equivalent to this JPQL query or null if it can't be cached,
+     * the query should then be created as usual.
+     */
+    public String namedQuery(final EntityManagerFactory factory, final String jpql, final Class<?> resultClass) {
+        if (!active) {
+            return null;
+        }
+
+        final Key key = new Key(jpql, resultClass);
+        final Entry entry;
+        synchronized (this) {
+            final Entry known = names.get(key);
+            if (known != null) {
+                final String name = known.name;
+                if (name != null) {
+                    hits.increment();
+                    return name;
+                }
+                misses.increment(); // being registered by another thread
+                return null;
+            }
+
+            misses.increment();
+            if (seen.remove(key) == null) { // first time, only remember it
+                seen.put(key, Boolean.TRUE);
+                return null;
+            }
+            if (registrations >= maxRegistrations) {
+                if (!full) {
+                    full = true;
+                    LOGGER.warning("Persistence unit " + unitName + " registered " + maxRegistrations + " queries, "
+                        + "the query cache doesn't register new ones, " + MAX_SIZE + " is likely too small");
+                }
+                return null;
+            }
+            registrations++;
+            entry = new Entry(); // the other threads see it and don't register the query again
+            names.put(key, entry);
+        }
+
+        final String name = PREFIX + ids.incrementAndGet();
+        final EntityManager em = factory.createEntityManager();
+        try {
+            final Query query;
+            try {
+                query = resultClass == null ? em.createQuery(jpql) : em.createQuery(jpql, resultClass);
+            } catch (final RuntimeException invalid) { // let the caller get the error from its own entity manager
+                forget(key, entry);
+                return null;
+            }
+
+            try {
+                factory.addNamedQuery(name, query);
+            } catch (final RuntimeException unsupported) {
+                active = false;
+                clear();
+                LOGGER.warning("Can't register queries of persistence unit " + unitName + " as named queries, "
+                    + ACTIVE + " is ignored: " + unsupported.getMessage());
+                return null;
+            }
+        } finally {
+            em.close();
+        }
+
+        entry.name = name;
+        return name;
+    }
+
+    private synchronized void forget(final Key key, final Entry entry) {
+        names.remove(key, entry);
+    }
+
+    /**
+     * Forgets the queries, to call when the named queries of the factory are lost (a new delegate is created).
+     */
+    public synchronized void clear() {
+        names.clear();
+        seen.clear();
+        registrations = 0;
+        full = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public synchronized int getSize() {
+        return names.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the ratio of hits in percent.
+     */
+    public double getHitRate() {
+        final long h = getHits();
+        final long total = h + getMisses();
+        return total == 0 ? 0 : h * 100. / total;
+    }
+
+    private static final class Entry {
+        private volatile String name; // null while the query is registered
+    }
+
+    private static final class Key {
+        private final String jpql;
+        private final Class<?> resultClass;
+        private final int hash;
+
+        private Key(final String jpql, final Class<?> resultClass) {
+            this.jpql = jpql;
+            this.resultClass = resultClass;
+            this.hash = 31 * jpql.hashCode() + (resultClass == null ? 0 : resultClass.hashCode());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!Key.class.isInstance(o)) {
+                return false;
+            }
+            final Key key = Key.class.cast(o);
+            return resultClass == key.resultClass && jpql.equals(key.jpql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -60,14 +60,26 @@ public class JMSContextImpl implements JMSContext {
     private boolean closed;
     private Connection connection;
     private volatile Message lastMessagesWaitingAck;
+    private final SessionPool pool;
+    private volatile boolean reusable;
 
     public JMSContextImpl(final ConnectionFactory factory, final int sessionMode, final String user, final String pwd,
                           final boolean xa) {
+        this(factory, sessionMode, user, pwd, xa, null);
+    }
+
+    /**
+     * @param pool where the session is taken from and given back on close when it can be shared, can be null.
+     */
+    public JMSContextImpl(final ConnectionFactory factory, final int sessionMode, final String user, final String pwd,
+                          final boolean xa, final SessionPool pool) {
         this.factory = factory;
         this.sessionMode = sessionMode;
         this.username = user;
         this.password = pwd;
         this.xa = xa;
+        this.pool = pool;
+        this.reusable = pool != null && !xa && SessionPool.accepts(sessionMode);
     }
 
     Message setLastMessage(final Message lastMessageReceived) {
@@ -95,6 +107,15 @@ public class JMSContextImpl implements JMSContext {
                     throw new IllegalStateRuntimeException("Context is closed");
                 }
                 if (session == null) {
+                    if (reusable && connection == null) {
+                        final SessionPool.Entry entry = pool.acquire(username, password, sessionMode);
+                        if (entry != null) {
+                            connection = entry.getConnection();
+                            innerProducer = entry.getProducer();
+                            session = entry.getSession();
+                            return session;
+                        }
+                    }
                     try {
                         Connection connection = connection();
                         if (xa) {
@@ -111,7 +132,13 @@ public class JMSContextImpl implements JMSContext {
         return session;
     }
 
+    // the session or the connection may be broken, don't let another context get them
+    void sendFailed() {
+        reusable = false;
+    }
+
     private synchronized void checkAutoStart() throws JMSException {
+        reusable = false; // consumer or browser
         if (closed) {
             throw new IllegalStateRuntimeException("Context is closed");
         }
@@ -143,6 +170,12 @@ public class JMSContextImpl implements JMSContext {
     public void close() {
         try {
             synchronized (this) {
+                if (reusable && !closed && session != null) {
+                    closed = true;
+                    if (pool.release(username, password, sessionMode, connection, session, innerProducer)) {
+                        return;
+                    }
+                }
                 if (session != null) {
                     session.close();
                 }
@@ -370,6 +403,7 @@ public class JMSContextImpl implements JMSContext {
 
     @Override
     public TemporaryQueue createTemporaryQueue() {
+        reusable = false;
         try {
             return session().createTemporaryQueue();
         } catch (final JMSException e) {
@@ -379,6 +413,7 @@ public class JMSContextImpl implements JMSContext {
 
     @Override
     public TemporaryTopic createTemporaryTopic() {
+        reusable = false;
         try {
             return session().createTemporaryTopic();
         } catch (final JMSException e) {
@@ -488,6 +523,7 @@ public class JMSContextImpl implements JMSContext {
         if (xa) {
             throw new JMSRuntimeException("Illegal call to setClientID");
         }
+        reusable = false;
         try {
             connection().setClientID(clientID);
         } catch (final JMSException e) {
@@ -500,6 +536,7 @@ public class JMSContextImpl implements JMSContext {
         if (xa) {
             throw new JMSRuntimeException("Illegal call to setExceptionListener");
         }
+        reusable = false;
         try {
             connection().setExceptionListener(listener);
         } catch (final JMSException e) {
@@ -509,6 +546,7 @@ public class JMSContextImpl implements JMSContext {
 
     @Override
     public void start() {
+        reusable = false;
         try {
             connection().start();
         } catch (final JMSException e) {
@@ -521,6 +559,7 @@ public class JMSContextImpl implements JMSContext {
         if (xa) {
             throw new JMSRuntimeException("Illegal call to stop");
         }
+        reusable = false;
         try { // TODO: ref counting
             connection().stop();
         } catch (final JMSException e) {
@@ -530,6 +569,7 @@ public class JMSContextImpl implements JMSContext {
 
     @Override
     public void unsubscribe(final String name) {
+        reusable = false;
         try {
             session().unsubscribe(name);
         } catch (final JMSException e) {
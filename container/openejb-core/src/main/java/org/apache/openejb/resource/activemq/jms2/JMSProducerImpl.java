@@ -100,6 +100,7 @@ class JMSProducerImpl implements JMSProducer {
                 producer.send(destination, message);
             }
         } catch (final JMSException e) {
+            context.sendFailed();
             throw toRuntimeException(e);
         }
         return this;
@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.resource.activemq.jms2;
+
+import org.apache.openejb.util.DaemonThreadFactory;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the connection, the session and the producer of closed {@link JMSContextImpl} to give them to the
+ * next context created with the same credentials and session mode, a context injected to send a few messages
+ * then doesn't pay the creation of its connection (a pooled managed connection for the resource adapter),
+ * of its session and of its producer each time.
+ *
+ * Only the sessions which can't hold any pending work are cached: non transacted, auto or dups ok acknowledge
+ * and outside of any XA transaction. A context which created consumers, browsers or temporary destinations or
+ * touched its connection (client id, exception listener, start/stop) closes its session as usual.
+ *
+ * The pool is bounded, the most recently released entry is reused first so the least used ones become idle
+ * and are closed once they are idle for longer than the idle timeout. An entry whose session or connection was
+ * closed or failed meanwhile (broker restart for instance) is closed instead of being reused, a context whose send
+ * failed doesn't give its session back.
+ *
+ * The pool belongs to the managed connection factory and is closed with the connection factory resource.
+ */
+public class SessionPool implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB.createChild("jms"), SessionPool.class);
+
+    private final int maxSize;
+    private final long idleTimeout;
+    private final Map<Key, Deque<Entry>> idle = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Future<?> eviction;
+    private int size;
+    private boolean closed;
+
+    /**
+     * @param maxSize     maximum number of idle entries.
+     * @param idleTimeout time in milliseconds after which an idle entry is closed, no eviction if not positive.
+     */
+    public SessionPool(final int maxSize, final long idleTimeout) {
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+        if (idleTimeout > 0) {
+            final long period = Math.max(100, idleTimeout / 2);
+            final Sweep sweep = new Sweep(this);
+            eviction = Evictor.INSTANCE.scheduleWithFixedDelay(sweep, period, period, TimeUnit.MILLISECONDS);
+            sweep.future = eviction;
+        } else {
+            eviction = null;
+        }
+    }
+
+    public static boolean accepts(final int sessionMode) {
+        return sessionMode == JMSContext.AUTO_ACKNOWLEDGE || sessionMode == JMSContext.DUPS_OK_ACKNOWLEDGE;
+    }
+
+    /**
+     * @return an idle entry for these credentials and this mode or null if there is none.
+     */
+    public Entry acquire(final String username, final String password, final int sessionMode) {
+        final Key key = new Key(username, password, sessionMode);
+        while (true) {
+            final Entry entry;
+            synchronized (this) {
+                final Deque<Entry> entries = idle.get(key);
+                entry = entries == null ? null : entries.pollFirst();
+                if (entry == null) {
+                    break;
+                }
+                size--;
+            }
+
+            if (entry.isValid()) {
+                hits.increment();
+                return entry;
+            }
+            evictions.increment();
+            closeAll(Collections.singletonList(entry));
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @return true if the pool took the entry, false if the caller must close it (pool full or closed,
+     * producer which can't be reset).
+     */
+    public boolean release(final String username, final String password, final int sessionMode,
+                           final Connection connection, final Session session, final MessageProducer producer) {
+        if (producer != null) {
+            try { // JMSProducer setters are applied on the shared producer
+                producer.setDisableMessageID(false);
+                producer.setDisableMessageTimestamp(false);
+                producer.setDeliveryMode(Message.DEFAULT_DELIVERY_MODE);
+                producer.setPriority(Message.DEFAULT_PRIORITY);
+                producer.setTimeToLive(Message.DEFAULT_TIME_TO_LIVE);
+                try {
+                    if (producer.getDeliveryDelay() != Message.DEFAULT_DELIVERY_DELAY) {
+                        producer.setDeliveryDelay(Message.DEFAULT_DELIVERY_DELAY);
+                    }
+                } catch (final UnsupportedOperationException uoe) {
+                    // JMS 1.1 producer, the delay can't have been set
+                }
+            } catch (final JMSException | RuntimeException e) {
+                LOGGER.debug("Can't reset producer, its session is not cached: " + e.getMessage());
+                return false;
+            }
+        }
+
+        final Entry entry = new Entry(new Key(username, password, sessionMode), connection, session, producer);
+        synchronized (this) {
+            if (closed || size >= maxSize) {
+                return false;
+            }
+            Deque<Entry> entries = idle.get(entry.key);
+            if (entries == null) {
+                entries = new ArrayDeque<>();
+                idle.put(entry.key, entries);
+            }
+            entries.addFirst(entry);
+            size++;
+            return true;
+        }
+    }
+
+    /**
+     * Closes the entries idle for longer than the idle timeout.
+     */
+    public void evict() {
+        final long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        final List<Entry> expired = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Deque<Entry>> values = idle.values().iterator();
+            while (values.hasNext()) {
+                final Deque<Entry> entries = values.next();
+                while (!entries.isEmpty() && entries.peekLast().released - limit < 0) {
+                    expired.add(entries.pollLast());
+                    size--;
+                }
+                if (entries.isEmpty()) {
+                    values.remove();
+                }
+            }
+        }
+        evictions.add(expired.size());
+        closeAll(expired);
+    }
+
+    @Override
+    public void close() {
+        final List<Entry> entries = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (final Deque<Entry> deque : idle.values()) {
+                entries.addAll(deque);
+            }
+            idle.clear();
+            size = 0;
+        }
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+        closeAll(entries);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getIdle() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the ratio of hits in percent.
+     */
+    public double getHitRate() {
+        final long h = getHits();
+        final long total = h + getMisses();
+        return total == 0 ? 0 : h * 100. / total;
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private static void closeAll(final Collection<Entry> entries) {
+        for (final Entry entry : entries) {
+            try {
+                entry.session.close();
+            } catch (final JMSException | RuntimeException e) {
+                LOGGER.debug("Can't close cached session: " + e.getMessage());
+            }
+            try {
+                entry.connection.close();
+            } catch (final JMSException | RuntimeException e) {
+                LOGGER.debug("Can't close cached connection: " + e.getMessage());
+            }
+        }
+    }
+
+    public static final class Entry {
+        private final Key key;
+        private final Connection connection;
+        private final Session session;
+        private final MessageProducer producer;
+        private final long released = System.nanoTime();
+
+        private Entry(final Key key, final Connection connection, final Session session, final MessageProducer producer) {
+            this.key = key;
+            this.connection = connection;
+            this.session = session;
+            this.producer = producer;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        // both throw once the session or the connection is closed, getClientID() also when the transport failed
+        private boolean isValid() {
+            try {
+                session.getAcknowledgeMode();
+                connection.getClientID();
+                return true;
+            } catch (final JMSException | RuntimeException e) {
+                LOGGER.debug("Cached session is not usable anymore: " + e.getMessage());
+                return false;
+            }
+        }
+
+        public Session getSession() {
+            return session;
+        }
+
+        /**
+         * @return the anonymous producer of the session, null if the previous context didn't send anything.
+         */
+        public MessageProducer getProducer() {
+            return producer;
+        }
+    }
+
+    private static final class Key {
+        private final String username;
+        private final String password;
+        private final int sessionMode;
+
+        private Key(final String username, final String password, final int sessionMode) {
+            this.username = username;
+            this.password = password;
+            this.sessionMode = sessionMode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!Key.class.isInstance(o)) {
+                return false;
+            }
+            final Key key = Key.class.cast(o);
+            return sessionMode == key.sessionMode && Objects.equals(username, key.username) && Objects.equals(password, key.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, password, sessionMode);
+        }
+    }
+
+    // doesn't keep the pool alive: a connection factory which is not used anymore can be collected
+    private static final class Sweep implements Runnable {
+        private final WeakReference<SessionPool> pool;
+        private volatile Future<?> future;
+
+        private Sweep(final SessionPool pool) {
+            this.pool = new WeakReference<>(pool);
+        }
+
+        @Override
+        public void run() {
+            final SessionPool p = pool.get();
+            if (p == null || p.isClosed()) {
+                final Future<?> f = future;
+                if (f != null) {
+                    f.cancel(false);
+                }
+                return;
+            }
+            p.evict();
+        }
+    }
+
+    private static final class Evictor {
+        private static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("openejb-jms-session-pool-"));
+
+        static {
+            INSTANCE.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
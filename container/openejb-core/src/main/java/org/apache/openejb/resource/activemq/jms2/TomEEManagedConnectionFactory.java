@@ -21,8 +21,11 @@ import org.apache.activemq.ra.ActiveMQConnectionRequestInfo;
 import org.apache.activemq.ra.ActiveMQManagedConnectionFactory;
 import org.apache.activemq.ra.MessageActivationSpec;
 import org.apache.activemq.ra.SimpleConnectionManager;
+import org.apache.openejb.api.resource.DestroyableResource;
+import org.apache.openejb.util.Duration;
 
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.jms.JMSException;
 import jakarta.resource.ResourceException;
@@ -32,17 +35,39 @@ import jakarta.resource.spi.ManagedConnection;
 import jakarta.resource.spi.TransactionSupport.TransactionSupportLevel;
 import javax.security.auth.Subject;
 
-public class TomEEManagedConnectionFactory extends ActiveMQManagedConnectionFactory {
+public class TomEEManagedConnectionFactory extends ActiveMQManagedConnectionFactory implements DestroyableResource {
     private static final long serialVersionUID = 1L;
     private TransactionSupportLevel transactionSupportLevel;
+    private int sessionCacheSize;
+    private long sessionCacheIdleTimeout = TimeUnit.MINUTES.toMillis(1);
+    private transient SessionPool sessionPool; // shared by the connection factories created at each lookup
 
     @Override
     public Object createConnectionFactory(final ConnectionManager manager) throws ResourceException {
         TomEERAConnectionFactory factory = new TomEERAConnectionFactory(this, manager, getInfo());
         factory.setTransactionSupport(transactionSupportLevel);
+        factory.setSessionPool(getSessionPool());
         return factory;
     }
 
+    private synchronized SessionPool getSessionPool() {
+        if (sessionPool == null && sessionCacheSize > 0) {
+            sessionPool = new SessionPool(sessionCacheSize, sessionCacheIdleTimeout);
+        }
+        return sessionPool;
+    }
+
+    /**
+     * Closes the cached sessions, called when the connection factory resource is destroyed.
+     */
+    @Override
+    public synchronized void destroyResource() {
+        if (sessionPool != null) {
+            sessionPool.close();
+            sessionPool = null;
+        }
+    }
+
     @Override
     public Object createConnectionFactory() throws ResourceException {
         return createConnectionFactory(new SimpleConnectionManager());
@@ -108,4 +133,25 @@ public class TomEEManagedConnectionFactory extends ActiveMQManagedConnectionFact
             }
         }
     }
+
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    /**
+     * @param sessionCacheSize number of sessions of closed contexts kept to be reused, 0 to disable the cache.
+     *                         Each of them holds a pooled connection so it should stay lower than the pool max size.
+     */
+    public void setSessionCacheSize(final int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    public Duration getSessionCacheIdleTimeout() {
+        return new Duration(sessionCacheIdleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    public void setSessionCacheIdleTimeout(final Duration sessionCacheIdleTimeout) {
+        final TimeUnit unit = sessionCacheIdleTimeout.getUnit() == null ? TimeUnit.MILLISECONDS : sessionCacheIdleTimeout.getUnit();
+        this.sessionCacheIdleTimeout = unit.toMillis(sessionCacheIdleTimeout.getTime());
+    }
 }
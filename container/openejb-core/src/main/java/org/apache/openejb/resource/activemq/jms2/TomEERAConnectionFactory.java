@@ -28,6 +28,7 @@ import jakarta.resource.spi.ConnectionManager;
 public class TomEERAConnectionFactory extends ActiveMQConnectionFactory {
     private static final long serialVersionUID = 1L;
     private TransactionSupportLevel transactionSupportLevel = TransactionSupportLevel.XATransaction;
+    private transient SessionPool sessionPool;
 
     public TomEERAConnectionFactory(final ActiveMQManagedConnectionFactory factory, final ConnectionManager manager,
                                     final ActiveMQConnectionRequestInfo connectionRequestInfo) {
@@ -59,7 +60,7 @@ public class TomEERAConnectionFactory extends ActiveMQConnectionFactory {
             default:
                 throw new IllegalStateException("transactionSupportLevel mode not supported:" + transactionSupportLevel);
         }
-        return new JMSContextImpl(this, mode, null, null, xa);
+        return new JMSContextImpl(this, mode, null, null, xa, sessionPool);
     }
 
     @Override
@@ -84,7 +85,7 @@ public class TomEERAConnectionFactory extends ActiveMQConnectionFactory {
             default:
                 throw new IllegalStateException("transactionSupportLevel mode not supported:" + transactionSupportLevel);
         }
-        return new JMSContextImpl(this, mode, null, null, xa);
+        return new JMSContextImpl(this, mode, null, null, xa, sessionPool);
     }
 
     @Override
@@ -109,7 +110,7 @@ public class TomEERAConnectionFactory extends ActiveMQConnectionFactory {
             default:
                 throw new IllegalStateException("transactionSupportLevel mode not supported:" + transactionSupportLevel);
         }
-        return new JMSContextImpl(this, mode, userName, password, xa);
+        return new JMSContextImpl(this, mode, userName, password, xa, sessionPool);
     }
 
     @Override
@@ -134,7 +135,7 @@ public class TomEERAConnectionFactory extends ActiveMQConnectionFactory {
             default:
                 throw new IllegalStateException("transactionSupportLevel mode not supported:" + transactionSupportLevel);
         }
-        return new JMSContextImpl(this, mode, userName, password, xa);
+        return new JMSContextImpl(this, mode, userName, password, xa, sessionPool);
     }
 
     public TransactionSupportLevel getTransactionSupport() {
@@ -148,4 +149,15 @@ public class TomEERAConnectionFactory extends ActiveMQConnectionFactory {
             this.transactionSupportLevel = transactionSupportLevel;
         }
     }
+
+    /**
+     * @return the pool of the sessions of the closed contexts or null if they are not cached.
+     */
+    public SessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    public void setSessionPool(final SessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
 }
@@ -25,6 +25,7 @@ import org.apache.openejb.resource.XAResourceWrapper;
 import org.apache.openejb.resource.jdbc.dbcp.DbcpDataSourceCreator;
 import org.apache.openejb.resource.jdbc.driver.AlternativeDriver;
 import org.apache.openejb.resource.jdbc.logging.LoggingSqlDataSource;
+import org.apache.openejb.resource.jdbc.logging.SqlMetrics;
 import org.apache.openejb.resource.jdbc.plugin.AbstractDataSourcePlugin;
 import org.apache.openejb.resource.jdbc.plugin.DataSourcePlugin;
 import org.apache.openejb.resource.jdbc.pool.DataSourceCreator;
@@ -75,6 +76,14 @@ public class DataSourceFactory {
     public static final String GLOBAL_LOG_SQL_PROPERTY = "openejb.jdbc.log";
     public static final String GLOBAL_LOG_SQL_PACKAGE_PROPERTY = "openejb.jdbc.log.packages";
     public static final String GLOBAL_FLUSH_PROPERTY = "openejb.jdbc.flushable";
+    public static final String SQL_METRICS_PROPERTY = "SqlMetrics";
+    public static final String SQL_METRICS_SLOW_QUERY_PROPERTY = "SqlMetricsSlowQuery";
+    public static final String SQL_METRICS_SAMPLING_PROPERTY = "SqlMetricsSlowQuerySampling";
+    public static final String SQL_METRICS_MAX_STATEMENTS_PROPERTY = "SqlMetricsMaxStatements";
+    public static final String GLOBAL_SQL_METRICS_PROPERTY = "openejb.jdbc.metrics";
+    public static final String GLOBAL_SQL_METRICS_SLOW_QUERY_PROPERTY = "openejb.jdbc.metrics.slow-query";
+    public static final String GLOBAL_SQL_METRICS_SAMPLING_PROPERTY = "openejb.jdbc.metrics.slow-query.sampling";
+    public static final String GLOBAL_SQL_METRICS_MAX_STATEMENTS_PROPERTY = "openejb.jdbc.metrics.max-statements";
     public static final String POOL_PROPERTY = "openejb.datasource.pool";
     public static final String DATA_SOURCE_CREATOR_PROP = "DataSourceCreator";
     public static final String XA_GLOBAL_FORCE_DIFFERENT = "openejb.datasource.xa.force-different-xaresource";
@@ -142,6 +151,7 @@ public class DataSourceFactory {
         final boolean logSql = SystemInstance.get().getOptions().get(GLOBAL_LOG_SQL_PROPERTY,
             "true".equalsIgnoreCase((String) properties.remove(LOG_SQL_PROPERTY)));
         final String logPackages = SystemInstance.get().getProperty(GLOBAL_LOG_SQL_PACKAGE_PROPERTY, (String) properties.remove(LOG_SQL_PACKAGE_PROPERTY));
+        final SqlMetrics sqlMetrics = sqlMetrics(name, properties);
         final DataSourceCreator creator = creator(properties.remove(DATA_SOURCE_CREATOR_PROP), logSql);
         final String resetOnError = (String) properties.remove(RESET_PROPERTY);
         final String resetMethods = (String) properties.remove(RESET_METHODS_PROPERTY); // before setProperties()
@@ -224,7 +234,7 @@ public class DataSourceFactory {
             }
 
             final boolean doResetOnError = resetOnError != null && !"false".equals(resetOnError);
-            if (doResetOnError || logSql || flushable) { // will get proxied
+            if (doResetOnError || logSql || sqlMetrics != null || flushable) { // will get proxied
                 ObjectRecipe objectRecipe = null;
                 ResettableDataSourceHandler existingResettableHandler = null;
                 FlushableDataSourceHandler flushableDataSourceHandler = null;
@@ -261,8 +271,8 @@ public class DataSourceFactory {
 
                 ds = wrapIfNeeded(handler, ds);
 
-                if (logSql) {
-                    ds = makeItLogging(ds, logPackages);
+                if (logSql || sqlMetrics != null) {
+                    ds = makeItLogging(ds, logPackages, logSql, sqlMetrics);
                 }
 
                 final ResettableDataSourceHandler resettableDataSourceHandler;
@@ -379,9 +389,36 @@ public class DataSourceFactory {
     }
 
     public static DataSource makeItLogging(final CommonDataSource ds, final String packagesStr) {
+        return makeItLogging(ds, packagesStr, true, null);
+    }
+
+    public static DataSource makeItLogging(final CommonDataSource ds, final String packagesStr, final boolean log, final SqlMetrics metrics) {
         final String[] pck = packagesStr == null ? null : packagesStr.split(" *, *");
         return (DataSource) Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(),
-            new Class<?>[]{DataSource.class, Serializable.class}, new LoggingSqlDataSource(ds, pck));
+            new Class<?>[]{DataSource.class, Serializable.class}, new LoggingSqlDataSource(ds, pck, log, metrics));
+    }
+
+    private static SqlMetrics sqlMetrics(final String name, final Properties properties) {
+        final boolean enabled = SystemInstance.get().getOptions().get(GLOBAL_SQL_METRICS_PROPERTY,
+            "true".equalsIgnoreCase((String) properties.remove(SQL_METRICS_PROPERTY)));
+        final String slowQuery = SystemInstance.get().getOptions().get(GLOBAL_SQL_METRICS_SLOW_QUERY_PROPERTY,
+            properties.getProperty(SQL_METRICS_SLOW_QUERY_PROPERTY, "1 second"));
+        final String sampling = SystemInstance.get().getOptions().get(GLOBAL_SQL_METRICS_SAMPLING_PROPERTY,
+            properties.getProperty(SQL_METRICS_SAMPLING_PROPERTY, "1 minute"));
+        final int maxStatements = SystemInstance.get().getOptions().get(GLOBAL_SQL_METRICS_MAX_STATEMENTS_PROPERTY,
+            Integer.parseInt(properties.getProperty(SQL_METRICS_MAX_STATEMENTS_PROPERTY, "500")));
+        properties.remove(SQL_METRICS_SLOW_QUERY_PROPERTY);
+        properties.remove(SQL_METRICS_SAMPLING_PROPERTY);
+        properties.remove(SQL_METRICS_MAX_STATEMENTS_PROPERTY);
+        if (!enabled) {
+            return null;
+        }
+
+        final SqlMetrics metrics = new SqlMetrics(name,
+            new Duration(slowQuery).getTime(TimeUnit.MILLISECONDS), new Duration(sampling).getTime(TimeUnit.MILLISECONDS),
+            TimeUnit.MILLISECONDS, maxStatements);
+        metrics.register();
+        return metrics;
     }
 
     private static void normalizeJdbcUrl(final Properties properties) {
@@ -507,6 +544,8 @@ public class DataSourceFactory {
 
     @SuppressWarnings("SuspiciousMethodCalls")
     public static void destroy(final Object o) throws Throwable {
+        unregisterMetrics(o);
+
         final Object instance = realInstance(o);
         if (instance == null) {
             return;
@@ -520,6 +559,28 @@ public class DataSourceFactory {
         }
     }
 
+    private static void unregisterMetrics(final Object o) {
+        if (o == null || !(o instanceof DataSource)) {
+            return;
+        }
+
+        Object ds = o;
+        while (Proxy.isProxyClass(ds.getClass())) {
+            final InvocationHandler handler = Proxy.getInvocationHandler(ds);
+            if (LoggingSqlDataSource.class.isInstance(handler)) {
+                final SqlMetrics metrics = LoggingSqlDataSource.class.cast(handler).getMetrics();
+                if (metrics != null) {
+                    metrics.unregister();
+                }
+            }
+            if (DelegatableHandler.class.isInstance(handler)) {
+                ds = DelegatableHandler.class.cast(handler).getDelegate();
+            } else {
+                break;
+            }
+        }
+    }
+
     // remove proxy added by us in front of the datasource returned by the creator
     private static Object realInstance(final Object o) {
         if (o == null || !(o instanceof DataSource)) {
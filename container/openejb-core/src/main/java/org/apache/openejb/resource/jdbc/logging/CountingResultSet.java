@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.resource.jdbc.logging;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+/**
+ * Adds the rows read from a result set to the statistics of its statement.
+ */
+public class CountingResultSet implements InvocationHandler {
+    private static final Class<?>[] INTERFACES = new Class<?>[]{ResultSet.class};
+
+    private final ResultSet delegate;
+    private final SqlMetrics.Statistics statistics;
+
+    public CountingResultSet(final ResultSet delegate, final SqlMetrics.Statistics statistics) {
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final Object result;
+        try {
+            result = method.invoke(delegate, args);
+        } catch (final InvocationTargetException ite) {
+            throw ite.getCause();
+        }
+
+        if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+            statistics.addRows(1);
+        }
+        return result;
+    }
+
+    public static Object wrap(final Object result, final SqlMetrics.Statistics statistics) {
+        if (statistics == null || !(result instanceof ResultSet)) {
+            return result;
+        }
+        return Proxy.newProxyInstance(result.getClass().getClassLoader(), INTERFACES,
+            new CountingResultSet((ResultSet) result, statistics));
+    }
+
+    /**
+     * @return the rows updated according to the result of an execute method, -1 if unknown.
+     */
+    public static long updated(final Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long total = 0;
+            for (final int count : (int[]) result) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        if (result instanceof long[]) {
+            long total = 0;
+            for (final long count : (long[]) result) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return -1;
+    }
+}
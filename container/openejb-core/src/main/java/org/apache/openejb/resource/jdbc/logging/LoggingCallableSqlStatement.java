@@ -24,5 +24,10 @@ public class LoggingCallableSqlStatement extends LoggingPreparedSqlStatement {
         super(result, query, debugPackages);
     }
 
+    public LoggingCallableSqlStatement(final PreparedStatement result, final String query, final String[] debugPackages,
+                                       final boolean log, final SqlMetrics metrics) {
+        super(result, query, debugPackages, log, metrics);
+    }
+
     // TODO: manage in/out parameters
 }
@@ -39,13 +39,24 @@ public class LoggingPreparedSqlStatement implements InvocationHandler {
     private final String sql;
     private final List<Parameter> parameters = new ArrayList<>();
     private final String[] packages;
+    private final boolean log;
+    private final SqlMetrics metrics;
+    private final SqlMetrics.Statistics statistics;
     private int parameterIndex;
 
     public LoggingPreparedSqlStatement(final PreparedStatement result, final String query, final String[] debugPackages) {
+        this(result, query, debugPackages, true, null);
+    }
+
+    public LoggingPreparedSqlStatement(final PreparedStatement result, final String query, final String[] debugPackages,
+                                       final boolean log, final SqlMetrics metrics) {
         delegate = result;
         sql = query;
         parameterIndex = 0;
         packages = debugPackages;
+        this.log = log;
+        this.metrics = metrics;
+        statistics = metrics == null ? null : metrics.statistics(query);
     }
 
     @Override
@@ -75,60 +86,15 @@ public class LoggingPreparedSqlStatement implements InvocationHandler {
 
             parameters.add(param);
         } else if (execute) {
-            StringBuilder str = new StringBuilder(sql);
-            if (str.toString().contains("?")) {
-                Collections.sort(parameters);
-                int lastBatch = 0;
-                for (int i = 0; i < parameters.size(); i++) {
-                    final Parameter param = parameters.get(i);
-                    if (str.toString().contains("?")) {
-                        try {
-                            String val;
-                            if (ByteArrayInputStream.class.isInstance(param.value)) {
-                                final ByteArrayInputStream bais = ByteArrayInputStream.class.cast(param.value);
-                                try {
-                                    bais.reset(); // already read when arriving here - mainly openjpa case
-                                    val = new ObjectInputStreamFiltered(bais).readObject().toString();
-                                } catch (final Exception e) {
-                                    val = param.value.toString();
-                                }
-                            } else {
-                                val = param.value.toString();
-                            }
-                            str = new StringBuilder(str.toString().replaceFirst("\\?", val));
-                        } catch (final Exception e) {
-                            if (param.value == null) {
-                                str = new StringBuilder(str.toString().replaceFirst("\\?", "null"));
-                            } else {
-                                str = new StringBuilder(str.toString().replaceFirst("\\?", param.value.getClass().getName()));
-                            }
-                        }
-                        lastBatch = param.batchIndex;
-                    } else {
-                        if (lastBatch != param.batchIndex) {
-                            str.append(", (");
-                            lastBatch = param.batchIndex;
-                        }
-
-                        try {
-                            str.append(param.value.toString());
-                        } catch (final Exception e) {
-                            if (param.value == null) {
-                                str.append("null");
-                            } else {
-                                str.append(param.value.getClass().getName());
-                            }
-                        }
-
-                        if (i == parameters.size() - 1 || parameters.get(i + 1).batchIndex != lastBatch) {
-                            str.append(")");
-                        } else {
-                            str.append(",");
-                        }
-                    }
+            if (log) {
+                LOGGER.info(result.format(withParameters()) + (packages != null ? " - stack:" + TimeWatcherExecutor.inlineStack(packages) : ""));
+            }
+            if (metrics != null) {
+                final long rows = CountingResultSet.updated(result.getResult());
+                if (metrics.record(statistics, result.getNanos(), rows, result.getThrowable() != null)) {
+                    metrics.slowQuery(statistics, result.getNanos(), rows, withParameters());
                 }
             }
-            LOGGER.info(result.format(str.toString()) + (packages != null ? " - stack:" + TimeWatcherExecutor.inlineStack(packages) : ""));
         } else if ("clearParameters".equals(mtdName)) {
             parameters.clear();
             parameterIndex = 0;
@@ -139,9 +105,69 @@ public class LoggingPreparedSqlStatement implements InvocationHandler {
         if (result.getThrowable() != null) {
             throw result.getThrowable();
         }
+        if (statistics != null && ("executeQuery".equals(mtdName) || "getResultSet".equals(mtdName))) {
+            return CountingResultSet.wrap(result.getResult(), statistics);
+        }
         return result.getResult();
     }
 
+    private String withParameters() {
+        StringBuilder str = new StringBuilder(sql);
+        if (str.toString().contains("?")) {
+            Collections.sort(parameters);
+            int lastBatch = 0;
+            for (int i = 0; i < parameters.size(); i++) {
+                final Parameter param = parameters.get(i);
+                if (str.toString().contains("?")) {
+                    try {
+                        String val;
+                        if (ByteArrayInputStream.class.isInstance(param.value)) {
+                            final ByteArrayInputStream bais = ByteArrayInputStream.class.cast(param.value);
+                            try {
+                                bais.reset(); // already read when arriving here - mainly openjpa case
+                                val = new ObjectInputStreamFiltered(bais).readObject().toString();
+                            } catch (final Exception e) {
+                                val = param.value.toString();
+                            }
+                        } else {
+                            val = param.value.toString();
+                        }
+                        str = new StringBuilder(str.toString().replaceFirst("\\?", val));
+                    } catch (final Exception e) {
+                        if (param.value == null) {
+                            str = new StringBuilder(str.toString().replaceFirst("\\?", "null"));
+                        } else {
+                            str = new StringBuilder(str.toString().replaceFirst("\\?", param.value.getClass().getName()));
+                        }
+                    }
+                    lastBatch = param.batchIndex;
+                } else {
+                    if (lastBatch != param.batchIndex) {
+                        str.append(", (");
+                        lastBatch = param.batchIndex;
+                    }
+
+                    try {
+                        str.append(param.value.toString());
+                    } catch (final Exception e) {
+                        if (param.value == null) {
+                            str.append("null");
+                        } else {
+                            str.append(param.value.getClass().getName());
+                        }
+                    }
+
+                    if (i == parameters.size() - 1 || parameters.get(i + 1).batchIndex != lastBatch) {
+                        str.append(")");
+                    } else {
+                        str.append(",");
+                    }
+                }
+            }
+        }
+        return str.toString();
+    }
+
     private void logDebug() {
         try {
             LOGGER.info("SQL " + sql);
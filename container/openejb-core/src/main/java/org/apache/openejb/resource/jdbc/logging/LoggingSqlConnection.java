@@ -33,10 +33,18 @@ public class LoggingSqlConnection implements InvocationHandler {
 
     private final Connection delegate;
     private final String[] packages;
+    private final boolean log;
+    private final SqlMetrics metrics;
 
     public LoggingSqlConnection(final Connection connection, final String[] debugPackages) {
+        this(connection, debugPackages, true, null);
+    }
+
+    public LoggingSqlConnection(final Connection connection, final String[] debugPackages, final boolean log, final SqlMetrics metrics) {
         this.delegate = connection;
         this.packages = debugPackages;
+        this.log = log;
+        this.metrics = metrics;
     }
 
     @Override
@@ -52,17 +60,17 @@ public class LoggingSqlConnection implements InvocationHandler {
 
         if ("createStatement".equals(mtd)) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(), INTERFACES_STATEMENT,
-                new LoggingSqlStatement((Statement) result, packages));
+                new LoggingSqlStatement((Statement) result, packages, log, metrics));
         }
 
         if ("prepareStatement".equals(mtd)) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(), INTERFACES_PREPARED,
-                new LoggingPreparedSqlStatement((PreparedStatement) result, (String) args[0], packages));
+                new LoggingPreparedSqlStatement((PreparedStatement) result, (String) args[0], packages, log, metrics));
         }
 
         if ("prepareCall".equals(mtd)) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(), INTERFACES_CALLABLE,
-                new LoggingCallableSqlStatement((CallableStatement) result, (String) args[0], packages));
+                new LoggingCallableSqlStatement((CallableStatement) result, (String) args[0], packages, log, metrics));
         }
 
         return result;
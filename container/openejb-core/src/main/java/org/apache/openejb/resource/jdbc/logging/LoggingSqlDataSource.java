@@ -30,10 +30,22 @@ public class LoggingSqlDataSource implements DelegatableHandler {
 
     private final CommonDataSource delegate;
     private final String[] packages;
+    private final boolean log;
+    private final SqlMetrics metrics;
 
     public LoggingSqlDataSource(final CommonDataSource ds, final String[] debugPackages) {
+        this(ds, debugPackages, true, null);
+    }
+
+    /**
+     * @param log     should the executed statements be logged
+     * @param metrics the statistics to update with the executed statements, null to not collect them
+     */
+    public LoggingSqlDataSource(final CommonDataSource ds, final String[] debugPackages, final boolean log, final SqlMetrics metrics) {
         delegate = ds;
         packages = debugPackages;
+        this.log = log;
+        this.metrics = metrics;
     }
 
     @Override
@@ -51,11 +63,15 @@ public class LoggingSqlDataSource implements DelegatableHandler {
 
         if ("getConnection".equals(method.getName())) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(),
-                INTERFACES, new LoggingSqlConnection((Connection) result, packages));
+                INTERFACES, new LoggingSqlConnection((Connection) result, packages, log, metrics));
         }
         return result;
     }
 
+    public SqlMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public CommonDataSource getDelegate() {
         return delegate;
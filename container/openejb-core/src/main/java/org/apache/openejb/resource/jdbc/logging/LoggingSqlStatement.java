@@ -23,31 +23,73 @@ import org.apache.openejb.util.Logger;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class LoggingSqlStatement implements InvocationHandler {
     private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_SQL, LoggingSqlStatement.class);
 
     private final Statement delegate;
     private final String[] packages;
+    private final boolean log;
+    private final SqlMetrics metrics;
+    private SqlMetrics.Statistics statistics;
+    private final Set<String> batch = new LinkedHashSet<>(); // fingerprints of the statements added to the batch
 
     public LoggingSqlStatement(final Statement result, final String[] debugPackages) {
+        this(result, debugPackages, true, null);
+    }
+
+    public LoggingSqlStatement(final Statement result, final String[] debugPackages, final boolean log, final SqlMetrics metrics) {
         this.delegate = result;
         this.packages = debugPackages;
+        this.log = log;
+        this.metrics = metrics;
     }
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
         final String mtdName = method.getName();
         final boolean execute = mtdName.startsWith("execute") && args != null && args.length > 0;
+        final boolean executeBatch = metrics != null && ("executeBatch".equals(mtdName) || "executeLargeBatch".equals(mtdName));
+
+        if (metrics != null && "addBatch".equals(mtdName) && args != null && args.length == 1) {
+            batch.add(SqlMetrics.fingerprint((String) args[0]));
+        } else if (metrics != null && "clearBatch".equals(mtdName)) {
+            batch.clear();
+        }
 
-        final TimeWatcherExecutor.TimerWatcherResult result = TimeWatcherExecutor.execute(method, delegate, args, execute);
+        final TimeWatcherExecutor.TimerWatcherResult result = TimeWatcherExecutor.execute(method, delegate, args, execute || executeBatch);
         if (execute) {
-            LOGGER.info(result.format((String) args[0]) + (packages != null ? " - stack:" + TimeWatcherExecutor.inlineStack(packages) : ""));
+            if (log) {
+                LOGGER.info(result.format((String) args[0]) + (packages != null ? " - stack:" + TimeWatcherExecutor.inlineStack(packages) : ""));
+            }
+            if (metrics != null) {
+                statistics = metrics.statistics((String) args[0]);
+                final long rows = CountingResultSet.updated(result.getResult());
+                if (metrics.record(statistics, result.getNanos(), rows, result.getThrowable() != null)) {
+                    metrics.slowQuery(statistics, result.getNanos(), rows, (String) args[0]);
+                }
+            }
+        }
+
+        if (executeBatch && !batch.isEmpty()) {
+            // statements added with addBatch(sql), recorded under their fingerprints joined when they differ
+            final String sql = String.join("; ", batch);
+            batch.clear();
+            final SqlMetrics.Statistics batchStatistics = metrics.statistics(sql);
+            final long rows = CountingResultSet.updated(result.getResult());
+            if (metrics.record(batchStatistics, result.getNanos(), rows, result.getThrowable() != null)) {
+                metrics.slowQuery(batchStatistics, result.getNanos(), rows, sql);
+            }
         }
 
         if (result.getThrowable() != null) {
             throw result.getThrowable();
         }
+        if (statistics != null && ("executeQuery".equals(mtdName) || "getResultSet".equals(mtdName))) {
+            return CountingResultSet.wrap(result.getResult(), statistics);
+        }
         return result.getResult();
     }
 }
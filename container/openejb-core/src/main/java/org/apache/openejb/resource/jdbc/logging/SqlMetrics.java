@@ -0,0 +1,701 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.resource.jdbc.logging;
+
+import org.apache.openejb.api.internal.Internal;
+import org.apache.openejb.api.jmx.Description;
+import org.apache.openejb.api.jmx.ManagedAttribute;
+import org.apache.openejb.api.jmx.ManagedOperation;
+import org.apache.openejb.monitoring.DynamicMBeanWrapper;
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.apache.openejb.monitoring.ObjectNameBuilder;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanConstructorInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Statistics of the statements executed through a datasource, grouped by fingerprint:
+ * the SQL with its literals replaced by {@code ?} so the same statement with other values
+ * shares its statistics.
+ *
+ * Executions slower than the threshold are logged with their bound parameters, at most once
+ * per sampling interval and fingerprint to keep the log readable under load.
+ *
+ * Each fingerprint also has its own MBean (key Statement=s + hash of the fingerprint, suffixed with -2, -3...
+ * for the fingerprints whose hash is already taken) with numeric
+ * attributes only - counters, percentiles and the cumulative histogram buckets - so the vendor
+ * metrics bridge publishes them as is.
+ */
+// @MBean: don't put it since it is not a pojo
+@Internal
+@SuppressWarnings("UnusedDeclaration")
+@Description("SQL statistics of a datasource")
+public class SqlMetrics {
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_SQL.createChild("slow"), SqlMetrics.class);
+
+    public static final String OTHER = "<other>";
+
+    // upper bounds of the histogram buckets in microseconds, the last bucket is unbounded
+    private static final long[] BUCKETS = {
+        100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+        1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private static final int SAMPLES = 20;
+
+    private static final Pattern LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ROWS = Pattern.compile("\\(\\?\\+\\)(?:\\s*,\\s*\\(\\?\\+\\))+");
+
+    private final String name;
+    private final long slowQueryNanos;
+    private final long samplingNanos;
+    private final int maxStatements;
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Statistics> bySql = new ConcurrentHashMap<>();
+    private final Statistics other;
+    private final Deque<String> samples = new ArrayDeque<>();
+    private final Set<String> statements = new HashSet<>(); // Statement keys of the registered MBeans
+
+    private transient ObjectName objectName;
+
+    public SqlMetrics(final String name, final long slowQuery, final long sampling, final TimeUnit unit, final int maxStatements) {
+        this.name = name;
+        this.slowQueryNanos = unit.toNanos(slowQuery);
+        this.samplingNanos = unit.toNanos(sampling);
+        this.maxStatements = maxStatements;
+        this.other = new Statistics(OTHER, samplingNanos);
+    }
+
+    public void register() {
+        if (LocalMBeanServer.isJMXActive()) {
+            objectName = ObjectNameBuilder.uniqueName("sqlmetrics", name, this);
+            LocalMBeanServer.registerSilently(new DynamicMBeanWrapper(this), objectName);
+            for (final Statistics stats : all()) {
+                register(stats);
+            }
+        }
+    }
+
+    public void unregister() {
+        if (objectName != null) {
+            for (final Statistics stats : all()) {
+                unregister(stats.objectName);
+                stats.objectName = null;
+            }
+            unregister(objectName);
+            objectName = null;
+            synchronized (statements) {
+                statements.clear();
+            }
+        }
+    }
+
+    private void register(final Statistics stats) {
+        final ObjectName parent = objectName;
+        if (parent == null) {
+            return;
+        }
+
+        synchronized (statements) {
+            if (stats.objectName != null) {
+                return;
+            }
+
+            String statement = stats == other ? "other" : "s" + Integer.toHexString(stats.fingerprint.hashCode());
+            // two fingerprints can share a hash, the later one gets a suffix instead of not being registered
+            for (int i = 2; !statements.add(statement); i++) {
+                statement = "s" + Integer.toHexString(stats.fingerprint.hashCode()) + "-" + i;
+            }
+
+            final Hashtable<String, String> keys = new Hashtable<>(parent.getKeyPropertyList());
+            keys.put("Statement", statement);
+            try {
+                stats.objectName = new ObjectName(parent.getDomain(), keys);
+            } catch (final MalformedObjectNameException e) {
+                return;
+            }
+            LocalMBeanServer.registerSilently(new StatisticsMBean(stats), stats.objectName);
+        }
+    }
+
+    private static void unregister(final ObjectName name) {
+        if (name != null) {
+            try {
+                LocalMBeanServer.get().unregisterMBean(name);
+            } catch (final Exception e) {
+                // ignored
+            }
+        }
+    }
+
+    /**
+     * @return the statistics of the fingerprint of this SQL, shared with the other statements
+     * once {@code maxStatements} fingerprints are known.
+     */
+    public Statistics statistics(final String sql) {
+        final Statistics known = bySql.get(sql);
+        if (known != null) {
+            return known;
+        }
+
+        final String fingerprint = fingerprint(sql);
+        Statistics stats = statistics.get(fingerprint);
+        if (stats == null) {
+            if (statistics.size() >= maxStatements) {
+                stats = other;
+            } else {
+                final Statistics created = new Statistics(fingerprint, samplingNanos);
+                stats = statistics.putIfAbsent(fingerprint, created);
+                if (stats == null) {
+                    stats = created;
+                    register(created);
+                }
+            }
+        }
+        if (bySql.size() < maxStatements * 4) { // statements built with literals would grow it forever
+            bySql.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Records an execution.
+     *
+     * @return true if the execution is slow and should be logged with {@link #slowQuery(Statistics, long, long, String)}.
+     */
+    public boolean record(final Statistics stats, final long nanos, final long rows, final boolean failed) {
+        stats.executions.increment();
+        stats.time.add(nanos);
+        if (rows > 0) {
+            stats.rows.add(rows);
+        }
+        if (failed) {
+            stats.errors.increment();
+        }
+        stats.histogram[bucket(nanos)].increment();
+
+        long max = stats.max.get();
+        while (nanos > max && !stats.max.compareAndSet(max, nanos)) {
+            max = stats.max.get();
+        }
+
+        if (nanos < slowQueryNanos) {
+            return false;
+        }
+        stats.slow.increment();
+
+        final long now = System.nanoTime();
+        final long last = stats.lastSample.get();
+        if (now - last < samplingNanos || !stats.lastSample.compareAndSet(last, now)) {
+            stats.skippedSamples.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void slowQuery(final Statistics stats, final long nanos, final long rows, final String sql) {
+        final long skipped = stats.skippedSamples.getAndSet(0);
+        final String message = "Slow query on " + name + " (" + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms"
+            + (rows >= 0 ? ", " + rows + " rows" : "")
+            + (skipped > 0 ? ", " + skipped + " slow executions not logged" : "") + "): " + sql;
+        LOGGER.warning(message);
+
+        synchronized (samples) {
+            if (samples.size() == SAMPLES) {
+                samples.removeFirst();
+            }
+            samples.addLast(message);
+        }
+    }
+
+    @ManagedAttribute
+    @Description("Number of statement executions.")
+    public long getExecutions() {
+        long total = 0;
+        for (final Statistics stats : all()) {
+            total += stats.getExecutions();
+        }
+        return total;
+    }
+
+    @ManagedAttribute
+    @Description("Number of failed statement executions.")
+    public long getErrors() {
+        long total = 0;
+        for (final Statistics stats : all()) {
+            total += stats.getErrors();
+        }
+        return total;
+    }
+
+    @ManagedAttribute
+    @Description("Number of rows read or updated by the statements.")
+    public long getRows() {
+        long total = 0;
+        for (final Statistics stats : all()) {
+            total += stats.getRows();
+        }
+        return total;
+    }
+
+    @ManagedAttribute
+    @Description("Number of statement executions slower than the slow query threshold.")
+    public long getSlowQueries() {
+        long total = 0;
+        for (final Statistics stats : all()) {
+            total += stats.getSlowQueries();
+        }
+        return total;
+    }
+
+    @ManagedAttribute
+    @Description("Time spent executing statements in milliseconds.")
+    public long getTotalTimeMillis() {
+        long total = 0;
+        for (final Statistics stats : all()) {
+            total += stats.time.sum();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(total);
+    }
+
+    @ManagedAttribute
+    @Description("Number of statement fingerprints, statements over the limit are counted as " + OTHER + ".")
+    public int getStatements() {
+        return statistics.size();
+    }
+
+    @ManagedAttribute
+    @Description("The last logged slow queries with their parameters.")
+    public String[] getSlowQuerySamples() {
+        synchronized (samples) {
+            return samples.toArray(new String[samples.size()]);
+        }
+    }
+
+    @ManagedOperation
+    @Description("The statistics of the statements spending the most time, one line per fingerprint.")
+    public String top(final int count) {
+        final List<Statistics> sorted = new ArrayList<>(all());
+        sorted.sort(new Comparator<Statistics>() {
+            @Override
+            public int compare(final Statistics o1, final Statistics o2) {
+                return Long.compare(o2.time.sum(), o1.time.sum());
+            }
+        });
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < Math.min(count, sorted.size()); i++) {
+            final Statistics stats = sorted.get(i);
+            if (stats.getExecutions() == 0) {
+                break;
+            }
+            builder.append(stats).append('\n');
+        }
+        return builder.toString();
+    }
+
+    @ManagedOperation
+    @Description("Forget the statistics and the slow query samples.")
+    public void reset() {
+        // in place: prepared statements keep the instance of their fingerprint
+        for (final Statistics stats : all()) {
+            stats.reset();
+        }
+        synchronized (samples) {
+            samples.clear();
+        }
+    }
+
+    public Statistics getStatistics(final String fingerprint) {
+        return OTHER.equals(fingerprint) ? other : statistics.get(fingerprint);
+    }
+
+    public Collection<Statistics> all() {
+        final Collection<Statistics> all = new ArrayList<>(statistics.values());
+        all.add(other);
+        return all;
+    }
+
+    /**
+     * @return the upper bounds of the histogram buckets in microseconds, the last bucket is unbounded.
+     */
+    public static long[] getBuckets() {
+        return BUCKETS.clone();
+    }
+
+    private static int bucket(final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (micros <= BUCKETS[i]) {
+                return i;
+            }
+        }
+        return BUCKETS.length;
+    }
+
+    /**
+     * Replaces the string and number literals by {@code ?}, strips the comments, collapses the whitespaces
+     * and the lists of parameters - {@code in (?, ?, ?)} and multi-rows inserts - to {@code (?+)}.
+     */
+    public static String fingerprint(final String sql) {
+        final int length = sql.length();
+        final StringBuilder builder = new StringBuilder(length);
+        boolean space = false;
+        int i = 0;
+        while (i < length) {
+            final char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = builder.length() > 0;
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                space = builder.length() > 0;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                final int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                space = builder.length() > 0;
+                continue;
+            }
+
+            if (space) {
+                builder.append(' ');
+                space = false;
+            }
+
+            if (c == '\'') {
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') { // escaped quote
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                builder.append('?');
+                i++;
+            } else if (Character.isDigit(c) && !isIdentifierPart(builder)) {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                builder.append('?');
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+
+        String fingerprint = builder.toString();
+        if (fingerprint.indexOf('?') >= 0) {
+            fingerprint = LIST.matcher(fingerprint).replaceAll("(?+)");
+            fingerprint = ROWS.matcher(fingerprint).replaceAll("(?+)+");
+        }
+        return fingerprint;
+    }
+
+    private static boolean isIdentifierPart(final StringBuilder builder) {
+        if (builder.length() == 0) {
+            return false;
+        }
+        final char previous = builder.charAt(builder.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '.' || previous == '$' || previous == '"';
+    }
+
+    @Override
+    public String toString() {
+        return "SqlMetrics[" + name + "]";
+    }
+
+    public static class Statistics {
+        private final String fingerprint;
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final LongAdder time = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final LongAdder[] histogram = new LongAdder[BUCKETS.length + 1];
+        private final long samplingNanos;
+        private final AtomicLong lastSample;
+        private final AtomicLong skippedSamples = new AtomicLong();
+        private volatile ObjectName objectName;
+
+        private Statistics(final String fingerprint, final long samplingNanos) {
+            this.fingerprint = fingerprint;
+            this.samplingNanos = samplingNanos;
+            this.lastSample = new AtomicLong(System.nanoTime() - samplingNanos);
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        public void addRows(final long count) {
+            rows.add(count);
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getSlowQueries() {
+            return slow.sum();
+        }
+
+        public long getTotalTime(final TimeUnit unit) {
+            return unit.convert(time.sum(), TimeUnit.NANOSECONDS);
+        }
+
+        public long getMaxTime(final TimeUnit unit) {
+            return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * @return the upper bound of the histogram bucket holding this percentile in microseconds,
+         * {@link Long#MAX_VALUE} if it is in the unbounded one.
+         */
+        public long getPercentile(final double percentile) {
+            final long[] counts = getHistogram();
+            long total = 0;
+            for (final long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            final long rank = (long) Math.ceil(total * percentile / 100.);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return BUCKETS[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * @return the count of executions of each bucket, the bounds are in {@link #getBuckets()}.
+         */
+        public long[] getHistogram() {
+            final long[] counts = new long[histogram.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram[i].sum();
+            }
+            return counts;
+        }
+
+        private void reset() {
+            executions.reset();
+            errors.reset();
+            rows.reset();
+            slow.reset();
+            time.reset();
+            max.set(0);
+            for (final LongAdder bucket : histogram) {
+                bucket.reset();
+            }
+            skippedSamples.set(0);
+            lastSample.set(System.nanoTime() - samplingNanos);
+        }
+
+        @Override
+        public String toString() {
+            return fingerprint
+                + " - executions=" + getExecutions()
+                + ", errors=" + getErrors()
+                + ", rows=" + getRows()
+                + ", slow=" + getSlowQueries()
+                + ", total=" + getTotalTime(TimeUnit.MILLISECONDS) + "ms"
+                + ", max=" + getMaxTime(TimeUnit.MILLISECONDS) + "ms"
+                + ", p50<=" + format(getPercentile(50))
+                + ", p95<=" + format(getPercentile(95))
+                + ", p99<=" + format(getPercentile(99));
+        }
+
+        private static String format(final long micros) {
+            if (micros == Long.MAX_VALUE) {
+                return "inf";
+            }
+            return micros < 1_000 ? micros + "us" : (micros / 1_000) + "ms";
+        }
+    }
+
+    /**
+     * The statistics of a fingerprint, numeric attributes only. The histogram is exposed as cumulative
+     * buckets ({@code Le<bound>us}: executions faster than the bound) to be scraped as is.
+     */
+    private static final class StatisticsMBean implements DynamicMBean {
+        private static final String[] COUNTERS = {
+            "Executions", "Errors", "Rows", "SlowQueries", "TotalTimeMillis", "MaxTimeMillis",
+            "P50Micros", "P95Micros", "P99Micros"
+        };
+        private static final MBeanInfo INFO;
+
+        static {
+            final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            attributes.add(new MBeanAttributeInfo("Fingerprint", String.class.getName(), "The SQL with its literals replaced by ?.", true, false, false));
+            for (final String counter : COUNTERS) {
+                attributes.add(new MBeanAttributeInfo(counter, "long", counter, true, false, false));
+            }
+            for (int i = 0; i <= BUCKETS.length; i++) {
+                attributes.add(new MBeanAttributeInfo(bucketName(i), "long", "Executions in at most " + bucketName(i).substring(2), true, false, false));
+            }
+            INFO = new MBeanInfo(
+                StatisticsMBean.class.getName(),
+                "SQL statistics of a statement fingerprint",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                new MBeanConstructorInfo[0],
+                new MBeanOperationInfo[0],
+                new MBeanNotificationInfo[0]);
+        }
+
+        private final Statistics stats;
+
+        private StatisticsMBean(final Statistics stats) {
+            this.stats = stats;
+        }
+
+        private static String bucketName(final int i) {
+            return i < BUCKETS.length ? "Le" + BUCKETS[i] + "us" : "LeInf";
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return INFO;
+        }
+
+        @Override
+        public Object getAttribute(final String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
+            final Object value = value(attribute, stats.getHistogram());
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(final String[] attributes) {
+            final long[] histogram = stats.getHistogram(); // one snapshot for all the buckets
+            final AttributeList list = new AttributeList();
+            for (final String attribute : attributes) {
+                final Object value = value(attribute, histogram);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        private Object value(final String attribute, final long[] histogram) {
+            switch (attribute) {
+                case "Fingerprint":
+                    return stats.getFingerprint();
+                case "Executions":
+                    return stats.getExecutions();
+                case "Errors":
+                    return stats.getErrors();
+                case "Rows":
+                    return stats.getRows();
+                case "SlowQueries":
+                    return stats.getSlowQueries();
+                case "TotalTimeMillis":
+                    return stats.getTotalTime(TimeUnit.MILLISECONDS);
+                case "MaxTimeMillis":
+                    return stats.getMaxTime(TimeUnit.MILLISECONDS);
+                case "P50Micros":
+                    return stats.getPercentile(50);
+                case "P95Micros":
+                    return stats.getPercentile(95);
+                case "P99Micros":
+                    return stats.getPercentile(99);
+                default:
+                    long cumulated = 0;
+                    for (int i = 0; i < histogram.length; i++) {
+                        cumulated += histogram[i];
+                        if (bucketName(i).equals(attribute)) {
+                            return cumulated;
+                        }
+                    }
+                    return null;
+            }
+        }
+
+        @Override
+        public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(final AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(final String actionName, final Object[] params, final String[] signature) throws MBeanException {
+            throw new MBeanException(new IllegalStateException("unsupported operation: " + actionName));
+        }
+    }
+}
@@ -0,0 +1,517 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.resource.jdbc.router;
+
+import org.apache.openejb.OpenEJB;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.DaemonThreadFactory;
+import org.apache.openejb.util.Duration;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.SystemException;
+import jakarta.transaction.TransactionManager;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Sends the read only work to replicas and keeps the rest on the primary datasource.
+ *
+ * Outside of a JTA transaction the work is read only when the connection is set read only before being used -
+ * the physical connection is only retrieved once a statement or the metadata are needed. A JTA transaction only
+ * uses a replica when it was marked read only with {@link #markReadOnly()} before getting its first connection,
+ * a read only connection of a transaction which was not marked uses the primary since the other connections of the
+ * transaction can write. A JTA transaction sticks to the datasource of its first connection, a connection explicitly
+ * set not read only in a transaction using a replica fails.
+ *
+ * The replicas are validated in background, an invalid replica or a replica lagging behind the primary more
+ * than {@code maxReplicationLag} according to {@code replicationLagQuery} is ejected until it is valid again.
+ * Without background validation ({@code healthCheckInterval} of 0) an ejected replica is validated again by the
+ * next connection once it has been ejected for {@code retryInterval}.
+ * Without any healthy replica the read only work goes to the primary.
+ */
+public class ReadWriteRouter extends AbstractRouter {
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_RESOURCE_JDBC, ReadWriteRouter.class);
+
+    private static final String READ_ONLY = ReadWriteRouter.class.getName() + ".readOnly";
+    private static final Class<?>[] CONNECTION = new Class<?>[]{Connection.class};
+
+    private final String transactionKey = ReadWriteRouter.class.getName() + "@" + System.identityHashCode(this);
+    private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private String primaryName;
+    private String replicaNames = "";
+    private String delimiter = ",";
+    private Duration healthCheckInterval = new Duration(30, TimeUnit.SECONDS);
+    private Duration retryInterval = new Duration(30, TimeUnit.SECONDS);
+    private int validationTimeout = 5;
+    private String replicationLagQuery;
+    private Duration maxReplicationLag;
+
+    private DataSource primary;
+    private DataSource facade;
+    private TransactionManager transactionManager;
+    private TransactionSynchronizationRegistry registry;
+    private ScheduledExecutorService healthCheck;
+
+    @Override
+    public DataSource getDataSource() {
+        return facade;
+    }
+
+    @PostConstruct
+    public void init() {
+        primary = lookup(primaryName);
+        replicas.clear();
+        for (final String name : replicaNames.split(Pattern.quote(delimiter))) {
+            if (!name.trim().isEmpty()) {
+                replicas.add(new Replica(name.trim(), lookup(name.trim())));
+            }
+        }
+
+        transactionManager = OpenEJB.getTransactionManager();
+        registry = SystemInstance.get().getComponent(TransactionSynchronizationRegistry.class);
+        facade = DataSource.class.cast(Proxy.newProxyInstance(
+            Thread.currentThread().getContextClassLoader(), new Class<?>[]{DataSource.class}, new FacadeHandler()));
+
+        final long interval = healthCheckInterval == null ? 0 : healthCheckInterval.getTime(TimeUnit.MILLISECONDS);
+        if (!replicas.isEmpty() && interval > 0) {
+            healthCheck = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(ReadWriteRouter.class, primaryName));
+            healthCheck.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkReplicas();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+            healthCheck = null;
+        }
+    }
+
+    /**
+     * Marks the current JTA transaction as read only, its connections will use a replica
+     * if the transaction didn't get any connection of the router yet. This is the only way
+     * for a transaction to use a replica.
+     *
+     * @throws IllegalStateException if there is no active transaction
+     */
+    public static void markReadOnly() {
+        final TransactionSynchronizationRegistry registry = SystemInstance.get().getComponent(TransactionSynchronizationRegistry.class);
+        if (registry == null || registry.getTransactionKey() == null) {
+            throw new IllegalStateException("No active transaction");
+        }
+        registry.putResource(READ_ONLY, Boolean.TRUE);
+    }
+
+    public void setPrimary(final String primary) {
+        this.primaryName = primary;
+    }
+
+    public void setReplicas(final String replicas) {
+        this.replicaNames = replicas;
+    }
+
+    public void setDelimiter(final String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public void setHealthCheckInterval(final Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    /**
+     * @param retryInterval without background health check, the time after which an ejected replica is validated again.
+     */
+    public void setRetryInterval(final Duration retryInterval) {
+        this.retryInterval = retryInterval;
+    }
+
+    /**
+     * @param validationTimeout the timeout in seconds of {@link Connection#isValid(int)} for the replicas.
+     */
+    public void setValidationTimeout(final int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    /**
+     * @param replicationLagQuery a query executed on the replicas returning their lag in seconds.
+     */
+    public void setReplicationLagQuery(final String replicationLagQuery) {
+        this.replicationLagQuery = replicationLagQuery;
+    }
+
+    public void setMaxReplicationLag(final Duration maxReplicationLag) {
+        this.maxReplicationLag = maxReplicationLag;
+    }
+
+    public Collection<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Validates the replicas, ejecting the invalid or late ones and restoring the valid ones.
+     */
+    public void checkReplicas() {
+        for (final Replica replica : replicas) {
+            check(replica);
+        }
+    }
+
+    private void check(final Replica replica) {
+        String problem;
+        try (final Connection connection = replica.dataSource.getConnection()) {
+            problem = connection.isValid(validationTimeout) ? checkLag(replica, connection) : "invalid connection";
+        } catch (final SQLException | RuntimeException e) {
+            problem = e.getMessage();
+        }
+
+        if (problem == null) {
+            if (!replica.healthy) {
+                replica.healthy = true;
+                LOGGER.info("Replica '" + replica.name + "' is back in the pool");
+            }
+        } else {
+            eject(replica, problem);
+        }
+    }
+
+    // without background health check nothing would restore an ejected replica
+    private void retryEjectedReplicas() {
+        final long interval = retryInterval == null ? 0 : retryInterval.getTime(TimeUnit.NANOSECONDS);
+        for (final Replica replica : replicas) {
+            if (!replica.healthy && replica.retry(interval)) {
+                check(replica);
+            }
+        }
+    }
+
+    private String checkLag(final Replica replica, final Connection connection) throws SQLException {
+        if (replicationLagQuery == null || maxReplicationLag == null) {
+            return null;
+        }
+
+        try (final Statement statement = connection.createStatement();
+             final ResultSet result = statement.executeQuery(replicationLagQuery)) {
+            replica.lag = result.next() ? result.getDouble(1) : 0;
+        }
+        if (replica.lag * 1000 > maxReplicationLag.getTime(TimeUnit.MILLISECONDS)) {
+            return "replication lag of " + replica.lag + "s";
+        }
+        return null;
+    }
+
+    private void eject(final Replica replica, final String problem) {
+        replica.ejectedAt = System.nanoTime();
+        if (replica.healthy) {
+            replica.healthy = false;
+            LOGGER.warning("Replica '" + replica.name + "' is ejected from the pool: " + problem);
+        }
+    }
+
+    /**
+     * @param readOnly the read only flag set on the connection before it was used, null if it was not set.
+     */
+    private Connection connect(final Boolean readOnly, final String user, final String password) throws SQLException {
+        final boolean transaction = isTransactionActive();
+        if (transaction) {
+            final DataSource bound = DataSource.class.cast(registry.getResource(transactionKey));
+            if (bound != null) {
+                if (bound != primary && Boolean.FALSE.equals(readOnly)) {
+                    throw new SQLException("The transaction was marked read only and uses a replica, it can't get a connection which is not read only");
+                }
+                return open(bound, user, password);
+            }
+        }
+
+        final boolean useReplica = transaction ?
+            Boolean.TRUE.equals(registry.getResource(READ_ONLY)) && !Boolean.FALSE.equals(readOnly) :
+            Boolean.TRUE.equals(readOnly);
+
+        Connection connection = null;
+        DataSource used = primary;
+        if (useReplica) {
+            if (healthCheck == null) {
+                retryEjectedReplicas();
+            }
+            for (final Replica replica : healthyReplicas()) {
+                try {
+                    connection = open(replica.dataSource, user, password);
+                    used = replica.dataSource;
+                    break;
+                } catch (final SQLException e) {
+                    eject(replica, e.getMessage());
+                }
+            }
+        }
+        if (connection == null) {
+            connection = open(primary, user, password);
+        }
+
+        if (transaction) {
+            registry.putResource(transactionKey, used);
+        }
+        return connection;
+    }
+
+    // healthy replicas, starting with the next one of the round robin
+    private List<Replica> healthyReplicas() {
+        final List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (final Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.size() > 1) {
+            final int start = Math.floorMod(next.getAndIncrement(), healthy.size());
+            final List<Replica> ordered = new ArrayList<>(healthy.subList(start, healthy.size()));
+            ordered.addAll(healthy.subList(0, start));
+            return ordered;
+        }
+        return healthy;
+    }
+
+    private boolean isTransactionActive() {
+        try {
+            return transactionManager != null && transactionManager.getTransaction() != null;
+        } catch (final SystemException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Connection open(final DataSource dataSource, final String user, final String password) throws SQLException {
+        if (user == null) {
+            return dataSource.getConnection();
+        }
+        return dataSource.getConnection(user, password);
+    }
+
+    private DataSource lookup(final String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("primary datasource not set");
+        }
+        try {
+            final Object o = getOpenEJBResource(name);
+            if (DataSource.class.isInstance(o)) {
+                return DataSource.class.cast(o);
+            }
+            throw new IllegalArgumentException(name + " (" + o + ") is not a datasource");
+        } catch (final NamingException error) {
+            throw new IllegalStateException(error);
+        }
+    }
+
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+        private volatile double lag;
+        private volatile long ejectedAt;
+
+        private Replica(final String name, final DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // only one caller validates the replica again per interval
+        private synchronized boolean retry(final long interval) {
+            final long now = System.nanoTime();
+            if (now - ejectedAt < interval) {
+                return false;
+            }
+            ejectedAt = now;
+            return true;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * @return the last replication lag in seconds measured with the replication lag query.
+         */
+        public double getLag() {
+            return lag;
+        }
+
+        @Override
+        public String toString() {
+            return name + (healthy ? "" : " (ejected)");
+        }
+    }
+
+    private class FacadeHandler implements InvocationHandler {
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if (Object.class.equals(method.getDeclaringClass())) {
+                if ("toString".equals(name)) {
+                    return "ReadWriteDataSource[primary=" + primaryName + ", replicas=" + replicas + "]";
+                }
+                if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                }
+            }
+
+            if ("getConnection".equals(name)) {
+                final LazyConnectionHandler handler = args == null || args.length == 0 ?
+                    new LazyConnectionHandler(null, null) : new LazyConnectionHandler((String) args[0], (String) args[1]);
+                return Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(), CONNECTION, handler);
+            }
+
+            try {
+                if (name.startsWith("set")) { // keep the datasources consistent
+                    for (final Replica replica : replicas) {
+                        method.invoke(replica.dataSource, args);
+                    }
+                }
+                return method.invoke(primary, args);
+            } catch (final InvocationTargetException ite) {
+                throw ite.getCause();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the physical connection only when it is really needed so the read only flag can be taken into account.
+     */
+    private class LazyConnectionHandler implements InvocationHandler {
+        private final String user;
+        private final String password;
+        private Connection delegate;
+        private boolean closed;
+        private Boolean readOnly;
+        private Boolean autoCommit;
+        private Integer transactionIsolation;
+
+        private LazyConnectionHandler(final String user, final String password) {
+            this.user = user;
+            this.password = password;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if (Object.class.equals(method.getDeclaringClass())) {
+                if ("toString".equals(name)) {
+                    return "ReadWriteConnection[" + (delegate == null ? "not connected" : delegate) + "]";
+                }
+                if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                }
+            }
+
+            if (delegate == null) {
+                switch (name) {
+                    case "close":
+                        closed = true;
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "setReadOnly":
+                        readOnly = (Boolean) args[0];
+                        return null;
+                    case "isReadOnly":
+                        return readOnly != null && readOnly;
+                    case "setAutoCommit":
+                        autoCommit = (Boolean) args[0];
+                        return null;
+                    case "setTransactionIsolation":
+                        transactionIsolation = (Integer) args[0];
+                        return null;
+                    case "getAutoCommit":
+                        if (autoCommit != null) {
+                            return autoCommit;
+                        }
+                        break;
+                    case "getTransactionIsolation":
+                        if (transactionIsolation != null) {
+                            return transactionIsolation;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("Connection is closed");
+                }
+                delegate = connect();
+            }
+
+            try {
+                return method.invoke(delegate, args);
+            } catch (final InvocationTargetException ite) {
+                throw ite.getCause();
+            }
+        }
+
+        private Connection connect() throws SQLException {
+            final Connection connection = ReadWriteRouter.this.connect(readOnly, user, password);
+            try {
+                if (readOnly != null) {
+                    connection.setReadOnly(readOnly);
+                }
+                if (autoCommit != null) {
+                    connection.setAutoCommit(autoCommit);
+                }
+                if (transactionIsolation != null) {
+                    connection.setTransactionIsolation(transactionIsolation);
+                }
+            } catch (final SQLException e) {
+                connection.close();
+                throw e;
+            }
+            return connection;
+        }
+    }
+}
@@ -43,6 +43,7 @@ public class ManagedExecutorServiceImplFactory {
     private Duration keepAlive = new Duration("5 second");
     private int queue = 15;
     private String threadFactory;
+    private boolean virtualThreads;
 
     private String context;
 
@@ -80,14 +81,16 @@ public class ManagedExecutorServiceImplFactory {
             blockingQueue = new ArrayBlockingQueue<>(queue);
         }
 
-        ManagedThreadFactory managedThreadFactory;
-        try {
-            managedThreadFactory = "org.apache.openejb.threads.impl.ManagedThreadFactoryImpl".equals(threadFactory) ?
-                    new ManagedThreadFactoryImpl(ManagedThreadFactoryImpl.DEFAULT_PREFIX, null, ContextServiceImplFactory.lookupOrDefault(context)) :
-                    ThreadFactories.findThreadFactory(threadFactory);
-        } catch (final Exception e) {
-            Logger.getInstance(LogCategory.OPENEJB, ManagedExecutorServiceImplFactory.class).warning("Can't create configured thread factory: " + threadFactory, e);
-            managedThreadFactory = new ManagedThreadFactoryImpl(ManagedThreadFactoryImpl.DEFAULT_PREFIX, null, ContextServiceImplFactory.lookupOrDefault(context));
+        ManagedThreadFactory managedThreadFactory = virtualThreads ? ThreadFactories.findVirtualThreadFactory(context, threadFactory, ManagedExecutorServiceImplFactory.class) : null;
+        if (managedThreadFactory == null) {
+            try {
+                managedThreadFactory = "org.apache.openejb.threads.impl.ManagedThreadFactoryImpl".equals(threadFactory) ?
+                        new ManagedThreadFactoryImpl(ManagedThreadFactoryImpl.DEFAULT_PREFIX, null, ContextServiceImplFactory.lookupOrDefault(context)) :
+                        ThreadFactories.findThreadFactory(threadFactory);
+            } catch (final Exception e) {
+                Logger.getInstance(LogCategory.OPENEJB, ManagedExecutorServiceImplFactory.class).warning("Can't create configured thread factory: " + threadFactory, e);
+                managedThreadFactory = new ManagedThreadFactoryImpl(ManagedThreadFactoryImpl.DEFAULT_PREFIX, null, ContextServiceImplFactory.lookupOrDefault(context));
+            }
         }
 
         if (core > max) {
@@ -120,6 +123,10 @@ public class ManagedExecutorServiceImplFactory {
         this.threadFactory = threadFactory;
     }
 
+    public void setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     public String getContext() {
         return context;
     }
@@ -32,6 +32,7 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 public class ManagedScheduledExecutorServiceImplFactory {
     private int core = 5;
     private String threadFactory = ManagedThreadFactoryImpl.class.getName();
+    private boolean virtualThreads;
 
     private String context;
 
@@ -43,12 +44,14 @@ public class ManagedScheduledExecutorServiceImplFactory {
     }
 
     private ScheduledExecutorService createScheduledExecutorService() {
-        ManagedThreadFactory managedThreadFactory;
-        try {
-            managedThreadFactory = ThreadFactories.findThreadFactory(threadFactory);
-        } catch (final Exception e) {
-            Logger.getInstance(LogCategory.OPENEJB, ManagedScheduledExecutorServiceImplFactory.class).warning("Unable to create configured thread factory: " + threadFactory, e);
-            managedThreadFactory = new ManagedThreadFactoryImpl(ManagedThreadFactoryImpl.DEFAULT_PREFIX, null, ContextServiceImplFactory.lookupOrDefault(context));
+        ManagedThreadFactory managedThreadFactory = virtualThreads ? ThreadFactories.findVirtualThreadFactory(context, threadFactory, ManagedScheduledExecutorServiceImplFactory.class) : null;
+        if (managedThreadFactory == null) {
+            try {
+                managedThreadFactory = ThreadFactories.findThreadFactory(threadFactory);
+            } catch (final Exception e) {
+                Logger.getInstance(LogCategory.OPENEJB, ManagedScheduledExecutorServiceImplFactory.class).warning("Unable to create configured thread factory: " + threadFactory, e);
+                managedThreadFactory = new ManagedThreadFactoryImpl(ManagedThreadFactoryImpl.DEFAULT_PREFIX, null, ContextServiceImplFactory.lookupOrDefault(context));
+            }
         }
 
         return new ScheduledThreadPoolExecutor(core, managedThreadFactory, CURejectHandler.INSTANCE);
@@ -62,6 +65,10 @@ public class ManagedScheduledExecutorServiceImplFactory {
         this.threadFactory = threadFactory;
     }
 
+    public void setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     public String getContext() {
         return context;
     }
@@ -18,6 +18,11 @@ package org.apache.openejb.resource.thread;
 
 import org.apache.openejb.loader.SystemInstance;
 import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.threads.impl.ContextServiceImplFactory;
+import org.apache.openejb.threads.impl.ManagedThreadFactoryImpl;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+import org.apache.openejb.util.VirtualThreadFactory;
 
 import jakarta.enterprise.concurrent.ManagedThreadFactory;
 import javax.naming.NamingException;
@@ -26,6 +31,8 @@ import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
 
 final class ThreadFactories {
+    private static final String VIRTUAL_PREFIX = "managed-virtual-thread-";
+
     private ThreadFactories() {
         // no-op
     }
@@ -44,6 +51,22 @@ final class ThreadFactories {
         }
     }
 
+    /**
+     * @param threadFactory the configured thread factory, ignored when virtual threads are used
+     * @return a factory of virtual threads propagating the context of the tasks,
+     * null if the JVM does not support virtual threads
+     */
+    public static ManagedThreadFactory findVirtualThreadFactory(final String context, final String threadFactory, final Class<?> owner) {
+        if (VirtualThreadFactory.isSupported()) {
+            if (threadFactory != null && !ManagedThreadFactoryImpl.class.getName().equals(threadFactory)) {
+                Logger.getInstance(LogCategory.OPENEJB, owner).warning("ThreadFactory " + threadFactory + " is ignored, VirtualThreads creates the threads");
+            }
+            return new ManagedThreadFactoryImpl(VIRTUAL_PREFIX, null, ContextServiceImplFactory.lookupOrDefault(context), true);
+        }
+        Logger.getInstance(LogCategory.OPENEJB, owner).warning("VirtualThreads needs Java 21 or later, using platform threads");
+        return null;
+    }
+
     private static final class ManageMyThreadFactory implements ManagedThreadFactory {
         private final ThreadFactory delegate;
 
@@ -19,9 +19,11 @@ package org.apache.openejb.threads.impl;
 import jakarta.enterprise.concurrent.ManageableThread;
 import jakarta.enterprise.concurrent.ManagedThreadFactory;
 import org.apache.openejb.threads.task.CURunnable;
+import org.apache.openejb.util.VirtualThreadFactory;
 
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ManagedThreadFactoryImpl implements ManagedThreadFactory {
@@ -31,6 +33,7 @@ public class ManagedThreadFactoryImpl implements ManagedThreadFactory {
     private final ContextServiceImpl contextService;
     private final String prefix;
     private final Integer priority;
+    private final ThreadFactory virtualThreads;
 
     // Invoked by ThreadFactories.findThreadFactory via reflection
     @SuppressWarnings("unused")
@@ -39,15 +42,24 @@ public class ManagedThreadFactoryImpl implements ManagedThreadFactory {
     }
 
     public ManagedThreadFactoryImpl(final String prefix, final Integer priority, final ContextServiceImpl contextService) {
+        this(prefix, priority, contextService, false);
+    }
+
+    /**
+     * @param virtual create virtual threads, only used internally by the executor services
+     *                since virtual threads are not {@link ManageableThread}s
+     */
+    public ManagedThreadFactoryImpl(final String prefix, final Integer priority, final ContextServiceImpl contextService, final boolean virtual) {
         this.prefix = prefix;
         this.priority = priority;
         this.contextService = contextService;
+        this.virtualThreads = virtual ? new VirtualThreadFactory(prefix) : null;
     }
 
     @Override
     public Thread newThread(final Runnable r) {
         final CURunnable wrapper = new CURunnable(r, contextService);
-        final Thread thread = new ManagedThread(wrapper);
+        final Thread thread = virtualThreads != null ? virtualThreads.newThread(wrapper) : new ManagedThread(wrapper);
         thread.setDaemon(true);
         thread.setName(prefix + ID.incrementAndGet());
         thread.setContextClassLoader(ManagedThreadFactoryImpl.class.getClassLoader()); // ensure we use container loader as main context classloader to avoid leaks
@@ -24,7 +24,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -38,7 +38,11 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,10 +65,10 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 @SuppressWarnings("StatementWithEmptyBody")
 public class Pool<T> {
 
-    private final LinkedList<Entry> pool = new LinkedList<>();
-    private final Semaphore instances;
-    private final Semaphore available;
-    private final Semaphore minimum;
+    private final IdleEntries<Entry> pool;
+    private final Permits instances;
+    private final Permits available;
+    private final Permits minimum;
     private final Executor executor;
 
     @Managed
@@ -102,8 +106,15 @@ public class Pool<T> {
         this(max, min, strict, 0, 0, 0, null, null, false, -1, false, false);
     }
 
-    @SuppressWarnings("unchecked")
     public Pool(final int max, final int min, final boolean strict, final long maxAge, final long idleTimeout, long sweepInterval, final Executor executor, final Supplier<T> supplier, final boolean replaceAged, final double maxAgeOffset, final boolean garbageCollection, final boolean replaceFlushed) {
+        this(max, min, strict, maxAge, idleTimeout, sweepInterval, executor, supplier, replaceAged, maxAgeOffset, garbageCollection, replaceFlushed, 0);
+    }
+
+    /**
+     * @param stripes number of stripes the idle instances and the permits are spread over, 0 keeps a single shared list
+     */
+    @SuppressWarnings("unchecked")
+    public Pool(final int max, final int min, final boolean strict, final long maxAge, final long idleTimeout, long sweepInterval, final Executor executor, final Supplier<T> supplier, final boolean replaceAged, final double maxAgeOffset, final boolean garbageCollection, final boolean replaceFlushed, final int stripes) {
         if (min > max) {
             greater("max", max, "min", min);
         }
@@ -112,9 +123,15 @@ public class Pool<T> {
         }
         this.executor = executor != null ? executor : createExecutor();
         this.supplier = supplier != null ? supplier : new NoSupplier();
-        this.available = strict ? new Semaphore(max) : new Overdraft(max);
-        this.minimum = new Semaphore(min);
-        this.instances = new Semaphore(max);
+        if (stripes > 0) {
+            this.available = strict ? new StripedPermits(max, stripes) : new Overdraft(max);
+            this.minimum = new StripedPermits(min, stripes);
+            this.instances = new StripedPermits(max, stripes);
+        } else {
+            this.available = strict ? new SemaphorePermits(max) : new Overdraft(max);
+            this.minimum = new SemaphorePermits(min);
+            this.instances = new SemaphorePermits(max);
+        }
         this.maxAge = maxAge;
         this.maxAgeOffset = maxAgeOffset;
         this.replaceAged = replaceAged;
@@ -126,6 +143,7 @@ public class Pool<T> {
         this.sweeper = new Sweeper(idleTimeout, max);
         this.stats = new Stats(min, max, idleTimeout);
         this.garbageCollection = garbageCollection;
+        this.pool = stripes > 0 ? new StripedEntries<>(stripes) : new LinkedEntries<>();
     }
 
     public Pool start() {
@@ -253,12 +271,9 @@ public class Pool<T> {
 
         Entry entry;
         do {
-            synchronized (pool) {
-                try {
-                    entry = pool.removeFirst();
-                } catch (final NoSuchElementException e) {
-                    return null;
-                }
+            entry = pool.poll();
+            if (entry == null) {
+                return null;
             }
 
             final Pool<T>.Entry.Instance instance = entry.soft.get();
@@ -401,9 +416,7 @@ public class Pool<T> {
                     entry.hard.set(obj);
                 }
 
-                synchronized (pool) {
-                    pool.addFirst(entry);
-                }
+                pool.offer(entry);
                 added = true;
             }
         } finally {
@@ -547,7 +560,7 @@ public class Pool<T> {
          * object wrapped by this Entry.
          *
          * This helps ensure that when an Entry is returned to the pool it is
-         * always safe to call {@link Semaphore#release()} which increases the
+         * always safe to call {@link Permits#release()} which increases the
          * permit size by one.
          *
          * @param obj    object that this Entry will wrap
@@ -805,6 +818,106 @@ public class Pool<T> {
         FULL, IDLE, AGED, FLUSHED, GC
     }
 
+    /**
+     * Holds the idle entries of the pool, most recently used first.
+     * Permits are handled by the pool, implementations only store.
+     */
+    private interface IdleEntries<E> {
+
+        /**
+         * @return the most recently pushed entry or null if there is none
+         */
+        E poll();
+
+        void offer(E entry);
+    }
+
+    private static final class LinkedEntries<E> implements IdleEntries<E> {
+        private final LinkedList<E> entries = new LinkedList<>();
+
+        @Override
+        public E poll() {
+            synchronized (entries) {
+                return entries.pollFirst();
+            }
+        }
+
+        @Override
+        public void offer(final E entry) {
+            synchronized (entries) {
+                entries.addFirst(entry);
+            }
+        }
+    }
+
+    /**
+     * Spreads the idle entries over lock-free deques selected by the calling thread
+     * so that concurrent pop()/push() calls mostly hit different stripes.
+     *
+     * A thread pushes and pops on the head of its own stripe, keeping its instances warm,
+     * and steals from the tail (the coldest entries) of the other stripes when its own
+     * stripe is empty.
+     */
+    private static final class StripedEntries<E> implements IdleEntries<E> {
+        private final ConcurrentLinkedDeque<E>[] stripes;
+        private final int mask;
+
+        @SuppressWarnings("unchecked")
+        private StripedEntries(final int count) {
+            final int size = stripes(count);
+            this.stripes = new ConcurrentLinkedDeque[size];
+            for (int i = 0; i < size; i++) {
+                stripes[i] = new ConcurrentLinkedDeque<>();
+            }
+            this.mask = size - 1;
+        }
+
+        @Override
+        public E poll() {
+            final int home = stripe(mask);
+            final E local = stripes[home].pollFirst();
+            if (local != null) {
+                return local;
+            }
+
+            // two passes so an entry moving between stripes while we steal is not missed
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 1; i <= mask + 1; i++) {
+                    final E stolen = stripes[(home + i) & mask].pollLast();
+                    if (stolen != null) {
+                        return stolen;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void offer(final E entry) {
+            stripes[stripe(mask)].addFirst(entry);
+        }
+    }
+
+    /**
+     * @return the power of two number of stripes to use for the requested count.
+     */
+    private static int stripes(final int count) {
+        int size = 1;
+        while (size < count) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * @return the stripe of the calling thread.
+     */
+    private static int stripe(final int mask) {
+        final long id = Thread.currentThread().getId();
+        final int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
     private final class Expired {
         private final Entry entry;
         private final AtomicBoolean discarded = new AtomicBoolean();
@@ -947,82 +1060,188 @@ public class Pool<T> {
         }
     }
 
-    private static final class Overdraft extends Semaphore {
+    /**
+     * The permits of the pool, only the operations the pool needs.
+     */
+    private interface Permits {
 
-        private static final long serialVersionUID = 1L;
-        private final AtomicInteger permits = new AtomicInteger();
+        boolean tryAcquire();
 
-        public Overdraft(final int permits) {
-            super(0);
-            this.permits.set(permits);
-        }
+        boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException;
 
-        @Override
-        public void acquire() throws InterruptedException {
-            permits.decrementAndGet();
-        }
+        void release();
 
-        @Override
-        public void acquireUninterruptibly() {
-            permits.decrementAndGet();
+        int availablePermits();
+
+        int drainPermits();
+    }
+
+    private static final class SemaphorePermits implements Permits {
+        private final Semaphore semaphore;
+
+        private SemaphorePermits(final int permits) {
+            this.semaphore = new Semaphore(permits);
         }
 
         @Override
         public boolean tryAcquire() {
-            permits.decrementAndGet();
-            return true;
+            return semaphore.tryAcquire();
         }
 
         @Override
         public boolean tryAcquire(final long timeout, final TimeUnit unit) throws InterruptedException {
-            permits.decrementAndGet();
-            return true;
+            return semaphore.tryAcquire(timeout, unit);
         }
 
         @Override
-        public void acquire(final int permits) throws InterruptedException {
-            this.permits.addAndGet(-permits);
+        public void release() {
+            semaphore.release();
         }
 
         @Override
-        public void acquireUninterruptibly(final int permits) {
-            this.permits.addAndGet(-permits);
+        public int availablePermits() {
+            return semaphore.availablePermits();
         }
 
         @Override
-        public boolean tryAcquire(final int permits) {
-            this.permits.addAndGet(-permits);
-            return true;
+        public int drainPermits() {
+            return semaphore.drainPermits();
+        }
+    }
+
+    private static final class Overdraft implements Permits {
+
+        private final LongAdder permits = new LongAdder(); // never blocks so only the stats read the sum
+
+        public Overdraft(final int permits) {
+            this.permits.add(permits);
         }
 
         @Override
-        public boolean tryAcquire(final int permits, final long timeout, final TimeUnit unit) throws InterruptedException {
-            this.permits.addAndGet(-permits);
+        public boolean tryAcquire() {
+            permits.decrement();
             return true;
         }
 
         @Override
-        public void release() {
-            this.permits.incrementAndGet();
+        public boolean tryAcquire(final long timeout, final TimeUnit unit) {
+            permits.decrement();
+            return true;
         }
 
         @Override
-        public void release(final int permits) {
-            this.permits.addAndGet(permits);
+        public void release() {
+            this.permits.increment();
         }
 
         @Override
         public int availablePermits() {
-            return permits.get();
+            return permits.intValue();
         }
 
         @Override
         public int drainPermits() {
             return 0;
         }
+    }
+
+    /**
+     * Permits spread over padded cells selected by the calling thread so that concurrent
+     * acquire/release calls mostly touch different cache lines instead of a single counter.
+     *
+     * A thread takes a permit from its own cell first and scans the other cells when it is empty,
+     * releasing gives the permit back to the cell of the calling thread. Threads waiting for a permit
+     * are woken by the release of one.
+     */
+    private static final class StripedPermits implements Permits {
+
+        private static final int PADDING = 16; // 64 bytes between two cells
+
+        private final AtomicIntegerArray cells;
+        private final int mask;
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+
+        private StripedPermits(final int permits, final int count) {
+            final int size = stripes(count);
+            this.mask = size - 1;
+            this.cells = new AtomicIntegerArray(size * PADDING);
+            for (int i = 0; i < size; i++) {
+                cells.set(i * PADDING, permits / size + (i < permits % size ? 1 : 0));
+            }
+        }
 
         @Override
-        protected void reducePermits(final int reduction) {
+        public boolean tryAcquire() {
+            final int home = stripe(mask);
+            do {
+                for (int i = 0; i <= mask; i++) {
+                    final int cell = ((home + i) & mask) * PADDING;
+                    int current;
+                    while ((current = cells.get(cell)) > 0) {
+                        if (cells.compareAndSet(cell, current, current - 1)) {
+                            return true;
+                        }
+                    }
+                }
+            } while (availablePermits() > 0); // released in a cell already scanned
+            return false;
+        }
+
+        @Override
+        public boolean tryAcquire(final long timeout, final TimeUnit unit) throws InterruptedException {
+            if (tryAcquire()) {
+                return true;
+            }
+
+            long remaining = unit.toNanos(timeout);
+            lock.lockInterruptibly();
+            waiters.incrementAndGet();
+            try {
+                // a release either happens before this tryAcquire() or sees the waiter and signals it
+                while (!tryAcquire()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void release() {
+            cells.incrementAndGet(stripe(mask) * PADDING);
+            if (waiters.get() > 0) {
+                lock.lock();
+                try {
+                    released.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public int availablePermits() {
+            int permits = 0;
+            for (int i = 0; i <= mask; i++) {
+                permits += cells.get(i * PADDING);
+            }
+            return permits;
+        }
+
+        @Override
+        public int drainPermits() {
+            int permits = 0;
+            for (int i = 0; i <= mask; i++) {
+                permits += cells.getAndSet(i * PADDING, 0);
+            }
+            return permits;
         }
     }
 
@@ -1124,6 +1343,7 @@ public class Pool<T> {
         private boolean replaceAged;
         private boolean replaceFlushed;
         private boolean garbageCollection = true;
+        private int stripes;
 
         public Builder(final Builder<T> that) {
             this.max = that.max;
@@ -1138,6 +1358,7 @@ public class Pool<T> {
             this.replaceAged = that.replaceAged;
             this.replaceFlushed = that.replaceFlushed;
             this.garbageCollection = that.garbageCollection;
+            this.stripes = that.stripes;
         }
 
         public Builder() {
@@ -1159,6 +1380,21 @@ public class Pool<T> {
             this.replaceAged = replaceAged;
         }
 
+        public int getStripes() {
+            return stripes;
+        }
+
+        /**
+         * Number of stripes used to store the idle instances.
+         * 0 (the default) uses a single synchronized list,
+         * a negative value uses one stripe per available processor.
+         *
+         * @param stripes int
+         */
+        public void setStripes(final int stripes) {
+            this.stripes = stripes < 0 ? Runtime.getRuntime().availableProcessors() : stripes;
+        }
+
         public void setReplaceFlushed(final boolean replaceFlushed) {
             this.replaceFlushed = replaceFlushed;
         }
@@ -1239,7 +1475,7 @@ public class Pool<T> {
         @SuppressWarnings("unchecked")
         public Pool<T> build() {
             //noinspection unchecked
-            final Pool pool = new Pool(max, min, strict, maxAge.getTime(MILLISECONDS), idleTimeout.getTime(MILLISECONDS), interval.getTime(MILLISECONDS), executor, supplier, replaceAged, maxAgeOffset, this.garbageCollection, replaceFlushed);
+            final Pool pool = new Pool(max, min, strict, maxAge.getTime(MILLISECONDS), idleTimeout.getTime(MILLISECONDS), interval.getTime(MILLISECONDS), executor, supplier, replaceAged, maxAgeOffset, this.garbageCollection, replaceFlushed, stripes);
             if (scheduledExecutorService != null) {
                 pool.scheduler.set(scheduledExecutorService);
             }
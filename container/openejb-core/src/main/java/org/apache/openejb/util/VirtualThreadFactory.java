@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.util;
+
+import org.apache.openejb.core.ParentClassLoaderFinder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.openejb.util.Join.join;
+
+/**
+ * Creates virtual threads, available on Java 21 and later.
+ *
+ * The JDK api is looked up reflectively since the container still runs on
+ * older versions, use {@link #isSupported()} before creating a factory.
+ * Pools built on top of it keep their maximum size which then acts as
+ * concurrency limit: blocked tasks no longer hold a platform thread but the
+ * number of tasks hitting a datasource or a remote system stays bounded.
+ *
+ * @version $Rev$ $Date$
+ */
+public class VirtualThreadFactory implements ThreadFactory {
+
+    private static final ThreadFactory VIRTUAL = virtualThreadFactory();
+
+    private final String name;
+    private final AtomicInteger ids = new AtomicInteger(0);
+
+    public VirtualThreadFactory(final Object... name) {
+        if (VIRTUAL == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running " + System.getProperty("java.version"));
+        }
+        this.name = join(" ", name).trim();
+    }
+
+    public static boolean isSupported() {
+        return VIRTUAL != null;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        final Thread thread = VIRTUAL.newThread(runnable);
+        thread.setName(name + " - " + ids.incrementAndGet());
+        thread.setContextClassLoader(ParentClassLoaderFinder.Helper.get());
+        return thread;
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return ThreadFactory.class.cast(factory.invoke(ofVirtual.invoke(null)));
+        } catch (final Exception | LinkageError e) {
+            return null;
+        }
+    }
+}
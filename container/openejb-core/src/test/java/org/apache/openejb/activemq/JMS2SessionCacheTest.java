@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.activemq;
+
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.resource.activemq.jms2.SessionPool;
+import org.apache.openejb.resource.activemq.jms2.TomEERAConnectionFactory;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testing.SimpleLog;
+import org.apache.openejb.testng.PropertiesBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.annotation.Resource;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSConsumer;
+import jakarta.jms.JMSContext;
+import jakarta.jms.Message;
+import jakarta.jms.Queue;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@SimpleLog
+@RunWith(ApplicationComposer.class)
+public class JMS2SessionCacheTest {
+    @Configuration
+    public Properties config() {
+        return new PropertiesBuilder()
+                .p("amq", "new://Resource?type=ActiveMQResourceAdapter")
+                .p("amq.DataSource", "")
+                .p("amq.BrokerXmlConfig", "broker:(vm://localhost)")
+
+                .p("target", "new://Resource?type=Queue")
+
+                .p("cf", "new://Resource?type=" + ConnectionFactory.class.getName())
+                .p("cf.ResourceAdapter", "amq")
+                .p("cf.SessionCacheSize", "2")
+
+                .build();
+    }
+
+    @Module
+    public EjbJar jar() {
+        return new EjbJar();
+    }
+
+    @Resource(name = "target")
+    private Queue destination;
+
+    @Resource(name = "cf")
+    private ConnectionFactory cf;
+
+    @Test
+    public void reuseSessions() throws Exception {
+        final SessionPool pool = TomEERAConnectionFactory.class.cast(cf).getSessionPool();
+        assertNotNull(pool);
+
+        for (int i = 0; i < 5; i++) {
+            try (final JMSContext context = cf.createContext()) {
+                context.createProducer().setPriority(9).send(destination, "#" + i);
+            }
+        }
+        assertEquals(1, pool.getMisses());
+        assertEquals(4, pool.getHits());
+        assertEquals(1, pool.getIdle());
+
+        try (final JMSContext context = cf.createContext()) { // producer settings don't leak to the next context
+            assertEquals(Message.DEFAULT_PRIORITY, context.createProducer().getPriority());
+        }
+
+        try (final JMSContext context = cf.createContext()) {
+            final JMSConsumer consumer = context.createConsumer(destination);
+            for (int i = 0; i < 5; i++) {
+                assertEquals("#" + i, consumer.receiveBody(String.class, 5000));
+            }
+            assertNull(consumer.receiveNoWait());
+        }
+        assertEquals(0, pool.getIdle()); // a context which consumed closes its session
+
+        try (final JMSContext context = cf.createContext(JMSContext.CLIENT_ACKNOWLEDGE)) {
+            context.createProducer().send(destination, "not cached");
+        }
+        assertEquals(0, pool.getIdle());
+    }
+
+    @Test
+    public void closedSessionsAreNotReused() throws Exception {
+        final SessionPool pool = TomEERAConnectionFactory.class.cast(cf).getSessionPool();
+        // each lookup creates a connection factory, they share the pool of the resource
+        assertSame(pool, TomEERAConnectionFactory.class.cast(SystemInstance.get().getComponent(ContainerSystem.class)
+            .getJNDIContext().lookup("openejb/Resource/cf")).getSessionPool());
+
+        try (final JMSContext context = cf.createContext()) {
+            context.createProducer().send(destination, "first");
+        }
+        final SessionPool.Entry entry = pool.acquire(null, null, JMSContext.AUTO_ACKNOWLEDGE);
+        assertNotNull(entry);
+        entry.getSession().close();
+        assertTrue(pool.release(null, null, JMSContext.AUTO_ACKNOWLEDGE, entry.getConnection(), entry.getSession(), null));
+
+        try (final JMSContext context = cf.createContext()) {
+            context.createProducer().send(destination, "second");
+        }
+        assertEquals(1, pool.getEvictions());
+
+        try (final JMSContext context = cf.createContext()) {
+            final JMSConsumer consumer = context.createConsumer(destination);
+            assertEquals("first", consumer.receiveBody(String.class, 5000));
+            assertEquals("second", consumer.receiveBody(String.class, 5000));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.assembler.classic;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.jee.jpa.unit.Persistence;
+import org.apache.openejb.jee.jpa.unit.PersistenceUnit;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.ejb.EJB;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.PersistenceContext;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Several ejb modules and persistence units built concurrently end up wired as with the sequential assembly.
+ */
+@RunWith(ApplicationComposer.class)
+public class ParallelAssemblyApplicationTest {
+    @EJB
+    private Shop shop;
+
+    @EJB
+    private Purchases purchases;
+
+    @EJB
+    private Products products;
+
+    @Configuration
+    public Properties config() {
+        final Properties p = new Properties();
+        p.put(ParallelAssembly.ACTIVE, "true");
+        p.put(ParallelAssembly.THREADS, "4"); // whatever the number of processors of the build machine
+        p.put("purchasesDb", "new://Resource?type=DataSource");
+        p.put("purchasesDb.JdbcUrl", "jdbc:hsqldb:mem:parallel-purchases");
+        p.put("productsDb", "new://Resource?type=DataSource");
+        p.put("productsDb.JdbcUrl", "jdbc:hsqldb:mem:parallel-products");
+        return p;
+    }
+
+    @Module
+    public Persistence persistence() {
+        return new Persistence(unit("purchases", "purchasesDb", Purchase.class), unit("products", "productsDb", Product.class));
+    }
+
+    @Module
+    public EjbJar purchasesModule() {
+        return new EjbJar().enterpriseBean(new StatelessBean(Purchases.class).localBean());
+    }
+
+    @Module
+    public EjbJar productsModule() {
+        return new EjbJar().enterpriseBean(new StatelessBean(Products.class).localBean());
+    }
+
+    @Module
+    public EjbJar shopModule() {
+        return new EjbJar().enterpriseBean(new SingletonBean(Shop.class).localBean());
+    }
+
+    @Test
+    public void modulesAndUnitsAreWired() {
+        final long[] book = shop.buy("book");
+        final long[] pen = shop.buy("pen");
+        assertEquals("book", purchases.find(book[0]));
+        assertEquals("book", products.find(book[1]));
+        assertEquals("pen", purchases.find(pen[0]));
+        assertEquals("pen", products.find(pen[1]));
+
+        // one module per @Module, all in the same application
+        final ContainerSystem containerSystem = SystemInstance.get().getComponent(ContainerSystem.class);
+        final Set<String> modules = new HashSet<>();
+        for (final String bean : new String[]{"Purchases", "Products", "Shop"}) {
+            final BeanContext context = containerSystem.getBeanContext(bean);
+            assertNotNull(bean, context);
+            assertSame(containerSystem.getBeanContext("Shop").getModuleContext().getAppContext(), context.getModuleContext().getAppContext());
+            modules.add(context.getModuleName());
+        }
+        assertEquals(3, modules.size());
+    }
+
+    private static PersistenceUnit unit(final String name, final String dataSource, final Class<?> entity) {
+        final PersistenceUnit unit = new PersistenceUnit(name);
+        unit.setJtaDataSource(dataSource);
+        unit.addClass(entity);
+        unit.setProperty("openjpa.jdbc.SynchronizeMappings", "buildSchema(ForeignKeys=true)");
+        unit.setProperty("openjpa.RuntimeUnenhancedClasses", "supported");
+        unit.setExcludeUnlistedClasses(true);
+        return unit;
+    }
+
+    public static class Shop {
+        @EJB
+        private Purchases purchases;
+
+        @EJB
+        private Products products;
+
+        public long[] buy(final String name) {
+            return new long[]{purchases.create(name), products.create(name)};
+        }
+    }
+
+    public static class Purchases {
+        @PersistenceContext(unitName = "purchases")
+        private EntityManager em;
+
+        public long create(final String name) {
+            final Purchase purchase = new Purchase();
+            purchase.setName(name);
+            em.persist(purchase);
+            em.flush();
+            return purchase.getId();
+        }
+
+        public String find(final long id) {
+            final Purchase purchase = em.find(Purchase.class, id);
+            return purchase == null ? null : purchase.getName();
+        }
+    }
+
+    public static class Products {
+        @PersistenceContext(unitName = "products")
+        private EntityManager em;
+
+        public long create(final String name) {
+            final Product product = new Product();
+            product.setName(name);
+            em.persist(product);
+            em.flush();
+            return product.getId();
+        }
+
+        public String find(final long id) {
+            final Product product = em.find(Product.class, id);
+            return product == null ? null : product.getName();
+        }
+    }
+
+    @Entity
+    public static class Purchase {
+        @Id
+        @GeneratedValue
+        private long id;
+
+        private String name;
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+
+    @Entity
+    public static class Product {
+        @Id
+        @GeneratedValue
+        private long id;
+
+        private String name;
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+}
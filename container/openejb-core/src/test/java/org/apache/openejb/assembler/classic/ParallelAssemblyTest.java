@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.assembler.classic;
+
+import org.apache.openejb.OpenEJBException;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelAssemblyTest {
+    @Test
+    public void concurrentKeepsOrder() throws Exception {
+        final ClassLoader loader = new URLClassLoader(new URL[0]);
+        final CountDownLatch latch = new CountDownLatch(4);
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        try (final ParallelAssembly assembly = new ParallelAssembly("test", 4)) {
+            assertTrue(assembly.isParallel());
+            final List<String> result = assembly.map(Arrays.asList(1, 2, 3, 4), loader, new ParallelAssembly.Task<Integer, String>() {
+                @Override
+                public String run(final Integer input) throws Exception {
+                    assertSame(loader, Thread.currentThread().getContextClassLoader());
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                    assertTrue(latch.await(1, TimeUnit.MINUTES)); // all tasks run at the same time
+                    return "#" + input;
+                }
+            });
+            assertEquals(Arrays.asList("#1", "#2", "#3", "#4"), result);
+            assertEquals(4, threads.size());
+            assertFalse(threads.contains(Thread.currentThread()));
+        }
+    }
+
+    @Test
+    public void sequential() throws Exception {
+        final ParallelAssembly assembly = new ParallelAssembly("test", 1);
+        assertFalse(assembly.isParallel());
+        final List<Thread> threads = new ArrayList<>();
+        assembly.map(Arrays.asList(1, 2), null, new ParallelAssembly.Task<Integer, Integer>() {
+            @Override
+            public Integer run(final Integer input) {
+                threads.add(Thread.currentThread());
+                return input;
+            }
+        });
+        assertEquals(Arrays.asList(Thread.currentThread(), Thread.currentThread()), threads);
+    }
+
+    @Test
+    public void failureDiscardsBuiltResults() throws Exception {
+        final List<Integer> discarded = Collections.synchronizedList(new ArrayList<Integer>());
+        try (final ParallelAssembly assembly = new ParallelAssembly("test", 2)) {
+            assembly.map(Arrays.asList(1, 2, 3), getClass().getClassLoader(), new ParallelAssembly.Task<Integer, Integer>() {
+                @Override
+                public Integer run(final Integer input) throws Exception {
+                    if (input == 2) {
+                        throw new OpenEJBException("failed " + input);
+                    }
+                    return input;
+                }
+
+                @Override
+                public void discard(final Integer result) {
+                    discarded.add(result);
+                }
+            });
+            fail();
+        } catch (final OpenEJBException e) {
+            assertEquals("failed 2", e.getMessage());
+        }
+        Collections.sort(discarded);
+        assertEquals(Arrays.asList(1, 3), discarded);
+    }
+
+    @Test
+    public void phases() throws Exception {
+        final ParallelAssembly assembly = new ParallelAssembly("test", 1);
+        assembly.phase("first");
+        Thread.sleep(20);
+        assembly.phase("second");
+        assembly.phase("first");
+        assembly.report();
+        assertEquals(Arrays.asList("first", "second"), new ArrayList<>(assembly.getPhases().keySet()));
+        assertTrue(assembly.getPhases().get("first") >= 20);
+    }
+}
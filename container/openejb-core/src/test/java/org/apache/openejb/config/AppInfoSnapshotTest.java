@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.assembler.classic.AppInfo;
+import org.apache.openejb.assembler.classic.Assembler;
+import org.apache.openejb.assembler.classic.ServiceInfo;
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.util.Archives;
+import org.junit.After;
+import org.junit.Test;
+
+import jakarta.ejb.Singleton;
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class AppInfoSnapshotTest {
+    @After
+    public void reset() {
+        SystemInstance.reset();
+    }
+
+    @Test
+    public void restart() throws Exception {
+        final File work = Files.tmpdir();
+        final File snapshots = new File(work, "snapshots");
+        final File jar = new File(work, "colors.jar");
+        Archives.jarArchive(jar, Collections.<String, Object>emptyMap(), Orange.class);
+
+        final AppInfo first = boot(snapshots).configureApplication(jar);
+        final String key = AppInfoSnapshot.key(jar);
+        final AppInfoSnapshot stored = AppInfoSnapshot.load(jar, key);
+        assertNotNull(stored);
+
+        // mark the snapshot to check the restart doesn't configure the archive again
+        AppInfoSnapshot.startRecording();
+        for (final ServiceInfo info : stored.getInstalled()) {
+            AppInfoSnapshot.installed(info);
+        }
+        stored.getAppInfo().properties.setProperty("snapshot.test.marker", "true");
+        AppInfoSnapshot.store(jar, key, stored.getAppInfo());
+        assertNull(first.properties.getProperty("snapshot.test.marker"));
+
+        // a restart uses the snapshot and installs the auto-created container again
+        final AppInfo second = boot(snapshots).configureApplication(jar);
+        assertNotSame(first, second);
+        assertEquals("true", second.properties.getProperty("snapshot.test.marker"));
+        assertEquals(first.appId, second.appId);
+        assertEquals(first.ejbJars.get(0).moduleId, second.ejbJars.get(0).moduleId);
+        final String containerId = second.ejbJars.get(0).enterpriseBeans.get(0).containerId;
+        assertNotNull(SystemInstance.get().getComponent(ContainerSystem.class).getContainer(containerId));
+
+        // another configuration invalidates it
+        boot(snapshots);
+        SystemInstance.get().setProperty("snapshot.test", "changed");
+        assertNull(AppInfoSnapshot.load(jar, AppInfoSnapshot.key(jar)));
+
+        // as a change of the server libraries
+        final File libs = Files.mkdirs(new File(work, "lib"));
+        Archives.jarArchive(new File(libs, "shared.jar"), Collections.<String, Object>emptyMap(), Orange.class);
+        boot(snapshots);
+        SystemInstance.get().setProperty("openejb.libs", libs.getAbsolutePath());
+        final String withLibs = AppInfoSnapshot.key(jar);
+        assertNotNull(withLibs);
+        Archives.jarArchive(new File(libs, "shared.jar"), Collections.<String, Object>emptyMap(), Orange.class, Yellow.class);
+        assertNotEquals(withLibs, AppInfoSnapshot.key(jar));
+
+        // as a change of the archive
+        boot(snapshots);
+        Archives.jarArchive(jar, Collections.<String, Object>emptyMap(), Orange.class, Yellow.class);
+        assertNull(AppInfoSnapshot.load(jar, AppInfoSnapshot.key(jar)));
+        final AppInfo changed = new ConfigurationFactory().configureApplication(jar);
+        assertEquals(2, changed.ejbJars.get(0).enterpriseBeans.size());
+        assertNotNull(AppInfoSnapshot.load(jar, AppInfoSnapshot.key(jar)));
+    }
+
+    private static ConfigurationFactory boot(final File snapshots) {
+        SystemInstance.reset();
+        SystemInstance.get().setProperty(AppInfoSnapshot.ACTIVE, "true");
+        SystemInstance.get().setProperty(AppInfoSnapshot.DIRECTORY, snapshots.getAbsolutePath());
+        new Assembler(); // self register
+        return new ConfigurationFactory();
+    }
+
+    @Singleton
+    public static class Orange {
+    }
+
+    @Singleton
+    public static class Yellow {
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.JaxbJavaee;
+import org.apache.openejb.jee.oejb3.JaxbOpenejbJar3;
+import org.apache.openejb.jee.oejb3.OpenejbJar;
+import org.apache.openejb.sxc.EjbJarXml;
+import org.apache.openejb.sxc.OpenejbJarXml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time to read the descriptors of a module at startup with the JAXB reader
+ * and with the StAX reader based on the generated accessors.
+ *
+ * The JAXB contexts are cached by the readers so the first invocations pay their creation,
+ * the warmup iterations hide it, run with -Djmh.warmup=0 to see the cold startup cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DescriptorReadPerfRunner {
+    private static final byte[] EJB_JAR = ("" +
+        "<ejb-jar xmlns=\"https://jakarta.ee/xml/ns/jakartaee\" version=\"4.0\">\n" +
+        "  <enterprise-beans>\n" +
+        beans() +
+        "  </enterprise-beans>\n" +
+        "  <assembly-descriptor>\n" +
+        "    <container-transaction>\n" +
+        "      <method><ejb-name>*</ejb-name><method-name>*</method-name></method>\n" +
+        "      <trans-attribute>Required</trans-attribute>\n" +
+        "    </container-transaction>\n" +
+        "  </assembly-descriptor>\n" +
+        "</ejb-jar>").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] OPENEJB_JAR = ("" +
+        "<openejb-jar xmlns=\"http://www.openejb.org/openejb-jar/1.1\">\n" +
+        "  <properties>openejb.jndiname.format={deploymentId}{interfaceType.annotationName}</properties>\n" +
+        "  <ejb-deployment ejb-name=\"Bean0\" deployment-id=\"Bean0\" container-id=\"Default Stateless Container\">\n" +
+        "    <properties>a=b</properties>\n" +
+        "  </ejb-deployment>\n" +
+        "  <ejb-deployment ejb-name=\"Bean1\" deployment-id=\"Bean1\" container-id=\"Default Stateless Container\"/>\n" +
+        "</openejb-jar>").getBytes(StandardCharsets.UTF_8);
+
+    private static String beans() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            builder.append("    <session>\n")
+                .append("      <ejb-name>Bean").append(i).append("</ejb-name>\n")
+                .append("      <business-local>org.superbiz.Bean").append(i).append("</business-local>\n")
+                .append("      <ejb-class>org.superbiz.Bean").append(i).append("Impl</ejb-class>\n")
+                .append("      <session-type>Stateless</session-type>\n")
+                .append("      <env-entry><env-entry-name>name</env-entry-name><env-entry-type>java.lang.String</env-entry-type>")
+                .append("<env-entry-value>value</env-entry-value></env-entry>\n")
+                .append("    </session>\n");
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public EjbJar ejbJarJaxb() throws Exception {
+        return (EjbJar) JaxbJavaee.unmarshalJavaee(EjbJar.class, new ByteArrayInputStream(EJB_JAR));
+    }
+
+    @Benchmark
+    public EjbJar ejbJarStax() throws Exception {
+        return EjbJarXml.unmarshal(new ByteArrayInputStream(EJB_JAR));
+    }
+
+    @Benchmark
+    public OpenejbJar openejbJarJaxb() throws Exception {
+        return JaxbOpenejbJar3.unmarshal(OpenejbJar.class, new ByteArrayInputStream(OPENEJB_JAR));
+    }
+
+    @Benchmark
+    public OpenejbJar openejbJarStax() throws Exception {
+        return OpenejbJarXml.unmarshal(new ByteArrayInputStream(OPENEJB_JAR));
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DescriptorReadPerfRunner.class.getSimpleName())
+                .forks(0)
+                .warmupIterations(Integer.getInteger("jmh.warmup", 5))
+                .measurementIterations(5)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.IO;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.xbean.finder.AnnotationFinder;
+import org.apache.xbean.finder.IAnnotationFinder;
+import org.apache.xbean.finder.archive.ClassesArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Named;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScanIndexTest {
+    private File work;
+
+    @Before
+    public void init() {
+        work = Files.mkdir(new File("target/ScanIndexTest-" + System.nanoTime()));
+        SystemInstance.get().setProperty(ScanIndex.ACTIVE, "true");
+        SystemInstance.get().setProperty(ScanIndex.DIRECTORY, new File(work, "index").getAbsolutePath());
+    }
+
+    @After
+    public void reset() {
+        SystemInstance.reset();
+        Files.delete(work);
+    }
+
+    @Test
+    public void replay() throws Exception {
+        final File jar = jar(new File(work, "beans.jar"), null, Bean.class, Plain.class, Child.class);
+        final URL url = jar.toURI().toURL();
+
+        final IAnnotationFinder scanned = finder(url);
+        final File[] indexes = new File(work, "index").listFiles();
+        assertEquals(1, indexes.length);
+
+        // same size and date but no more a jar: only the index can be read
+        final long size = jar.length();
+        final long lastModified = jar.lastModified();
+        try (final FileOutputStream out = new FileOutputStream(jar)) {
+            out.write(new byte[(int) size]);
+        }
+        assertTrue(jar.setLastModified(lastModified));
+
+        final IAnnotationFinder indexed = finder(url);
+        assertSame(scanned, indexed);
+        assertEquals(Collections.singletonList(Bean.class), indexed.findAnnotatedClasses(Stateless.class));
+        assertEquals(Collections.singletonList(Child.class), indexed.findSubclasses(Bean.class));
+
+        // changed, scanned again
+        jar(jar, null, Plain.class);
+        assertTrue(finder(url).findAnnotatedClasses(Stateless.class).isEmpty());
+    }
+
+    @Test
+    public void embedded() throws Exception {
+        final File index = new File(work, "scan.idx");
+        ScanIndex.index(new ClassesArchive(Bean.class, Plain.class), ScanIndex.content(classes(new File(work, "classes"), Bean.class, Plain.class)), index);
+
+        final File jar = jar(new File(work, "embedded.jar"), index, Bean.class, Plain.class);
+        final IAnnotationFinder finder = finder(jar.toURI().toURL());
+        assertEquals(Collections.singletonList(Bean.class), finder.findAnnotatedClasses(Stateless.class));
+        // copied next to the other indexes
+        assertEquals(1, new File(work, "index").listFiles().length);
+    }
+
+    @Test
+    public void embeddedForOtherClasses() throws Exception {
+        final File index = new File(work, "scan.idx");
+        ScanIndex.index(new ClassesArchive(Bean.class, Plain.class), ScanIndex.content(classes(new File(work, "classes"), Bean.class, Plain.class)), index);
+
+        // repackaged without Bean, the index doesn't describe the jar anymore so it is scanned
+        final File jar = jar(new File(work, "repackaged.jar"), index, Plain.class);
+        final IAnnotationFinder finder = finder(jar.toURI().toURL());
+        assertTrue(finder.findAnnotatedClasses(Stateless.class).isEmpty());
+    }
+
+    private static IAnnotationFinder finder(final URL url) {
+        final AnnotationFinder finder = new FinderFactory.OpenEJBAnnotationFinder(new ConfigurableClasspathArchive(ScanIndexTest.class.getClassLoader(), url));
+        finder.enableFindSubclasses();
+        finder.link();
+        return finder;
+    }
+
+    private static void assertSame(final IAnnotationFinder expected, final IAnnotationFinder actual) throws Exception {
+        assertEquals(names(expected.getAnnotatedClassNames()), names(actual.getAnnotatedClassNames()));
+        assertEquals(expected.findAnnotatedClasses(Named.class), actual.findAnnotatedClasses(Named.class));
+        assertEquals(expected.findAnnotatedFields(Resource.class), actual.findAnnotatedFields(Resource.class));
+        assertEquals(expected.findAnnotatedMethods(PostConstruct.class), actual.findAnnotatedMethods(PostConstruct.class));
+        assertEquals(1, actual.findAnnotatedFields(Resource.class).size());
+        assertEquals(Collections.singletonList(Bean.class.getMethod("init")), actual.findAnnotatedMethods(PostConstruct.class));
+        assertEquals(1, ((AnnotationFinder) actual).findAnnotatedMethodParameters(Named.class).size());
+    }
+
+    private static List<String> names(final List<String> names) {
+        final List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static File classes(final File folder, final Class<?>... classes) throws IOException {
+        for (final Class<?> clazz : Arrays.asList(classes)) {
+            final String name = clazz.getName().replace('.', '/') + ".class";
+            final File file = new File(folder, name);
+            Files.mkdirs(file.getParentFile());
+            try (final InputStream in = ScanIndexTest.class.getClassLoader().getResourceAsStream(name)) {
+                IO.copy(in, file);
+            }
+        }
+        return folder;
+    }
+
+    private static File jar(final File file, final File index, final Class<?>... classes) throws IOException {
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (final Class<?> clazz : Arrays.asList(classes)) {
+                final String name = clazz.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new JarEntry(name));
+                try (final InputStream in = ScanIndexTest.class.getClassLoader().getResourceAsStream(name)) {
+                    IO.copy(in, out);
+                }
+                out.closeEntry();
+            }
+            if (index != null) {
+                out.putNextEntry(new JarEntry(ScanIndex.EMBEDDED));
+                IO.copy(index, out);
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    @Stateless
+    @Named
+    public static class Bean {
+        @Resource
+        private String value;
+
+        @PostConstruct
+        public void init() {
+            // no-op
+        }
+
+        public void greet(@Named("who") final String who) {
+            // no-op
+        }
+    }
+
+    public static class Child extends Bean {
+    }
+
+    public static class Plain {
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.interceptor;
+
+import jakarta.interceptor.InvocationContext;
+import org.apache.openejb.core.Operation;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ReflectionInvocationContextTest {
+    @Test
+    public void chainOrder() throws Exception {
+        final Bean bean = new Bean();
+        final Object result = stack(bean, "echo").invoke("x");
+        assertEquals("first(second(echo(x)))", result);
+        assertEquals(Arrays.asList("first", "second"), bean.calls);
+    }
+
+    @Test
+    public void exceptionIsUnwrapped() throws Exception {
+        final IllegalStateException expected = new IllegalStateException("boom");
+        try {
+            stack(new Bean(), "fail").invoke(expected);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertSame(expected, e);
+        }
+    }
+
+    @Test
+    public void invokerIsSharedByInterceptorData() throws Exception {
+        final InterceptorData data = InterceptorData.scan(First.class);
+        final Method method = data.getAroundInvoke().iterator().next();
+        assertSame(data.getInvoker(method), data.getInvoker(method));
+    }
+
+    private static InterceptorStack stack(final Bean bean, final String name) throws Exception {
+        final List<InterceptorData> datas = new ArrayList<>();
+        final Map<String, Object> instances = new HashMap<>();
+        for (final Class<?> type : Arrays.asList(First.class, Second.class)) {
+            datas.add(InterceptorData.scan(type));
+            instances.put(type.getName(), type.getDeclaredConstructor(Bean.class).newInstance(bean));
+        }
+        final Method method = Bean.class.getMethod(name, name.equals("echo") ? String.class : RuntimeException.class);
+        return new InterceptorStack(bean, method, Operation.BUSINESS, datas, instances);
+    }
+
+    public static class Bean {
+        private final List<String> calls = new ArrayList<>();
+
+        public String echo(final String value) {
+            return "echo(" + value + ")";
+        }
+
+        public String fail(final RuntimeException e) {
+            throw e;
+        }
+    }
+
+    public static class First {
+        private final Bean bean;
+
+        public First(final Bean bean) {
+            this.bean = bean;
+        }
+
+        @jakarta.interceptor.AroundInvoke
+        private Object around(final InvocationContext ctx) throws Exception {
+            bean.calls.add("first");
+            return "first(" + ctx.proceed() + ")";
+        }
+    }
+
+    public static class Second {
+        private final Bean bean;
+
+        public Second(final Bean bean) {
+            this.bean = bean;
+        }
+
+        @jakarta.interceptor.AroundInvoke
+        public Object around(final InvocationContext ctx) throws Exception {
+            bean.calls.add("second");
+            final Object result = ctx.proceed();
+            return result instanceof String ? "second(" + result + ")" : result;
+        }
+    }
+}
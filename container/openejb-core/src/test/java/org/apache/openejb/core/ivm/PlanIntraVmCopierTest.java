@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.ivm;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PlanIntraVmCopierTest {
+    private final CountingCopier fallback = new CountingCopier();
+    private final PlanIntraVmCopier copier = new PlanIntraVmCopier(fallback);
+
+    @Test
+    public void immutablesAreShared() throws Exception {
+        final LocalDate date = LocalDate.now();
+        assertSame(date, copier.copy(date));
+        assertSame(Color.RED, copier.copy(Color.RED));
+        final Integer value = 1234567;
+        assertSame(value, copier.copy(value));
+        assertEquals(0, fallback.calls.get());
+    }
+
+    @Test
+    public void beanGraph() throws Exception {
+        final Order order = new Order();
+        order.id = 5;
+        order.customer = "c";
+        order.lines.add(new Line("a", 2));
+        order.lines.add(order.lines.get(0)); // shared reference
+        order.attributes.put("k", new int[]{1, 2});
+        order.self = order;
+        order.cache = "transient";
+
+        final Order copy = copier.copy(order);
+        assertNotSame(order, copy);
+        assertEquals(5, copy.id);
+        assertEquals("c", copy.customer);
+        assertNotSame(order.lines, copy.lines);
+        assertEquals(new Line("a", 2), copy.lines.get(0));
+        assertSame(copy.lines.get(0), copy.lines.get(1));
+        assertNotSame(order.attributes.get("k"), copy.attributes.get("k"));
+        assertEquals(2, ((int[]) copy.attributes.get("k"))[1]);
+        assertSame(copy, copy.self);
+        assertNull(copy.cache);
+        assertEquals(0, fallback.calls.get());
+    }
+
+    @Test
+    public void customSerializationUsesFallback() throws Exception {
+        final Custom custom = new Custom();
+        final Custom copy = copier.copy(custom);
+        assertNotSame(custom, copy);
+        assertTrue(copy.written);
+        assertEquals(1, fallback.calls.get());
+    }
+
+    @Test
+    public void recordCycleUsesFallback() throws Exception {
+        final List<Object> links = new ArrayList<>();
+        final Node node = new Node("n", links);
+        links.add(node);
+
+        final Node copy = copier.copy(node); // no StackOverflowError
+        assertNotSame(node, copy);
+        assertEquals("n", copy.name());
+        assertEquals(1, fallback.calls.get());
+    }
+
+    @Test
+    public void notSerializable() throws Exception {
+        try {
+            copier.copy(new Holder(new Object()));
+            fail();
+        } catch (final NotSerializableException e) {
+            // same error as with serialization
+        }
+    }
+
+    public enum Color {
+        RED
+    }
+
+    public record Line(String product, int quantity) implements Serializable {
+    }
+
+    public record Node(String name, List<Object> links) implements Serializable {
+    }
+
+    public static class Order implements Serializable {
+        private long id;
+        private String customer;
+        private final List<Line> lines = new ArrayList<>();
+        private final Map<String, Object> attributes = new HashMap<>();
+        private Order self;
+        private transient String cache;
+    }
+
+    public static class Holder implements Serializable {
+        private final Object value;
+
+        public Holder(final Object value) {
+            this.value = value;
+        }
+    }
+
+    public static class Custom implements Serializable {
+        private transient boolean written;
+
+        private void writeObject(final ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+        }
+
+        private void readObject(final java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            written = true;
+        }
+    }
+
+    private static class CountingCopier extends SerializationIntraVmCopier {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public <T> T copy(final T object) throws IOException, ClassNotFoundException {
+            calls.incrementAndGet();
+            return super.copy(object);
+        }
+    }
+}
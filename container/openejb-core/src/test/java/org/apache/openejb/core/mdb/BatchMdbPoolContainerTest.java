@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.mdb;
+
+import org.apache.openejb.api.jms.BatchMessageListener;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.MessageDrivenBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testng.PropertiesBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.ActivationConfigProperty;
+import jakarta.ejb.MessageDriven;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(ApplicationComposer.class)
+public class BatchMdbPoolContainerTest {
+    private static final int MESSAGES = 25;
+
+    @Configuration
+    public Properties config() {
+        return new PropertiesBuilder()
+
+                .p("amq", "new://Resource?type=ActiveMQResourceAdapter")
+                .p("amq.DataSource", "")
+                .p("amq.BrokerXmlConfig", "broker:(vm://localhost)")
+
+                .p("batches", "new://Resource?type=Queue")
+                .p("failing", "new://Resource?type=Queue")
+                .p("unbatched", "new://Resource?type=Queue")
+
+                .p("mdbs", "new://Container?type=MESSAGE")
+                .p("mdbs.ResourceAdapter", "amq")
+                .p("mdbs.pool", "true")
+                .p("mdbs.MaxBatchSize", "10")
+                .p("mdbs.MaxBatchWait", "200 milliseconds")
+
+                .p("cf", "new://Resource?type=" + ConnectionFactory.class.getName())
+                .p("cf.ResourceAdapter", "amq")
+                .build();
+    }
+
+    @Module
+    public EjbJar jar() {
+        return new EjbJar()
+                .enterpriseBean(new MessageDrivenBean(Listener.class))
+                .enterpriseBean(new MessageDrivenBean(FailingListener.class))
+                .enterpriseBean(new MessageDrivenBean(NotSupportedListener.class));
+    }
+
+    @Resource(name = "batches")
+    private Queue destination;
+
+    @Resource(name = "failing")
+    private Queue failing;
+
+    @Resource(name = "unbatched")
+    private Queue unbatched;
+
+    @Resource(name = "cf")
+    private ConnectionFactory cf;
+
+    @Test
+    public void deliverByBatch() throws Exception {
+        send(destination, MESSAGES);
+        assertTrue(Listener.LATCH.await(1, TimeUnit.MINUTES));
+
+        final List<Integer> sizes = new ArrayList<>(Listener.SIZES);
+        int total = 0;
+        for (final Integer size : sizes) {
+            assertTrue("batch of " + size + " messages", size >= 1 && size <= 10);
+            total += size;
+        }
+        assertEquals(MESSAGES, total);
+        assertTrue("batches: " + sizes, sizes.size() < MESSAGES); // the last ones are flushed by MaxBatchWait
+        assertEquals(MESSAGES, Listener.TEXTS.size());
+        assertTrue(Listener.TRANSACTED);
+    }
+
+    @Test
+    public void failedBatchIsRedelivered() throws Exception {
+        send(failing, FailingListener.MESSAGES);
+        assertTrue(FailingListener.LATCH.await(1, TimeUnit.MINUTES));
+
+        final List<String> failed = new ArrayList<>(FailingListener.FAILED);
+        assertFalse(failed.isEmpty());
+        // every message of the failed batch came back, nothing was acknowledged by the failure
+        assertTrue("failed " + failed + ", redelivered " + FailingListener.REDELIVERED,
+                FailingListener.REDELIVERED.containsAll(failed));
+        assertEquals(FailingListener.MESSAGES, new HashSet<>(FailingListener.DELIVERED).size());
+    }
+
+    @Test
+    public void notSupportedIsNotBatched() throws Exception {
+        send(unbatched, NotSupportedListener.MESSAGES);
+        assertTrue(NotSupportedListener.LATCH.await(1, TimeUnit.MINUTES));
+        for (final Integer size : new ArrayList<>(NotSupportedListener.SIZES)) {
+            assertEquals(1, size.intValue());
+        }
+    }
+
+    private void send(final Queue queue, final int count) throws JMSException {
+        try (final Connection connection = cf.createConnection()) {
+            final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final MessageProducer producer = session.createProducer(queue);
+            for (int i = 0; i < count; i++) {
+                producer.send(session.createTextMessage("#" + i));
+            }
+        }
+    }
+
+    @MessageDriven(activationConfig = {
+            @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "jakarta.jms.Queue"),
+            @ActivationConfigProperty(propertyName = "destination", propertyValue = "batches"),
+            @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "1")
+    })
+    public static class Listener implements BatchMessageListener {
+        private static final CountDownLatch LATCH = new CountDownLatch(MESSAGES);
+        private static final List<Integer> SIZES = Collections.synchronizedList(new ArrayList<Integer>());
+        private static final List<String> TEXTS = Collections.synchronizedList(new ArrayList<String>());
+        private static volatile boolean TRANSACTED = true;
+
+        @Resource
+        private TransactionSynchronizationRegistry registry;
+
+        @Override
+        public void onMessages(final List<Message> messages) {
+            TRANSACTED &= registry.getTransactionStatus() == Status.STATUS_ACTIVE;
+            SIZES.add(messages.size());
+            for (final Message message : messages) {
+                try {
+                    TEXTS.add(TextMessage.class.cast(message).getText());
+                } catch (final JMSException e) {
+                    throw new IllegalStateException(e);
+                }
+                LATCH.countDown();
+            }
+        }
+    }
+
+    @MessageDriven(activationConfig = {
+            @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "jakarta.jms.Queue"),
+            @ActivationConfigProperty(propertyName = "destination", propertyValue = "failing"),
+            @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "1")
+    })
+    public static class FailingListener implements BatchMessageListener {
+        private static final int MESSAGES = 5;
+        private static final CountDownLatch LATCH = new CountDownLatch(MESSAGES);
+        private static final List<String> FAILED = Collections.synchronizedList(new ArrayList<String>());
+        private static final List<String> REDELIVERED = Collections.synchronizedList(new ArrayList<String>());
+        private static final List<String> DELIVERED = Collections.synchronizedList(new ArrayList<String>());
+        private static volatile boolean failedOnce;
+
+        @Override
+        public void onMessages(final List<Message> messages) {
+            try {
+                if (!failedOnce) {
+                    failedOnce = true;
+                    for (final Message message : messages) {
+                        FAILED.add(TextMessage.class.cast(message).getText());
+                    }
+                    throw new IllegalStateException("first batch fails");
+                }
+                for (final Message message : messages) {
+                    final String text = TextMessage.class.cast(message).getText();
+                    if (message.getJMSRedelivered()) {
+                        REDELIVERED.add(text);
+                    }
+                    DELIVERED.add(text);
+                    LATCH.countDown();
+                }
+            } catch (final JMSException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @MessageDriven(activationConfig = {
+            @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "jakarta.jms.Queue"),
+            @ActivationConfigProperty(propertyName = "destination", propertyValue = "unbatched"),
+            @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "1")
+    })
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public static class NotSupportedListener implements BatchMessageListener {
+        private static final int MESSAGES = 5;
+        private static final CountDownLatch LATCH = new CountDownLatch(MESSAGES);
+        private static final List<Integer> SIZES = Collections.synchronizedList(new ArrayList<Integer>());
+
+        @Override
+        public void onMessages(final List<Message> messages) {
+            SIZES.add(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                LATCH.countDown();
+            }
+        }
+    }
+}
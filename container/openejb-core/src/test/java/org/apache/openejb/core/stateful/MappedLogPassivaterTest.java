@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.stateful;
+
+import org.apache.openejb.loader.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MappedLogPassivaterTest {
+    private File directory;
+
+    @Before
+    public void mkdir() {
+        directory = Files.mkdir(new File("target/MappedLogPassivaterTest-" + System.nanoTime()));
+    }
+
+    @After
+    public void delete() {
+        Files.delete(directory);
+    }
+
+    @Test
+    public void passivateAndActivate() throws Exception {
+        roundTrip(newPassivater(false));
+    }
+
+    @Test
+    public void compressed() throws Exception {
+        roundTrip(newPassivater(true));
+    }
+
+    @Test
+    public void compaction() throws Exception {
+        final MappedLogPassivater passivater = newPassivater(false);
+
+        // roughly 10 beans per segment
+        for (int i = 0; i < 50; i++) {
+            passivater.passivate(bean("key" + i));
+        }
+        final int segments = passivater.getSegmentCount();
+        assertEquals(true, segments > 1);
+
+        for (int i = 0; i < 50; i += 10) {
+            assertEquals(value("key" + i), passivater.activate("key" + i));
+        }
+        for (int i = 0; i < 40; i++) {
+            if (i % 10 != 0) {
+                assertEquals(value("key" + i), passivater.activate("key" + i));
+            }
+        }
+        passivater.compact();
+
+        // the first segments were either fully released or moved to the active one and their files deleted
+        assertEquals(true, passivater.getSegmentCount() < segments);
+        assertEquals(passivater.getSegmentCount(), segmentFiles());
+        for (int i = 40; i < 50; i++) {
+            if (i % 10 != 0) {
+                assertEquals(value("key" + i), passivater.activate("key" + i));
+            }
+        }
+    }
+
+    @Test
+    public void close() throws Exception {
+        final MappedLogPassivater passivater = newPassivater(false);
+        for (int i = 0; i < 30; i++) {
+            passivater.passivate(bean("key" + i));
+        }
+        assertEquals(passivater.getSegmentCount(), segmentFiles());
+
+        passivater.close();
+        assertEquals(0, passivater.getSegmentCount());
+        assertEquals(0, segmentFiles());
+        assertNull(passivater.activate("key0"));
+    }
+
+    @Test
+    public void concurrentActivation() throws Exception {
+        final MappedLogPassivater passivater = newPassivater(false);
+        final Map<Object, Object> beans = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            beans.put("key" + i, value("key" + i));
+        }
+        passivater.passivate(beans);
+
+        final ExecutorService es = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                futures.add(es.submit(() -> {
+                    for (int i = offset; i < 200; i += 4) {
+                        assertEquals(value("key" + i), passivater.activate("key" + i));
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            es.shutdownNow();
+        }
+        assertNull(passivater.activate("key0"));
+    }
+
+    private void roundTrip(final MappedLogPassivater passivater) throws Exception {
+        passivater.passivate(bean("a"));
+        passivater.passivate(bean("b"));
+        // passivated again, the last state wins
+        final Map<Object, Object> again = new HashMap<>();
+        again.put("a", "updated");
+        passivater.passivate(again);
+
+        assertEquals("updated", passivater.activate("a"));
+        assertEquals(value("b"), passivater.activate("b"));
+        // activation consumes the passivated state
+        assertNull(passivater.activate("a"));
+        assertNull(passivater.activate("missing"));
+    }
+
+    private int segmentFiles() {
+        final File[] files = directory.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    private MappedLogPassivater newPassivater(final boolean compress) throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty(MappedLogPassivater.DIRECTORY, directory.getAbsolutePath());
+        properties.setProperty(MappedLogPassivater.SEGMENT_SIZE, "1024");
+        properties.setProperty(MappedLogPassivater.COMPRESS, Boolean.toString(compress));
+
+        final MappedLogPassivater passivater = new MappedLogPassivater();
+        passivater.init(properties);
+        return passivater;
+    }
+
+    private static Map<Object, Object> bean(final String key) {
+        final Map<Object, Object> map = new HashMap<>();
+        map.put(key, value(key));
+        return map;
+    }
+
+    private static String value(final String key) {
+        return "value-" + key + "-" + String.join("", Collections.nCopies(8, "0123456789"));
+    }
+}
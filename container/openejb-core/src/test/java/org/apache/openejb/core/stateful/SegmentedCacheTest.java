@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.stateful;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedCacheTest {
+    @Test
+    public void passivateWhenCapacityIsReached() throws Exception {
+        final MapPassivator passivator = new MapPassivator();
+        final Listener listener = new Listener();
+        final SegmentedCache<String, String> cache = newCache(passivator, listener, 4, 2);
+
+        for (int i = 0; i < 4; i++) {
+            cache.add("k" + i, "v" + i);
+            cache.checkIn("k" + i);
+        }
+        cache.processLRU();
+
+        assertEquals(1, passivator.calls);
+        assertEquals(2, passivator.store.size());
+        assertEquals(2, listener.stored.size());
+        // the new comer isn't used more than the oldest bean so both go away
+        assertTrue(passivator.store.containsKey("k3"));
+        assertTrue(passivator.store.containsKey("k0"));
+
+        // activated again on demand
+        assertEquals("v0", cache.checkOut("k0", true));
+        assertEquals(1, listener.loaded.size());
+        assertEquals("v1", cache.checkOut("k1", false));
+    }
+
+    @Test
+    public void frequentlyUsedBeansSurvive() throws Exception {
+        final MapPassivator passivator = new MapPassivator();
+        final SegmentedCache<String, String> cache = newCache(passivator, new Listener(), 3, 1);
+
+        cache.add("hot", "hot");
+        cache.checkIn("hot");
+        for (int i = 0; i < 5; i++) {
+            cache.checkOut("hot", false);
+            cache.checkIn("hot");
+        }
+        cache.add("cold", "cold");
+        cache.checkIn("cold");
+        cache.add("new", "new");
+        cache.checkIn("new");
+
+        cache.processLRU();
+
+        assertEquals(1, passivator.store.size());
+        assertFalse(passivator.store.containsKey("hot"));
+        assertEquals("hot", cache.checkOut("hot", false));
+    }
+
+    @Test
+    public void timeOut() throws Exception {
+        final MapPassivator passivator = new MapPassivator();
+        final Listener listener = new Listener();
+        final SegmentedCache<String, String> cache = newCache(passivator, listener, 100, 10);
+        cache.setTimeOut("50 milliseconds");
+
+        cache.add("a", "a");
+        cache.checkIn("a");
+        cache.add("b", "b");
+
+        Thread.sleep(100);
+        cache.processLRU();
+
+        // only available beans time out
+        assertEquals(1, listener.timedOut.size());
+        assertEquals("a", listener.timedOut.get(0));
+        assertNull(cache.checkOut("a", true));
+        assertEquals("b", cache.checkOut("b", false));
+        assertTrue(passivator.store.isEmpty());
+    }
+
+    @Test
+    public void promotionIsAnAccess() throws Exception {
+        final Listener listener = new Listener();
+        final SegmentedCache<String, String> cache = newCache(new MapPassivator(), listener, 100, 10);
+        cache.setTimeOut("100 milliseconds");
+
+        // "y" goes to the main list then is checked out
+        cache.add("y", "y");
+        cache.checkIn("y");
+        cache.add("o", "o");
+        cache.checkIn("o");
+        assertEquals("y", cache.checkOut("y", false));
+
+        Thread.sleep(150);
+
+        // "y" is back in the main list, "o" is promoted after it and counts as accessed now
+        cache.checkIn("y");
+        cache.add("n", "n");
+        cache.checkIn("n");
+        cache.processLRU();
+        assertTrue(listener.timedOut.isEmpty());
+
+        // the main list is still in access order, nothing is left behind
+        Thread.sleep(150);
+        cache.processLRU();
+        assertEquals(3, listener.timedOut.size());
+    }
+
+    @Test
+    public void removeAll() throws Exception {
+        final SegmentedCache<String, String> cache = newCache(new MapPassivator(), new Listener(), 100, 10);
+        cache.add("a", "a");
+        cache.checkIn("a");
+        cache.add("b", "b");
+
+        cache.removeAll(value -> true);
+
+        assertNull(cache.checkOut("a", false));
+        assertNull(cache.checkOut("b", false));
+    }
+
+    @Test
+    public void checkInWithoutCheckOut() throws Exception {
+        final MapPassivator passivator = new MapPassivator();
+        passivator.store.put("a", "a");
+        final SegmentedCache<String, String> cache = newCache(passivator, new Listener(), 100, 10);
+
+        // activated but never checked out
+        cache.checkOut("a", true);
+        cache.checkIn("a");
+        cache.checkIn("a");
+
+        assertSame("a", cache.remove("a"));
+        assertNull(cache.remove("a"));
+    }
+
+    private static SegmentedCache<String, String> newCache(final PassivationStrategy passivator, final Listener listener,
+                                                           final int capacity, final int bulkPassivate) {
+        final SegmentedCache<String, String> cache = new SegmentedCache<>();
+        cache.setPassivator(passivator);
+        cache.setListener(listener);
+        cache.setCapacity(capacity);
+        cache.setBulkPassivate(bulkPassivate);
+        cache.setSegments(1);
+        return cache;
+    }
+
+    private static class MapPassivator implements PassivationStrategy {
+        private final Map<Object, Object> store = new HashMap<>();
+        private int calls;
+
+        @Override
+        public void init(final Properties props) {
+            // no-op
+        }
+
+        @Override
+        public void passivate(final Map stateful) {
+            calls++;
+            store.putAll(stateful);
+        }
+
+        @Override
+        public Object activate(final Object primaryKey) {
+            return store.remove(primaryKey);
+        }
+    }
+
+    private static class Listener implements Cache.CacheListener<String> {
+        private final List<String> loaded = new ArrayList<>();
+        private final List<String> stored = new ArrayList<>();
+        private final List<String> timedOut = new ArrayList<>();
+
+        @Override
+        public void afterLoad(final String instance) {
+            loaded.add(instance);
+        }
+
+        @Override
+        public void beforeStore(final String instance) {
+            stored.add(instance);
+        }
+
+        @Override
+        public void timedOut(final String instance) {
+            timedOut.add(instance);
+        }
+    }
+}
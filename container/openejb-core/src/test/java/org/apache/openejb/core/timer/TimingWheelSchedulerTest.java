@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.timer;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.quartz.Scheduler;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testng.PropertiesBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.Timer;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(ApplicationComposer.class)
+public class TimingWheelSchedulerTest {
+    @Module
+    public EjbJar jar() {
+        return new EjbJar()
+            .enterpriseBean(new SingletonBean(Timed.class).localBean())
+            .enterpriseBean(new SingletonBean(Scheduled.class).localBean());
+    }
+
+    @Configuration
+    public Properties config() {
+        return new PropertiesBuilder()
+            .p(TimingWheelScheduler.OPENEJB_TIMER_ENGINE, TimingWheelScheduler.WHEEL)
+            .p(TimingWheelScheduler.OPENEJB_TIMER_WHEEL_TICK, "1")
+            .build();
+    }
+
+    @EJB
+    private Timed timed;
+
+    @EJB
+    private Scheduled scheduled;
+
+    @Test
+    public void singleActionAndIntervalTimers() throws Exception {
+        final Scheduler scheduler = SystemInstance.get().getComponent(ContainerSystem.class)
+            .getBeanContext("Timed").get(Scheduler.class);
+        assertNotNull(TimingWheelScheduler.unwrap(scheduler));
+
+        // 600 ticks: starts in the second level of the wheel
+        timed.single(600);
+        timed.interval(50);
+        assertTrue(Timed.SINGLE.await(1, TimeUnit.MINUTES));
+        assertTrue(Timed.INTERVAL.await(1, TimeUnit.MINUTES));
+
+        timed.cancelAll();
+        assertEquals(0, timed.count());
+    }
+
+    @Test
+    public void schedule() throws Exception {
+        assertTrue(Scheduled.CALLED.await(1, TimeUnit.MINUTES));
+        final BeanContext beanContext = SystemInstance.get().getComponent(ContainerSystem.class).getBeanContext("Scheduled");
+        assertNotNull(TimingWheelScheduler.unwrap(beanContext.get(Scheduler.class)));
+    }
+
+    @Singleton
+    public static class Timed {
+        private static final CountDownLatch SINGLE = new CountDownLatch(1);
+        private static final CountDownLatch INTERVAL = new CountDownLatch(3);
+
+        @Resource
+        private TimerService timerService;
+
+        public void single(final long delay) {
+            timerService.createSingleActionTimer(delay, new TimerConfig("single", false));
+        }
+
+        public void interval(final long interval) {
+            timerService.createIntervalTimer(interval, interval, new TimerConfig("interval", false));
+        }
+
+        public void cancelAll() {
+            for (final Timer timer : timerService.getTimers()) {
+                timer.cancel();
+            }
+        }
+
+        public int count() {
+            return timerService.getTimers().size();
+        }
+
+        @Timeout
+        public void timeout(final Timer timer) {
+            if ("single".equals(timer.getInfo())) {
+                SINGLE.countDown();
+            } else {
+                INTERVAL.countDown();
+            }
+        }
+    }
+
+    @Singleton
+    public static class Scheduled {
+        private static final CountDownLatch CALLED = new CountDownLatch(2);
+
+        @Schedule(second = "*", minute = "*", hour = "*", persistent = false)
+        public void everySecond() {
+            CALLED.countDown();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.monitoring;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void buckets() {
+        long previous = -1;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            final long lower = LatencyHistogram.lowerBound(i);
+            assertEquals(previous + 1, lower);
+            assertEquals(i, LatencyHistogram.index(lower));
+            assertEquals(i, LatencyHistogram.index(LatencyHistogram.upperBound(i)));
+            previous = LatencyHistogram.upperBound(i);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.HOURS);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), snapshot.getMin(), 0);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMax(), 0);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1) * 500.5, snapshot.getMean(), 0);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getPercentile(100), 0);
+        assertRelative(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getPercentile(50));
+        assertRelative(TimeUnit.MILLISECONDS.toNanos(990), snapshot.getPercentile(99));
+        assertRelative(TimeUnit.MILLISECONDS.toNanos(999), snapshot.getPercentile(99.9));
+        assertRelative(Math.sqrt(83416.66) * TimeUnit.MILLISECONDS.toNanos(1), Math.sqrt(snapshot.getVariance()));
+        assertTrue(snapshot.getRate() > 0);
+
+        final double[] values = snapshot.getSortedValues(100);
+        assertEquals(100, values.length);
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(values[i - 1] <= values[i]);
+        }
+    }
+
+    @Test
+    public void singleValue() {
+        final LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.HOURS);
+        histogram.record(TimeUnit.SECONDS.toNanos(1));
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        for (final double p : new double[]{1, 50, 99.9}) {
+            assertEquals(TimeUnit.SECONDS.toNanos(1), snapshot.getPercentile(p), 0);
+        }
+        assertEquals(0, snapshot.getVariance(), 0);
+        assertTrue(Double.isNaN(snapshot.getSkewness()));
+        assertTrue(Double.isNaN(new LatencyHistogram(1, TimeUnit.HOURS).snapshot().getPercentile(50)));
+    }
+
+    @Test
+    public void intervals() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(100, TimeUnit.MILLISECONDS);
+        histogram.record(10);
+        Thread.sleep(120);
+        // rotated, the previous interval is still visible
+        assertEquals(1, histogram.snapshot().getCount());
+        histogram.record(20);
+        Thread.sleep(100);
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(20, snapshot.getMax(), 0);
+
+        // intervals follow the clock and not the reads: nothing was recorded in the last two
+        Thread.sleep(250);
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void rotatedByRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(100, TimeUnit.MILLISECONDS);
+        histogram.record(10);
+        Thread.sleep(250);
+        // the interval of the first value is over for two intervals when the second one is recorded
+        histogram.record(20);
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(20, snapshot.getMin(), 0);
+    }
+
+    @Test
+    public void reusedSnapshot() {
+        final LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.HOURS);
+        histogram.record(10);
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot(1, TimeUnit.HOURS);
+        histogram.record(20);
+        assertSame(snapshot, histogram.snapshot(1, TimeUnit.HOURS));
+        assertEquals(1, snapshot.getCount());
+        assertEquals(2, histogram.snapshot(0, TimeUnit.SECONDS).getCount());
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.HOURS);
+        final int threads = 8;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i);
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(threads * 10000, snapshot.getCount());
+        assertEquals(threads * (9999L * 10000 / 2), snapshot.getSum());
+        assertEquals(9999, snapshot.getMax(), 0);
+        assertEquals(0, snapshot.getMin(), 0);
+    }
+
+    private static void assertRelative(final double expected, final double actual) {
+        assertEquals(expected, actual, expected * 0.04);
+    }
+}
@@ -28,7 +28,10 @@ import org.junit.runner.RunWith;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -72,6 +75,28 @@ public class JtaQueryTest {
         }
     }
 
+    @Test
+    public void stream() {
+        final Query query = wrapped.createNativeQuery("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS")
+            .setHint(JtaQuery.FETCH_SIZE, 100)
+            .setHint(JtaQuery.STREAM_CLEAR_EVERY, 1);
+        final JtaQuery q = JtaQuery.class.cast(query); // not unwrap() to let it recreate the query
+
+        int count = 0;
+        try (final Stream<?> stream = query.getResultStream()) {
+            final EntityManager em = EntityManager.class.cast(Reflections.get(q, "entityManager"));
+            final Iterator<?> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                assertNotNull(iterator.next());
+                assertTrue(em.isOpen()); // the results are read while the stream is open
+                count++;
+            }
+        }
+        assertTrue(count > 0);
+        assertEquals(count, query.getResultList().size());
+        assertFalse(EntityManager.class.cast(Reflections.get(q, "entityManager")).isOpen());
+    }
+
     @Test
     public void raw() {
         for (int i = 0; i < 2; i++) { // no exception already closed
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.persistence;
+
+import org.apache.openejb.assembler.classic.ReloadableEntityManagerFactory;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.jee.jpa.unit.Persistence;
+import org.apache.openejb.jee.jpa.unit.PersistenceUnit;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.ejb.EJB;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The named queries registered by the cache give the same results as the JPQL queries with the real provider.
+ */
+@RunWith(ApplicationComposer.class)
+public class QueryPlanCacheProviderTest {
+    private static final String NAMES = "select p.name from QueryPlanCacheProviderTest$Person p where p.name like :prefix order by p.name";
+    private static final String PERSONS = "select p from QueryPlanCacheProviderTest$Person p where p.age >= :age order by p.name";
+
+    @EJB
+    private Persons persons;
+
+    @PersistenceContext
+    private EntityManager em; // no transaction: wrapped queries
+
+    @jakarta.persistence.PersistenceUnit
+    private EntityManagerFactory emf;
+
+    @Module
+    public Persistence persistence() {
+        final PersistenceUnit unit = new PersistenceUnit("query-plan-cache");
+        unit.addClass(Person.class);
+        unit.setProperty("openjpa.jdbc.SynchronizeMappings", "buildSchema(ForeignKeys=true)");
+        unit.setProperty("openjpa.RuntimeUnenhancedClasses", "supported");
+        unit.setProperty(QueryPlanCache.ACTIVE, "true");
+        unit.setExcludeUnlistedClasses(true);
+        return new Persistence(unit);
+    }
+
+    @Module
+    public EjbJar ejbs() {
+        return new EjbJar().enterpriseBean(new SingletonBean(Persons.class).localBean());
+    }
+
+    @Configuration
+    public Properties config() {
+        final Properties p = new Properties();
+        p.put("QueryPlanCacheProviderTest", "new://Resource?type=DataSource");
+        p.put("QueryPlanCacheProviderTest.JdbcUrl", "jdbc:hsqldb:mem:queryplancache");
+        return p;
+    }
+
+    @Test
+    public void sameResults() {
+        persons.create("anna", 30);
+        persons.create("andrew", 17);
+        persons.create("bob", 45);
+
+        final List<Object> expectedNames = Arrays.<Object>asList("andrew", "anna");
+        final List<String> expectedAdults = Arrays.asList("anna", "bob");
+        for (int i = 0; i < 3; i++) { // seen, registered then used as a named query
+            assertEquals(expectedNames, persons.names("an%"));
+            assertEquals(expectedNames, persons.typedNames("an%"));
+            assertEquals(expectedAdults, persons.adults(18));
+
+            assertEquals(expectedNames, em.createQuery(NAMES).setParameter("prefix", "an%").getResultList());
+            assertEquals(expectedNames, em.createQuery(NAMES, String.class).setParameter("prefix", "an%").getResultList());
+            assertEquals(Arrays.asList("bob"), names(em.createQuery(PERSONS, Person.class).setParameter("age", 40).getResultList()));
+        }
+
+        final QueryPlanCache cache = ReloadableEntityManagerFactory.class.cast(emf).getQueryPlanCache();
+        // a provider without EntityManagerFactory#addNamedQuery disables the cache, the queries are then created as usual
+        assertTrue(!cache.isActive() || (cache.getSize() == 3 && cache.getHits() > 0));
+    }
+
+    private static List<String> names(final List<Person> persons) {
+        final List<String> names = new ArrayList<>();
+        for (final Person person : persons) {
+            names.add(person.getName());
+        }
+        return names;
+    }
+
+    public static class Persons {
+        @PersistenceContext
+        private EntityManager em;
+
+        public void create(final String name, final int age) {
+            final Person person = new Person();
+            person.setName(name);
+            person.setAge(age);
+            em.persist(person);
+        }
+
+        public List<?> names(final String prefix) {
+            return em.createQuery(NAMES).setParameter("prefix", prefix).getResultList();
+        }
+
+        public List<String> typedNames(final String prefix) {
+            return em.createQuery(NAMES, String.class).setParameter("prefix", prefix).getResultList();
+        }
+
+        public List<String> adults(final int age) {
+            return names(em.createQuery(PERSONS, Person.class).setParameter("age", age).getResultList());
+        }
+    }
+
+    @Entity
+    public static class Person {
+        @Id
+        @GeneratedValue
+        private long id;
+
+        private String name;
+
+        private int age;
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(final int age) {
+            this.age = age;
+        }
+    }
+}
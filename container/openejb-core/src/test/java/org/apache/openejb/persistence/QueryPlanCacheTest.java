@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.persistence;
+
+import org.junit.Test;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class QueryPlanCacheTest {
+    @Test
+    public void registerOnSecondSighting() {
+        final Factory factory = new Factory(false);
+        final QueryPlanCache cache = new QueryPlanCache("test", 10);
+
+        assertNull(cache.namedQuery(factory.proxy(), "select e from E e", null));
+        assertEquals(0, factory.named.size());
+
+        final String name = cache.namedQuery(factory.proxy(), "select e from E e", null);
+        assertNotNull(name);
+        assertEquals(name, cache.namedQuery(factory.proxy(), "select e from E e", null));
+        assertNull(cache.namedQuery(factory.proxy(), "select e from E e", String.class));
+        assertNotEquals(name, cache.namedQuery(factory.proxy(), "select e from E e", String.class));
+
+        assertEquals(2, factory.named.size());
+        assertTrue(factory.named.containsKey(name));
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getSize());
+        assertEquals(0, factory.openEntityManagers);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        final Factory factory = new Factory(false);
+        final QueryPlanCache cache = new QueryPlanCache("test", 2);
+
+        final String a = register(cache, factory, "select a from A a");
+        final String b = register(cache, factory, "select b from B b");
+        assertEquals(a, cache.namedQuery(factory.proxy(), "select a from A a", null)); // b is the eldest now
+        register(cache, factory, "select c from C c");
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(a, cache.namedQuery(factory.proxy(), "select a from A a", null));
+        assertNull(cache.namedQuery(factory.proxy(), "select b from B b", null));
+        assertNotEquals(b, cache.namedQuery(factory.proxy(), "select b from B b", null));
+    }
+
+    @Test
+    public void registrationsAreBounded() {
+        final Factory factory = new Factory(false);
+        final QueryPlanCache cache = new QueryPlanCache("test", 1);
+
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(register(cache, factory, "select e from E e where e.id = " + i));
+        }
+        assertNull(register(cache, factory, "select e from E e where e.id = 4"));
+        assertEquals(4, factory.named.size());
+    }
+
+    @Test
+    public void invalidQuery() {
+        final Factory factory = new Factory(false);
+        final QueryPlanCache cache = new QueryPlanCache("test", 10);
+
+        assertNull(register(cache, factory, "invalid"));
+        assertTrue(cache.isActive());
+        assertEquals(0, cache.getSize());
+        assertEquals(0, factory.openEntityManagers);
+    }
+
+    @Test
+    public void unsupported() {
+        final Factory factory = new Factory(true);
+        final QueryPlanCache cache = new QueryPlanCache("test", 10);
+
+        assertNull(register(cache, factory, "select e from E e"));
+        assertFalse(cache.isActive());
+        assertNull(cache.namedQuery(factory.proxy(), "select e from E e", null));
+    }
+
+    private static String register(final QueryPlanCache cache, final Factory factory, final String jpql) {
+        assertNull(cache.namedQuery(factory.proxy(), jpql, null));
+        return cache.namedQuery(factory.proxy(), jpql, null);
+    }
+
+    private static class Factory implements InvocationHandler {
+        private final boolean unsupported;
+        private final Map<String, Query> named = new HashMap<>();
+        private int openEntityManagers;
+
+        private Factory(final boolean unsupported) {
+            this.unsupported = unsupported;
+        }
+
+        private EntityManagerFactory proxy() {
+            return EntityManagerFactory.class.cast(Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{EntityManagerFactory.class}, this));
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if ("addNamedQuery".equals(method.getName())) {
+                if (unsupported) {
+                    throw new UnsupportedOperationException("JPA 2.1");
+                }
+                named.put((String) args[0], (Query) args[1]);
+                return null;
+            }
+            if ("createEntityManager".equals(method.getName())) {
+                openEntityManagers++;
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{EntityManager.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                        if ("close".equals(method.getName())) {
+                            openEntityManagers--;
+                            return null;
+                        }
+                        if ("createQuery".equals(method.getName())) {
+                            if ("invalid".equals(args[0])) {
+                                throw new IllegalArgumentException("invalid query");
+                            }
+                            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TypedQuery.class}, this);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
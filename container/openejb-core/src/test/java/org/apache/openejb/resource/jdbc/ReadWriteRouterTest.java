@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.resource.jdbc;
+
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.resource.jdbc.router.ReadWriteRouter;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testng.PropertiesBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.apache.openejb.resource.jdbc.FailOverRouters.datasource;
+import static org.apache.openejb.resource.jdbc.FailOverRouters.url;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(ApplicationComposer.class)
+public class ReadWriteRouterTest {
+    private static final String PRIMARY = "jdbc:hsqldb:mem:rw1";
+
+    @Resource(name = "routedDs")
+    private DataSource ds;
+
+    @Resource(name = "router")
+    private ReadWriteRouter router;
+
+    @Resource(name = "rw2")
+    private DataSource replica2;
+
+    @Resource(name = "rw3")
+    private DataSource replica3;
+
+    @EJB
+    private Reader reader;
+
+    @Test
+    public void writesUsePrimary() throws SQLException {
+        for (int i = 0; i < 4; i++) {
+            assertEquals(PRIMARY, url(ds.getConnection()));
+        }
+    }
+
+    @Test
+    public void readOnlyUsesReplicas() throws SQLException {
+        final Set<String> urls = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            urls.add(url(readOnly()));
+        }
+        assertEquals(2, urls.size());
+        assertFalse(urls.contains(PRIMARY));
+    }
+
+    @Test
+    public void lateReplicaIsEjected() throws SQLException {
+        lag(replica2, 100);
+        lag(replica3, 0);
+        try {
+            router.checkReplicas();
+            for (int i = 0; i < 4; i++) {
+                assertEquals("jdbc:hsqldb:mem:rw3", url(readOnly()));
+            }
+
+            lag(replica3, 100);
+            router.checkReplicas();
+            assertEquals(PRIMARY, url(readOnly()));
+
+            lag(replica2, 0);
+            lag(replica3, 0);
+            router.checkReplicas();
+            for (final ReadWriteRouter.Replica replica : router.getReplicas()) {
+                assertTrue(replica.getName(), replica.isHealthy());
+            }
+        } finally {
+            lag(replica2, 0);
+            lag(replica3, 0);
+            router.checkReplicas();
+        }
+    }
+
+    @Test
+    public void ejectedReplicaIsRestoredWithoutHealthCheck() throws Exception {
+        lag(replica2, 100);
+        try {
+            router.checkReplicas();
+            assertFalse(replica("rw2").isHealthy());
+
+            lag(replica2, 0);
+            Thread.sleep(300); // retryInterval
+            readOnly().close();
+            assertTrue(replica("rw2").isHealthy());
+        } finally {
+            lag(replica2, 0);
+            router.checkReplicas();
+        }
+    }
+
+    @Test
+    public void transactionSticksToItsDataSource() throws SQLException {
+        assertEquals(PRIMARY, reader.readOnlyThenWrite());
+        assertFalse(PRIMARY.equals(reader.markedReadOnly()));
+        assertEquals(PRIMARY, reader.writeThenMarkedReadOnly());
+        assertTrue(reader.markedReadOnlyRejectsWrites());
+    }
+
+    private ReadWriteRouter.Replica replica(final String name) {
+        for (final ReadWriteRouter.Replica replica : router.getReplicas()) {
+            if (name.equals(replica.getName())) {
+                return replica;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private Connection readOnly() throws SQLException {
+        final Connection connection = ds.getConnection();
+        connection.setReadOnly(true);
+        return connection;
+    }
+
+    private static void lag(final DataSource replica, final int seconds) throws SQLException {
+        try (final Connection connection = replica.getConnection();
+             final Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists LAG (SECONDS int)");
+            statement.execute("delete from LAG");
+            statement.execute("insert into LAG values (" + seconds + ")");
+        }
+    }
+
+    @Configuration
+    public Properties configuration() {
+        return datasource(datasource(datasource(new PropertiesBuilder(), "rw1"), "rw2"), "rw3")
+            .property("rw2.JtaManaged", "false")
+            .property("rw3.JtaManaged", "false")
+
+            .property("router", "new://Resource?class-name=" + ReadWriteRouter.class.getName())
+            .property("router.primary", "rw1")
+            .property("router.replicas", "rw2,rw3")
+            .property("router.healthCheckInterval", "0 seconds")
+            .property("router.retryInterval", "200 milliseconds")
+            .property("router.replicationLagQuery", "select SECONDS from LAG")
+            .property("router.maxReplicationLag", "10 seconds")
+
+            .property("routedDs", "new://Resource?provider=RoutedDataSource&type=DataSource")
+            .property("routedDs.router", "router")
+            .build();
+    }
+
+    @Module
+    public Class<?>[] classes() {
+        return new Class<?>[]{Reader.class};
+    }
+
+    @Singleton
+    public static class Reader {
+        @Resource(name = "routedDs")
+        private DataSource ds;
+
+        // the transaction was not marked read only, it can write with its next connections
+        public String readOnlyThenWrite() throws SQLException {
+            final Connection first = ds.getConnection();
+            first.setReadOnly(true);
+            final String url = url(first);
+            assertEquals(url, url(ds.getConnection()));
+            return url;
+        }
+
+        public boolean markedReadOnlyRejectsWrites() throws SQLException {
+            ReadWriteRouter.markReadOnly();
+            assertFalse(PRIMARY.equals(url(ds.getConnection())));
+
+            final Connection write = ds.getConnection();
+            write.setReadOnly(false);
+            try {
+                url(write);
+                return false;
+            } catch (final SQLException expected) {
+                return true;
+            }
+        }
+
+        public String markedReadOnly() throws SQLException {
+            ReadWriteRouter.markReadOnly();
+            return url(ds.getConnection());
+        }
+
+        public String writeThenMarkedReadOnly() throws SQLException {
+            final String url = url(ds.getConnection());
+            ReadWriteRouter.markReadOnly();
+            assertEquals(url, url(ds.getConnection()));
+            return url;
+        }
+    }
+}
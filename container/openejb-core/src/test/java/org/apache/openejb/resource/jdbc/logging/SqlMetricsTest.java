@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.resource.jdbc.logging;
+
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.apache.openejb.resource.jdbc.DelegatableHandler;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.ContainerProperties;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.annotation.Resource;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Classes
+@ContainerProperties({
+    @ContainerProperties.Property(name = "db", value = "new://Resource?type=DataSource"),
+    @ContainerProperties.Property(name = "db.SqlMetrics", value = "true"),
+    @ContainerProperties.Property(name = "db.SqlMetricsSlowQuery", value = "0 milliseconds"),
+    @ContainerProperties.Property(name = "openejb.log.async", value = "false")
+})
+@RunWith(ApplicationComposer.class)
+public class SqlMetricsTest {
+    private static final String USERS = "select USER_NAME from INFORMATION_SCHEMA.SYSTEM_USERS where ? > 0";
+
+    @Resource
+    private DataSource ds;
+
+    @Test
+    public void fingerprint() {
+        assertEquals("select * from t where a = ? and b = ?", SqlMetrics.fingerprint("select *  from t\n where a = 'it''s' and b = 12.5"));
+        assertEquals("select col1 from t2 where id in (?+)", SqlMetrics.fingerprint("select col1 from t2 /* ids */ where id in (1, 2,3)"));
+        assertEquals("insert into t values (?+)+", SqlMetrics.fingerprint("insert into t values (?, ?), (?, ?) -- batch"));
+        assertEquals("select * from t where a = ?", SqlMetrics.fingerprint("select * from t where a = ?"));
+    }
+
+    @Test
+    public void statistics() throws Exception {
+        final SqlMetrics metrics = metrics();
+        metrics.reset();
+
+        try (final Connection c = ds.getConnection()) {
+            for (int i = 0; i < 3; i++) {
+                try (final PreparedStatement statement = c.prepareStatement(USERS)) {
+                    statement.setInt(1, i + 1);
+                    try (final ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            // no-op
+                        }
+                    }
+                }
+            }
+            try (final Statement statement = c.createStatement()) {
+                statement.execute("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS where 1 = 1");
+                statement.execute("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS where 2 = 2");
+                try {
+                    statement.execute("select missing from INFORMATION_SCHEMA.SYSTEM_USERS");
+                    fail();
+                } catch (final SQLException e) {
+                    // expected
+                }
+            }
+        }
+
+        final SqlMetrics.Statistics prepared = metrics.getStatistics(SqlMetrics.fingerprint(USERS));
+        assertNotNull(prepared);
+        assertEquals(3, prepared.getExecutions());
+        assertTrue(prepared.getRows() >= 3);
+        assertEquals(3, prepared.getSlowQueries());
+
+        final SqlMetrics.Statistics literals = metrics.getStatistics("select ? from INFORMATION_SCHEMA.SYSTEM_USERS where ? = ?");
+        assertNotNull(literals);
+        assertEquals(2, literals.getExecutions());
+
+        assertEquals(1, metrics.getStatistics("select missing from INFORMATION_SCHEMA.SYSTEM_USERS").getErrors());
+        assertEquals(6, metrics.getExecutions());
+        assertEquals(1, metrics.getErrors());
+
+        // one sample per fingerprint and sampling interval, with the bound parameters
+        assertEquals(3, metrics.getSlowQuerySamples().length);
+        assertTrue(metrics.getSlowQuerySamples()[0], metrics.getSlowQuerySamples()[0].endsWith("where 1 > 0"));
+        assertTrue(metrics.top(10).contains(SqlMetrics.fingerprint(USERS) + " - executions=3"));
+    }
+
+    @Test
+    public void batchStatementMBeanAndReset() throws Exception {
+        final SqlMetrics metrics = metrics();
+        try (final Connection c = ds.getConnection();
+             final Statement statement = c.createStatement()) {
+            statement.execute("create table BATCHED(ID integer)");
+            statement.addBatch("insert into BATCHED values (1)");
+            statement.addBatch("insert into BATCHED values (2)");
+            statement.executeBatch();
+        }
+
+        final String fingerprint = "insert into BATCHED values (?)";
+        final SqlMetrics.Statistics batch = metrics.getStatistics(fingerprint);
+        assertNotNull(batch);
+        assertEquals(1, batch.getExecutions());
+        assertEquals(2, batch.getRows());
+
+        final MBeanServer server = LocalMBeanServer.get();
+        final Set<ObjectName> names = server.queryNames(new ObjectName(
+            "openejb.management:ObjectType=sqlmetrics,Statement=s" + Integer.toHexString(fingerprint.hashCode()) + ",*"), null);
+        assertEquals(1, names.size());
+        final ObjectName name = names.iterator().next();
+        assertEquals(fingerprint, server.getAttribute(name, "Fingerprint"));
+        assertEquals(1L, server.getAttribute(name, "Executions"));
+        assertEquals(1L, server.getAttribute(name, "LeInf"));
+
+        // prepared statements keep their statistics instance, it is reset in place
+        metrics.reset();
+        assertSame(batch, metrics.getStatistics(fingerprint));
+        assertEquals(0, batch.getExecutions());
+        assertEquals(0L, server.getAttribute(name, "LeInf"));
+    }
+
+    @Test
+    public void statementMBeansOfFingerprintsSharingAHash() throws Exception {
+        final SqlMetrics metrics = metrics();
+        final String aa = "select Aa from INFORMATION_SCHEMA.SYSTEM_USERS";
+        final String bb = "select BB from INFORMATION_SCHEMA.SYSTEM_USERS";
+        assertEquals(SqlMetrics.fingerprint(aa).hashCode(), SqlMetrics.fingerprint(bb).hashCode());
+        metrics.statistics(aa);
+        metrics.statistics(bb);
+
+        final MBeanServer server = LocalMBeanServer.get();
+        final String statement = "openejb.management:ObjectType=sqlmetrics,Statement=s" + Integer.toHexString(SqlMetrics.fingerprint(aa).hashCode());
+        final Set<String> fingerprints = new HashSet<>();
+        for (final ObjectName name : server.queryNames(new ObjectName(statement + ",*"), null)) {
+            fingerprints.add((String) server.getAttribute(name, "Fingerprint"));
+        }
+        for (final ObjectName name : server.queryNames(new ObjectName(statement + "-2,*"), null)) {
+            fingerprints.add((String) server.getAttribute(name, "Fingerprint"));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(SqlMetrics.fingerprint(aa), SqlMetrics.fingerprint(bb))), fingerprints);
+    }
+
+    private SqlMetrics metrics() {
+        Object current = ds;
+        while (Proxy.isProxyClass(current.getClass())) {
+            final InvocationHandler handler = Proxy.getInvocationHandler(current);
+            if (handler instanceof LoggingSqlDataSource) {
+                return LoggingSqlDataSource.class.cast(handler).getMetrics();
+            }
+            if (!(handler instanceof DelegatableHandler)) {
+                break;
+            }
+            current = DelegatableHandler.class.cast(handler).getDelegate();
+        }
+        throw new IllegalStateException("no metrics on " + ds);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.threads;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManageableThread;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import org.apache.openejb.core.ThreadContext;
+import org.apache.openejb.jee.EnterpriseBean;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testng.PropertiesBuilder;
+import org.apache.openejb.threads.impl.ManagedExecutorServiceImpl;
+import org.apache.openejb.util.VirtualThreadFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(ApplicationComposer.class)
+public class VirtualThreadsManagedExecutorServiceTest {
+    @Configuration
+    public Properties configuration() {
+        return new PropertiesBuilder()
+            .property("concurrent/virtual", "new://Resource?type=ManagedExecutorService")
+            .property("concurrent/virtual.core", "2")
+            .property("concurrent/virtual.max", "2")
+            .property("concurrent/virtual.queue", "0")
+            .property("concurrent/virtual.virtualThreads", "true")
+            .build();
+    }
+
+    @Module
+    public EnterpriseBean bean() {
+        return new SingletonBean(VirtualBean.class).localBean();
+    }
+
+    @Resource(name = "concurrent/virtual")
+    private ManagedExecutorService es;
+
+    @EJB
+    private VirtualBean bean;
+
+    @Test
+    public void maxStaysTheConcurrencyLimit() {
+        final ThreadPoolExecutor pool = ThreadPoolExecutor.class.cast(ManagedExecutorServiceImpl.class.cast(es).getDelegate());
+        assertEquals(2, pool.getMaximumPoolSize());
+    }
+
+    @Test
+    public void contextIsPropagated() throws Exception {
+        assertTrue(bean.submit().get(1, TimeUnit.MINUTES));
+    }
+
+    @Singleton
+    public static class VirtualBean {
+        @Resource(name = "concurrent/virtual")
+        private ManagedExecutorService es;
+
+        public Future<Boolean> submit() {
+            final Object bean = ThreadContext.getThreadContext().getBeanContext().getId();
+            return es.submit(() -> {
+                // virtual threads are not ManageableThread, platform threads are the fallback before Java 21
+                final boolean virtual = !ManageableThread.class.isInstance(Thread.currentThread());
+                final ThreadContext context = ThreadContext.getThreadContext();
+                return virtual == VirtualThreadFactory.isSupported() && context != null && bean.equals(context.getBeanContext().getId());
+            });
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Compares the pop()/push() cycle of a pool using the shared list
+ * with the same pool using lock-free stripes.
+ *
+ * Run the main method with a thread count close to the number of cores
+ * of the box, contention only shows up under concurrency.
+ */
+@State(Scope.Benchmark)
+public class PoolPerfRunner {
+    private Pool<Object> linked;
+    private Pool<Object> striped;
+
+    @Setup
+    public void setup() {
+        linked = fill(newBuilder(0));
+        striped = fill(newBuilder(-1));
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        linked.close(1, TimeUnit.SECONDS);
+        striped.close(1, TimeUnit.SECONDS);
+    }
+
+    private static Pool.Builder<Object> newBuilder(final int stripes) {
+        final Pool.Builder<Object> builder = new Pool.Builder<>();
+        builder.setMaxSize(Runtime.getRuntime().availableProcessors() * 2);
+        builder.setStrictPooling(true);
+        builder.setStripes(stripes);
+        return builder;
+    }
+
+    private static Pool<Object> fill(final Pool.Builder<Object> builder) {
+        final Pool<Object> pool = builder.build();
+        while (pool.add(new Object())) {
+            // fill to max
+        }
+        return pool;
+    }
+
+    @Benchmark
+    public Object linkedPool() throws InterruptedException, TimeoutException {
+        return cycle(linked);
+    }
+
+    @Benchmark
+    public Object stripedPool() throws InterruptedException, TimeoutException {
+        return cycle(striped);
+    }
+
+    private static Object cycle(final Pool<Object> pool) throws InterruptedException, TimeoutException {
+        final Pool<Object>.Entry entry = pool.pop(30, TimeUnit.SECONDS);
+        if (entry == null) {
+            final Object instance = new Object();
+            pool.push(instance);
+            return instance;
+        }
+        final Object instance = entry.get();
+        pool.push(entry);
+        return instance;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PoolPerfRunner.class.getSimpleName())
+                .forks(0)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build())
+                .run();
+    }
+}
@@ -27,6 +27,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -271,6 +272,106 @@ public class PoolTest extends TestCase {
 
     }
 
+    public void testStripedMultiThreaded() throws Exception {
+        System.out.println("PoolTest.testStripedMultiThreaded");
+        final int threadCount = 200;
+
+        final Pool.Builder<Bean> builder = new Pool.Builder<>();
+        builder.setMinSize(5);
+        builder.setMaxSize(10);
+        builder.setStripes(4);
+        final Pool<Bean> pool = builder.build();
+        final CountDownLatch startPistol = new CountDownLatch(1);
+        final CountDownLatch finishingLine = new CountDownLatch(threadCount);
+
+        final Runnable r = new Runnable() {
+            public void run() {
+                try {
+                    startPistol.await();
+
+                    for (int i = 0; i < 5; i++) {
+                        final Pool<Bean>.Entry entry = pool.pop(5000, MILLISECONDS);
+                        if (entry == null) {
+                            pool.push(new Bean());
+                        } else {
+                            pool.push(entry);
+                        }
+                    }
+                } catch (final TimeoutException e) {
+                    // Simple timeout while waiting on pop()
+                } catch (final InterruptedException e) {
+                    Thread.interrupted();
+                }
+                finishingLine.countDown();
+            }
+        };
+
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(r).start();
+        }
+
+        startPistol.countDown();
+
+        assertTrue(finishingLine.await(10000, TimeUnit.MILLISECONDS));
+
+        // Instances stolen across stripes must never push the pool beyond max
+        final int pooled = Math.min(10, Bean.instances.get());
+        final List<Pool<Bean>.Entry> entries = drain(pool, 100);
+        checkMax(10, entries);
+        checkMin(Math.min(5, pooled), entries);
+        checkEntries(pooled, entries);
+    }
+
+    public void testStripedStrictPermits() throws Exception {
+        System.out.println("PoolTest.testStripedStrictPermits");
+
+        final Pool.Builder<Bean> builder = new Pool.Builder<>();
+        builder.setMaxSize(2);
+        builder.setStripes(4);
+        builder.setStrictPooling(true);
+        final Pool<Bean> pool = builder.build();
+
+        // both permits taken, whatever the stripe they were in
+        assertNull(pool.pop(0, MILLISECONDS));
+        assertNull(pool.pop(0, MILLISECONDS));
+        try {
+            pool.pop(100, MILLISECONDS);
+            fail("the pool is strict");
+        } catch (final TimeoutException e) {
+            // expected
+        }
+
+        // a waiting thread is woken by the permit another thread releases
+        final AtomicReference<Pool<Bean>.Entry> popped = new AtomicReference<>();
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread waiter = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    waiting.countDown();
+                    popped.set(pool.pop(10, TimeUnit.SECONDS));
+                } catch (final TimeoutException e) {
+                    // asserted below
+                } catch (final InterruptedException e) {
+                    Thread.interrupted();
+                }
+                done.countDown();
+            }
+        });
+        waiter.start();
+        assertTrue(waiting.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertTrue(pool.push(new Bean()));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(popped.get());
+        pool.push(popped.get());
+        pool.discard();
+
+        final List<Pool<Bean>.Entry> entries = drain(pool, 100);
+        checkEntries(1, entries);
+    }
+
     public void testClose() throws Exception {
         System.out.println("PoolTest.testClose");
 
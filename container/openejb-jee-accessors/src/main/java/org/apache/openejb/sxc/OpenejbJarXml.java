@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.sxc;
+
+import org.apache.openejb.jee.oejb3.OpenejbJar;
+import org.apache.openejb.jee.oejb3.OpenejbJar$JAXB;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Reads the openejb-jar.xml 3.x descriptors, the ones without namespace or using the openejb-jar/1.1 namespace.
+ * Other namespaces (openejb-jar 2.x, geronimo) are rejected so the caller can fall back on its other readers.
+ *
+ * @version $Rev$ $Date$
+ */
+public class OpenejbJarXml {
+    public static final String NAMESPACE = "http://www.openejb.org/openejb-jar/1.1";
+
+    public static OpenejbJar unmarshal(final InputStream inputStream) throws Exception {
+        final XMLStreamReader reader = Sxc.createReader(new StreamSource(inputStream));
+        try {
+            while (reader.getEventType() != XMLStreamConstants.START_ELEMENT && reader.hasNext()) {
+                reader.next();
+            }
+
+            final String namespace = reader.getNamespaceURI();
+            if (namespace != null && !namespace.isEmpty() && !NAMESPACE.equals(namespace)) {
+                throw new IllegalArgumentException("Not an openejb-jar 3 descriptor: " + namespace);
+            }
+            return Sxc.unmarhsal(new OpenejbJar$JAXB(), new NamespaceFilter(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public static void marshal(final OpenejbJar openejbJar, final OutputStream outputStream) throws Exception {
+        Sxc.marshal(new OpenejbJar$JAXB(), openejbJar, new StreamResult(outputStream));
+    }
+
+    private static class NamespaceFilter extends StreamReaderDelegate {
+        private NamespaceFilter(final XMLStreamReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public String getNamespaceURI() {
+            return OpenejbJarXml.NAMESPACE; // not XMLStreamConstants.NAMESPACE
+        }
+    }
+}
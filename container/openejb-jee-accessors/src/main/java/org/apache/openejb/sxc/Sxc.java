@@ -43,11 +43,17 @@ import javax.xml.transform.stream.StreamSource;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * @version $Rev$ $Date$
  */
 public class Sxc {
+    // creating and configuring a factory costs more than parsing a small descriptor so they are reused,
+    // a factory is only borrowed while a reader is created since the StAX spec doesn't require them to be thread safe
+    private static final Queue<XMLInputFactory> XML_INPUT_FACTORIES = new ConcurrentLinkedQueue<>();
+
     public static void marshall(final JAXBObject objectType, final Object object, final OutputStream outputStream) throws JAXBException {
         final Result result = new StreamResult(outputStream);
 
@@ -139,9 +145,19 @@ public class Sxc {
     public static XMLStreamReader prepareReader(final InputStream inputStream) throws XMLStreamException {
         final Source source = new StreamSource(inputStream);
 
-        final XMLStreamReader streamReader = getXmlInputFactory().createXMLStreamReader(source);
+        return new JavaeeNamespaceFilter(createReader(source));
+    }
 
-        return new JavaeeNamespaceFilter(streamReader);
+    public static XMLStreamReader createReader(final Source source) throws XMLStreamException {
+        XMLInputFactory factory = XML_INPUT_FACTORIES.poll();
+        if (factory == null) {
+            factory = getXmlInputFactory();
+        }
+        try {
+            return factory.createXMLStreamReader(source);
+        } finally {
+            XML_INPUT_FACTORIES.offer(factory);
+        }
     }
 
     public static <T> T unmarhsal(final JAXBObject<T> jaxbType, final XMLStreamReader xmlStreamReader) throws Exception {
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.sxc;
+
+import junit.framework.TestCase;
+import org.apache.openejb.jee.oejb3.EjbDeployment;
+import org.apache.openejb.jee.oejb3.OpenejbJar;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+public class OpenejbJarXmlTest extends TestCase {
+    public void testWithoutNamespace() throws Exception {
+        assertOpenejbJar(read("<openejb-jar>" + CONTENT + "</openejb-jar>"));
+    }
+
+    public void testWithNamespace() throws Exception {
+        assertOpenejbJar(read("<openejb-jar xmlns=\"" + OpenejbJarXml.NAMESPACE + "\">" + CONTENT + "</openejb-jar>"));
+    }
+
+    public void testRejectsV2() throws Exception {
+        try {
+            read("<openejb-jar xmlns=\"http://tomee.apache.org/xml/ns/openejb-jar-2.2\"><environment/></openejb-jar>");
+            fail("openejb-jar 2 descriptors are read by the JAXB v2 reader");
+        } catch (final IllegalArgumentException iae) {
+            // ok
+        }
+    }
+
+    private static final String CONTENT = "<module-name>app</module-name>" +
+        "<properties>foo=bar</properties>" +
+        "<ejb-deployment ejb-name=\"Bean\" deployment-id=\"BeanId\" container-id=\"Default Stateless Container\">" +
+        "<properties>bean.foo=bean-bar</properties>" +
+        "</ejb-deployment>";
+
+    private static OpenejbJar read(final String xml) throws Exception {
+        return OpenejbJarXml.unmarshal(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertOpenejbJar(final OpenejbJar openejbJar) {
+        assertEquals("app", openejbJar.getModuleName());
+        assertEquals("bar", openejbJar.getProperties().getProperty("foo"));
+        assertEquals(1, openejbJar.getEjbDeploymentCount());
+
+        final EjbDeployment deployment = openejbJar.getEjbDeployment().get(0);
+        assertEquals("Bean", deployment.getEjbName());
+        assertEquals("BeanId", deployment.getDeploymentId());
+        assertEquals("Default Stateless Container", deployment.getContainerId());
+        assertEquals("bean-bar", deployment.getProperties().getProperty("bean.foo"));
+    }
+}
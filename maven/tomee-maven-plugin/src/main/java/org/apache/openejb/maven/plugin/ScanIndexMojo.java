@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.maven.plugin;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.openejb.config.ScanIndex;
+import org.apache.xbean.finder.archive.FileArchive;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the scan index of the compiled classes (META-INF/openejb/scan.idx) so the jar
+ * doesn't need to be scanned when deployed with openejb.scan.index=true, as long as
+ * the jar packages these classes unchanged.
+ */
+@Mojo(name = "scan-index", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
+public class ScanIndexMojo extends AbstractMojo {
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    protected File classes;
+
+    @Parameter(property = "tomee-plugin.scan-index.skip", defaultValue = "false")
+    protected boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip || !classes.isDirectory()) {
+            getLog().info("Skipping scan index generation");
+            return;
+        }
+
+        final File index = new File(classes, ScanIndex.EMBEDDED);
+        if (index.exists() && !index.delete()) { // not part of the classes
+            throw new MojoExecutionException("Can't delete " + index);
+        }
+
+        try {
+            // the key of the classes lets the server ignore the index if the packaged classes differ, shaded for instance
+            ScanIndex.index(new FileArchive(Thread.currentThread().getContextClassLoader(), classes), ScanIndex.content(classes), index);
+        } catch (final IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        getLog().info("Created " + index.getAbsolutePath());
+    }
+}
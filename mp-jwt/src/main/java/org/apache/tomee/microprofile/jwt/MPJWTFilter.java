@@ -40,6 +40,8 @@ import org.apache.tomee.catalina.TomcatSecurityService;
 import org.apache.tomee.microprofile.jwt.bval.ValidationInterceptor;
 import org.apache.tomee.microprofile.jwt.config.JWTAuthConfiguration;
 import org.apache.tomee.microprofile.jwt.config.JWTAuthConfigurationProperties;
+import org.apache.tomee.microprofile.jwt.keys.JwksKeyStore;
+import org.apache.tomee.microprofile.jwt.keys.JwksKeyStoreResolver;
 import org.apache.tomee.microprofile.jwt.principal.JWTCallerPrincipal;
 import org.eclipse.microprofile.jwt.Claims;
 import org.eclipse.microprofile.jwt.JsonWebToken;
@@ -373,64 +375,7 @@ public class MPJWTFilter implements Filter {
         }
 
         public static JWTCallerPrincipal parse(final String token, final JWTAuthConfiguration authContextInfo) throws ParseException {
-            JWTCallerPrincipal principal;
-
             try {
-                final JwtConsumerBuilder builder = new JwtConsumerBuilder()
-                        .setRelaxVerificationKeyValidation()
-                        .setRelaxDecryptionKeyValidation()
-                        .setRequireSubject();
-
-                if (authContextInfo.getSignatureAlgorithm() != null) {
-                    builder.setJwsAlgorithmConstraints(
-                            new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
-                                    authContextInfo.getSignatureAlgorithm()
-                            ));
-                } else {
-                    builder.setJwsAlgorithmConstraints(
-                            new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
-                                    AlgorithmIdentifiers.RSA_USING_SHA256,
-                                    AlgorithmIdentifiers.RSA_USING_SHA384,
-                                    AlgorithmIdentifiers.RSA_USING_SHA512,
-                                    AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256,
-                                    AlgorithmIdentifiers.ECDSA_USING_P384_CURVE_AND_SHA384,
-                                    AlgorithmIdentifiers.ECDSA_USING_P521_CURVE_AND_SHA512
-                            ));
-                }
-
-                if (authContextInfo.getDecryptAlgorithm() != null) {
-                    builder.setJweAlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
-                            authContextInfo.getDecryptAlgorithm()
-                    );
-                } else {
-                    builder.setJweAlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
-                            KeyManagementAlgorithmIdentifiers.RSA_OAEP,
-                            KeyManagementAlgorithmIdentifiers.RSA_OAEP_256,
-                            KeyManagementAlgorithmIdentifiers.ECDH_ES,
-                            KeyManagementAlgorithmIdentifiers.ECDH_ES_A128KW,
-                            KeyManagementAlgorithmIdentifiers.ECDH_ES_A192KW,
-                            KeyManagementAlgorithmIdentifiers.ECDH_ES_A256KW
-                    );
-                }
-
-                if (authContextInfo.getAudiences().length > 0) {
-                    builder.setExpectedAudience(true, authContextInfo.getAudiences());
-                } else {
-                    builder.setSkipDefaultAudienceValidation();
-                }
-
-                if (!authContextInfo.isAllowNoExpiryClaim()) {
-                    builder.setRequireExpirationTime();
-                }
-                if (authContextInfo.getIssuer() != null) {
-                    builder.setExpectedIssuer(authContextInfo.getIssuer());
-                }
-                if (authContextInfo.getClockSkew()>= 0) {
-                    builder.setAllowedClockSkewInSeconds(authContextInfo.getClockSkew());
-                } else {
-                    builder.setEvaluationTime(NumericDate.fromSeconds(0));
-                }
-
                 final Map<String, Key> publicKeys;
                 try {
                     publicKeys = authContextInfo.getPublicKeys();
@@ -438,50 +383,14 @@ public class MPJWTFilter implements Filter {
                     throw new NoPublicKeysException(e);
                 }
 
-                if (publicKeys.size() == 1) {
-                    final Key key = publicKeys.values().iterator().next();
-                    builder.setVerificationKey(key);
-                } else if (publicKeys.size() > 1) {
-                    builder.setVerificationKeyResolver(new JwksVerificationKeyResolver(asJwks(publicKeys)));
-                }
-
                 final Map<String, Key> decryptKeys;
                 try {
                     decryptKeys = authContextInfo.getDecryptKeys();
                 } catch (Exception e) {
                     throw new NoPrivateKeysException(e);
                 }
-                if (decryptKeys.size() == 1) {
-                    final Key key = decryptKeys.values().iterator().next();
-                    builder.setDecryptionKey(key);
-                    builder.setEnableRequireEncryption();
-                } else if (decryptKeys.size() > 1) {
-                    builder.setDecryptionKeyResolver(new JwksDecryptionKeyResolver(asJwks(decryptKeys)));
-                    builder.setEnableRequireEncryption();
-                }
 
-                if (authContextInfo.getTokenAge() != null){
-                    builder.setRequireIssuedAt();
-                    builder.setIssuedAtRestrictions(authContextInfo.getTokenAge(), authContextInfo.getTokenAge());
-                }
-                
-                final JwtConsumer jwtConsumer = builder.build();
-                final JwtContext jwtContext = jwtConsumer.process(token);
-                final String type = jwtContext.getJoseObjects().get(0).getHeader("typ");
-                //  Validate the JWT and process it to the Claims
-                jwtConsumer.processContext(jwtContext);
-                JwtClaims claimsSet = jwtContext.getJwtClaims();
-
-                // We have to determine the unique name to use as the principal name. It comes from upn, preferred_username, sub in that order
-                String principalName = claimsSet.getClaimValue("upn", String.class);
-                if (principalName == null) {
-                    principalName = claimsSet.getClaimValue("preferred_username", String.class);
-                    if (principalName == null) {
-                        principalName = claimsSet.getSubject();
-                    }
-                }
-                claimsSet.setClaim(Claims.raw_token.name(), token);
-                principal = new JWTCallerPrincipal(token, type, claimsSet, principalName);
+                return TokenVerifier.of(authContextInfo).verify(authContextInfo, token, publicKeys, decryptKeys);
             } catch (final InvalidJwtException e) {
                 VALIDATION.warning(e.getMessage());
                 throw new ParseException("Failed to verify token", e);
@@ -498,8 +407,106 @@ public class MPJWTFilter implements Filter {
                 VALIDATION.error(e.getMessage());
                 throw e;
             }
+        }
+
+        static JwtConsumer consumer(final JWTAuthConfiguration authContextInfo, final Map<String, Key> publicKeys, final Map<String, Key> decryptKeys) {
+            final JwtConsumerBuilder builder = new JwtConsumerBuilder()
+                    .setRelaxVerificationKeyValidation()
+                    .setRelaxDecryptionKeyValidation()
+                    .setRequireSubject();
+
+            if (authContextInfo.getSignatureAlgorithm() != null) {
+                builder.setJwsAlgorithmConstraints(
+                        new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
+                                authContextInfo.getSignatureAlgorithm()
+                        ));
+            } else {
+                builder.setJwsAlgorithmConstraints(
+                        new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
+                                AlgorithmIdentifiers.RSA_USING_SHA256,
+                                AlgorithmIdentifiers.RSA_USING_SHA384,
+                                AlgorithmIdentifiers.RSA_USING_SHA512,
+                                AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256,
+                                AlgorithmIdentifiers.ECDSA_USING_P384_CURVE_AND_SHA384,
+                                AlgorithmIdentifiers.ECDSA_USING_P521_CURVE_AND_SHA512
+                        ));
+            }
+
+            if (authContextInfo.getDecryptAlgorithm() != null) {
+                builder.setJweAlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
+                        authContextInfo.getDecryptAlgorithm()
+                );
+            } else {
+                builder.setJweAlgorithmConstraints(AlgorithmConstraints.ConstraintType.PERMIT,
+                        KeyManagementAlgorithmIdentifiers.RSA_OAEP,
+                        KeyManagementAlgorithmIdentifiers.RSA_OAEP_256,
+                        KeyManagementAlgorithmIdentifiers.ECDH_ES,
+                        KeyManagementAlgorithmIdentifiers.ECDH_ES_A128KW,
+                        KeyManagementAlgorithmIdentifiers.ECDH_ES_A192KW,
+                        KeyManagementAlgorithmIdentifiers.ECDH_ES_A256KW
+                );
+            }
+
+            if (authContextInfo.getAudiences().length > 0) {
+                builder.setExpectedAudience(true, authContextInfo.getAudiences());
+            } else {
+                builder.setSkipDefaultAudienceValidation();
+            }
+
+            if (!authContextInfo.isAllowNoExpiryClaim()) {
+                builder.setRequireExpirationTime();
+            }
+            if (authContextInfo.getIssuer() != null) {
+                builder.setExpectedIssuer(authContextInfo.getIssuer());
+            }
+            if (authContextInfo.getClockSkew()>= 0) {
+                builder.setAllowedClockSkewInSeconds(authContextInfo.getClockSkew());
+            } else {
+                builder.setEvaluationTime(NumericDate.fromSeconds(0));
+            }
+
+            if (publicKeys instanceof JwksKeyStore.KeySet) {
+                builder.setVerificationKeyResolver(new JwksKeyStoreResolver(((JwksKeyStore.KeySet) publicKeys).getStore()));
+            } else if (publicKeys.size() == 1) {
+                final Key key = publicKeys.values().iterator().next();
+                builder.setVerificationKey(key);
+            } else if (publicKeys.size() > 1) {
+                builder.setVerificationKeyResolver(new JwksVerificationKeyResolver(asJwks(publicKeys)));
+            }
+
+            if (decryptKeys.size() == 1) {
+                final Key key = decryptKeys.values().iterator().next();
+                builder.setDecryptionKey(key);
+                builder.setEnableRequireEncryption();
+            } else if (decryptKeys.size() > 1) {
+                builder.setDecryptionKeyResolver(new JwksDecryptionKeyResolver(asJwks(decryptKeys)));
+                builder.setEnableRequireEncryption();
+            }
 
-            return principal;
+            if (authContextInfo.getTokenAge() != null){
+                builder.setRequireIssuedAt();
+                builder.setIssuedAtRestrictions(authContextInfo.getTokenAge(), authContextInfo.getTokenAge());
+            }
+
+            return builder.build();
+        }
+
+        static JWTCallerPrincipal principal(final JwtConsumer jwtConsumer, final String token) throws InvalidJwtException, MalformedClaimException {
+            // process() validates the JWT and processes it to the Claims, no need to call processContext() again
+            final JwtContext jwtContext = jwtConsumer.process(token);
+            final String type = jwtContext.getJoseObjects().get(0).getHeader("typ");
+            JwtClaims claimsSet = jwtContext.getJwtClaims();
+
+            // We have to determine the unique name to use as the principal name. It comes from upn, preferred_username, sub in that order
+            String principalName = claimsSet.getClaimValue("upn", String.class);
+            if (principalName == null) {
+                principalName = claimsSet.getClaimValue("preferred_username", String.class);
+                if (principalName == null) {
+                    principalName = claimsSet.getSubject();
+                }
+            }
+            claimsSet.setClaim(Claims.raw_token.name(), token);
+            return new JWTCallerPrincipal(token, type, claimsSet, principalName);
         }
 
         public static List<JsonWebKey> asJwks(final Map<String, Key> keys) {
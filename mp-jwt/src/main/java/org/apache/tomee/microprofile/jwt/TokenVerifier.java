@@ -0,0 +1,191 @@
+/*
+ *     Licensed to the Apache Software Foundation (ASF) under one or more
+ *     contributor license agreements.  See the NOTICE file distributed with
+ *     this work for additional information regarding copyright ownership.
+ *     The ASF licenses this file to You under the Apache License, Version 2.0
+ *     (the "License"); you may not use this file except in compliance with
+ *     the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt;
+
+import org.apache.tomee.microprofile.jwt.config.JWTAuthConfiguration;
+import org.apache.tomee.microprofile.jwt.principal.JWTCallerPrincipal;
+import org.eclipse.microprofile.jwt.Claims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the tokens of a {@link JWTAuthConfiguration} with a JwtConsumer built once
+ * and remembers the verified tokens until they expire.
+ *
+ * The consumer and the verified tokens are dropped as soon as the keys of the configuration
+ * change so a token signed with a revoked key is verified again and rejected.
+ * A cached token is valid until its exp claim, its iat claim plus the configured token age
+ * or the cache max age, the earliest one, the clock skew included like jose4j does.
+ * The nbf claim doesn't need to be checked again since it passed when the token was verified.
+ */
+class TokenVerifier {
+
+    private static final Map<JWTAuthConfiguration, TokenVerifier> VERIFIERS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final MessageDigest SHA_256;
+
+    static {
+        try {
+            SHA_256 = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // no reference to the configuration, it is the weak key of the verifier
+    private volatile State state;
+
+    static TokenVerifier of(final JWTAuthConfiguration configuration) {
+        return VERIFIERS.computeIfAbsent(configuration, c -> new TokenVerifier());
+    }
+
+    JWTCallerPrincipal verify(final JWTAuthConfiguration configuration, final String token,
+                              final Map<String, Key> publicKeys, final Map<String, Key> decryptKeys)
+            throws InvalidJwtException, MalformedClaimException {
+        final State current = state(configuration, publicKeys, decryptKeys);
+        if (current.tokens == null) {
+            return MPJWTFilter.ValidateJSonWebToken.principal(current.consumer, token);
+        }
+
+        final ByteBuffer digest = digest(token);
+        final VerifiedToken verified = current.tokens.get(digest);
+        if (verified != null) {
+            if (verified.validUntil - System.currentTimeMillis() > 0 && token.equals(verified.principal.getRawToken())) {
+                return verified.principal;
+            }
+            current.tokens.remove(digest, verified);
+        }
+
+        final JWTCallerPrincipal principal = MPJWTFilter.ValidateJSonWebToken.principal(current.consumer, token);
+        current.add(digest, new VerifiedToken(principal, validUntil(configuration, principal)));
+        return principal;
+    }
+
+    private State state(final JWTAuthConfiguration configuration, final Map<String, Key> publicKeys, final Map<String, Key> decryptKeys) {
+        final State current = state;
+        if (current != null && current.uses(publicKeys, decryptKeys)) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (state == null || !state.uses(publicKeys, decryptKeys)) {
+                state = new State(publicKeys, decryptKeys,
+                        MPJWTFilter.ValidateJSonWebToken.consumer(configuration, publicKeys, decryptKeys),
+                        configuration.getTokenCacheSize());
+            }
+            return state;
+        }
+    }
+
+    private static long validUntil(final JWTAuthConfiguration configuration, final JWTCallerPrincipal principal) {
+        final long now = System.currentTimeMillis();
+        long validUntil = now + configuration.getTokenCacheMaxAge();
+
+        final Integer clockSkew = configuration.getClockSkew();
+        if (clockSkew != null && clockSkew < 0) { // tokens are evaluated at the epoch, time doesn't matter
+            return validUntil;
+        }
+
+        final long skew = TimeUnit.SECONDS.toMillis(clockSkew == null ? 0 : clockSkew);
+        final Optional<Number> expiration = principal.claim(Claims.exp.name());
+        if (expiration.isPresent()) {
+            validUntil = Math.min(validUntil, TimeUnit.SECONDS.toMillis(expiration.get().longValue()) + skew);
+        }
+
+        final Integer tokenAge = configuration.getTokenAge();
+        final Optional<Number> issuedAt = principal.claim(Claims.iat.name());
+        if (tokenAge != null && issuedAt.isPresent()) {
+            validUntil = Math.min(validUntil, TimeUnit.SECONDS.toMillis(issuedAt.get().longValue() + tokenAge) + skew);
+        }
+        return validUntil;
+    }
+
+    private static ByteBuffer digest(final String token) {
+        final MessageDigest digest;
+        try {
+            digest = (MessageDigest) SHA_256.clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static final class State {
+        private final Map<String, Key> publicKeys;
+        private final Map<String, Key> decryptKeys;
+        private final JwtConsumer consumer;
+        private final ConcurrentMap<ByteBuffer, VerifiedToken> tokens;
+        private final int maxSize;
+
+        private State(final Map<String, Key> publicKeys, final Map<String, Key> decryptKeys,
+                      final JwtConsumer consumer, final int maxSize) {
+            this.publicKeys = publicKeys;
+            this.decryptKeys = decryptKeys;
+            this.consumer = consumer;
+            this.maxSize = maxSize;
+            this.tokens = maxSize > 0 ? new ConcurrentHashMap<>() : null;
+        }
+
+        private boolean uses(final Map<String, Key> publicKeys, final Map<String, Key> decryptKeys) {
+            return same(this.publicKeys, publicKeys) && same(this.decryptKeys, decryptKeys);
+        }
+
+        private static boolean same(final Map<String, Key> current, final Map<String, Key> keys) {
+            return current == keys || current.equals(keys);
+        }
+
+        private void add(final ByteBuffer digest, final VerifiedToken token) {
+            if (tokens.size() >= maxSize) {
+                final long now = System.currentTimeMillis();
+                tokens.values().removeIf(t -> t.validUntil - now <= 0);
+
+                // still full, make some room without tracking the usage of the tokens
+                final Iterator<ByteBuffer> it = tokens.keySet().iterator();
+                for (int i = tokens.size() - maxSize; i >= 0 && it.hasNext(); i--) {
+                    it.next();
+                    it.remove();
+                }
+            }
+            tokens.put(digest, token);
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final JWTCallerPrincipal principal;
+        private final long validUntil;
+
+        private VerifiedToken(final JWTCallerPrincipal principal, final long validUntil) {
+            this.principal = principal;
+            this.validUntil = validUntil;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.apache.tomee.microprofile.jwt.config;
 
 import java.security.Key;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 /**
@@ -25,6 +26,8 @@ import java.util.function.Supplier;
  */
 public class JWTAuthConfiguration {
     public static final String DEFAULT_KEY = "DEFAULT";
+    public static final int DEFAULT_TOKEN_CACHE_SIZE = 1000;
+    public static final long DEFAULT_TOKEN_CACHE_MAX_AGE = TimeUnit.MINUTES.toMillis(10);
 
     private final Supplier<Map<String, Key>> publicKeys;
     private final Supplier<Map<String, Key>> decryptKeys;
@@ -38,6 +41,15 @@ public class JWTAuthConfiguration {
     private final Integer tokenAge;
     private final Integer clockSkew;
 
+    /**
+     * tomee.mp.jwt.token.cache.size and tomee.mp.jwt.token.cache.maxAge
+     *
+     * How many verified tokens are kept to not verify their signature again and for how long
+     * at most, in milliseconds. A size of 0 disables the cache.
+     */
+    private final int tokenCacheSize;
+    private final long tokenCacheMaxAge;
+
     /**
      * mp.jwt.verify.publickey.algorithm
      *
@@ -56,6 +68,12 @@ public class JWTAuthConfiguration {
     private String decryptAlgorithm;
 
     public JWTAuthConfiguration(final Supplier<Map<String, Key>> publicKeys, final String issuer, final boolean allowNoExpiryClaim, final String[] audiences, final Supplier<Map<String, Key>> decryptKeys, final String header, final String cookie, final String decryptAlgorithm, final String signatureAlgorithm, final Integer tokenAge, final Integer clockSkew) {
+        this(publicKeys, issuer, allowNoExpiryClaim, audiences, decryptKeys, header, cookie, decryptAlgorithm, signatureAlgorithm, tokenAge, clockSkew,
+                DEFAULT_TOKEN_CACHE_SIZE, DEFAULT_TOKEN_CACHE_MAX_AGE);
+    }
+
+    public JWTAuthConfiguration(final Supplier<Map<String, Key>> publicKeys, final String issuer, final boolean allowNoExpiryClaim, final String[] audiences, final Supplier<Map<String, Key>> decryptKeys, final String header, final String cookie, final String decryptAlgorithm, final String signatureAlgorithm, final Integer tokenAge, final Integer clockSkew,
+                                final int tokenCacheSize, final long tokenCacheMaxAge) {
         this.publicKeys = publicKeys;
         this.decryptKeys = decryptKeys;
         this.issuer = issuer;
@@ -67,6 +85,8 @@ public class JWTAuthConfiguration {
         this.signatureAlgorithm = signatureAlgorithm;
         this.tokenAge = tokenAge;
         this.clockSkew = clockSkew;
+        this.tokenCacheSize = tokenCacheSize;
+        this.tokenCacheMaxAge = tokenCacheMaxAge;
     }
 
     public String getCookieName() {
@@ -120,4 +140,12 @@ public class JWTAuthConfiguration {
     public Integer getClockSkew() {
         return clockSkew;
     }
+
+    public int getTokenCacheSize() {
+        return tokenCacheSize;
+    }
+
+    public long getTokenCacheMaxAge() {
+        return tokenCacheMaxAge;
+    }
 }
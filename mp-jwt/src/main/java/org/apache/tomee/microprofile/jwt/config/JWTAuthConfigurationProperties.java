@@ -16,6 +16,7 @@
  */
 package org.apache.tomee.microprofile.jwt.config;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.context.Initialized;
 import jakarta.enterprise.event.Observes;
@@ -27,10 +28,13 @@ import org.apache.openejb.util.Logger;
 import org.apache.tomee.microprofile.jwt.JWTLogCategories;
 import org.apache.tomee.microprofile.jwt.keys.DecryptKeys;
 import org.apache.tomee.microprofile.jwt.keys.FixedKeys;
+import org.apache.tomee.microprofile.jwt.keys.JwksKeyStore;
+import org.apache.tomee.microprofile.jwt.keys.KeyResolver;
 import org.apache.tomee.microprofile.jwt.keys.PublicKeys;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
 
+import java.net.URI;
 import java.security.Key;
 import java.util.Arrays;
 import java.util.Collections;
@@ -65,12 +69,20 @@ public class JWTAuthConfigurationProperties {
 
     private Config config;
     private JWTAuthConfiguration jwtAuthConfiguration;
+    private Supplier<Map<String, Key>> publicKeys;
 
     public void init(@Observes @Initialized(ApplicationScoped.class) ServletContext context) {
         this.config = ConfigProvider.getConfig();
         this.jwtAuthConfiguration = createJWTAuthConfiguration();
     }
 
+    @PreDestroy
+    public void destroy() {
+        if (publicKeys instanceof JwksKeyStore) { // stops its refresh thread with the application
+            ((JwksKeyStore) publicKeys).close();
+        }
+    }
+
     public Optional<JWTAuthConfiguration> getJWTAuthConfiguration() {
         return Optional.ofNullable(jwtAuthConfiguration);
     }
@@ -104,7 +116,7 @@ public class JWTAuthConfigurationProperties {
 
         final List<String> audiences = getAudiences();
 
-        final Supplier<Map<String, Key>> publicKeys = Keys.VERIFY.configure(config);
+        publicKeys = Keys.VERIFY.configure(config);
         final Supplier<Map<String, Key>> decryptKeys = Keys.DECRYPT.configure(config);
 
         final Boolean allowNoExp = queryAllowExp();
@@ -120,7 +132,12 @@ public class JWTAuthConfigurationProperties {
                 config.getOptionalValue("mp.jwt.decrypt.key.algorithm", String.class).orElse(null),
                 config.getOptionalValue("mp.jwt.verify.publickey.algorithm", String.class).orElse(null),
                 config.getOptionalValue(TOKEN_AGE, Integer.class).orElse(null),
-                config.getOptionalValue(CLOCK_SKEW, Integer.class).orElse(0));
+                config.getOptionalValue(CLOCK_SKEW, Integer.class).orElse(0),
+                config.getOptionalValue("tomee.mp.jwt.token.cache.size", Integer.class)
+                        .orElse(JWTAuthConfiguration.DEFAULT_TOKEN_CACHE_SIZE),
+                config.getOptionalValue("tomee.mp.jwt.token.cache.maxAge", Duration.class)
+                        .map(d -> d.getTime(TimeUnit.MILLISECONDS))
+                        .orElse(JWTAuthConfiguration.DEFAULT_TOKEN_CACHE_MAX_AGE));
     }
   
     private Boolean queryAllowExp(){
@@ -165,6 +182,18 @@ public class JWTAuthConfigurationProperties {
                 default: throw new IllegalArgumentException("Unsupported enum value: " + this);
             }
 
+            if (options.cached() && this == VERIFY && location.filter(s -> s.startsWith("http")).isPresent()) {
+                final KeyResolver resolver = new KeyResolver();
+                return JwksKeyStore.builder(URI.create(location.get()),
+                                json -> resolver.resolvePublicKey(Optional.of(json), Optional.empty()).orElse(Collections.EMPTY_MAP))
+                        .refreshInterval(options.refreshInterval())
+                        .minRefreshInterval(options.minRefreshInterval())
+                        .initialRetryDelay(options.initialRetryDelay())
+                        .maxRetryDelay(options.maxRetryDelay())
+                        .accessTimeout(options.accessTimeout())
+                        .build();
+            }
+
             if (options.cached()) {
                 return CachedSupplier.builder(supplier)
                         .refreshInterval(options.refreshInterval())
@@ -217,6 +246,11 @@ public class JWTAuthConfigurationProperties {
                 return config.getOptionalValue(tomeePrefix + ".cache.refreshInterval", Duration.class)
                         .orElse(new Duration(1, TimeUnit.DAYS));
             }
+
+            Duration minRefreshInterval() {
+                return config.getOptionalValue(tomeePrefix + ".cache.minRefreshInterval", Duration.class)
+                        .orElse(new Duration(30, TimeUnit.SECONDS));
+            }
         }
     }
 
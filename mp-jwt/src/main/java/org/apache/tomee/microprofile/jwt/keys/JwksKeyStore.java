@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt.keys;
+
+import org.apache.openejb.loader.IO;
+import org.apache.openejb.util.CachedSupplier;
+import org.apache.openejb.util.Duration;
+import org.apache.openejb.util.Logger;
+import org.apache.tomee.microprofile.jwt.JWTLogCategories;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Public keys of a JWKS endpoint, refreshed in the background.
+ *
+ * The keys are indexed by kid and by key algorithm (RSA, EC...) so the key of a token
+ * is found without going through all the keys. The keys in use are served while a refresh
+ * is in flight, requests only wait for the very first load.
+ *
+ * The next refresh happens after the max-age of the Cache-Control header (or the Expires header)
+ * bounded by minRefreshInterval and refreshInterval, refreshInterval when the server doesn't say.
+ * The ETag and Last-Modified headers are sent back so an unchanged key set is not downloaded again.
+ *
+ * A token with an unknown kid triggers a refresh, at most once per minRefreshInterval, so the keys
+ * of a rotation are used as soon as the server publishes them without letting tokens with random
+ * kids hammer the server.
+ */
+public class JwksKeyStore implements Supplier<Map<String, Key>>, AutoCloseable {
+    private static final Logger LOG = Logger.getInstance(JWTLogCategories.KEYS.createChild("jwks"), JwksKeyStore.class);
+
+    private final URI location;
+    private final Function<String, Map<String, Key>> parser;
+    private final Duration initialRetryDelay;
+    private final Duration maxRetryDelay;
+    private final Duration accessTimeout;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r);
+        thread.setName(JwksKeyStore.class.getSimpleName() + " Refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CountDownLatch initialized = new CountDownLatch(1);
+    private final AtomicReference<CompletableFuture<KeySet>> refreshing = new AtomicReference<>();
+
+    private volatile KeySet keys;
+    private volatile long lastRefresh = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private String etag; // only used by the refresh thread
+    private String lastModified;
+    private Duration retryDelay;
+    private ScheduledFuture<?> next;
+
+    private JwksKeyStore(final Builder builder) {
+        this.location = Objects.requireNonNull(builder.location, "location");
+        this.parser = Objects.requireNonNull(builder.parser, "parser");
+        this.initialRetryDelay = builder.initialRetryDelay;
+        this.maxRetryDelay = builder.maxRetryDelay;
+        this.accessTimeout = builder.accessTimeout;
+        this.refreshInterval = builder.refreshInterval;
+        this.minRefreshInterval = Duration.min(builder.minRefreshInterval, builder.refreshInterval);
+        refresh();
+    }
+
+    public static Builder builder(final URI location, final Function<String, Map<String, Key>> parser) {
+        return new Builder(location, parser);
+    }
+
+    /**
+     * @return the keys by kid, waits for the first load at most accessTimeout
+     */
+    @Override
+    public KeySet get() {
+        final KeySet current = keys;
+        if (current != null) {
+            return current;
+        }
+
+        try {
+            if (initialized.await(accessTimeout.getTime(), accessTimeout.getUnit())) {
+                return keys;
+            }
+            throw new CachedSupplier.AccessTimeoutException(accessTimeout, this);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CachedSupplier.AccessInterruptedException(this);
+        }
+    }
+
+    /**
+     * @param kid the kid of a token
+     * @return the key or null if the server doesn't know it even after a refresh
+     */
+    public Key key(final String kid) {
+        final Key key = get().get(kid);
+        if (key != null) {
+            return key;
+        }
+
+        if (System.nanoTime() - lastRefresh < minRefreshInterval.getTime(TimeUnit.NANOSECONDS)) {
+            LOG.debug(String.format("Unknown kid %s, last refresh of %s is too recent to refresh again", kid, location));
+            return null;
+        }
+
+        LOG.info(String.format("Unknown kid %s, refreshing the keys of %s", kid, location));
+        try {
+            return refresh().get(accessTimeout.getTime(), accessTimeout.getUnit()).get(kid);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (final ExecutionException | TimeoutException e) {
+            return keys.get(kid);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<KeySet> refresh() {
+        while (true) {
+            final CompletableFuture<KeySet> inFlight = refreshing.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+
+            final CompletableFuture<KeySet> future = new CompletableFuture<>();
+            if (refreshing.compareAndSet(null, future)) {
+                executor.execute(() -> load(future));
+                return future;
+            }
+        }
+    }
+
+    private void load(final CompletableFuture<KeySet> future) {
+        if (next != null) {
+            next.cancel(false);
+        }
+
+        Duration delay;
+        try {
+            delay = fetch();
+            retryDelay = null;
+        } catch (final RuntimeException e) {
+            retryDelay = retryDelay == null ? initialRetryDelay : Duration.min(maxRetryDelay, retryDelay.multiply(2));
+            delay = keys == null ? retryDelay : Duration.min(retryDelay, refreshInterval);
+            LOG.error(String.format("Refresh of the keys of %s failed. Keys in use are kept, next refresh will be in %s", location, delay), e);
+        } finally {
+            lastRefresh = System.nanoTime();
+            refreshing.set(null);
+        }
+
+        future.complete(keys);
+        next = executor.schedule(this::refresh, delay.getTime(), delay.getUnit());
+    }
+
+    private Duration fetch() {
+        final long start = System.nanoTime();
+        final HttpURLConnection connection;
+        final int responseCode;
+        try {
+            connection = (HttpURLConnection) location.toURL().openConnection();
+            connection.setConnectTimeout((int) accessTimeout.getTime(TimeUnit.MILLISECONDS));
+            connection.setReadTimeout((int) accessTimeout.getTime(TimeUnit.MILLISECONDS));
+            if (keys != null && etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            if (keys != null && lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+            responseCode = connection.getResponseCode();
+        } catch (final Exception e) {
+            throw new HttpLocation.ReadFailureException(e);
+        }
+
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            LOG.debug(String.format("Key Server returned HTTP 304: %s, %s ms", location, elapsed));
+            return nextRefresh(connection);
+        }
+
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            final String responseMessage;
+            try {
+                responseMessage = connection.getResponseMessage();
+            } catch (final Exception e) {
+                throw new HttpLocation.ReadFailureException(e);
+            }
+            throw new HttpLocation.UnexpectedHttpResponseException(responseCode, responseMessage);
+        }
+
+        final String json;
+        try (final InputStream in = connection.getInputStream()) {
+            json = new String(IO.readBytes(in), StandardCharsets.UTF_8);
+        } catch (final Exception e) {
+            throw new HttpLocation.ReadFailureException(e);
+        }
+
+        final KeySet loaded = new KeySet(this, parser.apply(json));
+        if (!loaded.equals(keys)) {
+            keys = loaded;
+            LOG.info(String.format("Key Server returned HTTP 200: %s, %s keys %s, %s ms", location, loaded.size(), loaded.keySet(), elapsed));
+        }
+        initialized.countDown();
+
+        etag = connection.getHeaderField("ETag");
+        lastModified = connection.getHeaderField("Last-Modified");
+        return nextRefresh(connection);
+    }
+
+    private Duration nextRefresh(final HttpURLConnection connection) {
+        final String cacheControl = connection.getHeaderField("Cache-Control");
+        Long maxAge = null;
+        if (cacheControl != null) {
+            for (final String directive : cacheControl.toLowerCase(Locale.ENGLISH).split(",")) {
+                final String value = directive.trim();
+                if (value.equals("no-cache") || value.equals("no-store")) {
+                    maxAge = 0L;
+                    break;
+                }
+                if (value.startsWith("max-age=")) {
+                    try {
+                        maxAge = TimeUnit.SECONDS.toMillis(Long.parseLong(value.substring("max-age=".length()).trim()));
+                    } catch (final NumberFormatException e) {
+                        // ignored, not a directive we can use
+                    }
+                }
+            }
+        }
+        if (maxAge == null) {
+            final long expires = connection.getHeaderFieldDate("Expires", 0);
+            if (expires > 0) {
+                maxAge = expires - connection.getHeaderFieldDate("Date", System.currentTimeMillis());
+            }
+        }
+        if (maxAge == null) {
+            return refreshInterval;
+        }
+
+        final long min = minRefreshInterval.getTime(TimeUnit.MILLISECONDS);
+        final long max = refreshInterval.getTime(TimeUnit.MILLISECONDS);
+        return new Duration(Math.max(min, Math.min(max, maxAge)), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "JwksKeyStore{" +
+                "location=" + location +
+                '}';
+    }
+
+    /**
+     * Immutable keys of the store, by kid and by key algorithm.
+     */
+    public static final class KeySet extends AbstractMap<String, Key> {
+        private final JwksKeyStore store;
+        private final Map<String, Key> byKid;
+        private final Map<String, List<Key>> byAlgorithm = new HashMap<>();
+
+        private KeySet(final JwksKeyStore store, final Map<String, Key> keys) {
+            this.store = store;
+            this.byKid = Collections.unmodifiableMap(new HashMap<>(keys));
+            for (final Key key : byKid.values()) {
+                byAlgorithm.computeIfAbsent(key.getAlgorithm(), k -> new ArrayList<>()).add(key);
+            }
+        }
+
+        public JwksKeyStore getStore() {
+            return store;
+        }
+
+        @Override
+        public Key get(final Object kid) {
+            return byKid.get(kid);
+        }
+
+        @Override
+        public boolean containsKey(final Object kid) {
+            return byKid.containsKey(kid);
+        }
+
+        @Override
+        public int size() {
+            return byKid.size();
+        }
+
+        /**
+         * @param algorithm the key algorithm as in {@link Key#getAlgorithm()}
+         */
+        public List<Key> byAlgorithm(final String algorithm) {
+            final List<Key> keys = byAlgorithm.get(algorithm);
+            return keys == null ? Collections.emptyList() : Collections.unmodifiableList(keys);
+        }
+
+        @Override
+        public Set<Entry<String, Key>> entrySet() {
+            return byKid.entrySet();
+        }
+    }
+
+    public static class Builder {
+        private final URI location;
+        private final Function<String, Map<String, Key>> parser;
+        private Duration initialRetryDelay = new Duration(2, TimeUnit.SECONDS);
+        private Duration maxRetryDelay = new Duration(1, TimeUnit.HOURS);
+        private Duration accessTimeout = new Duration(30, TimeUnit.SECONDS);
+        private Duration refreshInterval = new Duration(1, TimeUnit.DAYS);
+        private Duration minRefreshInterval = new Duration(30, TimeUnit.SECONDS);
+
+        private Builder(final URI location, final Function<String, Map<String, Key>> parser) {
+            this.location = location;
+            this.parser = parser;
+        }
+
+        public Builder initialRetryDelay(final Duration initialRetryDelay) {
+            this.initialRetryDelay = initialRetryDelay;
+            return this;
+        }
+
+        public Builder maxRetryDelay(final Duration maxRetryDelay) {
+            this.maxRetryDelay = maxRetryDelay;
+            return this;
+        }
+
+        public Builder accessTimeout(final Duration accessTimeout) {
+            this.accessTimeout = accessTimeout;
+            return this;
+        }
+
+        public Builder refreshInterval(final Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        public Builder minRefreshInterval(final Duration minRefreshInterval) {
+            this.minRefreshInterval = minRefreshInterval;
+            return this;
+        }
+
+        public JwksKeyStore build() {
+            return new JwksKeyStore(this);
+        }
+    }
+}
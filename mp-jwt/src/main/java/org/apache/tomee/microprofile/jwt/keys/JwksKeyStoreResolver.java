@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt.keys;
+
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.jose4j.lang.InvalidAlgorithmException;
+import org.jose4j.lang.UnresolvableKeyException;
+
+import java.security.Key;
+import java.util.List;
+
+/**
+ * Resolves the verification key of a token from the current keys of a {@link JwksKeyStore},
+ * by kid when the token has one, else (or when the kid is unknown) by key type when it matches a single key.
+ */
+public class JwksKeyStoreResolver implements VerificationKeyResolver {
+    private final JwksKeyStore store;
+
+    public JwksKeyStoreResolver(final JwksKeyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Key resolveKey(final JsonWebSignature jws, final List<JsonWebStructure> nestingContext) throws UnresolvableKeyException {
+        final String kid = jws.getKeyIdHeaderValue();
+        if (kid != null) {
+            final Key key = store.key(kid);
+            if (key != null) {
+                return key;
+            }
+        }
+
+        final String keyType;
+        try {
+            keyType = jws.getKeyType();
+        } catch (final InvalidAlgorithmException e) {
+            throw new UnresolvableKeyException(e.getMessage(), e);
+        }
+
+        final List<Key> keys = store.get().byAlgorithm(keyType);
+        if (keys.size() != 1) {
+            throw new UnresolvableKeyException((kid == null ? "Token without kid" : "No key with kid " + kid)
+                    + " and " + keys.size() + " " + keyType + " keys in " + store);
+        }
+        return keys.get(0);
+    }
+}
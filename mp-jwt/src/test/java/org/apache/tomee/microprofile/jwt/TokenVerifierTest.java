@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt;
+
+import org.apache.tomee.microprofile.jwt.config.JWTAuthConfiguration;
+import org.apache.tomee.microprofile.jwt.principal.JWTCallerPrincipal;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.junit.Test;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TokenVerifierTest {
+
+    @Test
+    public void cached() throws Exception {
+        final KeyPair keys = keyPair();
+        final JWTAuthConfiguration configuration = configuration(new AtomicReference<>(keys), 10);
+
+        final String token = token(keys, NumericDate.now().getValue() + 60);
+        final JWTCallerPrincipal principal = MPJWTFilter.ValidateJSonWebToken.parse(token, configuration);
+        assertEquals("alice", principal.getName());
+        assertSame(principal, MPJWTFilter.ValidateJSonWebToken.parse(token, configuration));
+
+        final String other = token(keys, NumericDate.now().getValue() + 120);
+        assertNotSame(principal, MPJWTFilter.ValidateJSonWebToken.parse(other, configuration));
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        final KeyPair keys = keyPair();
+        final JWTAuthConfiguration configuration = configuration(new AtomicReference<>(keys), 0);
+
+        final String token = token(keys, NumericDate.now().getValue() + 60);
+        assertNotSame(MPJWTFilter.ValidateJSonWebToken.parse(token, configuration),
+                MPJWTFilter.ValidateJSonWebToken.parse(token, configuration));
+    }
+
+    @Test
+    public void expired() throws Exception {
+        final KeyPair keys = keyPair();
+        final JWTAuthConfiguration configuration = configuration(new AtomicReference<>(keys), 10);
+
+        final String token = token(keys, NumericDate.now().getValue() + 1);
+        MPJWTFilter.ValidateJSonWebToken.parse(token, configuration);
+        Thread.sleep(2000);
+        assertInvalid(token, configuration);
+    }
+
+    @Test
+    public void keyRotation() throws Exception {
+        final KeyPair keys = keyPair();
+        final AtomicReference<KeyPair> currentKeys = new AtomicReference<>(keys);
+        final JWTAuthConfiguration configuration = configuration(currentKeys, 10);
+
+        final String token = token(keys, NumericDate.now().getValue() + 60);
+        MPJWTFilter.ValidateJSonWebToken.parse(token, configuration);
+
+        final KeyPair rotated = keyPair();
+        currentKeys.set(rotated);
+        assertInvalid(token, configuration);
+        MPJWTFilter.ValidateJSonWebToken.parse(token(rotated, NumericDate.now().getValue() + 60), configuration);
+    }
+
+    private static void assertInvalid(final String token, final JWTAuthConfiguration configuration) {
+        try {
+            MPJWTFilter.ValidateJSonWebToken.parse(token, configuration);
+            fail("token should be rejected");
+        } catch (final ParseException e) {
+            // ok
+        }
+    }
+
+    private static JWTAuthConfiguration configuration(final AtomicReference<KeyPair> keys, final int cacheSize) {
+        final AtomicReference<Map<String, Key>> publicKeys = new AtomicReference<>();
+        return new JWTAuthConfiguration(() -> {
+            final Map<String, Key> current = publicKeys.get();
+            if (current == null || current.get(JWTAuthConfiguration.DEFAULT_KEY) != keys.get().getPublic()) {
+                publicKeys.set(Collections.singletonMap(JWTAuthConfiguration.DEFAULT_KEY, keys.get().getPublic()));
+            }
+            return publicKeys.get();
+        }, "https://server.example.com", false, new String[0], Collections::emptyMap,
+                "authorization", "bearer", null, null, null, 0, cacheSize, JWTAuthConfiguration.DEFAULT_TOKEN_CACHE_MAX_AGE);
+    }
+
+    private static KeyPair keyPair() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static String token(final KeyPair keys, final long expiration) throws Exception {
+        final JwtClaims claims = new JwtClaims();
+        claims.setIssuer("https://server.example.com");
+        claims.setSubject("alice");
+        claims.setIssuedAtToNow();
+        claims.setExpirationTime(NumericDate.fromSeconds(expiration));
+
+        final JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(keys.getPrivate());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setHeader("typ", "JWT");
+        return jws.getCompactSerialization();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt.keys;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.openejb.util.Duration;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.lang.UnresolvableKeyException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class JwksKeyStoreTest {
+    private final List<JsonWebKey> keys = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private volatile String cacheControl = "max-age=3600";
+
+    private HttpServer server;
+    private JwksKeyStore store;
+
+    @Before
+    public void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            requests.incrementAndGet();
+            final String json = new JsonWebKeySet(new ArrayList<>(keys)).toJson();
+            final String etag = '"' + Integer.toHexString(json.hashCode()) + '"';
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (final OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        if (store != null) {
+            store.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void indexed() throws Exception {
+        keys.add(key("one"));
+        keys.add(key("two"));
+        store = store(new Duration(1, TimeUnit.MINUTES));
+
+        final JwksKeyStore.KeySet keySet = store.get();
+        assertEquals(2, keySet.size());
+        assertEquals(keys.get(0).getKey(), store.key("one"));
+        assertEquals(2, keySet.byAlgorithm("RSA").size());
+        assertEquals(0, keySet.byAlgorithm("EC").size());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void unknownKid() throws Exception {
+        keys.add(key("one"));
+        final JsonWebKey two = key("two");
+        store = store(new Duration(200, TimeUnit.MILLISECONDS));
+        final JwksKeyStore.KeySet initial = store.get();
+
+        // nothing new on the server, the refresh gets a 304
+        Thread.sleep(300);
+        assertNull(store.key("two"));
+        assertEquals(2, requests.get());
+        assertEquals(1, notModified.get());
+        assertSame(initial, store.get());
+
+        // rotated, still too early to refresh again
+        keys.add(two);
+        assertNull(store.key("two"));
+        assertEquals(2, requests.get());
+
+        Thread.sleep(300);
+        final Key rotated = store.key("two");
+        assertNotNull(rotated);
+        assertEquals(keys.get(1).getKey(), rotated);
+        assertEquals(3, requests.get());
+        assertEquals(initial.get("one"), store.get().get("one"));
+    }
+
+    @Test
+    public void unknownKidFallsBackToTheSingleKeyOfItsType() throws Exception {
+        keys.add(key("one"));
+        store = store(new Duration(1, TimeUnit.MINUTES));
+        final JwksKeyStoreResolver resolver = new JwksKeyStoreResolver(store);
+
+        assertEquals(keys.get(0).getKey(), resolver.resolveKey(jws("unknown"), Collections.emptyList()));
+
+        keys.add(key("two"));
+        store.close();
+        store = store(new Duration(1, TimeUnit.MINUTES));
+        try {
+            new JwksKeyStoreResolver(store).resolveKey(jws("unknown"), Collections.emptyList());
+            fail("two RSA keys, none matching the kid");
+        } catch (final UnresolvableKeyException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void cacheControl() throws Exception {
+        cacheControl = "public, max-age=1";
+        keys.add(key("one"));
+        store = store(new Duration(100, TimeUnit.MILLISECONDS));
+        store.get();
+
+        // refreshed in the background after the max-age, the keys in use are served meanwhile
+        keys.add(key("two"));
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (store.get().size() != 2 && System.nanoTime() < end) {
+            Thread.sleep(50);
+        }
+        assertEquals(2, store.get().size());
+        assertEquals(2, requests.get());
+    }
+
+    private JwksKeyStore store(final Duration minRefreshInterval) {
+        final KeyResolver resolver = new KeyResolver();
+        return JwksKeyStore.builder(URI.create("http://localhost:" + server.getAddress().getPort() + "/jwks"),
+                json -> resolver.resolvePublicKey(Optional.of(json), Optional.empty()).orElse(Collections.emptyMap()))
+                .minRefreshInterval(minRefreshInterval)
+                .accessTimeout(new Duration(10, TimeUnit.SECONDS))
+                .build();
+    }
+
+    private static JsonWebSignature jws(final String kid) {
+        final JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setKeyIdHeaderValue(kid);
+        return jws;
+    }
+
+    private static JsonWebKey key(final String kid) throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        final RsaJsonWebKey jwk = new RsaJsonWebKey((RSAPublicKey) generator.generateKeyPair().getPublic());
+        jwk.setKeyId(kid);
+        return jwk;
+    }
+}
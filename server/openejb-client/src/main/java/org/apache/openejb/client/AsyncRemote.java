@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Invokes the business methods of a remote ejb proxy without holding the calling thread until they return:
+ *
+ * <pre>
+ * final CompletableFuture&lt;Long&gt; sum = AsyncRemote.invoke(calculator, c -&gt; c.add(1, 2));
+ * final CompletableFuture&lt;Report&gt; report = AsyncRemote.invokeFuture(reports, r -&gt; r.build(id)); // an @Asynchronous method
+ * </pre>
+ *
+ * The call is recorded on a stand-in of the proxy, then sent like any other remote call,
+ * failover included. With the {@link KeepAliveStyle#MULTIPLEX} keep-alive style no thread waits for the response,
+ * with the other styles the call runs on the executor of the proxy, as an {@link jakarta.ejb.Asynchronous} call does.
+ */
+public final class AsyncRemote {
+
+    private AsyncRemote() {
+        // no-op
+    }
+
+    public static <T, R> CompletableFuture<R> invoke(final T proxy, final Call<T, R> call) {
+        return invoke(proxy, (Object) call);
+    }
+
+    /**
+     * For {@link jakarta.ejb.Asynchronous} methods, the returned future completes with the value of their {@link Future}.
+     */
+    public static <T, R> CompletableFuture<R> invokeFuture(final T proxy, final Call<T, ? extends Future<R>> call) {
+        return invoke(proxy, (Object) call);
+    }
+
+    public static <T> CompletableFuture<Void> run(final T proxy, final VoidCall<T> call) {
+        return invoke(proxy, (Object) call);
+    }
+
+    /**
+     * A business call on the stand-in of a proxy, it may declare the checked exceptions of the method.
+     */
+    public interface Call<T, R> {
+        R call(T proxy) throws Exception;
+    }
+
+    public interface VoidCall<T> {
+        void call(T proxy) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, R> CompletableFuture<R> invoke(final T proxy, final Object call) {
+        if (proxy == null) {
+            throw new IllegalArgumentException("proxy cannot be null");
+        }
+        if (!EJBObjectProxy.class.isInstance(proxy)) {
+            throw new IllegalArgumentException(proxy.getClass().getName() + " is not a remote ejb proxy");
+        }
+
+        final EJBObjectHandler handler = EJBObjectProxy.class.cast(proxy).getEJBObjectHandler();
+        final Recorder recorder = new Recorder();
+        final T standIn = (T) Proxy.newProxyInstance(proxy.getClass().getClassLoader(), proxy.getClass().getInterfaces(), recorder);
+
+        try {
+            if (call instanceof VoidCall) {
+                ((VoidCall<T>) call).call(standIn);
+            } else {
+                ((Call<T, ?>) call).call(standIn);
+            }
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            // the stand-in doesn't throw checked exceptions, the call itself did
+            throw new IllegalArgumentException("The call failed before being sent: " + e.getMessage(), e);
+        }
+
+        if (recorder.method == null) {
+            throw new IllegalArgumentException("No method of the proxy was called");
+        }
+        return (CompletableFuture<R>) handler.invokeAsync(recorder.method, recorder.args);
+    }
+
+    /**
+     * Captures the single business call made on the stand-in.
+     */
+    private static class Recorder implements InvocationHandler {
+
+        private Method method;
+        private Object[] args;
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            if (this.method != null) {
+                throw new IllegalStateException("Only one method can be called, " + this.method.getName() + " already was");
+            }
+            if (method.getDeclaringClass() == Object.class || method.getDeclaringClass() == EJBObjectProxy.class) {
+                throw new IllegalArgumentException(method.getName() + " is not a business method");
+            }
+
+            this.method = method;
+            this.args = args;
+            return defaultValue(method.getReturnType());
+        }
+
+        private static Object defaultValue(final Class<?> type) {
+            if (!type.isPrimitive() || type == void.class) {
+                return null;
+            }
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == char.class) {
+                return (char) 0;
+            }
+            if (type == byte.class) {
+                return (byte) 0;
+            }
+            if (type == short.class) {
+                return (short) 0;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            if (type == float.class) {
+                return 0F;
+            }
+            return 0D;
+        }
+    }
+}
@@ -42,8 +42,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,6 +62,7 @@ import static org.apache.openejb.client.Exceptions.newIOException;
 public class Client {
 
     private static final String OPENEJB_CLIENT_COMPATIBILITY_VERSION = "openejb.client.protocol.version";
+    private static final String OPENEJB_CLIENT_ASYNC_THREADS = "openejb.client.async.threads";
 
     private static final Logger logger = Logger.getLogger("OpenEJB.client");
     private boolean FINEST = logger.isLoggable(Level.FINEST);
@@ -61,6 +72,7 @@ public class Client {
     private static final ProtocolMetaData PROTOCOL_META_DATA = new ProtocolMetaData();
 
     private static Client client = new Client();
+    private static Executor asyncExecutor;
     private static final ProtocolMetaData COMPATIBLE_META_DATA;
 
     static {
@@ -166,12 +178,15 @@ public class Client {
             throw new RemoteException("Unable to connect", e);
         }
 
+        // the method ids are only negotiated by the protocol 4.7, the codecs by the protocol 4.8
+        final MethodIds methodIds = req instanceof EJBRequest && protocolRequest.isAtLeast(4, 7) ? conn.getMethodIds() : null;
+        final CodecNegotiation codecs = req instanceof EJBRequest && protocolRequest.isAtLeast(4, 8) ? conn.getCodecs() : null;
+
         OutputStream out = null;
         InputStream in = null;
 
         try {
 
-
             /*----------------------------------*/
             /* Get output streams */
             /*----------------------------------*/
@@ -183,76 +198,7 @@ public class Client {
                 throw newIOException("Cannot open output stream to server: ", e);
             }
 
-            /*----------------------------------*/
-            /* Write the protocol magic         */
-            /*----------------------------------*/
-            try {
-                protocolRequest.writeExternal(out);
-                out.flush();
-            } catch (final IOException e) {
-                throw newIOException("Cannot write the protocol metadata to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Get output streams */
-            /*----------------------------------*/
-            final ObjectOutput objectOut;
-            try {
-                objectOut = new ObjectOutputStream(out);
-            } catch (final IOException e) {
-                throw newIOException("Cannot open object output stream to server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write ServerMetaData */
-            /*----------------------------------*/
-            try {
-                server.setMetaData(protocolRequest);
-                server.writeExternal(objectOut);
-            } catch (final IOException e) {
-                throw newIOException("Cannot write the ServerMetaData to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write ClusterMetaData */
-            /*----------------------------------*/
-            try {
-
-                final ClusterRequest clusterRequest = new ClusterRequest(cluster);
-                clusterRequest.setMetaData(protocolRequest);
-                objectOut.write(clusterRequest.getRequestType().getCode());
-                clusterRequest.writeExternal(objectOut);
-            } catch (final Throwable e) {
-                throw newIOException("Cannot write the ClusterMetaData to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write request type */
-            /*----------------------------------*/
-            try {
-                objectOut.write(req.getRequestType().getCode());
-            } catch (final IOException e) {
-                throw newIOException("Cannot write the request type to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write request */
-            /*----------------------------------*/
-            try {
-
-                req.setMetaData(protocolRequest);
-                req.writeExternal(objectOut);
-                objectOut.flush();
-                out.flush();
-
-            } catch (final java.io.NotSerializableException e) {
-
-                throw new IllegalArgumentException("Object is not serializable: " + e.getMessage());
-
-            } catch (final IOException e) {
-
-                throw newIOException("Cannot write the request to the server: " + e.getMessage(), e);
-            }
+            writeRequest(out, protocolRequest, cluster, server, req, methodIds, codecs);
 
             /*----------------------------------*/
             /* Get input streams               */
@@ -269,93 +215,7 @@ public class Client {
                 throw newIOException("Cannot open input stream to server: ", e);
             }
 
-            //Determine the server response protocol for reading
-            final ProtocolMetaData protocolResponse = new ProtocolMetaData();
-            try {
-
-                protocolResponse.readExternal(in);
-
-            } catch (final EOFException e) {
-
-                throw newIOException("Prematurely reached the end of the stream.  " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
-
-            } catch (final IOException e) {
-
-                throw newIOException("Cannot determine server protocol version: Received " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
-            }
-
-            final ObjectInput objectIn;
-            try {
-
-                objectIn = new EjbObjectInputStream(in);
-
-            } catch (final IOException e) {
-                throw newIOException("Cannot open object input stream to server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-            }
-
-            /*----------------------------------*/
-            /* Read cluster response */
-            /*----------------------------------*/
-            try {
-                final ClusterResponse clusterResponse = new ClusterResponse();
-                clusterResponse.setMetaData(protocolResponse);
-                clusterResponse.readExternal(objectIn);
-                switch (clusterResponse.getResponseCode()) {
-                    case UPDATE: {
-                        setClusterMetaData(server, clusterResponse.getUpdatedMetaData());
-                    }
-                    break;
-                    case FAILURE: {
-                        throw clusterResponse.getFailure();
-                    }
-                }
-            } catch (final ClassNotFoundException e) {
-                throw new RemoteException("Cannot read the cluster response from the server.  The class for an object being returned is not located in this system:", e);
-
-            } catch (final IOException e) {
-                throw newIOException("Cannot read the cluster response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-
-            } catch (final Throwable e) {
-                throw new RemoteException("Error reading cluster response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-            }
-
-            /*----------------------------------*/
-            /* Read response */
-            /*----------------------------------*/
-            try {
-                res.setMetaData(protocolResponse);
-                res.readExternal(objectIn);
-            } catch (final ClassNotFoundException e) {
-                throw new RemoteException("Cannot read the response from the server.  The class for an object being returned is not located in this system:", e);
-
-            } catch (final IOException e) {
-                throw newIOException("Cannot read the response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-
-            } catch (final Throwable e) {
-                throw new RemoteException("Error reading response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-            }
-
-            if (retryConditions.size() > 0) {
-                if (res instanceof EJBResponse) {
-                    final EJBResponse ejbResponse = (EJBResponse) res;
-                    if (ejbResponse.getResult() instanceof ThrowableArtifact) {
-                        final ThrowableArtifact artifact = (ThrowableArtifact) ejbResponse.getResult();
-                        //noinspection ThrowableResultOfMethodCallIgnored
-                        if (retryConditions.contains(artifact.getThrowable().getClass())) {
-
-                            throw new RetryException(res);
-
-                            //                            if (? < maxConditionRetry) {
-                            //                                throw new RetryException(res);
-                            //                            } else {
-                            //                                if (FINER) {
-                            //                                    logger.log(Level.FINER, "Giving up on " + artifact.getThrowable().getClass().getName().toString());
-                            //                                }
-                            //                            }
-                        }
-                    }
-                }
-            }
+            readResponse(in, server, req, res, methodIds, codecs);
 
             if (FINEST) {
                 final long time = System.nanoTime() - start;
@@ -443,9 +303,420 @@ public class Client {
             }
 
         }
+
+        if (methodIds != null && res instanceof EJBResponse && ((EJBResponse) res).getResponseCode() == ResponseCodes.EJB_UNKNOWN_METHOD_ID) {
+            // the ids of the connection were forgotten, the request is sent again with its method
+            return processRequest(req, res, server);
+        }
         return res;
     }
 
+    /**
+     * Sends the request without waiting for its response.
+     *
+     * A connection able to hand its response over asynchronously (see {@link Connection#getInputStreamAsync()})
+     * holds no thread until the response is there, the response is then read on a small pool of client threads.
+     * Any other connection is used, blocking, from the given executor.
+     * A failed server is retried like a synchronous request does, through the connection strategy of the cluster.
+     *
+     * @param blocking runs the requests of connections which can't be read asynchronously
+     */
+    public static CompletableFuture<Response> requestAsync(final Request req, final Response res, final ServerMetaData server, final Executor blocking) {
+        return client.processRequestAsync(req, res, server, blocking, new HashSet<URI>());
+    }
+
+    protected CompletableFuture<Response> processRequestAsync(final Request req, final Response res, final ServerMetaData server,
+                                                              final Executor blocking, final Set<URI> failedServers) {
+
+        if (server == null) {
+            throw new IllegalArgumentException("Server instance cannot be null");
+        }
+
+        final CompletableFuture<Response> result = new CompletableFuture<Response>();
+        final ClusterMetaData cluster = getClusterMetaData(server);
+        final ProtocolMetaData protocolRequest = (null != COMPATIBLE_META_DATA ? COMPATIBLE_META_DATA : PROTOCOL_META_DATA);
+
+        final Connection conn;
+        final CompletableFuture<InputStream> response;
+        final MethodIds methodIds;
+        final CodecNegotiation codecs;
+
+        // the connection strategy reads the servers which already failed from the calling thread
+        final Set<URI> previous = failed.get();
+        failed.set(failedServers);
+        try {
+            try {
+                conn = ConnectionManager.getConnection(cluster, server, req);
+            } catch (final IOException e) {
+                result.completeExceptionally(new RemoteException("Unable to connect", e));
+                return result;
+            }
+
+            if (!conn.isAsync()) {
+                try {
+                    conn.close();
+                } catch (final Throwable t) {
+                    logger.log(Level.WARNING, "Error closing connection with server: " + t.getMessage(), t);
+                }
+
+                execute(blocking, new Runnable() {
+                    @Override
+                    public void run() {
+                        final Set<URI> callerFailed = failed.get();
+                        failed.set(failedServers);
+                        try {
+                            result.complete(processRequest(req, res, server));
+                        } catch (final Throwable e) {
+                            result.completeExceptionally(e);
+                        } finally {
+                            restoreFailed(callerFailed);
+                        }
+                    }
+                });
+                return result;
+            }
+
+            methodIds = req instanceof EJBRequest && protocolRequest.isAtLeast(4, 7) ? conn.getMethodIds() : null;
+            codecs = req instanceof EJBRequest && protocolRequest.isAtLeast(4, 8) ? conn.getCodecs() : null;
+
+            try {
+                final OutputStream out = conn.getOutputStream();
+                writeRequest(out, protocolRequest, cluster, server, req, methodIds, codecs);
+                out.close();
+            } catch (final Throwable e) {
+                failAsync(req, res, server, blocking, failedServers, conn, e, result);
+                return result;
+            }
+
+            // sends the request which is now completely written
+            response = conn.getInputStreamAsync();
+        } finally {
+            restoreFailed(previous);
+        }
+
+        response.whenComplete(new BiConsumer<InputStream, Throwable>() {
+            @Override
+            public void accept(final InputStream in, final Throwable error) {
+                execute(asyncExecutor(), new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (error != null) {
+                                throw error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            }
+
+                            readResponse(in, server, req, res, methodIds, codecs);
+                        } catch (final Throwable e) {
+                            failAsync(req, res, server, blocking, failedServers, conn, e, result);
+                            return;
+                        }
+
+                        close(conn);
+
+                        if (methodIds != null && res instanceof EJBResponse && ((EJBResponse) res).getResponseCode() == ResponseCodes.EJB_UNKNOWN_METHOD_ID) {
+                            // the ids of the connection were forgotten, the request is sent again with its method
+                            complete(processRequestAsync(req, res, server, blocking, failedServers), result);
+                        } else {
+                            result.complete(res);
+                        }
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The asynchronous flavour of the failure handling of {@link #processRequest(Request, Response, ServerMetaData)}.
+     */
+    private void failAsync(final Request req, final Response res, final ServerMetaData server, final Executor blocking,
+                           final Set<URI> failedServers, final Connection conn, final Throwable e, final CompletableFuture<Response> result) {
+
+        if (e instanceof RemoteException) {
+            close(conn);
+            result.completeExceptionally(e);
+
+        } else if (e instanceof IOException) {
+            final URI uri = conn.getURI();
+
+            Client.fireEvent(new RequestFailed(uri, req, (IOException) e));
+
+            if (FINER) {
+                logger.log(Level.FINER, "Add Failed " + uri.toString());
+            }
+            failedServers.add(uri);
+            conn.discard();
+            close(conn);
+
+            if (e instanceof RetryException || getRetry()) {
+                Client.fireEvent(new RetryingRequest(req, server));
+
+                processRequestAsync(req, res, server, blocking, failedServers).whenComplete(new BiConsumer<Response, Throwable>() {
+                    @Override
+                    public void accept(final Response response, final Throwable error) {
+                        if (error == null) {
+                            result.complete(response);
+                        } else if (error instanceof RemoteFailoverException) {
+                            result.completeExceptionally(error);
+                        } else if (e instanceof RetryException) {
+                            result.complete(((RetryException) e).getResponse());
+                        } else {
+                            result.completeExceptionally(new RemoteFailoverException("Cannot complete request.  Retry attempted on " + failedServers.size() + " servers", e));
+                        }
+                    }
+                });
+            } else {
+                result.completeExceptionally(new RemoteException("Cannot read the response from the server: " + e.getMessage(), e));
+            }
+
+        } else {
+            close(conn);
+            result.completeExceptionally(new RemoteException("Error while communicating with server: ", e));
+        }
+    }
+
+    private static void complete(final CompletableFuture<Response> from, final CompletableFuture<Response> to) {
+        from.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(final Response response, final Throwable error) {
+                if (error == null) {
+                    to.complete(response);
+                } else {
+                    to.completeExceptionally(error);
+                }
+            }
+        });
+    }
+
+    private static void close(final Connection conn) {
+        try {
+            conn.close();
+        } catch (final Throwable t) {
+            logger.log(Level.WARNING, "Error closing connection with server: " + t.getMessage(), t);
+        }
+    }
+
+    private static void restoreFailed(final Set<URI> previous) {
+        if (previous == null) {
+            failed.remove();
+        } else {
+            failed.set(previous);
+        }
+    }
+
+    private static void execute(final Executor executor, final Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private static synchronized Executor asyncExecutor() {
+        if (asyncExecutor == null) {
+            final int threads = Integer.getInteger(OPENEJB_CLIENT_ASYNC_THREADS, Runtime.getRuntime().availableProcessors());
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger i = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, "OpenEJB.Client.async." + i.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            executor.allowCoreThreadTimeOut(true);
+            asyncExecutor = executor;
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Writes the protocol, the server and cluster metadata and the request.
+     */
+    private void writeRequest(final OutputStream out, final ProtocolMetaData protocolRequest, final ClusterMetaData cluster,
+                              final ServerMetaData server, final Request req, final MethodIds methodIds,
+                              final CodecNegotiation codecs) throws IOException {
+
+        /*----------------------------------*/
+        /* Write the protocol magic         */
+        /*----------------------------------*/
+        try {
+            protocolRequest.writeExternal(out);
+            out.flush();
+        } catch (final IOException e) {
+            throw newIOException("Cannot write the protocol metadata to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Get output streams */
+        /*----------------------------------*/
+        final ObjectOutput objectOut;
+        try {
+            objectOut = new ObjectOutputStream(out);
+        } catch (final IOException e) {
+            throw newIOException("Cannot open object output stream to server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write ServerMetaData */
+        /*----------------------------------*/
+        try {
+            server.setMetaData(protocolRequest);
+            server.writeExternal(objectOut);
+        } catch (final IOException e) {
+            throw newIOException("Cannot write the ServerMetaData to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write ClusterMetaData */
+        /*----------------------------------*/
+        try {
+
+            final ClusterRequest clusterRequest = new ClusterRequest(cluster);
+            clusterRequest.setMetaData(protocolRequest);
+            objectOut.write(clusterRequest.getRequestType().getCode());
+            clusterRequest.writeExternal(objectOut);
+        } catch (final Throwable e) {
+            throw newIOException("Cannot write the ClusterMetaData to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write request type */
+        /*----------------------------------*/
+        try {
+            objectOut.write(req.getRequestType().getCode());
+        } catch (final IOException e) {
+            throw newIOException("Cannot write the request type to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write request */
+        /*----------------------------------*/
+        try {
+
+            req.setMetaData(protocolRequest);
+            if (req instanceof EJBRequest) {
+                ((EJBRequest) req).setMethodIds(methodIds);
+                ((EJBRequest) req).setCodecs(codecs);
+            }
+            req.writeExternal(objectOut);
+            objectOut.flush();
+            out.flush();
+
+        } catch (final java.io.NotSerializableException e) {
+
+            throw new IllegalArgumentException("Object is not serializable: " + e.getMessage());
+
+        } catch (final IOException e) {
+
+            throw newIOException("Cannot write the request to the server: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the protocol, the cluster response and the response of the request.
+     */
+    private void readResponse(final InputStream in, final ServerMetaData server, final Request req, final Response res,
+                              final MethodIds methodIds, final CodecNegotiation codecs) throws IOException {
+
+        //Determine the server response protocol for reading
+        final ProtocolMetaData protocolResponse = new ProtocolMetaData();
+        try {
+
+            protocolResponse.readExternal(in);
+
+        } catch (final EOFException e) {
+
+            throw newIOException("Prematurely reached the end of the stream.  " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
+
+        } catch (final IOException e) {
+
+            throw newIOException("Cannot determine server protocol version: Received " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
+        }
+
+        final ObjectInput objectIn;
+        try {
+
+            objectIn = new EjbObjectInputStream(in);
+
+        } catch (final IOException e) {
+            throw newIOException("Cannot open object input stream to server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+        }
+
+        /*----------------------------------*/
+        /* Read cluster response */
+        /*----------------------------------*/
+        try {
+            final ClusterResponse clusterResponse = new ClusterResponse();
+            clusterResponse.setMetaData(protocolResponse);
+            clusterResponse.readExternal(objectIn);
+            switch (clusterResponse.getResponseCode()) {
+                case UPDATE: {
+                    setClusterMetaData(server, clusterResponse.getUpdatedMetaData());
+                }
+                break;
+                case FAILURE: {
+                    throw clusterResponse.getFailure();
+                }
+            }
+        } catch (final ClassNotFoundException e) {
+            throw new RemoteException("Cannot read the cluster response from the server.  The class for an object being returned is not located in this system:", e);
+
+        } catch (final IOException e) {
+            throw newIOException("Cannot read the cluster response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+
+        } catch (final Throwable e) {
+            throw new RemoteException("Error reading cluster response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+        }
+
+        /*----------------------------------*/
+        /* Read response */
+        /*----------------------------------*/
+        try {
+            res.setMetaData(protocolResponse);
+            res.readExternal(objectIn);
+        } catch (final ClassNotFoundException e) {
+            throw new RemoteException("Cannot read the response from the server.  The class for an object being returned is not located in this system:", e);
+
+        } catch (final IOException e) {
+            throw newIOException("Cannot read the response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+
+        } catch (final Throwable e) {
+            throw new RemoteException("Error reading response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+        }
+
+        if (methodIds != null && res instanceof EJBResponse) {
+            methodIds.update((EJBRequest) req, (EJBResponse) res);
+        }
+        if (codecs != null && res instanceof EJBResponse) {
+            codecs.update((EJBRequest) req, (EJBResponse) res);
+        }
+
+        if (retryConditions.size() > 0) {
+            if (res instanceof EJBResponse) {
+                final EJBResponse ejbResponse = (EJBResponse) res;
+                if (ejbResponse.getResult() instanceof ThrowableArtifact) {
+                    final ThrowableArtifact artifact = (ThrowableArtifact) ejbResponse.getResult();
+                    //noinspection ThrowableResultOfMethodCallIgnored
+                    if (retryConditions.contains(artifact.getThrowable().getClass())) {
+
+                        throw new RetryException(res);
+
+                        //                            if (? < maxConditionRetry) {
+                        //                                throw new RetryException(res);
+                        //                            } else {
+                        //                                if (FINER) {
+                        //                                    logger.log(Level.FINER, "Giving up on " + artifact.getThrowable().getClass().getName().toString());
+                        //                                }
+                        //                            }
+                    }
+                }
+            }
+        }
+    }
+
     public static Set<URI> getFailed() {
         Set<URI> set = failed.get();
         if (set == null) {
@@ -28,6 +28,7 @@ public class ClientMetaData implements Externalizable {
     private static final long serialVersionUID = -8769170505291957783L;
     transient Object clientIdentity;
     private transient EJBDSerializer serializer;
+    private transient String codec; // client side only, negotiated with each connection
     private transient ProtocolMetaData metaData;
 
     public ClientMetaData() {
@@ -57,6 +58,14 @@ public class ClientMetaData implements Externalizable {
         this.serializer = serializer;
     }
 
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(final String codec) {
+        this.codec = codec;
+    }
+
     @Override
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
 
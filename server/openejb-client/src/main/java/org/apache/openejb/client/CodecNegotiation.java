@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The codecs the server of a connection accepted.
+ *
+ * A client only asks for a codec once the server proved it understands the request by answering
+ * with an {@link EJBResponse} of version {@link EJBResponse#CODECS} or more, the parameters are then written
+ * with the codec once the server answered with the same codec. Any other answer forgets the codec,
+ * the next requests go back to the java serialization.
+ */
+public class CodecNegotiation {
+
+    private final Set<String> accepted = ConcurrentHashMap.newKeySet();
+    private volatile boolean supported;
+
+    public boolean isSupported() {
+        return supported;
+    }
+
+    public boolean isAccepted(final String codec) {
+        return codec != null && accepted.contains(codec);
+    }
+
+    /**
+     * Remembers whether the server answered with the codec of the request.
+     */
+    public void update(final EJBRequest request, final EJBResponse response) {
+        if (response.getVersion() < EJBResponse.CODECS) {
+            supported = false;
+            accepted.clear();
+            return;
+        }
+        supported = true;
+
+        final String codec = request.getCodec();
+        if (codec == null) {
+            return;
+        }
+        if (response.getCodec() != null && codec.equals(response.getCodec().getName())) {
+            accepted.add(codec);
+        } else {
+            accepted.remove(codec);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 public interface Connection {
 
@@ -33,4 +34,34 @@ public interface Connection {
 
     public OutputStream getOutputStream() throws IOException;
 
+    /**
+     * @return the method ids negotiated with the server of this connection, null if this connection doesn't keep any
+     */
+    default MethodIds getMethodIds() {
+        return null;
+    }
+
+    /**
+     * @return the codecs negotiated with the server of this connection, null if this connection only uses the java serialization
+     */
+    default CodecNegotiation getCodecs() {
+        return null;
+    }
+
+    /**
+     * @return true if the response can be read through {@link #getInputStreamAsync()}, checked before writing the request
+     */
+    default boolean isAsync() {
+        return false;
+    }
+
+    /**
+     * Sends the request written, and closed, to the output stream without waiting for the response.
+     *
+     * @return the future input stream of the response, null if this connection can only be read blocking
+     */
+    default CompletableFuture<InputStream> getInputStreamAsync() {
+        return null;
+    }
+
 }
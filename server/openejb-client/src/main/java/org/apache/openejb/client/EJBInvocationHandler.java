@@ -38,10 +38,13 @@ import java.rmi.RemoteException;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 public abstract class EJBInvocationHandler implements InvocationHandler, Serializable {
 
@@ -140,6 +143,7 @@ public abstract class EJBInvocationHandler implements InvocationHandler, Seriali
 
     protected EJBResponse request(final EJBRequest req) throws Exception {
         req.setClientIdentity(getClientIdentity());
+        req.setCodec(client == null ? null : client.getCodec());
 
         req.setServerHash(server.buildHash());
 
@@ -153,6 +157,7 @@ public abstract class EJBInvocationHandler implements InvocationHandler, Seriali
 
     protected EJBResponse request(final EJBRequest req, final EJBResponse res) throws Exception {
         req.setClientIdentity(getClientIdentity());
+        req.setCodec(client == null ? null : client.getCodec());
 
         req.setServerHash(server.buildHash());
 
@@ -163,6 +168,24 @@ public abstract class EJBInvocationHandler implements InvocationHandler, Seriali
         return res;
     }
 
+    protected CompletableFuture<EJBResponse> requestAsync(final EJBRequest req, final Executor blocking) {
+        req.setClientIdentity(getClientIdentity());
+        req.setCodec(client == null ? null : client.getCodec());
+
+        req.setServerHash(server.buildHash());
+
+        return Client.requestAsync(req, new EJBResponse(), server, blocking).thenApply(new Function<Response, EJBResponse>() {
+            @Override
+            public EJBResponse apply(final Response response) {
+                final EJBResponse res = (EJBResponse) response;
+                if (null != res.getServer()) {
+                    server.merge(res.getServer());
+                }
+                return res;
+            }
+        });
+    }
+
     protected Object getClientIdentity() {
         if (client != null) {
             final Object identity = client.getClientIdentity();
@@ -22,13 +22,17 @@ import org.apache.openejb.client.util.ClassLoaderUtil;
 
 import jakarta.ejb.EJBException;
 import jakarta.ejb.EJBObject;
+import jakarta.ejb.NoSuchEJBException;
 import java.lang.reflect.Method;
+import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
@@ -36,6 +40,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -203,38 +208,51 @@ public abstract class EJBObjectHandler extends EJBInvocationHandler {
 
             }
 
-        } catch (SystemException e) {
+        } catch (Throwable throwable) {
+            throw clientException(throwable, m);
+        }
+    }
+
+    /**
+     * @return the exception the client of a business method sees for this failure
+     */
+    private Throwable clientException(final Throwable throwable, final Method m) {
+        if (throwable instanceof SystemException) {
             invalidateAllHandlers(getRegistryId());
-            throw convertException(getCause(e), m);
-            /*
-            * Application exceptions must be reported directly to the client. They
-            * do not impact the viability of the proxy.
-            */
-        } catch (ApplicationException ae) {
-            throw convertException(getCause(ae), m);
-            /*
-            * A system exception would be highly unusual and would indicate a sever
-            * problem with the container system.
-            */
-        } catch (SystemError se) {
+            return convertException(getCause(throwable), m);
+        }
+
+        /*
+        * Application exceptions must be reported directly to the client. They
+        * do not impact the viability of the proxy.
+        */
+        if (throwable instanceof ApplicationException) {
+            return convertException(getCause(throwable), m);
+        }
+
+        /*
+        * A system exception would be highly unusual and would indicate a sever
+        * problem with the container system.
+        */
+        if (throwable instanceof SystemError) {
             invalidateReference();
             if (remote) {
-                throw new RemoteException("Container has suffered a SystemException", getCause(se));
+                return new RemoteException("Container has suffered a SystemException", getCause(throwable));
             } else {
-                throw new EJBException("Container has suffered a SystemException").initCause(getCause(se));
+                return new EJBException("Container has suffered a SystemException").initCause(getCause(throwable));
             }
-        } catch (Throwable throwable) {
-            if (remote) {
-                if (throwable instanceof RemoteException) {
-                    throw throwable;
-                }
-                throw new RemoteException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage(), getCause(throwable));
-            } else {
-                if (throwable instanceof EJBException) {
-                    throw throwable;
-                }
-                throw new EJBException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage()).initCause(getCause(throwable));
+        }
+
+        if (remote) {
+            if (throwable instanceof RemoteException) {
+                return throwable;
+            }
+            return new RemoteException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage(), getCause(throwable));
+        } else {
+            if (throwable instanceof EJBException) {
+                return throwable;
             }
+            return new EJBException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage()).initCause(getCause(throwable));
         }
     }
 
@@ -277,6 +295,49 @@ public abstract class EJBObjectHandler extends EJBInvocationHandler {
         }
     }
 
+    /**
+     * Invokes a business method without holding the calling thread until its response, see {@link AsyncRemote}.
+     * The future of an asynchronous method completes with the value of its {@link Future}.
+     */
+    public CompletableFuture<Object> invokeAsync(final Method method, final Object[] args) {
+        final CompletableFuture<Object> result = new CompletableFuture<Object>();
+
+        if (isInvalidReference.get()) {
+            if (remote || java.rmi.Remote.class.isAssignableFrom(method.getDeclaringClass())) {
+                result.completeExceptionally(new NoSuchObjectException("reference is invalid"));
+            } else {
+                result.completeExceptionally(new NoSuchEJBException("reference is invalid"));
+            }
+            return result;
+        }
+
+        if (executor == null) {
+            executor = JNDIContext.newExecutor(-1, null);
+        }
+
+        final EJBRequest req = new EJBRequest(RequestMethodCode.EJB_OBJECT_BUSINESS_METHOD, ejb, method, args, primaryKey, client.getSerializer());
+        final EJBRequest.Body body = req.getBody();
+        if (ejb.isAsynchronousMethod(method)) {
+            body.setRequestId(UUID.randomUUID().toString());
+        }
+        body.setAuthentication(this.authenticationInfo);
+
+        requestAsync(req, executor).whenComplete(new BiConsumer<EJBResponse, Throwable>() {
+            @Override
+            public void accept(final EJBResponse res, final Throwable error) {
+                try {
+                    if (error != null) {
+                        throw error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    }
+                    result.complete(_handleBusinessMethodResponse(res));
+                } catch (final Throwable e) {
+                    result.completeExceptionally(clientException(e, method));
+                }
+            }
+        });
+        return result;
+    }
+
     private Object _businessMethod(final Method method, final Object[] args, final Object proxy, final String requestId) throws Throwable {
         final EJBRequest req = new EJBRequest(RequestMethodCode.EJB_OBJECT_BUSINESS_METHOD, ejb, method, args, primaryKey, client.getSerializer());
 
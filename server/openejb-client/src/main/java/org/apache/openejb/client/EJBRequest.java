@@ -16,6 +16,8 @@
  */
 package org.apache.openejb.client;
 
+import org.apache.openejb.client.serializer.EJBDCodec;
+import org.apache.openejb.client.serializer.EJBDCodecs;
 import org.apache.openejb.client.serializer.EJBDSerializer;
 import org.apache.openejb.client.serializer.SerializationWrapper;
 
@@ -36,6 +38,9 @@ public class EJBRequest implements ClusterableRequest {
     private transient Body body;
     private transient EJBDSerializer serializer;
     private transient ProtocolMetaData metaData;
+    private transient MethodIds methodIds;
+    private transient String codec;
+    private transient CodecNegotiation codecs;
 
     // Only visible on the client side
     private transient final EJBMetaDataImpl ejbMetaData;
@@ -165,6 +170,31 @@ public class EJBRequest implements ClusterableRequest {
         this.serializer = serializer;
     }
 
+    /**
+     * @param methodIds the method ids of the connection this request is written to, null to always send the full method
+     */
+    public void setMethodIds(final MethodIds methodIds) {
+        this.methodIds = methodIds;
+    }
+
+    /**
+     * @return the name of the codec asked by the client, null for the java serialization
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(final String codec) {
+        this.codec = null == EJBDCodecs.get(codec) ? null : codec;
+    }
+
+    /**
+     * @param codecs the codecs negotiated by the connection this request is written to, null to only use the java serialization
+     */
+    public void setCodecs(final CodecNegotiation codecs) {
+        this.codecs = codecs;
+    }
+
     @Override
     public RequestType getRequestType() {
         return RequestType.EJB_REQUEST;
@@ -297,12 +327,47 @@ public class EJBRequest implements ClusterableRequest {
         out.flush();
 
         body.setMetaData(metaData);
+        body.setMethodId(null != methodIds && methodIds.isSupported() ? methodIds.get(this) : Body.NO_METHOD_ID);
+        if (null != codecs && codecs.isSupported()) {
+            body.setCodec(null == codec ? "" : codec, codecs.isAccepted(codec));
+        } else {
+            body.setCodec(null, false);
+        }
         body.writeExternal(out);
     }
 
+    /**
+     * Resolves the method ids sent by the clients, on the server side.
+     */
+    public interface MethodIndex {
+
+        /**
+         * @return the id of this method, 0 if it can't get one
+         */
+        int getMethodId(Class interfaceClass, Method method);
+
+        /**
+         * @param signature the {@link Body#signature(Class, Method) signature} the client sent with the id
+         * @return the interface of the method of this id, null if the id is unknown or the signature doesn't match
+         */
+        Class getInterfaceClass(int methodId, long signature);
+
+        /**
+         * @param signature the {@link Body#signature(Class, Method) signature} the client sent with the id
+         * @return the method of this id, null if the id is unknown or the signature doesn't match
+         */
+        Method getMethod(int methodId, long signature);
+    }
+
     public static class Body implements java.io.Externalizable {
 
         private static final long serialVersionUID = -5364100745236348268L;
+
+        /**
+         * The method id of a body the server may not understand, written in version 2
+         */
+        public static final int NO_METHOD_ID = -1;
+
         private transient volatile String toString = null;
         private transient EJBMetaDataImpl ejb;
         private transient Object orb;
@@ -319,6 +384,12 @@ public class EJBRequest implements ClusterableRequest {
         private transient JNDIContext.AuthenticationInfo authentication;
         private transient ProtocolMetaData metaData;
 
+        private transient int methodId = NO_METHOD_ID;
+        private transient MethodIndex methodIndex;
+
+        private transient String codec;
+        private transient boolean encoded;
+
         public Body(final EJBMetaDataImpl ejb) {
             this.ejb = ejb;
         }
@@ -410,10 +481,64 @@ public class EJBRequest implements ClusterableRequest {
             return requestId;
         }
 
+        /**
+         * @return the method id sent instead of the interface and the method when positive,
+         * 0 when the full method was sent by a client understanding the method ids, {@link #NO_METHOD_ID} otherwise
+         */
+        public int getMethodId() {
+            return methodId;
+        }
+
+        public void setMethodId(final int methodId) {
+            this.methodId = methodId;
+        }
+
+        public void setMethodIndex(final MethodIndex methodIndex) {
+            this.methodIndex = methodIndex;
+        }
+
+        /**
+         * A 64 bits FNV-1a hash of the interface, the name and the parameter types of the method,
+         * sent with a method id so the server never takes an id for another method than the one the client meant.
+         */
+        public static long signature(final Class interfaceClass, final Method method) {
+            long hash = 0xcbf29ce484222325L;
+            hash = signature(hash, interfaceClass.getName());
+            hash = signature(hash, method.getName());
+            for (final Class<?> type : method.getParameterTypes()) {
+                hash = signature(hash, type.getName());
+            }
+            return hash;
+        }
+
+        private static long signature(long hash, final String value) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            // separates the names, "a" + "bc" doesn't hash like "ab" + "c"
+            return (hash ^ ';') * 0x100000001b3L;
+        }
+
         public void setRequestId(final String requestId) {
             this.requestId = requestId;
         }
 
+        /**
+         * @return the name of the codec the client asked for, empty for none, null for a client not negotiating codecs
+         */
+        public String getCodec() {
+            return codec;
+        }
+
+        /**
+         * @param codec   the codec to ask for, empty for none, null if the server may not understand codecs
+         * @param encoded true to write the parameters with the codec, once the server accepted it
+         */
+        public void setCodec(final String codec, final boolean encoded) {
+            this.codec = codec;
+            this.encoded = codec != null && !codec.isEmpty() && encoded;
+        }
+
         /**
          * Changes to this method must observe the optional {@link #metaData} version
          */
@@ -428,25 +553,59 @@ public class EJBRequest implements ClusterableRequest {
             primaryKey = null;
             methodName = null;
             methodInstance = null;
+            interfaceClass = null;
             try {
                 requestId = (String) in.readObject();
                 primaryKey = in.readObject();
-                interfaceClass = (Class) in.readObject();
             } catch (ClassNotFoundException cnfe) {
                 result = cnfe;
             }
 
-            methodName = in.readUTF();
+            methodId = version >= EJBResponse.METHOD_IDS ? in.readInt() : NO_METHOD_ID;
+
+            if (methodId > 0) {
+                final long signature = in.readLong();
+                // an unknown id leaves the method null, the parameters are read anyway to consume the request
+                if (null != methodIndex) {
+                    interfaceClass = methodIndex.getInterfaceClass(methodId, signature);
+                    methodInstance = methodIndex.getMethod(methodId, signature);
+                }
+                if (methodInstance != null) {
+                    methodName = methodInstance.getName();
+                }
+            } else {
+                try {
+                    interfaceClass = (Class) in.readObject();
+                } catch (ClassNotFoundException cnfe) {
+                    if (result == null) {
+                        result = cnfe;
+                    }
+                }
+
+                methodName = in.readUTF();
+            }
+
+            codec = null;
+            encoded = false;
+            if (version >= EJBResponse.CODECS) {
+                codec = in.readUTF();
+                encoded = in.readBoolean();
+            }
+
+            final EJBDCodec parametersCodec = encoded ? EJBDCodecs.get(codec) : null;
+            if (encoded && null == parametersCodec) {
+                throw new IOException("Unknown codec " + codec);
+            }
 
             try {
-                readMethodParameters(in);
+                readMethodParameters(null == parametersCodec ? in : parametersCodec.newInput(in));
             } catch (ClassNotFoundException cnfe) {
                 if (result == null) {
                     result = cnfe;
                 }
             }
 
-            if (interfaceClass != null) {
+            if (methodId <= 0 && interfaceClass != null) {
                 try {
                     //noinspection unchecked
                     methodInstance = interfaceClass.getMethod(methodName, methodParamTypes);
@@ -474,17 +633,38 @@ public class EJBRequest implements ClusterableRequest {
         @Override
         public void writeExternal(final ObjectOutput out) throws IOException {
 
+            // a server which didn't send any method id or codec yet may not understand them
+            if (null != codec) {
+                this.version = EJBResponse.CODECS;
+            } else {
+                this.version = methodId == NO_METHOD_ID ? EJBResponse.METHOD_IDS - 1 : EJBResponse.METHOD_IDS;
+            }
+
             out.writeByte(this.version);
 
             out.writeObject(requestId);
 
             out.writeObject(primaryKey);
 
-            out.writeObject(interfaceClass);
+            if (this.version >= EJBResponse.METHOD_IDS) {
+                out.writeInt(Math.max(methodId, 0));
+            }
+
+            if (methodId <= 0) {
+                out.writeObject(interfaceClass);
 
-            out.writeUTF(methodName);
+                out.writeUTF(methodName);
+            } else {
+                out.writeLong(signature(interfaceClass, methodInstance));
+            }
 
-            writeMethodParameters(out, methodParamTypes, methodParameters);
+            if (this.version >= EJBResponse.CODECS) {
+                out.writeUTF(codec);
+                out.writeBoolean(encoded);
+            }
+
+            final EJBDCodec parametersCodec = encoded ? EJBDCodecs.get(codec) : null;
+            writeMethodParameters(null == parametersCodec ? out : parametersCodec.newOutput(out), methodParamTypes, methodParameters);
 
             if (null == metaData || metaData.isAtLeast(4, 6)) {
                 out.writeObject(authentication);
@@ -550,7 +730,9 @@ public class EJBRequest implements ClusterableRequest {
                     }
                 } else {
                     out.write(OBJECT);
-                    out.writeObject(clazz);
+                    if (methodId <= 0) { // else the server knows the types from the method
+                        out.writeObject(clazz);
+                    }
                     out.writeObject(obj);
                 }
             }
@@ -622,7 +804,7 @@ public class EJBRequest implements ClusterableRequest {
                         break;
 
                     case OBJECT:
-                        clazz = (Class) in.readObject();
+                        clazz = methodId > 0 ? Object.class : (Class) in.readObject();
                         final Object read = in.readObject();
                         obj = read;
                         break;
@@ -634,7 +816,7 @@ public class EJBRequest implements ClusterableRequest {
                 args[i] = obj;
             }
 
-            methodParamTypes = types;
+            methodParamTypes = methodId > 0 && methodInstance != null ? methodInstance.getParameterTypes() : types;
             methodParameters = args;
         }
 
@@ -662,6 +844,7 @@ public class EJBRequest implements ClusterableRequest {
                         ", primaryKey=" + primaryKey +
                         ", requestId='" + requestId + '\'' +
                         ", version=" + version +
+                        ", methodId=" + methodId +
                         '}';
             }
 
@@ -16,6 +16,9 @@
  */
 package org.apache.openejb.client;
 
+import org.apache.openejb.client.serializer.EJBDCodec;
+import org.apache.openejb.client.serializer.EJBDCodecs;
+
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
@@ -26,13 +29,30 @@ public class EJBResponse implements ClusterableResponse {
      * Version provides the protocol hint for backwards compatibility:
      * 1. Initial
      * 2. Append times.
+     * 3. Append method id.
+     * 4. Insert the codec of the result.
+     */
+    public static final byte VERSION = 4;
+
+    /**
+     * First version carrying the {@link #getMethodId() method id}, a client sends it once
+     * its server answered with it, only clients of protocol 4.7 or more get it.
+     */
+    public static final byte METHOD_IDS = 3;
+
+    /**
+     * First version naming the {@link #getCodec() codec} of the result, a client asks for a codec once
+     * its server answered with it, only clients of protocol 4.8 or more get it.
      */
-    public static final byte VERSION = 2;
+    public static final byte CODECS = 4;
+
     private static final long serialVersionUID = 611943612548626399L;
 
     private transient byte version = VERSION;
     private transient int responseCode = -1;
+    private transient int methodId;
     private transient Object result;
+    private transient EJBDCodec codec;
     private transient ServerMetaData server;
     private transient final long[] times = new long[Time.values().length];
     private transient final int timesLength = times.length;
@@ -63,6 +83,32 @@ public class EJBResponse implements ClusterableResponse {
         return result;
     }
 
+    public byte getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the id the server assigned to the method of the request, 0 if none
+     */
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public void setMethodId(final int methodId) {
+        this.methodId = methodId;
+    }
+
+    /**
+     * @return the codec of the result, null for the java serialization
+     */
+    public EJBDCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(final EJBDCodec codec) {
+        this.codec = codec;
+    }
+
     public void setResponse(final byte version, final int code, final Object result) {
         this.version = version;
         this.responseCode = code;
@@ -113,6 +159,9 @@ public class EJBResponse implements ClusterableResponse {
             case ResponseCodes.AUTH_DENIED:
                 s = new StringBuffer("AUTH_DENIED");
                 break;
+            case ResponseCodes.EJB_UNKNOWN_METHOD_ID:
+                s = new StringBuffer("EJB_UNKNOWN_METHOD_ID");
+                break;
             default:
                 s = new StringBuffer("UNKNOWN_RESPONSE");
         }
@@ -135,7 +184,8 @@ public class EJBResponse implements ClusterableResponse {
     @Override
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
 
-        final byte version = in.readByte();
+        version = in.readByte();
+        methodId = 0;
 
         final boolean readServer = in.readBoolean();
         if (readServer) {
@@ -146,7 +196,16 @@ public class EJBResponse implements ClusterableResponse {
 
         responseCode = in.readByte();
 
-        result = in.readObject();
+        codec = null;
+        if (version >= CODECS) {
+            final String name = in.readUTF();
+            codec = EJBDCodecs.get(name);
+            if (codec == null && !name.isEmpty()) {
+                throw new IOException("Unknown codec " + name);
+            }
+        }
+
+        result = null == codec ? in.readObject() : codec.newInput(in).readObject();
 
         if (version >= 2) {
 
@@ -156,11 +215,24 @@ public class EJBResponse implements ClusterableResponse {
                 times[i] = in.readLong();
             }
         }
+
+        if (version >= METHOD_IDS) {
+            methodId = in.readInt();
+        }
     }
 
     @Override
     public void writeExternal(final ObjectOutput out) throws IOException {
 
+        // the method ids and the codecs depend on the protocol of the client, not on the version of its request
+        if (null != metaData) {
+            if (metaData.isAtLeast(4, 8)) {
+                version = VERSION;
+            } else {
+                version = metaData.isAtLeast(4, 7) ? METHOD_IDS : (byte) Math.min(version, METHOD_IDS - 1);
+            }
+        }
+
         out.writeByte(this.version);
 
         if (null != server) {
@@ -185,8 +257,17 @@ public class EJBResponse implements ClusterableResponse {
                 break;
         }
 
+        final EJBDCodec written = this.version >= CODECS ? codec : null;
+        if (this.version >= CODECS) {
+            out.writeUTF(null == written ? "" : written.getName());
+        }
+
         start(Time.SERIALIZATION);
-        out.writeObject(result);
+        if (null == written) {
+            out.writeObject(result);
+        } else {
+            written.newOutput(out).writeObject(result);
+        }
         stop(Time.SERIALIZATION);
         stop(Time.TOTAL);
 
@@ -198,6 +279,10 @@ public class EJBResponse implements ClusterableResponse {
                 out.writeLong(time);
             }
         }
+
+        if (this.version >= METHOD_IDS) {
+            out.writeInt(methodId);
+        }
     }
 
     public static enum Time {
@@ -39,6 +39,20 @@ public class EjbObjectInputStream extends ObjectInputStream {
         super(in);
     }
 
+    /**
+     * Loads a class named by a stream which isn't a java serialization one,
+     * the blacklist and whitelist of the deserialization apply.
+     */
+    public static Class<?> loadClass(final String name) throws ClassNotFoundException {
+        final String n = RESOLVER_ATOMIC_REFERENCE.get().check(name);
+        final ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        try {
+            return Class.forName(n, false, classloader);
+        } catch (ClassNotFoundException e) {
+            return Class.forName(n, false, null);
+        }
+    }
+
     @Override
     protected Class<?> resolveClass(final ObjectStreamClass classDesc) throws IOException, ClassNotFoundException {
         final String n = RESOLVER_ATOMIC_REFERENCE.get().check(classDesc.getName());
@@ -17,6 +17,7 @@
 package org.apache.openejb.client;
 
 import org.apache.openejb.client.event.RemoteInitialContextCreated;
+import org.apache.openejb.client.serializer.EJBDCodecs;
 import org.apache.openejb.client.serializer.EJBDSerializer;
 
 import javax.naming.AuthenticationException;
@@ -70,6 +71,7 @@ public class JNDIContext implements InitialContextFactory, Context {
 
     public static final String DEFAULT_PROVIDER_URL = "ejbd://localhost:4201";
     public static final String SERIALIZER = "openejb.ejbd.serializer";
+    public static final String CODEC = "openejb.ejbd.codec";
     public static final String AUTHENTICATE_WITH_THE_REQUEST = "openejb.ejbd.authenticate-with-request";
     public static final String POOL_QUEUE_SIZE = "openejb.client.invoker.queue";
     public static final String POOL_THREAD_NUMBER = "openejb.client.invoker.threads";
@@ -256,6 +258,7 @@ public class JNDIContext implements InitialContextFactory, Context {
         final String psswrd = (String) env.get(Context.SECURITY_CREDENTIALS);
         String providerUrl = (String) env.get(Context.PROVIDER_URL);
         final String serializer = (String) env.get(SERIALIZER);
+        final String codec = (String) env.get(CODEC);
         final boolean authWithRequest = "true".equalsIgnoreCase(String.class.cast(env.get(AUTHENTICATE_WITH_THE_REQUEST)));
         moduleId = (String) env.get("openejb.client.moduleId");
 
@@ -302,6 +305,13 @@ public class JNDIContext implements InitialContextFactory, Context {
             }
         }
 
+        if (codec != null) {
+            if (null == EJBDCodecs.get(codec) && !EJBDCodecs.JAVA.equals(codec)) {
+                LOGGER.warning("Unknown codec " + codec + ", the java serialization is used");
+            }
+            client.setCodec(codec);
+        }
+
         final int queue = Integer.parseInt(getProperty(env, JNDIContext.POOL_QUEUE_SIZE, "2"));
         blockingQueue = new LinkedBlockingQueue<Runnable>((queue < 2 ? 2 : queue));
         threads = Integer.parseInt(getProperty(env, "openejb.client.invoker.threads", "-1"));
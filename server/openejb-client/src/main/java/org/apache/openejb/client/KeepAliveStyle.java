@@ -22,5 +22,10 @@ package org.apache.openejb.client;
 public enum KeepAliveStyle {
     PING,
     PING_PONG,
-    PING_PING
+    PING_PING,
+    /**
+     * Sent once, the connection then carries framed requests and responses
+     * of many concurrent calls, each frame tagged with the id of its call.
+     */
+    MULTIPLEX
 }
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The method ids the server of a connection assigned to the deployment, interface and method
+ * of the requests sent over it.
+ *
+ * The ids are only sent once the server proved it understands them by answering
+ * with an {@link EJBResponse} of version {@link EJBResponse#METHOD_IDS} or more.
+ * They are forgotten when the server doesn't know an id anymore, after a redeployment or a restart.
+ */
+public class MethodIds {
+
+    private final ConcurrentMap<Key, Integer> ids = new ConcurrentHashMap<>();
+    private volatile boolean supported;
+
+    public boolean isSupported() {
+        return supported;
+    }
+
+    public int get(final EJBRequest request) {
+        if (!supported || request.getInterfaceClass() == null) {
+            return 0;
+        }
+        final Integer id = ids.get(new Key(request));
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Remembers the id assigned by the server, if any, to the method of the request.
+     */
+    public void update(final EJBRequest request, final EJBResponse response) {
+        if (response.getVersion() < EJBResponse.METHOD_IDS) {
+            return;
+        }
+        supported = true;
+
+        if (response.getResponseCode() == ResponseCodes.EJB_UNKNOWN_METHOD_ID) {
+            clear();
+        } else if (response.getMethodId() > 0 && request.getInterfaceClass() != null) {
+            ids.put(new Key(request), response.getMethodId());
+        }
+    }
+
+    public void clear() {
+        ids.clear();
+    }
+
+    private static final class Key {
+        private final String deploymentId;
+        private final int deploymentCode;
+        private final Class interfaceClass;
+        private final Method method;
+        private final int hash;
+
+        private Key(final EJBRequest request) {
+            this.deploymentId = request.getDeploymentId();
+            this.deploymentCode = request.getDeploymentCode();
+            this.interfaceClass = request.getInterfaceClass();
+            this.method = request.getMethodInstance();
+
+            int h = deploymentId != null ? deploymentId.hashCode() : deploymentCode;
+            h = 31 * h + interfaceClass.hashCode();
+            this.hash = 31 * h + method.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final Key key = (Key) o;
+            return deploymentCode == key.deploymentCode
+                && (deploymentId != null ? deploymentId.equals(key.deploymentId) : key.deploymentId == null)
+                && interfaceClass == key.interfaceClass
+                && method.equals(key.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A socket shared by concurrent calls, opened with the {@link KeepAliveStyle#MULTIPLEX} style.
+ *
+ * Each call writes its request (protocol, server metadata, cluster and ejb request) in memory,
+ * the whole request is then sent as one frame: the id of the call, the length of the request and the request.
+ * The server answers with a frame of the same id, in any order, read by a single thread which hands
+ * it to the waiting call.
+ *
+ * A failure of the socket fails all the pending calls, the socket is then replaced by the factory.
+ */
+class MultiplexedSocket {
+
+    private final Connection connection;
+    private final long timeout;
+    private final DataOutputStream out;
+    private final Lock writeLock = new ReentrantLock();
+    private final ConcurrentMap<Integer, Exchange> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final MethodIds methodIds = new MethodIds();
+    private final CodecNegotiation codecs = new CodecNegotiation();
+    private volatile IOException failure;
+
+    /**
+     * @param connection an opened socket connection, owned by this multiplexed socket
+     * @param timeout    the time in milliseconds a call waits for its response
+     */
+    MultiplexedSocket(final Connection connection, final long timeout) throws IOException {
+        this.connection = connection;
+        this.timeout = timeout;
+
+        this.out = new DataOutputStream(connection.getOutputStream());
+        this.out.write(KeepAliveStyle.MULTIPLEX.ordinal());
+        this.out.flush();
+
+        // the input stream is opened by the reader, a gzip stream blocks until the server answers
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        }, "OpenEJB.client.multiplex." + connection.getURI());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public boolean isClosed() {
+        return this.failure != null;
+    }
+
+    public int getPending() {
+        return this.pending.size();
+    }
+
+    public Connection newConnection() {
+        return new Exchange(this.ids.incrementAndGet());
+    }
+
+    private void read() {
+        try {
+            final DataInputStream in = new DataInputStream(this.connection.getInputStream());
+            while (true) {
+                final int id = in.readInt();
+                final int length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+
+                final byte[] response = new byte[length];
+                in.readFully(response);
+
+                final Exchange exchange = this.pending.remove(id);
+                if (exchange != null) { // else the call gave up
+                    exchange.complete(response, null);
+                }
+            }
+        } catch (final IOException e) {
+            this.fail(e);
+        } catch (final Throwable e) {
+            this.fail(new IOException("Multiplexed connection failed: " + e.getMessage(), e));
+        }
+    }
+
+    private void fail(final IOException e) {
+        synchronized (this) {
+            if (this.failure != null) {
+                return;
+            }
+            this.failure = e;
+        }
+
+        this.connection.discard();
+
+        for (final Exchange exchange : this.pending.values()) {
+            exchange.complete(null, e);
+        }
+        this.pending.clear();
+    }
+
+    private void send(final int id, final ByteArrayOutputStream request) throws IOException {
+        this.writeLock.lock();
+        try {
+            if (this.failure != null) {
+                throw new IOException("Multiplexed connection closed: " + this.failure.getMessage(), this.failure);
+            }
+
+            this.out.writeInt(id);
+            this.out.writeInt(request.size());
+            request.writeTo(this.out);
+            this.out.flush();
+        } catch (final IOException e) {
+            this.fail(e);
+            throw e;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * The view of a single call on the multiplexed socket.
+     */
+    private class Exchange implements Connection {
+
+        private final int id;
+        private final ByteArrayOutputStream request = new ByteArrayOutputStream(512);
+        private final CompletableFuture<InputStream> response = new CompletableFuture<InputStream>();
+        private boolean sent;
+
+        private Exchange(final int id) {
+            this.id = id;
+        }
+
+        private void complete(final byte[] response, final IOException error) {
+            if (error != null) {
+                this.response.completeExceptionally(new IOException("Multiplexed connection failed: " + error.getMessage(), error));
+            } else if (response.length == 0) {
+                this.response.completeExceptionally(new IOException("No response from server for the request " + this.id));
+            } else {
+                this.response.complete(new ByteArrayInputStream(response));
+            }
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return this.request;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            final CompletableFuture<InputStream> future = this.getInputStreamAsync();
+            try {
+                return future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (final ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } catch (final TimeoutException e) {
+                pending.remove(this.id);
+                throw new InterruptedIOException("No response from server after " + timeout + "ms");
+            } catch (final InterruptedException e) {
+                Thread.interrupted();
+                pending.remove(this.id);
+                throw new InterruptedIOException("Interrupted while waiting for the response");
+            }
+        }
+
+        @Override
+        public boolean isAsync() {
+            return true;
+        }
+
+        @Override
+        public synchronized CompletableFuture<InputStream> getInputStreamAsync() {
+            if (this.sent) {
+                return this.response;
+            }
+            this.sent = true;
+            this.response.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete(new BiConsumer<InputStream, Throwable>() {
+                @Override
+                public void accept(final InputStream in, final Throwable error) {
+                    if (error != null) { // timed out, nobody else removes the call
+                        pending.remove(Exchange.this.id, Exchange.this);
+                    }
+                }
+            });
+
+            pending.put(this.id, this);
+
+            // a failure which already went through the pending calls
+            final IOException failed = failure;
+            if (failed != null) {
+                pending.remove(this.id);
+                this.complete(null, failed);
+                return this.response;
+            }
+
+            try {
+                send(this.id, this.request);
+            } catch (final IOException e) {
+                pending.remove(this.id);
+                this.response.completeExceptionally(e);
+            }
+            return this.response;
+        }
+
+        @Override
+        public void discard() {
+            // the socket is still usable for the other calls, it is only discarded on i/o failures
+            pending.remove(this.id);
+        }
+
+        @Override
+        public URI getURI() {
+            return connection.getURI();
+        }
+
+        @Override
+        public MethodIds getMethodIds() {
+            return methodIds;
+        }
+
+        @Override
+        public CodecNegotiation getCodecs() {
+            return codecs;
+        }
+
+        @Override
+        public void close() throws IOException {
+            pending.remove(this.id);
+        }
+    }
+}
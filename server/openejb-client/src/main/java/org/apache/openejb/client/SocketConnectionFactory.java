@@ -38,6 +38,7 @@ import java.util.Stack;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.GZIPInputStream;
@@ -53,10 +54,13 @@ public class SocketConnectionFactory implements ConnectionFactory {
     public static final String PROPERTY_POOL_SIZE = "openejb.client.connection.pool.size";
     private static final String PROPERTY_POOL_SIZE2 = "openejb.client.connectionpool.size";
     public static final String PROPERTY_KEEPALIVE = "openejb.client.keepalive";
+    public static final String PROPERTY_MULTIPLEX_SOCKETS = "openejb.client.connection.multiplex.sockets";
     public static final String ENABLED_CIPHER_SUITES = "openejb.client.enabledCipherSuites";
 
     private static final Map<URI, Pool> connections = new ConcurrentHashMap<URI, Pool>();
+    private static final Map<URI, Multiplexer> multiplexers = new ConcurrentHashMap<URI, Multiplexer>();
     private int size = 5;
+    private int multiplexSockets = 2;
     private long timeoutPool = 1000;
     private int timeoutConnect = 1000;
     private int timeoutRead = 14400000;
@@ -66,6 +70,7 @@ public class SocketConnectionFactory implements ConnectionFactory {
     public SocketConnectionFactory() {
 
         this.size = this.getSize();
+        this.multiplexSockets = this.getMultiplexSockets();
         this.timeoutPool = this.getTimeoutPool();
         this.timeoutConnect = this.getTimeoutSocket();
         this.timeoutLinger = this.getTimeoutLinger();
@@ -125,6 +130,11 @@ public class SocketConnectionFactory implements ConnectionFactory {
         return size;
     }
 
+    private int getMultiplexSockets() {
+        final Properties p = System.getProperties();
+        return Math.max(1, getInt(p, SocketConnectionFactory.PROPERTY_MULTIPLEX_SOCKETS, this.multiplexSockets));
+    }
+
     public static int getInt(final Properties p, final String property, final int defaultValue) {
         final String value = p.getProperty(property);
         try {
@@ -153,6 +163,10 @@ public class SocketConnectionFactory implements ConnectionFactory {
     @Override
     public Connection getConnection(final URI uri) throws java.io.IOException {
 
+        if (this.keepAliveStyle == KeepAliveStyle.MULTIPLEX) {
+            return this.getMultiplexer(uri).getConnection();
+        }
+
         final Pool pool = this.getPool(uri);
 
         SocketConnection conn = pool.get();
@@ -218,17 +232,80 @@ public class SocketConnectionFactory implements ConnectionFactory {
         return pool;
     }
 
+    private Multiplexer getMultiplexer(final URI uri) {
+        Multiplexer multiplexer = multiplexers.get(uri);
+        if (multiplexer == null) {
+            multiplexer = new Multiplexer(uri, this.multiplexSockets);
+            final Multiplexer existing = multiplexers.putIfAbsent(uri, multiplexer);
+            if (existing != null) {
+                multiplexer = existing;
+            }
+        }
+        return multiplexer;
+    }
+
+    /**
+     * The few sockets of a server shared by all the concurrent calls in the {@link KeepAliveStyle#MULTIPLEX} style.
+     * A call goes to the socket with the fewest pending calls, a new socket is only opened when all the open ones are busy.
+     */
+    private class Multiplexer {
+
+        private final URI uri;
+        private final AtomicReferenceArray<MultiplexedSocket> sockets;
+
+        private Multiplexer(final URI uri, final int size) {
+            this.uri = uri;
+            this.sockets = new AtomicReferenceArray<MultiplexedSocket>(size);
+        }
+
+        public Connection getConnection() throws IOException {
+            MultiplexedSocket selected = null;
+            for (int i = 0; i < this.sockets.length(); i++) {
+                final MultiplexedSocket socket = this.sockets.get(i);
+                if (socket == null || socket.isClosed()) {
+                    if (selected == null || selected.getPending() > 0) {
+                        return this.open(i).newConnection();
+                    }
+                } else if (selected == null || socket.getPending() < selected.getPending()) {
+                    selected = socket;
+                }
+            }
+            return selected.newConnection();
+        }
+
+        private synchronized MultiplexedSocket open(final int index) throws IOException {
+            MultiplexedSocket socket = this.sockets.get(index);
+            if (socket != null && !socket.isClosed()) {
+                return socket;
+            }
+
+            final SocketConnection conn = new SocketConnection(this.uri, null);
+            conn.open(this.uri);
+
+            try {
+                socket = new MultiplexedSocket(conn, SocketConnectionFactory.this.timeoutRead);
+            } catch (final IOException e) {
+                conn.discard();
+                throw e;
+            }
+            this.sockets.set(index, socket);
+            return socket;
+        }
+    }
+
     class SocketConnection implements Connection {
 
         private Socket socket = null;
         private final URI uri;
 
         private boolean discarded;
-        private final Pool pool;
+        private final Pool pool; // null when owned by a multiplexed socket
         private final Lock lock = new ReentrantLock();
         private OutputStream out;
         private InputStream in;
         private boolean gzip = false;
+        private final MethodIds methodIds = new MethodIds();
+        private final CodecNegotiation codecs = new CodecNegotiation();
 
         public SocketConnection(final URI uri, final Pool pool) {
             this.uri = uri;
@@ -337,7 +414,9 @@ public class SocketConnectionFactory implements ConnectionFactory {
         @Override
         public void discard() {
             try {
-                this.pool.put(null);
+                if (this.pool != null) {
+                    this.pool.put(null);
+                }
             } finally {
                 this.discarded = true;
                 this.cleanUp();
@@ -352,6 +431,16 @@ public class SocketConnectionFactory implements ConnectionFactory {
             return this.uri;
         }
 
+        @Override
+        public MethodIds getMethodIds() {
+            return methodIds;
+        }
+
+        @Override
+        public CodecNegotiation getCodecs() {
+            return codecs;
+        }
+
         @Override
         public void close() throws IOException {
             if (this.discarded) {
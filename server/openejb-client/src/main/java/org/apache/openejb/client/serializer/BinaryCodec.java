@@ -0,0 +1,948 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client.serializer;
+
+import org.apache.openejb.client.EjbObjectInputStream;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A schema-less binary codec, the "binary" codec.
+ *
+ * Strings, boxed primitives, enums, primitive and object arrays, the common collections,
+ * records and plain serializable classes are written as tagged values. The fields of a class
+ * are read and written through method handles resolved once per class and the class names
+ * and field names are only written the first time a message uses a class,
+ * its next uses are an index in the classes of the message.
+ * Fields are matched by name, a field missing on one side keeps its default value.
+ * A plain class is created with its own no-arg constructor, its transient fields keep the value this constructor gives.
+ *
+ * Classes customizing their serialization (writeObject, readObject, writeReplace, readResolve,
+ * serialPersistentFields or {@link Externalizable}), proxies and classes without a no-arg constructor
+ * go through the java serialization of the message, as do the classes the codec can't access.
+ */
+public class BinaryCodec implements EJBDCodec {
+
+    public static final String NAME = "binary";
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<Descriptor> DESCRIPTORS = new ClassValue<Descriptor>() {
+        @Override
+        protected Descriptor computeValue(final Class<?> type) {
+            return Descriptor.of(type);
+        }
+    };
+
+    private static final byte NULL = 0;
+    private static final byte REFERENCE = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte BYTE = 4;
+    private static final byte SHORT = 5;
+    private static final byte CHAR = 6;
+    private static final byte INT = 7;
+    private static final byte LONG = 8;
+    private static final byte FLOAT = 9;
+    private static final byte DOUBLE = 10;
+    private static final byte STRING = 11;
+    private static final byte LONG_STRING = 12;
+    private static final byte ENUM = 13;
+    private static final byte BEAN = 14;
+    private static final byte RECORD = 15;
+    private static final byte OBJECT_ARRAY = 16;
+    private static final byte BYTE_ARRAY = 17;
+    private static final byte INT_ARRAY = 18;
+    private static final byte LONG_ARRAY = 19;
+    private static final byte DOUBLE_ARRAY = 20;
+    private static final byte ARRAY_LIST = 21;
+    private static final byte LINKED_LIST = 22;
+    private static final byte HASH_SET = 23;
+    private static final byte LINKED_HASH_SET = 24;
+    private static final byte HASH_MAP = 25;
+    private static final byte LINKED_HASH_MAP = 26;
+    private static final byte JAVA = 27;
+
+    // writeUTF is limited to 65535 bytes, at most 3 per char
+    private static final int MAX_UTF_CHARS = 65535 / 3;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public ObjectOutput newOutput(final ObjectOutput out) {
+        return new Output(out);
+    }
+
+    @Override
+    public ObjectInput newInput(final ObjectInput in) {
+        return new Input(in);
+    }
+
+    private enum Kind {
+        BEAN, RECORD, ENUM, OTHER
+    }
+
+    /**
+     * How the codec handles a class, computed once per class.
+     */
+    private static final class Descriptor {
+
+        private static final Descriptor OTHER = new Descriptor(Kind.OTHER, null, new String[0], new MethodHandle[0], new MethodHandle[0], new Class<?>[0]);
+
+        private final Kind kind;
+        private final MethodHandle constructor;
+        private final String[] names;
+        private final MethodHandle[] getters;
+        private final MethodHandle[] setters;
+        private final Class<?>[] types;
+
+        private Descriptor(final Kind kind, final MethodHandle constructor, final String[] names,
+                           final MethodHandle[] getters, final MethodHandle[] setters, final Class<?>[] types) {
+            this.kind = kind;
+            this.constructor = constructor;
+            this.names = names;
+            this.getters = getters;
+            this.setters = setters;
+            this.types = types;
+        }
+
+        private int indexOf(final String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static Descriptor of(final Class<?> type) {
+            if (type.isEnum()) {
+                return new Descriptor(Kind.ENUM, null, new String[0], new MethodHandle[0], new MethodHandle[0], new Class<?>[0]);
+            }
+            if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+                || type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isArray()
+                || Proxy.isProxyClass(type) || hasCustomSerialization(type)) {
+                return OTHER;
+            }
+
+            try {
+                return type.isRecord() ? record(type) : bean(type);
+            } catch (final NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+                // no no-arg constructor or a class of a module we can't open
+                return OTHER;
+            }
+        }
+
+        private static Descriptor record(final Class<?> type) throws NoSuchMethodException, IllegalAccessException {
+            final RecordComponent[] components = type.getRecordComponents();
+            final String[] names = new String[components.length];
+            final MethodHandle[] getters = new MethodHandle[components.length];
+            final Class<?>[] types = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                final Method accessor = components[i].getAccessor();
+                accessor.setAccessible(true);
+                names[i] = components[i].getName();
+                types[i] = components[i].getType();
+                getters[i] = LOOKUP.unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class));
+            }
+
+            final Constructor<?> canonical = type.getDeclaredConstructor(types);
+            canonical.setAccessible(true);
+            final MethodHandle constructor = LOOKUP.unreflectConstructor(canonical)
+                .asSpreader(Object[].class, types.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+            return new Descriptor(Kind.RECORD, constructor, names, getters, null, types);
+        }
+
+        private static Descriptor bean(final Class<?> type) throws NoSuchMethodException, IllegalAccessException {
+            final Constructor<?> noArg = type.getDeclaredConstructor();
+            noArg.setAccessible(true);
+            final MethodHandle constructor = LOOKUP.unreflectConstructor(noArg).asType(MethodType.methodType(Object.class));
+
+            // the fields of the serializable classes, as the java serialization does
+            final List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                for (final Field field : c.getDeclaredFields()) {
+                    final int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        fields.add(field);
+                    }
+                }
+            }
+
+            final String[] names = new String[fields.size()];
+            final MethodHandle[] getters = new MethodHandle[fields.size()];
+            final MethodHandle[] setters = new MethodHandle[fields.size()];
+            final Class<?>[] types = new Class<?>[fields.size()];
+            for (int i = 0; i < names.length; i++) {
+                final Field field = fields.get(i);
+                field.setAccessible(true);
+
+                // a field hidden by a subclass keeps a distinct name
+                final boolean hidden = contains(names, i, field.getName());
+                names[i] = hidden ? field.getDeclaringClass().getName() + "." + field.getName() : field.getName();
+                types[i] = field.getType();
+                getters[i] = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+                setters[i] = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+            return new Descriptor(Kind.BEAN, constructor, names, getters, setters, types);
+        }
+
+        private static boolean contains(final String[] names, final int length, final String name) {
+            for (int i = 0; i < length; i++) {
+                if (names[i].equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean hasCustomSerialization(final Class<?> type) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (final Method method : c.getDeclaredMethods()) {
+                    if (Modifier.isStatic(method.getModifiers())) {
+                        continue;
+                    }
+                    final String name = method.getName();
+                    final int count = method.getParameterCount();
+                    if ((count == 1 && ("writeObject".equals(name) || "readObject".equals(name)))
+                        || (count == 0 && ("readObjectNoData".equals(name) || "writeReplace".equals(name) || "readResolve".equals(name)))) {
+                        return true;
+                    }
+                }
+                try {
+                    c.getDeclaredField("serialPersistentFields");
+                    return true;
+                } catch (final NoSuchFieldException e) {
+                    // the default fields
+                }
+            }
+            return false;
+        }
+    }
+
+    private static Object defaultValue(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        return Array.get(Array.newInstance(type, 1), 0);
+    }
+
+    private static IOException ioException(final String message, final Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException(message + ": " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Writes a single message, the classes and the objects already written are referenced by index.
+     */
+    private static final class Output implements ObjectOutput {
+
+        private final ObjectOutput out;
+        private final Map<Class<?>, Integer> classes = new HashMap<>();
+        private final Map<Object, Integer> objects = new IdentityHashMap<>();
+
+        private Output(final ObjectOutput out) {
+            this.out = out;
+        }
+
+        @Override
+        public void writeObject(final Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+                return;
+            }
+
+            final Class<?> type = value.getClass();
+            if (type == String.class) {
+                writeString((String) value);
+            } else if (type == Integer.class) {
+                out.writeByte(INT);
+                out.writeInt((Integer) value);
+            } else if (type == Long.class) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (type == Boolean.class) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (type == Double.class) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (type == Float.class) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (type == Short.class) {
+                out.writeByte(SHORT);
+                out.writeShort((Short) value);
+            } else if (type == Byte.class) {
+                out.writeByte(BYTE);
+                out.writeByte((Byte) value);
+            } else if (type == Character.class) {
+                out.writeByte(CHAR);
+                out.writeChar((Character) value);
+            } else if (value instanceof Enum) {
+                out.writeByte(ENUM);
+                writeClass(((Enum<?>) value).getDeclaringClass());
+                writeString(((Enum<?>) value).name());
+            } else {
+                writeReferenced(value, type);
+            }
+        }
+
+        private void writeReferenced(final Object value, final Class<?> type) throws IOException {
+            final Integer reference = objects.get(value);
+            if (reference != null) {
+                out.writeByte(REFERENCE);
+                out.writeInt(reference);
+                return;
+            }
+
+            if (type.isArray()) {
+                writeArray(value, type);
+                return;
+            }
+
+            final byte collection = collectionTag(type);
+            if (collection != NULL) {
+                objects.put(value, objects.size());
+                out.writeByte(collection);
+                if (value instanceof Map) {
+                    final Map<?, ?> map = (Map<?, ?>) value;
+                    out.writeInt(map.size());
+                    for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                        writeObject(entry.getKey());
+                        writeObject(entry.getValue());
+                    }
+                } else {
+                    final Collection<?> items = (Collection<?>) value;
+                    out.writeInt(items.size());
+                    for (final Object item : items) {
+                        writeObject(item);
+                    }
+                }
+                return;
+            }
+
+            final Descriptor descriptor = DESCRIPTORS.get(type);
+            if (descriptor.kind == Kind.OTHER) {
+                out.writeByte(JAVA);
+                out.writeObject(value);
+                return;
+            }
+
+            objects.put(value, objects.size());
+            out.writeByte(descriptor.kind == Kind.RECORD ? RECORD : BEAN);
+            writeClass(type);
+            try {
+                for (final MethodHandle getter : descriptor.getters) {
+                    writeObject((Object) getter.invokeExact(value));
+                }
+            } catch (final Throwable e) {
+                throw ioException("Unable to write " + type.getName(), e);
+            }
+        }
+
+        private void writeArray(final Object value, final Class<?> type) throws IOException {
+            final Class<?> component = type.getComponentType();
+            if (component == byte.class) {
+                objects.put(value, objects.size());
+                final byte[] bytes = (byte[]) value;
+                out.writeByte(BYTE_ARRAY);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } else if (component == int.class) {
+                objects.put(value, objects.size());
+                final int[] ints = (int[]) value;
+                out.writeByte(INT_ARRAY);
+                out.writeInt(ints.length);
+                for (final int i : ints) {
+                    out.writeInt(i);
+                }
+            } else if (component == long.class) {
+                objects.put(value, objects.size());
+                final long[] longs = (long[]) value;
+                out.writeByte(LONG_ARRAY);
+                out.writeInt(longs.length);
+                for (final long l : longs) {
+                    out.writeLong(l);
+                }
+            } else if (component == double.class) {
+                objects.put(value, objects.size());
+                final double[] doubles = (double[]) value;
+                out.writeByte(DOUBLE_ARRAY);
+                out.writeInt(doubles.length);
+                for (final double d : doubles) {
+                    out.writeDouble(d);
+                }
+            } else if (component.isPrimitive()) {
+                out.writeByte(JAVA);
+                out.writeObject(value);
+            } else {
+                objects.put(value, objects.size());
+                final Object[] array = (Object[]) value;
+                out.writeByte(OBJECT_ARRAY);
+                writeClass(component);
+                out.writeInt(array.length);
+                for (final Object item : array) {
+                    writeObject(item);
+                }
+            }
+        }
+
+        private static byte collectionTag(final Class<?> type) {
+            if (type == ArrayList.class) {
+                return ARRAY_LIST;
+            }
+            if (type == HashMap.class) {
+                return HASH_MAP;
+            }
+            if (type == LinkedHashMap.class) {
+                return LINKED_HASH_MAP;
+            }
+            if (type == HashSet.class) {
+                return HASH_SET;
+            }
+            if (type == LinkedHashSet.class) {
+                return LINKED_HASH_SET;
+            }
+            if (type == LinkedList.class) {
+                return LINKED_LIST;
+            }
+            return NULL;
+        }
+
+        /**
+         * The first use of a class writes its name and its fields, the next ones its index.
+         */
+        private void writeClass(final Class<?> type) throws IOException {
+            final Integer index = classes.get(type);
+            if (index != null) {
+                out.writeInt(index);
+                return;
+            }
+
+            classes.put(type, classes.size());
+            out.writeInt(-1);
+            out.writeUTF(type.getName());
+
+            final Descriptor descriptor = type.isArray() || type.isPrimitive() ? Descriptor.OTHER : DESCRIPTORS.get(type);
+            out.writeInt(descriptor.names.length);
+            for (final String name : descriptor.names) {
+                out.writeUTF(name);
+            }
+        }
+
+        private void writeString(final String value) throws IOException {
+            if (value.length() <= MAX_UTF_CHARS) {
+                out.writeByte(STRING);
+                out.writeUTF(value);
+            } else {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeByte(LONG_STRING);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void writeBoolean(final boolean v) throws IOException {
+            out.writeBoolean(v);
+        }
+
+        @Override
+        public void writeByte(final int v) throws IOException {
+            out.writeByte(v);
+        }
+
+        @Override
+        public void writeShort(final int v) throws IOException {
+            out.writeShort(v);
+        }
+
+        @Override
+        public void writeChar(final int v) throws IOException {
+            out.writeChar(v);
+        }
+
+        @Override
+        public void writeInt(final int v) throws IOException {
+            out.writeInt(v);
+        }
+
+        @Override
+        public void writeLong(final long v) throws IOException {
+            out.writeLong(v);
+        }
+
+        @Override
+        public void writeFloat(final float v) throws IOException {
+            out.writeFloat(v);
+        }
+
+        @Override
+        public void writeDouble(final double v) throws IOException {
+            out.writeDouble(v);
+        }
+
+        @Override
+        public void writeBytes(final String s) throws IOException {
+            out.writeBytes(s);
+        }
+
+        @Override
+        public void writeChars(final String s) throws IOException {
+            out.writeChars(s);
+        }
+
+        @Override
+        public void writeUTF(final String s) throws IOException {
+            out.writeUTF(s);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the stream belongs to the message
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads a single message written by {@link Output}.
+     */
+    private static final class Input implements ObjectInput {
+
+        private final ObjectInput in;
+        private final List<Received> classes = new ArrayList<>();
+        private final List<Object> objects = new ArrayList<>();
+
+        private Input(final ObjectInput in) {
+            this.in = in;
+        }
+
+        @Override
+        public Object readObject() throws ClassNotFoundException, IOException {
+            final byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case REFERENCE:
+                    return readReference();
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case BYTE:
+                    return in.readByte();
+                case SHORT:
+                    return in.readShort();
+                case CHAR:
+                    return in.readChar();
+                case INT:
+                    return in.readInt();
+                case LONG:
+                    return in.readLong();
+                case FLOAT:
+                    return in.readFloat();
+                case DOUBLE:
+                    return in.readDouble();
+                case STRING:
+                    return in.readUTF();
+                case LONG_STRING:
+                    return new String(readBytes(), StandardCharsets.UTF_8);
+                case ENUM:
+                    return readEnum();
+                case BEAN:
+                    return readBean();
+                case RECORD:
+                    return readRecord();
+                case OBJECT_ARRAY:
+                    return readObjectArray();
+                case BYTE_ARRAY: {
+                    final byte[] bytes = readBytes();
+                    objects.add(bytes);
+                    return bytes;
+                }
+                case INT_ARRAY: {
+                    final int[] ints = new int[readLength()];
+                    objects.add(ints);
+                    for (int i = 0; i < ints.length; i++) {
+                        ints[i] = in.readInt();
+                    }
+                    return ints;
+                }
+                case LONG_ARRAY: {
+                    final long[] longs = new long[readLength()];
+                    objects.add(longs);
+                    for (int i = 0; i < longs.length; i++) {
+                        longs[i] = in.readLong();
+                    }
+                    return longs;
+                }
+                case DOUBLE_ARRAY: {
+                    final double[] doubles = new double[readLength()];
+                    objects.add(doubles);
+                    for (int i = 0; i < doubles.length; i++) {
+                        doubles[i] = in.readDouble();
+                    }
+                    return doubles;
+                }
+                case ARRAY_LIST:
+                    return readCollection(new ArrayList<>());
+                case LINKED_LIST:
+                    return readCollection(new LinkedList<>());
+                case HASH_SET:
+                    return readCollection(new HashSet<>());
+                case LINKED_HASH_SET:
+                    return readCollection(new LinkedHashSet<>());
+                case HASH_MAP:
+                    return readMap(new HashMap<>());
+                case LINKED_HASH_MAP:
+                    return readMap(new LinkedHashMap<>());
+                case JAVA:
+                    return in.readObject();
+                default:
+                    throw new StreamCorruptedException("Unknown value type " + tag);
+            }
+        }
+
+        private Object readReference() throws IOException {
+            final int index = in.readInt();
+            if (index < 0 || index >= objects.size()) {
+                throw new StreamCorruptedException("Invalid reference " + index);
+            }
+            final Object object = objects.get(index);
+            if (object == null) {
+                throw new StreamCorruptedException("Reference " + index + " to a record being read");
+            }
+            return object;
+        }
+
+        private Object readEnum() throws IOException, ClassNotFoundException {
+            final Class<?> type = readClass().type;
+            final String name = (String) readObject();
+            if (!type.isEnum()) {
+                throw new InvalidClassException(type.getName(), "not an enum");
+            }
+            try {
+                return Enum.valueOf(type.asSubclass(Enum.class), name);
+            } catch (final IllegalArgumentException e) {
+                throw new InvalidClassException(type.getName(), "no enum constant " + name);
+            }
+        }
+
+        private Object readBean() throws IOException, ClassNotFoundException {
+            final Received received = readClass();
+            if (received.local.kind != Kind.BEAN) {
+                throw new InvalidClassException(received.type.getName(), "can't be decoded as a plain class");
+            }
+
+            final Object bean;
+            try {
+                bean = (Object) received.local.constructor.invokeExact();
+            } catch (final Throwable e) {
+                throw ioException("Unable to create " + received.type.getName(), e);
+            }
+            objects.add(bean);
+
+            for (final int field : received.fields) {
+                final Object value = readObject();
+                if (field < 0 || (value == null && received.local.types[field].isPrimitive())) {
+                    continue;
+                }
+                try {
+                    received.local.setters[field].invokeExact(bean, value);
+                } catch (final Throwable e) {
+                    throw ioException("Unable to set " + received.type.getName() + "." + received.local.names[field], e);
+                }
+            }
+            return bean;
+        }
+
+        private Object readRecord() throws IOException, ClassNotFoundException {
+            final Received received = readClass();
+            if (received.local.kind != Kind.RECORD) {
+                throw new InvalidClassException(received.type.getName(), "can't be decoded as a record");
+            }
+
+            // the components are read before the record exists, a reference to it is invalid until then
+            final int index = objects.size();
+            objects.add(null);
+
+            final Object[] components = new Object[received.local.types.length];
+            for (int i = 0; i < components.length; i++) {
+                components[i] = defaultValue(received.local.types[i]);
+            }
+            for (final int component : received.fields) {
+                final Object value = readObject();
+                if (component >= 0 && (value != null || !received.local.types[component].isPrimitive())) {
+                    components[component] = value;
+                }
+            }
+
+            final Object record;
+            try {
+                record = (Object) received.local.constructor.invokeExact(components);
+            } catch (final Throwable e) {
+                throw ioException("Unable to create " + received.type.getName(), e);
+            }
+            objects.set(index, record);
+            return record;
+        }
+
+        private Object readObjectArray() throws IOException, ClassNotFoundException {
+            final Class<?> component = readClass().type;
+            final Object[] array = (Object[]) Array.newInstance(component, readLength());
+            objects.add(array);
+            for (int i = 0; i < array.length; i++) {
+                try {
+                    array[i] = readObject();
+                } catch (final ArrayStoreException e) {
+                    throw new InvalidClassException(component.getName(), "invalid array item: " + e.getMessage());
+                }
+            }
+            return array;
+        }
+
+        private Object readCollection(final Collection<Object> collection) throws IOException, ClassNotFoundException {
+            objects.add(collection);
+            final int size = readLength();
+            for (int i = 0; i < size; i++) {
+                collection.add(readObject());
+            }
+            return collection;
+        }
+
+        private Object readMap(final Map<Object, Object> map) throws IOException, ClassNotFoundException {
+            objects.add(map);
+            final int size = readLength();
+            for (int i = 0; i < size; i++) {
+                final Object key = readObject();
+                map.put(key, readObject());
+            }
+            return map;
+        }
+
+        private Received readClass() throws IOException, ClassNotFoundException {
+            final int index = in.readInt();
+            if (index >= 0) {
+                if (index >= classes.size()) {
+                    throw new StreamCorruptedException("Invalid class reference " + index);
+                }
+                return classes.get(index);
+            }
+
+            final Class<?> type = EjbObjectInputStream.loadClass(in.readUTF());
+            final String[] names = new String[readLength()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+
+            final Received received = new Received(type, names);
+            classes.add(received);
+            return received;
+        }
+
+        private byte[] readBytes() throws IOException {
+            final byte[] bytes = new byte[readLength()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        private int readLength() throws IOException {
+            final int length = in.readInt();
+            if (length < 0) {
+                throw new StreamCorruptedException("Invalid length " + length);
+            }
+            return length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+
+        @Override
+        public int read(final byte[] b) throws IOException {
+            return in.read(b);
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            return in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void readFully(final byte[] b) throws IOException {
+            in.readFully(b);
+        }
+
+        @Override
+        public void readFully(final byte[] b, final int off, final int len) throws IOException {
+            in.readFully(b, off, len);
+        }
+
+        @Override
+        public int skipBytes(final int n) throws IOException {
+            return in.skipBytes(n);
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        @Override
+        public int readUnsignedByte() throws IOException {
+            return in.readUnsignedByte();
+        }
+
+        @Override
+        public short readShort() throws IOException {
+            return in.readShort();
+        }
+
+        @Override
+        public int readUnsignedShort() throws IOException {
+            return in.readUnsignedShort();
+        }
+
+        @Override
+        public char readChar() throws IOException {
+            return in.readChar();
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        @Override
+        public long readLong() throws IOException {
+            return in.readLong();
+        }
+
+        @Override
+        public float readFloat() throws IOException {
+            return in.readFloat();
+        }
+
+        @Override
+        public double readDouble() throws IOException {
+            return in.readDouble();
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            return in.readLine();
+        }
+
+        @Override
+        public String readUTF() throws IOException {
+            return in.readUTF();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the stream belongs to the message
+        }
+    }
+
+    /**
+     * A class as written by the other side: its local descriptor and, for each written field, the local field or -1.
+     */
+    private static final class Received {
+
+        private final Class<?> type;
+        private final Descriptor local;
+        private final int[] fields;
+
+        private Received(final Class<?> type, final String[] names) {
+            this.type = type;
+            this.local = type.isArray() || type.isPrimitive() ? Descriptor.OTHER : DESCRIPTORS.get(type);
+            this.fields = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                this.fields[i] = local.indexOf(names[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client.serializer;
+
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Writes the method parameters and the results of the ejbd calls in place of the java serialization.
+ *
+ * A codec is chosen by the client (openejb.ejbd.codec) and only used once the server answered
+ * it knows a codec of the same name, see {@link EJBDCodecs}. The objects a codec can't write
+ * are expected to go through the java serialization of the wrapped stream.
+ */
+public interface EJBDCodec {
+
+    /**
+     * @return the name negotiated with the server, the same on both sides
+     */
+    String getName();
+
+    /**
+     * @param out the stream of the message
+     * @return the output of a single message, its writeObject uses the codec, the other writes go to the given stream
+     */
+    ObjectOutput newOutput(ObjectOutput out);
+
+    /**
+     * @param in the stream of the message, classes are loaded from the context class loader
+     * @return the input of a single message, its readObject reads what the output of the codec wrote
+     */
+    ObjectInput newInput(ObjectInput in);
+}
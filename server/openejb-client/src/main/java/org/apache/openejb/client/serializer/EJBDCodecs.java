@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client.serializer;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The codecs known by this side of the connection: the {@link BinaryCodec} and the ones
+ * registered in META-INF/services/org.apache.openejb.client.serializer.EJBDCodec.
+ *
+ * "java" or no name at all means the java serialization, the default.
+ */
+public final class EJBDCodecs {
+
+    public static final String JAVA = "java";
+
+    private static final ConcurrentMap<String, EJBDCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(new BinaryCodec());
+    }
+
+    private EJBDCodecs() {
+        // no-op
+    }
+
+    public static void register(final EJBDCodec codec) {
+        CODECS.put(codec.getName(), codec);
+    }
+
+    /**
+     * @return the codec of this name, null for the java serialization or an unknown codec
+     */
+    public static EJBDCodec get(final String name) {
+        if (name == null || name.isEmpty() || JAVA.equals(name)) {
+            return null;
+        }
+
+        final EJBDCodec codec = CODECS.get(name);
+        if (codec != null) {
+            return codec;
+        }
+
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = EJBDCodecs.class.getClassLoader();
+        }
+        try {
+            for (final EJBDCodec found : ServiceLoader.load(EJBDCodec.class, loader)) {
+                CODECS.putIfAbsent(found.getName(), found);
+            }
+        } catch (final Throwable e) {
+            // a broken provider leaves the java serialization
+        }
+        return CODECS.get(name);
+    }
+}
@@ -17,6 +17,8 @@
 package org.apache.openejb.client;
 
 import junit.framework.TestCase;
+import org.apache.openejb.client.serializer.BinaryCodec;
+import org.apache.openejb.client.serializer.EJBDCodecs;
 
 import jakarta.ejb.EJBHome;
 import jakarta.ejb.EJBObject;
@@ -105,6 +107,25 @@ public class EJBRequestTest extends TestCase {
         invoke(requestMethod, method, args);
     }
 
+    public void testBusinessMethodWithCodec() throws Exception {
+        final RequestMethodCode requestMethod = RequestMethodCode.EJB_OBJECT_BUSINESS_METHOD;
+        final Method method = FooObject.class.getMethod("businessMethod", new Class[]{String.class});
+        final Object[] args = new Object[]{"hola mundo"};
+
+        // the server answered a previous request with the codec
+        final EJBRequest previous = new EJBRequest(requestMethod, ejb, method, args, null, null);
+        previous.setCodec(BinaryCodec.NAME);
+        final EJBResponse response = new EJBResponse();
+        response.setResponse(EJBResponse.CODECS, ResponseCodes.EJB_OK, null);
+        response.setCodec(EJBDCodecs.get(BinaryCodec.NAME));
+
+        final CodecNegotiation codecs = new CodecNegotiation();
+        codecs.update(previous, response);
+        assertTrue(codecs.isAccepted(BinaryCodec.NAME));
+
+        invoke(requestMethod, method, args, codecs);
+    }
+
     public void testGetEJBHome() throws Exception {
         final RequestMethodCode requestMethod = RequestMethodCode.EJB_OBJECT_GET_EJB_HOME;
         final Method method = FooObject.class.getMethod("getEJBHome", new Class[]{});
@@ -146,8 +167,17 @@ public class EJBRequestTest extends TestCase {
     }
 
     private void invoke(final RequestMethodCode requestMethod, final Method method, final Object[] args) throws IOException, ClassNotFoundException {
+        invoke(requestMethod, method, args, null);
+    }
+
+    private void invoke(final RequestMethodCode requestMethod, final Method method, final Object[] args,
+                        final CodecNegotiation codecs) throws IOException, ClassNotFoundException {
 
         final EJBRequest expected = new EJBRequest(requestMethod, ejb, method, args, null, null);
+        if (codecs != null) {
+            expected.setCodec(BinaryCodec.NAME);
+            expected.setCodecs(codecs);
+        }
         expected.getBody().setAuthentication(new JNDIContext.AuthenticationInfo("realm", "user", new char[]{'p', 'w'}));
 
         final EJBRequest actual = new EJBRequest();
@@ -163,6 +193,7 @@ public class EJBRequestTest extends TestCase {
 
         actual.readExternal(in);
         actual.getBody().readExternal(in);
+        assertEquals("Codec", codecs == null ? null : BinaryCodec.NAME, actual.getBody().getCodec());
         final JNDIContext.AuthenticationInfo authentication = actual.getBody().getAuthentication();
 
         assertNotNull(authentication);
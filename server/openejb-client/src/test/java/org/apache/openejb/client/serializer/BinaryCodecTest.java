@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client.serializer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryCodecTest {
+
+    @Test
+    public void registered() {
+        assertTrue(EJBDCodecs.get(BinaryCodec.NAME) instanceof BinaryCodec);
+        assertNull(EJBDCodecs.get(EJBDCodecs.JAVA));
+        assertNull(EJBDCodecs.get("missing"));
+    }
+
+    @Test
+    public void values() throws Exception {
+        final Object[] values = {
+            null, true, (byte) 1, (short) 2, 'c', 3, 4L, 5F, 6D, "text", longString(), Color.GREEN,
+            new byte[]{1, 2}, new int[]{3, 4}, new long[]{5}, new double[]{6}, new String[]{"a", null},
+            new ArrayList<>(Arrays.asList(1, "b")), new HashMap<>(Map.of("k", 1)), new BigDecimal("1.5")
+        };
+
+        final Object[] read = roundTrip(values);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i].getClass().isArray()) {
+                assertTrue(Arrays.deepEquals(new Object[]{values[i]}, new Object[]{read[i]}));
+            } else {
+                assertEquals(values[i], read[i]);
+            }
+        }
+    }
+
+    @Test
+    public void beanGraph() throws Exception {
+        final Order order = new Order(7, "books");
+        order.lines.add(new Line("java", 2));
+        order.lines.add(order.lines.get(0));
+        order.parent = order;
+
+        final Order read = (Order) roundTrip(order)[0];
+        assertEquals(7, read.id);
+        assertEquals("books", read.name);
+        assertEquals(2, read.lines.size());
+        assertEquals(new Line("java", 2), read.lines.get(0));
+        assertSame(read.lines.get(0), read.lines.get(1));
+        assertSame(read, read.parent);
+    }
+
+    @Test
+    public void classesAreWrittenOnce() throws Exception {
+        final Line[] lines = new Line[100];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = new Line("item" + i, i);
+        }
+
+        final ByteArrayOutputStream once = write(new Object[]{lines[0]});
+        final ByteArrayOutputStream hundred = write(new Object[]{lines});
+        // the class name and the field names aren't repeated
+        assertTrue(hundred.size() < 100 * (once.size() - Line.class.getName().length()));
+        assertArrayEquals(lines, (Object[]) read(hundred, 1)[0]);
+    }
+
+    private static Object[] roundTrip(final Object... values) throws Exception {
+        return read(write(values), values.length);
+    }
+
+    private static ByteArrayOutputStream write(final Object[] values) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream stream = new ObjectOutputStream(bytes);
+        final ObjectOutput out = new BinaryCodec().newOutput(stream);
+        for (final Object value : values) {
+            out.writeObject(value);
+        }
+        out.flush();
+        stream.close();
+        return bytes;
+    }
+
+    private static Object[] read(final ByteArrayOutputStream bytes, final int count) throws Exception {
+        final ObjectInput in = new BinaryCodec().newInput(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        final Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readObject();
+        }
+        return values;
+    }
+
+    private static String longString() {
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < 70000) {
+            builder.append("\u00e9t\u00e9 ");
+        }
+        return builder.toString();
+    }
+
+    public enum Color {
+        RED, GREEN
+    }
+
+    public record Line(String product, int quantity) implements Serializable {
+    }
+
+    public static class Order implements Serializable {
+        private final int id;
+        private final String name;
+        private final List<Line> lines = new ArrayList<>();
+        private Order parent;
+
+        private Order() {
+            this(0, null);
+        }
+
+        public Order(final int id, final String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.client.EJBRequest;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The method ids of the remote interfaces of a deployment, kept by its {@link BeanContext}
+ * so they go away with it.
+ *
+ * An id is the generation of the index in its high bits and the position of the method in the low 16 bits.
+ * The generations follow each other from a random start so a redeployment never reuses the ids of the previous
+ * one and the ids of a previous server rarely match. Whatever the id, the client sends the
+ * {@link EJBRequest.Body#signature(Class, Method) signature} of its method along and an id is only resolved
+ * when the signature is the one of the indexed method. The clients get a
+ * {@link org.apache.openejb.client.ResponseCodes#EJB_UNKNOWN_METHOD_ID} for any other id and send the full method again.
+ */
+class BeanMethodIndex implements EJBRequest.MethodIndex {
+
+    private static final int MAX_METHODS = 0xFFFF;
+
+    private static final int GENERATIONS = 0x7FFF;
+    private static final AtomicInteger LAST_GENERATION = new AtomicInteger(ThreadLocalRandom.current().nextInt(GENERATIONS));
+
+    private final int generation = (LAST_GENERATION.incrementAndGet() & Integer.MAX_VALUE) % GENERATIONS + 1;
+    private final ConcurrentMap<Key, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Key[] methods = new Key[0];
+
+    static BeanMethodIndex of(final BeanContext beanContext) {
+        synchronized (beanContext) {
+            BeanMethodIndex index = beanContext.get(BeanMethodIndex.class);
+            if (index == null) {
+                index = new BeanMethodIndex();
+                beanContext.set(BeanMethodIndex.class, index);
+            }
+            return index;
+        }
+    }
+
+    @Override
+    public int getMethodId(final Class interfaceClass, final Method method) {
+        if (interfaceClass == null || method == null) {
+            return 0;
+        }
+
+        final Key key = new Key(interfaceClass, method);
+        final Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            final Integer existing = ids.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (methods.length >= MAX_METHODS) {
+                return 0;
+            }
+
+            final Key[] grown = Arrays.copyOf(methods, methods.length + 1);
+            grown[methods.length] = key;
+            methods = grown;
+
+            final int newId = generation << 16 | grown.length;
+            ids.put(key, newId);
+            return newId;
+        }
+    }
+
+    @Override
+    public Class getInterfaceClass(final int methodId, final long signature) {
+        final Key key = key(methodId, signature);
+        return key == null ? null : key.interfaceClass;
+    }
+
+    @Override
+    public Method getMethod(final int methodId, final long signature) {
+        final Key key = key(methodId, signature);
+        return key == null ? null : key.method;
+    }
+
+    private Key key(final int methodId, final long signature) {
+        if (methodId >>> 16 != generation) {
+            return null;
+        }
+
+        final Key[] current = methods;
+        final int position = (methodId & MAX_METHODS) - 1;
+        if (position < 0 || position >= current.length) {
+            return null;
+        }
+
+        final Key key = current[position];
+        return key.signature == signature ? key : null;
+    }
+
+    private static final class Key {
+        private final Class interfaceClass;
+        private final Method method;
+        private final long signature;
+        private final int hash;
+
+        private Key(final Class interfaceClass, final Method method) {
+            this.interfaceClass = interfaceClass;
+            this.method = method;
+            this.signature = EJBRequest.Body.signature(interfaceClass, method);
+            this.hash = 31 * interfaceClass.hashCode() + method.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final Key key = (Key) o;
+            return interfaceClass == key.interfaceClass && method.equals(key.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
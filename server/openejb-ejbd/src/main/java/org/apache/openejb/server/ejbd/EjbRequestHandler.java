@@ -29,6 +29,7 @@ import org.apache.openejb.client.ProtocolMetaData;
 import org.apache.openejb.client.Response;
 import org.apache.openejb.client.ResponseCodes;
 import org.apache.openejb.client.ThrowableArtifact;
+import org.apache.openejb.client.serializer.EJBDCodecs;
 import org.apache.openejb.client.serializer.EJBDSerializer;
 import org.apache.openejb.client.serializer.SerializationWrapper;
 import org.apache.openejb.core.ThreadContext;
@@ -128,6 +129,9 @@ class EjbRequestHandler extends RequestHandler {
                 return setResponseError(res, version, t, "Unkown error occured while retrieving deployment: " + req);
             }
 
+            // clients of the protocol 4.7 send the ids of the methods they already called
+            final BeanMethodIndex methodIndex = metaData != null && metaData.isAtLeast(4, 7) ? BeanMethodIndex.of(di) : null;
+
             try {
 
                 //Need to set this for deserialization of the body - Will always be reset by EjbDaemon
@@ -136,17 +140,31 @@ class EjbRequestHandler extends RequestHandler {
 
                 res.start(EJBResponse.Time.DESERIALIZATION);
 
+                req.getBody().setMethodIndex(methodIndex);
                 req.getBody().readExternal(in);
 
                 //Client version retrieved from body
                 version = req.getVersion();
 
+                // clients of the protocol 4.8 ask for the codec of the result, unknown ones leave the java serialization
+                res.setCodec(EJBDCodecs.get(req.getBody().getCodec()));
+
                 res.stop(EJBResponse.Time.DESERIALIZATION);
             } catch (Throwable t) {
                 failed = true;
                 return setResponseError(res, version, t, "Error caught during request body deserialization: " + req);
             }
 
+            if (methodIndex != null) {
+                if (req.getBody().getMethodId() <= 0) {
+                    res.setMethodId(methodIndex.getMethodId(req.getInterfaceClass(), req.getMethodInstance()));
+                } else if (req.getMethodInstance() == null) {
+                    failed = true;
+                    res.setResponse(version, ResponseCodes.EJB_UNKNOWN_METHOD_ID, null);
+                    return res;
+                }
+            }
+
             try {
                 call = CallContext.getCallContext();
                 call.setEJBRequest(req);
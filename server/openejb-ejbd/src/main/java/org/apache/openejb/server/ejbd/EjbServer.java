@@ -18,6 +18,7 @@ package org.apache.openejb.server.ejbd;
 
 import org.apache.openejb.ProxyInfo;
 import org.apache.openejb.core.ServerFederation;
+import org.apache.openejb.loader.Options;
 import org.apache.openejb.server.ServiceException;
 
 import jakarta.ejb.EJBHome;
@@ -49,7 +50,17 @@ public class EjbServer implements org.apache.openejb.server.ServerService, org.a
             props.setProperty("name", getName());
         }
         server.init(props);
-        keepAlive = new KeepAliveServer(this, server.isGzip());
+
+        final Options options = new Options(props);
+        if (options.get("nio", false)) {
+            final NioKeepAliveServer nio = new NioKeepAliveServer(this, server.isGzip(), options.get("threads", 200));
+            nio.setRequestTimeout(options.get("nio.requestTimeout", 30000));
+            keepAlive = nio;
+        } else {
+            keepAlive = new KeepAliveServer(this, server.isGzip());
+        }
+        keepAlive.setThreads(options.get("threads", 200));
+        keepAlive.setMaxFrameSize(options.get("multiplex.maxFrameSize", 16 * 1024 * 1024));
     }
 
     @Override
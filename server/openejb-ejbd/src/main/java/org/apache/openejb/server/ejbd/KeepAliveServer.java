@@ -41,7 +41,13 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -61,6 +67,9 @@ public class KeepAliveServer implements ServerService {
     private BlockingQueue<Runnable> threadQueue;
     private Timer timer;
     private final boolean gzip;
+    private int threads = 200;
+    private int maxFrameSize = 16 * 1024 * 1024;
+    private ThreadPoolExecutor workers;
 
     @SuppressWarnings("deprecation")
     public KeepAliveServer() {
@@ -104,7 +113,9 @@ public class KeepAliveServer implements ServerService {
 
             if (l.tryLock()) {
                 try {
-                    if (now - session.lastRequest.get() > this.timeout) {
+                    final MultiplexedSession multiplexed = session.multiplexed;
+                    final boolean idle = multiplexed != null ? multiplexed.isIdle(now, this.timeout) : now - session.lastRequest.get() > this.timeout;
+                    if (idle) {
 
                         backlog--;
 
@@ -171,6 +182,48 @@ public class KeepAliveServer implements ServerService {
         return this.threadQueue;
     }
 
+    /**
+     * @param threads the maximum number of requests of multiplexed connections running at the same time
+     */
+    public void setThreads(final int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param maxFrameSize the largest request, in bytes, a multiplexed connection can send
+     */
+    public void setMaxFrameSize(final int maxFrameSize) {
+        this.maxFrameSize = Math.max(1, maxFrameSize);
+    }
+
+    public int getMaxFrameSize() {
+        return this.maxFrameSize;
+    }
+
+    /**
+     * The queue is bounded: once the workers and the queue are full the connection reads no more frames
+     * until the request it just read ran on its own thread, which pushes back on the client.
+     *
+     * @return the pool running the concurrent requests of multiplexed connections, created on first use
+     */
+    protected synchronized Executor getExecutor() {
+        if (this.workers == null) {
+            final AtomicInteger count = new AtomicInteger(0);
+            final String name = this.getName();
+            this.workers = new ThreadPoolExecutor(this.threads, this.threads, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<Runnable>(this.threads),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, "OpenEJB." + name + ".multiplex." + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            this.workers.allowCoreThreadTimeOut(true);
+        }
+        return this.workers;
+    }
+
     /**
      *
      * @param session
@@ -214,6 +267,7 @@ public class KeepAliveServer implements ServerService {
         private final Socket socket;
         private InputStream in = null;
         private OutputStream out = null;
+        private volatile MultiplexedSession multiplexed;
 
         private Session(final KeepAliveServer kas, final Socket socket) {
             this.kas = kas;
@@ -266,6 +320,18 @@ public class KeepAliveServer implements ServerService {
                     }
                     final KeepAliveStyle style = KeepAliveStyle.values()[i];
 
+                    if (style == KeepAliveStyle.MULTIPLEX) {
+                        // the connection now only carries frames, until the client hangs up
+                        this.multiplexed = new MultiplexedSession(KeepAliveServer.this.service, KeepAliveServer.this.getExecutor(),
+                            KeepAliveServer.this.maxFrameSize, socket, in, out);
+                        try {
+                            this.multiplexed.service(KeepAliveServer.this.running);
+                        } catch (SocketException e) {
+                            // Socket closed.
+                        }
+                        break;
+                    }
+
                     final Lock l2 = this.lock;
                     l2.lock();
 
@@ -384,6 +450,12 @@ public class KeepAliveServer implements ServerService {
             } catch (Throwable e) {
                 //Ignore
             }
+            synchronized (this) {
+                if (this.workers != null) {
+                    this.workers.shutdownNow();
+                    this.workers = null;
+                }
+            }
         }
     }
 
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.server.ServerService;
+import org.apache.openejb.server.context.RequestInfos;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server side of a connection opened with the {@link org.apache.openejb.client.KeepAliveStyle#MULTIPLEX} style.
+ *
+ * Every frame (id, length, request) read from the connection is serviced by the {@link EjbDaemon}
+ * on the given executor, so the calls of a connection run concurrently. The response is written back
+ * as a frame of the same id as soon as it is ready, whatever the order of the requests.
+ */
+class MultiplexedSession {
+
+    private static final Logger logger = Logger.getInstance(LogCategory.OPENEJB_SERVER.createChild("keepalive"), MultiplexedSession.class);
+
+    private final ServerService service;
+    private final Executor executor;
+    private final int maxFrameSize;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Lock writeLock = new ReentrantLock();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastRequest = System.currentTimeMillis();
+
+    /**
+     * @param executor     runs the requests, null to run them one after the other on the reading thread
+     * @param maxFrameSize the largest request accepted in bytes, a larger frame closes the connection
+     */
+    MultiplexedSession(final ServerService service, final Executor executor, final int maxFrameSize, final Socket socket,
+                       final InputStream in, final OutputStream out) {
+        this.service = service;
+        this.executor = executor;
+        this.maxFrameSize = maxFrameSize;
+        this.socket = socket;
+        this.in = new DataInputStream(in);
+        this.out = new DataOutputStream(out);
+    }
+
+    public boolean isIdle(final long now, final long timeout) {
+        return this.inFlight.get() == 0 && now - this.lastRequest > timeout;
+    }
+
+    /**
+     * Reads the frames until the client hangs up or the server stops.
+     */
+    public void service(final AtomicBoolean running) throws IOException {
+        while (running.get()) {
+            final int first = this.in.read();
+            if (first == -1) {
+                // client hung up
+                return;
+            }
+            this.frame(first);
+        }
+    }
+
+    /**
+     * Reads the rest of a frame and hands it to the executor.
+     *
+     * @param first the first byte of the frame id, already read by a caller waiting for data
+     *              without holding a thread, the {@link NioKeepAliveServer} for instance
+     */
+    public void frame(final int first) throws IOException {
+        final int id = first << 24 | this.in.readUnsignedByte() << 16 | this.in.readUnsignedByte() << 8 | this.in.readUnsignedByte();
+
+        final int length = this.in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        if (length > this.maxFrameSize) { // checked before allocating anything for it
+            throw new IOException("Frame of " + length + " bytes from " + this.socket.getInetAddress()
+                + " exceeds the limit of " + this.maxFrameSize + " bytes");
+        }
+
+        final byte[] request = new byte[length];
+        this.in.readFully(request);
+
+        this.lastRequest = System.currentTimeMillis();
+        this.inFlight.incrementAndGet();
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                process(id, request);
+            }
+        };
+
+        if (this.executor == null) {
+            task.run();
+        } else {
+            try {
+                this.executor.execute(task);
+            } catch (final RejectedExecutionException e) {
+                task.run();
+            }
+        }
+    }
+
+    private void process(final int id, final byte[] request) {
+        final ByteArrayOutputStream response = new ByteArrayOutputStream(512);
+
+        RequestInfos.initRequestInfo(this.socket);
+        try {
+            this.service.service(new ByteArrayInputStream(request), response);
+        } catch (final Throwable e) {
+            // an empty response fails the call on the client side, the connection stays usable
+            logger.debug("Request " + id + " from " + this.socket.getInetAddress() + " failed: " + e.getMessage(), e);
+            response.reset();
+        } finally {
+            RequestInfos.clearRequestInfo();
+        }
+
+        this.writeLock.lock();
+        try {
+            this.out.writeInt(id);
+            this.out.writeInt(response.size());
+            response.writeTo(this.out);
+            this.out.flush();
+        } catch (final IOException e) {
+            logger.debug("Unable to write the response " + id + " to " + this.socket.getInetAddress() + ": " + e.getMessage());
+        } finally {
+            this.writeLock.unlock();
+            this.lastRequest = System.currentTimeMillis();
+            this.inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.client.FlushableGZIPOutputStream;
+import org.apache.openejb.client.KeepAliveStyle;
+import org.apache.openejb.server.ServerService;
+import org.apache.openejb.server.ServiceException;
+import org.apache.openejb.server.context.RequestInfos;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Non blocking flavour of the {@link KeepAliveServer}.
+ *
+ * Idle keep-alive connections are parked on a single selector instead of holding
+ * a pooled thread each. As soon as the first byte of a request is readable the
+ * connection is handed to a worker which runs the unchanged ejbd protocol
+ * ({@link org.apache.openejb.client.ProtocolMetaData}, request, response) and then
+ * gives the connection back to the selector.
+ *
+ * Only sockets accepted from a channel can be handled this way (see the
+ * <code>nio</code> option of the {@link org.apache.openejb.server.ServiceDaemon}),
+ * any other socket, an SSL one for instance, is serviced by the blocking implementation.
+ *
+ * @version $Rev$ $Date$
+ */
+public class NioKeepAliveServer extends KeepAliveServer {
+
+    private static final Logger logger = Logger.getInstance(LogCategory.OPENEJB_SERVER.createChild("keepalive"), NioKeepAliveServer.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ServerService service;
+    private final boolean gzip;
+    private final int threads;
+    private int requestTimeout = 30000;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Queue<Connection> pending = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ThreadPoolExecutor workers;
+
+    public NioKeepAliveServer(final ServerService service, final boolean gzip, final int threads) {
+        super(service, gzip);
+        this.service = service;
+        this.gzip = gzip;
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public void service(final Socket socket) throws ServiceException, IOException {
+        final SocketChannel channel = socket.getChannel();
+        if (channel == null || !this.running.get()) {
+            super.service(socket);
+            return;
+        }
+
+        final Connection connection = new Connection(socket, channel);
+        this.connections.add(connection);
+        try {
+            channel.configureBlocking(false);
+            socket.setTcpNoDelay(true);
+        } catch (final IOException e) {
+            connection.close();
+            throw e;
+        }
+        this.register(connection);
+    }
+
+    private void register(final Connection connection) {
+        this.pending.add(connection);
+        final Selector s = this.selector;
+        if (s != null) {
+            s.wakeup();
+        }
+    }
+
+    /**
+     * @param requestTimeout the time in milliseconds a worker waits for the client in the middle of a request,
+     *                       to read the rest of it or to write the response, before closing the connection
+     */
+    public void setRequestTimeout(final int requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    @Override
+    public void start() throws ServiceException {
+        super.start();
+
+        if (!this.running.getAndSet(true)) {
+            try {
+                this.selector = Selector.open();
+            } catch (final IOException e) {
+                this.running.set(false);
+                throw new ServiceException("Unable to open the selector", e);
+            }
+
+            final AtomicInteger count = new AtomicInteger(0);
+            final String name = this.getName();
+            this.workers = new ThreadPoolExecutor(this.threads, this.threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        return new Worker(r, "OpenEJB." + name + ".nio." + count.incrementAndGet());
+                    }
+                });
+            this.workers.allowCoreThreadTimeOut(true);
+
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    select();
+                }
+            }, "OpenEJB." + name + ".selector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void stop() throws ServiceException {
+        if (this.running.getAndSet(false)) {
+            try {
+                this.selector.wakeup();
+            } catch (final Throwable e) {
+                //Ignore
+            }
+
+            for (final Connection connection : new ArrayList<>(this.connections)) {
+                connection.close();
+            }
+
+            this.workers.shutdownNow();
+        }
+
+        super.stop();
+    }
+
+    private void select() {
+        final Selector s = this.selector;
+        try {
+            while (this.running.get()) {
+                s.select();
+
+                Connection connection;
+                while ((connection = this.pending.poll()) != null) {
+                    connection.arm(s);
+                }
+
+                final Iterator<SelectionKey> keys = s.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+
+                    final Connection ready = (Connection) key.attachment();
+                    try {
+                        // the connection belongs to the worker until it is registered again
+                        key.interestOps(0);
+                        this.workers.execute(ready);
+                    } catch (final CancelledKeyException e) {
+                        ready.close();
+                    } catch (final RuntimeException e) {
+                        logger.warning("Unable to dispatch request from " + ready.socket.getInetAddress() + ": " + e.getMessage());
+                        ready.close();
+                    }
+                }
+            }
+        } catch (final ClosedSelectorException e) {
+            //Ignore, stopped
+        } catch (final Throwable e) {
+            logger.error("Selector of " + this.getName() + " failed", e);
+        } finally {
+            try {
+                s.close();
+            } catch (final IOException e) {
+                //Ignore
+            }
+
+            for (final Connection connection : new ArrayList<>(this.connections)) {
+                connection.close();
+            }
+        }
+    }
+
+    private class Connection implements Runnable {
+
+        private final Socket socket;
+        private final SocketChannel channel;
+        private final ChannelInputStream rawIn;
+        private final ChannelOutputStream rawOut;
+        private volatile SelectionKey key; // set by the selector thread, cancelled by the worker
+        private InputStream in;
+        private OutputStream out;
+        private MultiplexedSession multiplexed;
+
+        private Connection(final Socket socket, final SocketChannel channel) {
+            this.socket = socket;
+            this.channel = channel;
+            this.rawIn = new ChannelInputStream(channel, NioKeepAliveServer.this.requestTimeout);
+            this.rawOut = new ChannelOutputStream(channel, NioKeepAliveServer.this.requestTimeout);
+        }
+
+        /**
+         * Called from the selector thread only.
+         */
+        private void arm(final Selector selector) {
+            try {
+                if (this.key == null) {
+                    this.key = this.channel.register(selector, SelectionKey.OP_READ, this);
+                } else {
+                    this.key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (final IOException | CancelledKeyException e) {
+                this.close();
+            }
+        }
+
+        @Override
+        public void run() {
+            RequestInfos.initRequestInfo(this.socket);
+            int i = -1;
+            try {
+                if (this.in == null) {
+                    // the gzip header is read eagerly so it has to be done in blocking mode
+                    this.rawIn.blocking = true;
+                    if (!NioKeepAliveServer.this.gzip) {
+                        this.in = this.rawIn;
+                        this.out = this.rawOut;
+                    } else {
+                        this.in = new GZIPInputStream(this.rawIn);
+                        this.out = new BufferedOutputStream(new FlushableGZIPOutputStream(this.rawOut));
+                    }
+                }
+
+                while (NioKeepAliveServer.this.running.get()) {
+                    // peek for the next request without waiting for it
+                    this.rawIn.blocking = false;
+                    try {
+                        i = this.in.read();
+                    } catch (final WouldBlockException e) {
+                        NioKeepAliveServer.this.register(this);
+                        return;
+                    }
+                    if (i == -1) {
+                        // client hung up
+                        break;
+                    }
+
+                    this.rawIn.blocking = true;
+
+                    if (this.multiplexed != null) {
+                        // a frame, the next one is waited for on the selector like any request
+                        this.multiplexed.frame(i);
+                        continue;
+                    }
+
+                    final KeepAliveStyle style = KeepAliveStyle.values()[i];
+                    if (style == KeepAliveStyle.MULTIPLEX) {
+                        // the connection now only carries frames, the requests run on the multiplex pool
+                        this.multiplexed = new MultiplexedSession(NioKeepAliveServer.this.service, NioKeepAliveServer.this.getExecutor(),
+                            NioKeepAliveServer.this.getMaxFrameSize(), this.socket, this.in, this.out);
+                        continue;
+                    }
+
+                    switch (style) {
+                        case PING_PING: {
+                            i = this.in.read();
+                            break;
+                        }
+                        case PING_PONG: {
+                            this.out.write(style.ordinal());
+                            this.out.flush();
+                            break;
+                        }
+                    }
+
+                    NioKeepAliveServer.this.service.service(new Input(this.in), new Output(this.out));
+                    this.out.flush();
+                }
+            } catch (final ArrayIndexOutOfBoundsException e) {
+                logger.debug("Unexpected byte " + i + " from " + this.socket.getInetAddress());
+            } catch (final SocketException e) {
+                // Socket closed.
+            } catch (final Throwable e) {
+                if (NioKeepAliveServer.this.running.get()) {
+                    logger.debug("Closing connection from " + this.socket.getInetAddress() + ": " + e.getMessage(), e);
+                }
+            } finally {
+                RequestInfos.clearRequestInfo();
+            }
+
+            this.close();
+        }
+
+        private void close() {
+            NioKeepAliveServer.this.connections.remove(this);
+
+            final SelectionKey k = this.key;
+            if (k != null) {
+                k.cancel();
+            }
+
+            try {
+                this.channel.close();
+            } catch (final Throwable e) {
+                //Ignore
+            }
+        }
+    }
+
+    private static final class WouldBlockException extends IOException {
+
+        private static final WouldBlockException INSTANCE = new WouldBlockException();
+
+        private WouldBlockException() {
+            super("No data available");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Waits for the channel to become readable or writable without touching
+     * the selector owning the idle connections. Only used when a request or a response
+     * does not fit in the socket buffers.
+     *
+     * @param timeout in milliseconds, a client which doesn't send or read anything in this time is given up
+     */
+    private static void await(final SocketChannel channel, final int ops, final int timeout) throws IOException {
+        final Thread thread = Thread.currentThread();
+        if (thread instanceof Worker) {
+            await(((Worker) thread).selector(), channel, ops, timeout);
+        } else {
+            try (final Selector s = Selector.open()) {
+                await(s, channel, ops, timeout);
+            }
+        }
+    }
+
+    private static void await(final Selector selector, final SocketChannel channel, final int ops, final int timeout) throws IOException {
+        final SelectionKey key = channel.register(selector, ops);
+        try {
+            if (timeout <= 0) {
+                selector.select();
+                return;
+            }
+
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))) == 0) {
+                if (deadline - System.nanoTime() <= 0) {
+                    throw new SocketTimeoutException("Client idle for " + timeout + "ms in the middle of a request");
+                }
+            }
+        } finally {
+            selector.selectedKeys().clear();
+            key.cancel();
+            selector.selectNow(); // deregisters the channel from the selector of the worker
+        }
+    }
+
+    /**
+     * A worker thread with its own selector, opened on first use, to wait for slow clients.
+     */
+    private static final class Worker extends Thread {
+
+        private Selector selector;
+
+        private Worker(final Runnable runnable, final String name) {
+            super(runnable, name);
+            this.setDaemon(true);
+        }
+
+        private Selector selector() throws IOException {
+            if (this.selector == null) {
+                this.selector = Selector.open();
+            }
+            return this.selector;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                if (this.selector != null) {
+                    try {
+                        this.selector.close();
+                    } catch (final IOException e) {
+                        //Ignore
+                    }
+                }
+            }
+        }
+    }
+
+    private static class ChannelInputStream extends InputStream {
+
+        private final SocketChannel channel;
+        private final int timeout;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private boolean blocking;
+
+        private ChannelInputStream(final SocketChannel channel, final int timeout) {
+            this.channel = channel;
+            this.timeout = timeout;
+            this.buffer.flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!this.buffer.hasRemaining() && this.fill() < 0) {
+                return -1;
+            }
+            return this.buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining() && this.fill() < 0) {
+                return -1;
+            }
+            final int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+
+        private int fill() throws IOException {
+            this.buffer.clear();
+            try {
+                int n;
+                while ((n = this.channel.read(this.buffer)) == 0) {
+                    if (!this.blocking) {
+                        throw WouldBlockException.INSTANCE;
+                    }
+                    await(this.channel, SelectionKey.OP_READ, this.timeout);
+                }
+                return n;
+            } finally {
+                this.buffer.flip();
+            }
+        }
+
+        @Override
+        public void close() {
+            // owned by the connection
+        }
+    }
+
+    private static class ChannelOutputStream extends OutputStream {
+
+        private final SocketChannel channel;
+        private final int timeout;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private ChannelOutputStream(final SocketChannel channel, final int timeout) {
+            this.channel = channel;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (!this.buffer.hasRemaining()) {
+                this.drain();
+            }
+            this.buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!this.buffer.hasRemaining()) {
+                    this.drain();
+                }
+                final int n = Math.min(len, this.buffer.remaining());
+                this.buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.drain();
+        }
+
+        private void drain() throws IOException {
+            this.buffer.flip();
+            try {
+                while (this.buffer.hasRemaining()) {
+                    if (this.channel.write(this.buffer) == 0) {
+                        await(this.channel, SelectionKey.OP_WRITE, this.timeout);
+                    }
+                }
+            } finally {
+                this.buffer.compact();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.flush();
+        }
+    }
+
+}
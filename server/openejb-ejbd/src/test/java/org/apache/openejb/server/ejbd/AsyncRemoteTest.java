@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.client.AsyncRemote;
+import org.apache.openejb.client.RemoteInitialContextFactory;
+import org.apache.openejb.client.SocketConnectionFactory;
+import org.apache.openejb.jee.EnterpriseBean;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testing.RandomPort;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.ejb.ApplicationException;
+import jakarta.ejb.AsyncResult;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.Remote;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@EnableServices("ejbd")
+@RunWith(ApplicationComposer.class)
+public class AsyncRemoteTest {
+
+    static { // read once by the client, each test class runs in its own vm
+        System.setProperty(SocketConnectionFactory.PROPERTY_KEEPALIVE, "multiplex");
+    }
+
+    @RandomPort("ejbd")
+    private int ejbd;
+
+    @Module
+    public EnterpriseBean bean() {
+        return new StatelessBean(Calculator.class).localBean();
+    }
+
+    @Test
+    public void fanOut() throws Exception {
+        final CalculatorRemote calculator = lookup();
+
+        final List<CompletableFuture<Long>> sums = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            sums.add(AsyncRemote.invoke(calculator, c -> c.add(value, 1L)));
+        }
+        for (int i = 0; i < sums.size(); i++) {
+            assertEquals(i + 1L, sums.get(i).get(30, TimeUnit.SECONDS).longValue());
+        }
+    }
+
+    @Test
+    public void multiplexedCallSendsTheRequest() throws Exception {
+        final CalculatorRemote calculator = lookup();
+
+        // the bean is slow enough for the continuation to run on the thread completing the call
+        final CompletableFuture<String> completedBy = AsyncRemote.invoke(calculator, c -> c.slowConcat("a", 42))
+            .thenApply(value -> value + "@" + Thread.currentThread().getName());
+
+        final String result = completedBy.get(30, TimeUnit.SECONDS);
+        assertEquals("a42", result.substring(0, result.indexOf('@')));
+        // read by the client async pool: the call went through the multiplexed socket, not the blocking fallback
+        assertTrue(result, result.substring(result.indexOf('@') + 1).startsWith("OpenEJB.Client.async."));
+    }
+
+    @Test
+    public void asynchronousMethod() throws Exception {
+        final CalculatorRemote calculator = lookup();
+        assertEquals("async-3", AsyncRemote.invokeFuture(calculator, c -> c.later(3)).get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void voidMethod() throws Exception {
+        final CalculatorRemote calculator = lookup();
+        AsyncRemote.run(calculator, c -> c.reset()).get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void applicationException() throws Exception {
+        final CalculatorRemote calculator = lookup();
+        try {
+            AsyncRemote.invoke(calculator, c -> c.add(-1, 0L)).get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause().getClass().getName(), e.getCause() instanceof NegativeException);
+        }
+
+        // the proxy is still usable
+        assertEquals(2L, AsyncRemote.invoke(calculator, c -> c.add(1, 1L)).get(30, TimeUnit.SECONDS).longValue());
+    }
+
+    private CalculatorRemote lookup() throws Exception {
+        final Context ctx = new InitialContext(new Properties() {{
+            setProperty(Context.INITIAL_CONTEXT_FACTORY, RemoteInitialContextFactory.class.getName());
+            setProperty(Context.PROVIDER_URL, "ejbd://localhost:" + ejbd);
+        }});
+        return (CalculatorRemote) ctx.lookup("CalculatorRemote");
+    }
+
+    @ApplicationException
+    public static class NegativeException extends Exception {
+    }
+
+    public interface CalculatorRemote {
+
+        long add(int a, long b) throws NegativeException;
+
+        String slowConcat(String prefix, int value);
+
+        Future<String> later(int value);
+
+        void reset();
+    }
+
+    @Remote(CalculatorRemote.class)
+    public static class Calculator implements CalculatorRemote {
+
+        @Override
+        public long add(final int a, final long b) throws NegativeException {
+            if (a < 0) {
+                throw new NegativeException();
+            }
+            return a + b;
+        }
+
+        @Override
+        public String slowConcat(final String prefix, final int value) {
+            try {
+                Thread.sleep(200);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return prefix + value;
+        }
+
+        @Override
+        @Asynchronous
+        public Future<String> later(final int value) {
+            return new AsyncResult<>("async-" + value);
+        }
+
+        @Override
+        public void reset() {
+            // no-op
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.client.JNDIContext;
+import org.apache.openejb.client.RemoteInitialContextFactory;
+import org.apache.openejb.client.serializer.BinaryCodec;
+import org.apache.openejb.jee.EnterpriseBean;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testing.RandomPort;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.ejb.ApplicationException;
+import jakarta.ejb.Remote;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@EnableServices("ejbd")
+@RunWith(ApplicationComposer.class)
+public class BinaryCodecEjbdTest {
+
+    @RandomPort("ejbd")
+    private int ejbd;
+
+    @Module
+    public EnterpriseBean bean() {
+        return new StatelessBean(Cart.class).localBean();
+    }
+
+    @Test
+    public void negotiatedCodec() throws Exception {
+        final CartRemote cart = lookup();
+
+        // the first calls negotiate the codec, the next ones use it both ways
+        for (int i = 0; i < 5; i++) {
+            final List<Item> items = new ArrayList<>();
+            items.add(new Item("book", i));
+            items.add(new Item("pen", 2));
+
+            final Total total = cart.total(items);
+            assertEquals(i + 2, total.getQuantity());
+            assertEquals(items, total.getItems());
+        }
+    }
+
+    @Test
+    public void applicationException() throws Exception {
+        final CartRemote cart = lookup();
+        for (int i = 0; i < 3; i++) {
+            try {
+                cart.total(null);
+                fail();
+            } catch (final EmptyCartException e) {
+                assertEquals("empty", e.getMessage());
+            }
+        }
+    }
+
+    private CartRemote lookup() throws Exception {
+        final Context ctx = new InitialContext(new Properties() {{
+            setProperty(Context.INITIAL_CONTEXT_FACTORY, RemoteInitialContextFactory.class.getName());
+            setProperty(Context.PROVIDER_URL, "ejbd://localhost:" + ejbd);
+            setProperty(JNDIContext.CODEC, BinaryCodec.NAME);
+        }});
+        return (CartRemote) ctx.lookup("CartRemote");
+    }
+
+    public record Item(String name, int quantity) implements Serializable {
+    }
+
+    public static class Total implements Serializable {
+        private List<Item> items;
+        private int quantity;
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+
+    @ApplicationException
+    public static class EmptyCartException extends Exception {
+        public EmptyCartException(final String message) {
+            super(message);
+        }
+    }
+
+    public interface CartRemote {
+
+        Total total(List<Item> items) throws EmptyCartException;
+    }
+
+    @Remote(CartRemote.class)
+    public static class Cart implements CartRemote {
+
+        @Override
+        public Total total(final List<Item> items) throws EmptyCartException {
+            if (items == null) {
+                throw new EmptyCartException("empty");
+            }
+
+            final Total total = new Total();
+            total.items = items;
+            for (final Item item : items) {
+                total.quantity += item.quantity();
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.client.EJBRequest;
+import org.apache.openejb.client.RemoteInitialContextFactory;
+import org.apache.openejb.jee.EnterpriseBean;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testing.RandomPort;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.ejb.Remote;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@EnableServices("ejbd")
+@RunWith(ApplicationComposer.class)
+public class MethodIdTest {
+    @RandomPort("ejbd")
+    private int ejbd;
+
+    @Module
+    public EnterpriseBean bean() {
+        return new SingletonBean(Calculator.class).localBean();
+    }
+
+    @Test
+    public void idsAreAssignedAndUsed() throws Exception {
+        final CalculatorRemote calculator = lookup();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 3L, calculator.add(i, 3L));
+            assertEquals("a" + i, calculator.concat("a", Integer.valueOf(i)));
+            assertNull(calculator.concat(null, null));
+        }
+
+        final BeanMethodIndex index = beanContext().get(BeanMethodIndex.class);
+        assertNotNull(index);
+        final Method addMethod = CalculatorRemote.class.getMethod("add", int.class, long.class);
+        final Method concatMethod = CalculatorRemote.class.getMethod("concat", String.class, Object.class);
+        final int add = index.getMethodId(CalculatorRemote.class, addMethod);
+        final int concat = index.getMethodId(CalculatorRemote.class, concatMethod);
+        assertNotEquals(0, add);
+        assertNotEquals(add, concat);
+        assertEquals(addMethod, index.getMethod(add, EJBRequest.Body.signature(CalculatorRemote.class, addMethod)));
+        assertEquals(CalculatorRemote.class, index.getInterfaceClass(concat, EJBRequest.Body.signature(CalculatorRemote.class, concatMethod)));
+    }
+
+    @Test
+    public void idsAreOnlyResolvedForTheirSignature() throws Exception {
+        final BeanMethodIndex index = new BeanMethodIndex();
+        final Method addMethod = CalculatorRemote.class.getMethod("add", int.class, long.class);
+        final Method concatMethod = CalculatorRemote.class.getMethod("concat", String.class, Object.class);
+        final int add = index.getMethodId(CalculatorRemote.class, addMethod);
+        index.getMethodId(CalculatorRemote.class, concatMethod);
+
+        // the id of add sent by a client meaning concat, the id was assigned by another deployment or server
+        assertNull(index.getMethod(add, EJBRequest.Body.signature(CalculatorRemote.class, concatMethod)));
+        assertNull(index.getInterfaceClass(add, EJBRequest.Body.signature(CalculatorRemote.class, concatMethod)));
+        assertNotEquals(EJBRequest.Body.signature(CalculatorRemote.class, addMethod), EJBRequest.Body.signature(Calculator.class, addMethod));
+
+        // the next index never hands out the same ids
+        final BeanMethodIndex next = new BeanMethodIndex();
+        assertNotEquals(add, next.getMethodId(CalculatorRemote.class, addMethod));
+    }
+
+    @Test
+    public void unknownIdsAreForgotten() throws Exception {
+        final CalculatorRemote calculator = lookup();
+        assertEquals(3L, calculator.add(1, 2L));
+        assertEquals(3L, calculator.add(1, 2L));
+
+        // what a redeployment does, the client still has the ids of the previous deployment
+        final BeanContext beanContext = beanContext();
+        final BeanMethodIndex previous = beanContext.get(BeanMethodIndex.class);
+        beanContext.set(BeanMethodIndex.class, new BeanMethodIndex());
+        final Method add = CalculatorRemote.class.getMethod("add", int.class, long.class);
+        final long signature = EJBRequest.Body.signature(CalculatorRemote.class, add);
+        final int id = previous.getMethodId(CalculatorRemote.class, add);
+        assertNull(beanContext.get(BeanMethodIndex.class).getMethod(id, signature));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 2L, calculator.add(i, 2L));
+        }
+        assertNotNull(beanContext.get(BeanMethodIndex.class).getMethod(
+            beanContext.get(BeanMethodIndex.class).getMethodId(CalculatorRemote.class, add), signature));
+    }
+
+    private static BeanContext beanContext() {
+        return SystemInstance.get().getComponent(ContainerSystem.class).getBeanContext("Calculator");
+    }
+
+    private CalculatorRemote lookup() throws Exception {
+        final Context ctx = new InitialContext(new Properties() {{
+            setProperty(Context.INITIAL_CONTEXT_FACTORY, RemoteInitialContextFactory.class.getName());
+            setProperty(Context.PROVIDER_URL, "ejbd://localhost:" + ejbd);
+        }});
+        return (CalculatorRemote) ctx.lookup("CalculatorRemote");
+    }
+
+    public interface CalculatorRemote {
+
+        long add(int a, long b);
+
+        String concat(String a, Object b);
+    }
+
+    @Remote(CalculatorRemote.class)
+    public static class Calculator implements CalculatorRemote {
+
+        @Override
+        public long add(final int a, final long b) {
+            return a + b;
+        }
+
+        @Override
+        public String concat(final String a, final Object b) {
+            return a == null ? null : a + b;
+        }
+    }
+}
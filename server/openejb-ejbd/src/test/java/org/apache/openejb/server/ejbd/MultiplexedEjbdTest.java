@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.client.RemoteInitialContextFactory;
+import org.apache.openejb.client.SocketConnectionFactory;
+import org.apache.openejb.jee.EnterpriseBean;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testing.RandomPort;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import jakarta.ejb.Remote;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@EnableServices("ejbd")
+@RunWith(ApplicationComposer.class)
+public class MultiplexedEjbdTest {
+    private static final int CALLS = 8;
+    private static final CountDownLatch ARRIVED = new CountDownLatch(CALLS);
+
+    static { // read once by the client, each test class runs in its own vm
+        System.setProperty(SocketConnectionFactory.PROPERTY_KEEPALIVE, "multiplex");
+        System.setProperty(SocketConnectionFactory.PROPERTY_MULTIPLEX_SOCKETS, "1");
+    }
+
+    @RandomPort("ejbd")
+    private int ejbd;
+
+    @Module
+    public EnterpriseBean bean() {
+        return new StatelessBean(Meeting.class).localBean();
+    }
+
+    @Test
+    public void sequentialCalls() throws Exception {
+        final MeetingRemote meeting = lookup();
+        for (int i = 0; i < 50; i++) {
+            assertEquals("hello" + i, meeting.echo("hello" + i));
+        }
+    }
+
+    @Test
+    public void concurrentCallsShareTheSocket() throws Exception {
+        final MeetingRemote meeting = lookup();
+        final ExecutorService clients = Executors.newFixedThreadPool(CALLS);
+        try {
+            final Collection<Future<Boolean>> results = new ArrayList<>();
+            for (int c = 0; c < CALLS; c++) {
+                results.add(clients.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        // only returns true if all the calls are running at the same time on the single socket
+                        return meeting.join();
+                    }
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private MeetingRemote lookup() throws Exception {
+        final Context ctx = new InitialContext(new Properties() {{
+            setProperty(Context.INITIAL_CONTEXT_FACTORY, RemoteInitialContextFactory.class.getName());
+            setProperty(Context.PROVIDER_URL, "ejbd://localhost:" + ejbd);
+        }});
+        return (MeetingRemote) ctx.lookup("MeetingRemote");
+    }
+
+    public interface MeetingRemote {
+
+        String echo(String message);
+
+        boolean join() throws InterruptedException;
+    }
+
+    @Remote(MeetingRemote.class)
+    public static class Meeting implements MeetingRemote {
+
+        @Override
+        public String echo(final String message) {
+            return message;
+        }
+
+        @Override
+        public boolean join() throws InterruptedException {
+            ARRIVED.countDown();
+            return ARRIVED.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
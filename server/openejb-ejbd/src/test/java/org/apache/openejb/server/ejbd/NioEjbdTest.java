@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.client.KeepAliveStyle;
+import org.apache.openejb.client.RemoteInitialContextFactory;
+import org.apache.openejb.jee.EnterpriseBean;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.server.ServerService;
+import org.apache.openejb.server.ServiceDaemon;
+import org.apache.openejb.server.ServiceManager;
+import org.apache.openejb.server.SimpleServiceManager;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testing.RandomPort;
+import org.apache.openejb.util.reflection.Reflections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@EnableServices("ejbd")
+@RunWith(ApplicationComposer.class)
+public class NioEjbdTest {
+    @RandomPort("ejbd")
+    private int ejbd;
+
+    @Configuration
+    public Properties configuration() {
+        final Properties configuration = new Properties();
+        configuration.setProperty("ejbd.nio", "true");
+        configuration.setProperty("ejbd.threads", "4");
+        configuration.setProperty("ejbd.nio.requestTimeout", "500");
+        return configuration;
+    }
+
+    @Module
+    public EnterpriseBean bean() {
+        return new SingletonBean(AppClientTest.Orange.class).localBean();
+    }
+
+    @Test
+    public void checkNioIsOn() throws Exception {
+        int checked = 0;
+        for (final ServerService daemon : SimpleServiceManager.class.cast(ServiceManager.get()).getDaemons()) {
+            if (ServiceDaemon.class.isInstance(daemon) && daemon.getName().equals("ejbd")) {
+                final Object ejbServer = Reflections.get(Reflections.get(Reflections.get(Reflections.get(Reflections.get(Reflections.get(daemon, "next"),
+                    "service"), "service"), "service"), "service"), "service");
+                assertTrue(NioKeepAliveServer.class.isInstance(Reflections.get(ejbServer, "keepAlive")));
+                checked++;
+            }
+        }
+        assertEquals(1, checked);
+    }
+
+    @Test
+    public void keepAliveConnectionsAreReused() throws Exception {
+        final AppClientTest.OrangeBusinessRemote orange = lookup();
+        for (int i = 0; i < 50; i++) {
+            assertEquals("hello" + i, orange.echo(new StringBuilder("hello" + i).reverse().toString()));
+        }
+    }
+
+    @Test
+    public void moreClientsThanWorkers() throws Exception {
+        final AppClientTest.OrangeBusinessRemote orange = lookup();
+        final ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            final Collection<Future<Boolean>> results = new ArrayList<>();
+            for (int c = 0; c < 16; c++) {
+                final String message = "client" + c;
+                results.add(clients.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int i = 0; i < 20; i++) {
+                            assertEquals(message, orange.echo(new StringBuilder(message).reverse().toString()));
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stalledClientIsDisconnected() throws Exception {
+        try (final Socket socket = new Socket("localhost", ejbd)) {
+            socket.setSoTimeout(10000);
+            final OutputStream out = socket.getOutputStream();
+            out.write(KeepAliveStyle.PING_PONG.ordinal()); // starts a request and never sends it
+            out.flush();
+
+            final InputStream in = socket.getInputStream();
+            assertEquals(KeepAliveStyle.PING_PONG.ordinal(), in.read());
+            final long start = System.nanoTime();
+            assertEquals(-1, in.read()); // the worker gave up and closed the connection
+            assertTrue(System.nanoTime() - start < 9_000_000_000L);
+        }
+
+        // the worker is free again
+        assertEquals("hello", lookup().echo("olleh"));
+    }
+
+    @Test
+    public void multiplexedConnectionsDoNotHoldWorkers() throws Exception {
+        final Collection<Socket> sockets = new ArrayList<>();
+        final ScheduledExecutorService clients = Executors.newSingleThreadScheduledExecutor();
+        try {
+            for (int c = 0; c < 6; c++) { // more than the 4 workers
+                final Socket socket = new Socket("localhost", ejbd);
+                sockets.add(socket);
+                socket.getOutputStream().write(KeepAliveStyle.MULTIPLEX.ordinal());
+                socket.getOutputStream().flush();
+            }
+
+            // keeps every multiplexed connection busy with (empty, failing) frames
+            final AtomicInteger id = new AtomicInteger();
+            clients.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    for (final Socket socket : sockets) {
+                        try {
+                            final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                            out.writeInt(id.incrementAndGet());
+                            out.writeInt(0);
+                            out.flush();
+                        } catch (final IOException e) {
+                            // asserted below
+                        }
+                    }
+                }
+            }, 0, 200, TimeUnit.MILLISECONDS);
+
+            // well past the request timeout, an idle worker would have given its connection up by now
+            Thread.sleep(1000);
+
+            assertEquals("hello", lookup().echo("olleh"));
+
+            // and the frames of every multiplexed connection are still answered
+            for (final Socket socket : sockets) {
+                socket.setSoTimeout(5000);
+                final DataInputStream in = new DataInputStream(socket.getInputStream());
+                assertTrue(in.readInt() > 0);
+                in.skipBytes(in.readInt());
+            }
+        } finally {
+            clients.shutdownNow();
+            for (final Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private AppClientTest.OrangeBusinessRemote lookup() throws Exception {
+        final Context ctx = new InitialContext(new Properties() {{
+            setProperty(Context.INITIAL_CONTEXT_FACTORY, RemoteInitialContextFactory.class.getName());
+            setProperty(Context.PROVIDER_URL, "ejbd://localhost:" + ejbd + "?connectTimeout=1000&readTimeout=5000");
+        }});
+        return (AppClientTest.OrangeBusinessRemote) ctx.lookup("OrangeRemote");
+    }
+}
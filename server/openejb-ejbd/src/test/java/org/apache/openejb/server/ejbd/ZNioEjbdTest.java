@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.client.RemoteInitialContextFactory;
+import org.apache.openejb.jee.EnterpriseBean;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testing.RandomPort;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+@EnableServices("ejbd")
+@RunWith(ApplicationComposer.class)
+public class ZNioEjbdTest {
+    @RandomPort("ejbd")
+    private int ejbd;
+
+    @Configuration
+    public Properties configuration() {
+        final Properties configuration = new Properties();
+        configuration.setProperty("ejbd.gzip", "true");
+        configuration.setProperty("ejbd.nio", "true");
+        return configuration;
+    }
+
+    @Module
+    public EnterpriseBean bean() {
+        return new SingletonBean(AppClientTest.Orange.class).localBean();
+    }
+
+    @Test
+    public void checkItWorks() throws Exception {
+        final Context ctx = new InitialContext(new Properties() {{
+            setProperty(Context.INITIAL_CONTEXT_FACTORY, RemoteInitialContextFactory.class.getName());
+            setProperty(Context.PROVIDER_URL, "zejbd://localhost:" + ejbd + "?connectTimeout=1000&readTimeout=5000");
+        }});
+        final AppClientTest.OrangeBusinessRemote orange = (AppClientTest.OrangeBusinessRemote) ctx.lookup("OrangeRemote");
+        for (int i = 0; i < 20; i++) {
+            assertEquals("hello" + i, orange.echo(new StringBuilder("hello" + i).reverse().toString()));
+        }
+    }
+}
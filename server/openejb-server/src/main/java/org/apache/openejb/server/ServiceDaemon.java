@@ -39,6 +39,7 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -69,6 +70,7 @@ public class ServiceDaemon extends UnwrappbleServerService {
     private String ip;
 
     private boolean secure;
+    private boolean nio;
     private StringTemplate discoveryUriFormat;
     private URI serviceUri;
     private Properties props;
@@ -85,6 +87,11 @@ public class ServiceDaemon extends UnwrappbleServerService {
         this.next = next;
     }
 
+    public ServiceDaemon(final ServerService next, final int port, final String ip, final boolean nio) {
+        this(next, port, ip);
+        this.nio = nio;
+    }
+
     public static InetAddress getAddress(final String host) {
         try {
             return InetAddress.getByName(host);
@@ -126,6 +133,8 @@ public class ServiceDaemon extends UnwrappbleServerService {
 
         this.secure = options.get("secure", false);
 
+        this.nio = options.get("nio", false);
+
         this.timeout = options.get("timeout", this.timeout);
 
         this.enabledCipherSuites = options.get("enabledCipherSuites", "SSL_DH_anon_WITH_RC4_128_MD5").split(",");
@@ -150,7 +159,8 @@ public class ServiceDaemon extends UnwrappbleServerService {
                     serverSocket = factory.createServerSocket(this.port, this.backlog, this.inetAddress);
                     ((SSLServerSocket) serverSocket).setEnabledCipherSuites(this.enabledCipherSuites);
                 } else {
-                    serverSocket = new ServerSocket();
+                    // a channel backed socket lets the service hand accepted connections over to a selector
+                    serverSocket = this.nio ? ServerSocketChannel.open().socket() : new ServerSocket();
                     serverSocket.setReuseAddress(true);
 
                     try {
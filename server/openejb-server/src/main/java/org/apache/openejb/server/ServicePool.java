@@ -21,6 +21,7 @@ import org.apache.openejb.loader.SystemInstance;
 import org.apache.openejb.monitoring.Managed;
 import org.apache.openejb.util.LogCategory;
 import org.apache.openejb.util.Logger;
+import org.apache.openejb.util.VirtualThreadFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -61,7 +62,11 @@ public class ServicePool extends ServerServiceFilter {
         this(next, properties.get("threadsCore", 10), properties.get("threads", 150),
                 properties.get("queue", 0), properties.get("block", true),
                 properties.get("keepAliveTime", KEEP_ALIVE_TIME),
-                properties.get("forceSocketClose", true));
+                properties.get("forceSocketClose", !properties.get("nio", false)),
+                properties.get("virtualThreads", false));
+        if (properties.getProperties().containsKey("threadFactory") && properties.get("virtualThreads", false)) {
+            log.warning("ServicePool '" + getName() + "': threadFactory is ignored, virtualThreads creates the threads of the pool");
+        }
     }
 
     public ServicePool(final ServerService next, final int threads) {
@@ -73,6 +78,15 @@ public class ServicePool extends ServerServiceFilter {
     }
 
     public ServicePool(final ServerService next, int threadCore, int threads, int queue, final boolean block, long keepAliveTime, boolean forceClose) {
+        this(next, threadCore, threads, queue, block, keepAliveTime, forceClose, false);
+    }
+
+    /**
+     * With virtualThreads the pool creates virtual threads (Java 21 and later), 'threads' stays
+     * the maximum number of requests serviced concurrently but a request blocked on I/O no longer pins a platform thread.
+     */
+    public ServicePool(final ServerService next, int threadCore, int threads, int queue, final boolean block, long keepAliveTime, boolean forceClose,
+                       final boolean virtualThreads) {
         super(next);
 
         this.forceSocketClose = forceClose;
@@ -104,6 +118,7 @@ public class ServicePool extends ServerServiceFilter {
          */
 
         final int c = threadCore;
+        final ThreadFactory virtual = virtualThreads ? virtualThreadFactory() : null;
         final int t = threads;
         final int q = queue;
 
@@ -113,7 +128,8 @@ public class ServicePool extends ServerServiceFilter {
 
                 @Override
                 public Thread newThread(final Runnable r) {
-                    final Thread t = new Thread(r, "OpenEJB." + ServicePool.this.getName() + "." + i.incrementAndGet());
+                    final Thread t = virtual != null ? virtual.newThread(r) : new Thread(r);
+                    t.setName("OpenEJB." + ServicePool.this.getName() + "." + i.incrementAndGet());
                     t.setDaemon(true);
                     t.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
                         @Override
@@ -182,6 +198,14 @@ public class ServicePool extends ServerServiceFilter {
         return threadPool;
     }
 
+    private ThreadFactory virtualThreadFactory() {
+        if (VirtualThreadFactory.isSupported()) {
+            return new VirtualThreadFactory("OpenEJB", getName());
+        }
+        log.warning("ServicePool '" + getName() + "': virtualThreads needs Java 21 or later, using platform threads");
+        return null;
+    }
+
     @Override
     public void start() throws ServiceException {
         super.start();
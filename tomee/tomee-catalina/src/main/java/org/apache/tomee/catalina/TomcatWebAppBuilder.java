@@ -1312,6 +1312,7 @@ public class TomcatWebAppBuilder implements WebAppBuilder, ContextListener, Pare
                     contextInfo = addContextInfo(Contexts.getHostname(standardContext), standardContext);
                     contextInfo.standardContext = standardContext; // ensure to do it before an exception can be thrown
 
+                    // never snapshotted (see AppInfoSnapshot), the module is built from the Tomcat context
                     contextInfo.appInfo = configurationFactory.configureApplication(appModule);
 
                     final Boolean autoDeploy = DeployerEjb.AUTO_DEPLOY.get();
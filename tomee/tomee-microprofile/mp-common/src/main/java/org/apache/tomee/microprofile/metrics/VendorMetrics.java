@@ -29,11 +29,15 @@ import javax.management.AttributeList;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
+import javax.management.relation.MBeanServerNotificationFilter;
 import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -49,6 +53,8 @@ public class VendorMetrics {
 
     private static final Logger LOGGER = Logger.getLogger(VendorMetrics.class.getName());
 
+    private final AtomicBoolean listening = new AtomicBoolean();
+
     public void afterApplicationDeployed(@Observes AssemblerAfterApplicationCreated event) {
         if ("none".equals(SystemInstance.get().getOptions().get("tomee.mp.scan", "none"))) {
             return;
@@ -71,35 +77,56 @@ public class VendorMetrics {
         }
 
         for (final ObjectInstance objectInstance : objectInstances) {
-            final ObjectName objectName = objectInstance.getObjectName();
-            LOGGER.info("Adding vendor metrics for " + objectName);
+            LOGGER.info("Adding vendor metrics for " + objectInstance.getObjectName());
             LOGGER.info("Class name: " + objectInstance.getClassName());
+            configureMetrics(platformMBeanServer, registry, objectInstance.getObjectName());
+        }
 
-            final List<String> nameParts = new ArrayList<>();
+        // the statistics of SQL statements are registered when a statement is first seen, after the deployment
+        if (listening.compareAndSet(false, true)) {
+            final MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+            filter.enableType(MBeanServerNotification.REGISTRATION_NOTIFICATION);
+            try {
+                platformMBeanServer.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, (notification, handback) -> {
+                    final ObjectName objectName = ((MBeanServerNotification) notification).getMBeanName();
+                    if ("openejb.management".equals(objectName.getDomain()) && objectName.getKeyProperty("Statement") != null) {
+                        configureMetrics(platformMBeanServer, registry, objectName);
+                    }
+                }, filter, null);
+            } catch (final Exception e) {
+                LOGGER.log(Level.WARNING, "Unable to listen to the MBeans registered after the deployment", e);
+            }
+        }
+    }
 
-            if (objectName.getKeyProperty("ObjectType") != null) {
-                nameParts.add(objectName.getKeyProperty("ObjectType"));
-                if (objectName.getKeyProperty("DataSource") != null) {
-                    nameParts.add(objectName.getKeyProperty("DataSource"));
-                }
-            } else if (objectName.getKeyProperty("j2eeType") != null) {
-                nameParts.add(objectName.getKeyProperty("j2eeType"));
-                if (objectName.getKeyProperty("name") != null) {
-                    nameParts.add(objectName.getKeyProperty("name"));
-                }
+    private static void configureMetrics(final MBeanServer platformMBeanServer, final MetricRegistry registry, final ObjectName objectName) {
+        final List<String> nameParts = new ArrayList<>();
+
+        if (objectName.getKeyProperty("ObjectType") != null) {
+            nameParts.add(objectName.getKeyProperty("ObjectType"));
+            if (objectName.getKeyProperty("DataSource") != null) {
+                nameParts.add(objectName.getKeyProperty("DataSource"));
+            }
+            if (objectName.getKeyProperty("Statement") != null) {
+                nameParts.add(objectName.getKeyProperty("Statement"));
             }
+        } else if (objectName.getKeyProperty("j2eeType") != null) {
+            nameParts.add(objectName.getKeyProperty("j2eeType"));
+            if (objectName.getKeyProperty("name") != null) {
+                nameParts.add(objectName.getKeyProperty("name"));
+            }
+        }
 
-            final String metricName = Join.join("_", nameParts);
+        final String metricName = Join.join("_", nameParts);
 
-            try {
-                final MBeanInfo mBeanInfo = platformMBeanServer.getMBeanInfo(objectName);
-                final JMXInfo jmxInfo = JMXInfo.from(objectName, mBeanInfo);
+        try {
+            final MBeanInfo mBeanInfo = platformMBeanServer.getMBeanInfo(objectName);
+            final JMXInfo jmxInfo = JMXInfo.from(objectName, mBeanInfo);
 
-                jmxInfo.configureMetrics(registry, metricName);
+            jmxInfo.configureMetrics(registry, metricName);
 
-            } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "Unable to configure metrics for " + objectName, e);
-            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Unable to configure metrics for " + objectName, e);
         }
     }
 